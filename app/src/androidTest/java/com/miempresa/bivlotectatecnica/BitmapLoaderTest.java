@@ -0,0 +1,188 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.pdf.PdfDocument;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Decodificación de fotos de BitmapLoader: tamaño final, orientación EXIF y pico de memoria.
+ * Exporta un informe de 100 pasos con fotos de 8 MP y registra el pico de memoria (heap Java +
+ * nativo) frente a la decodificación anterior (foto completa y después createBitmap escalado).
+ */
+@RunWith(AndroidJUnit4.class)
+public class BitmapLoaderTest {
+
+    private static final String TAG = "BitmapLoaderTest";
+    private static final int PHOTOS = 10;
+    private static final int STEPS = 100;
+    private static final int PHOTO_WIDTH = 3264; // 8 MP, como una cámara de gama media
+    private static final int PHOTO_HEIGHT = 2448;
+
+    private Context context;
+    private File dir;
+    private final List<String> photoUris = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dir = new File(context.getCacheDir(), "bitmap_loader_test");
+        dir.mkdirs();
+        Bitmap bitmap = Bitmap.createBitmap(PHOTO_WIDTH, PHOTO_HEIGHT, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+        for (int i = 0; i < PHOTOS; i++) {
+            canvas.drawColor(0xFF000000 | (i * 0x1A2B3C));
+            paint.setColor(0xFFFFFFFF - i * 0x101010);
+            canvas.drawCircle(PHOTO_WIDTH / 2f, PHOTO_HEIGHT / 2f, 300 + i * 50, paint);
+            File file = new File(dir, "foto_" + i + ".jpg");
+            try (OutputStream out = new FileOutputStream(file)) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 85, out);
+            }
+            photoUris.add(Uri.fromFile(file).toString());
+        }
+        bitmap.recycle();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void decodeScaled_fitsBoxAndHonoursExif() throws IOException {
+        Uri uri = Uri.parse(photoUris.get(0));
+        Bitmap bitmap = BitmapLoader.decodeScaled(context, uri, 515, 200, true);
+        assertNotNull(bitmap);
+        assertEquals(267, bitmap.getWidth()); // 3264x2448 encajado en 515x200
+        assertEquals(200, bitmap.getHeight());
+        assertEquals(Bitmap.Config.RGB_565, bitmap.getConfig());
+        bitmap.recycle();
+
+        // La misma foto marcada como girada 90°: se dibuja vertical
+        ExifInterface exif = new ExifInterface(uri.getPath());
+        exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(ExifInterface.ORIENTATION_ROTATE_90));
+        exif.saveAttributes();
+        assertArrayEquals(new int[]{ 150, 200 }, BitmapLoader.measureScaled(context, uri, 515, 200));
+        bitmap = BitmapLoader.decodeScaled(context, uri, 515, 200, true);
+        assertNotNull(bitmap);
+        assertEquals(150, bitmap.getWidth());
+        assertEquals(200, bitmap.getHeight());
+        bitmap.recycle();
+    }
+
+    @Test
+    public void calculateInSampleSize_keepsImageAtLeastTargetSize() {
+        assertEquals(1, BitmapLoader.calculateInSampleSize(515, 200, 515, 200));
+        assertEquals(8, BitmapLoader.calculateInSampleSize(PHOTO_WIDTH, PHOTO_HEIGHT, 267, 200));
+        assertEquals(16, BitmapLoader.calculateInSampleSize(8000, 6000, 267, 200)); // 48 MP
+    }
+
+    @Test
+    public void export100Steps_peakMemoryFarBelowFullDecode() throws IOException {
+        ReportPageRenderer.ReportData report = report();
+        Runtime runtime = Runtime.getRuntime();
+
+        System.gc();
+        long baseline = usedBytes(runtime);
+        long fullDecodePeak = exportWithFullDecode(report, new File(dir, "completo.pdf"), runtime) - baseline;
+
+        System.gc();
+        baseline = usedBytes(runtime);
+        long[] peak = { baseline };
+        ReportPDFGenerator generator = new ReportPDFGenerator(context, null);
+        generator.writePdf(report, new File(dir, "submuestreado.pdf"), ReportPDFGenerator.Template.LIST,
+                ReportPDFGenerator.Backend.PDF_DOCUMENT, null,
+                (stepsDone, totalSteps, pagesDone) -> peak[0] = Math.max(peak[0], usedBytes(runtime)));
+        long sampledPeak = peak[0] - baseline;
+
+        Log.i(TAG, String.format("%d pasos con fotos de %dx%d: pico +%d KB decodificando completo, +%d KB submuestreado",
+                STEPS, PHOTO_WIDTH, PHOTO_HEIGHT, fullDecodePeak / 1024, sampledPeak / 1024));
+        // Una sola foto completa en ARGB_8888 ya ocupa ~32 MB
+        assertTrue(fullDecodePeak > 4L * PHOTO_WIDTH * PHOTO_HEIGHT / 2);
+        assertTrue("Submuestreado +" + sampledPeak / 1024 + " KB", sampledPeak * 4 < fullDecodePeak);
+    }
+
+    /**
+     * La generación anterior: decodifica la foto completa, la escala con createBitmap y la
+     * dibuja (tres pasos por página). Mide la memoria con la foto completa aún viva.
+     * @return Pico de memoria usada.
+     */
+    private long exportWithFullDecode(ReportPageRenderer.ReportData report, File file, Runtime runtime) throws IOException {
+        PdfDocument document = new PdfDocument();
+        long peak = usedBytes(runtime);
+        try {
+            PdfDocument.Page page = null;
+            for (int i = 0; i < report.steps.size(); i++) {
+                if (i % 3 == 0) {
+                    if (page != null) document.finishPage(page);
+                    page = document.startPage(new PdfDocument.PageInfo.Builder(
+                            ReportPageRenderer.PAGE_WIDTH, ReportPageRenderer.PAGE_HEIGHT, i / 3 + 1).create());
+                }
+                Bitmap original;
+                try (InputStream in = context.getContentResolver().openInputStream(Uri.parse(report.steps.get(i).photoUri))) {
+                    original = BitmapFactory.decodeStream(in);
+                }
+                float scale = Math.min((float) ReportPageRenderer.IMAGE_MAX_WIDTH / original.getWidth(),
+                        (float) ReportPageRenderer.IMAGE_MAX_HEIGHT / original.getHeight());
+                Matrix matrix = new Matrix();
+                matrix.postScale(scale, scale);
+                Bitmap scaled = Bitmap.createBitmap(original, 0, 0, original.getWidth(), original.getHeight(), matrix, true);
+                peak = Math.max(peak, usedBytes(runtime));
+                page.getCanvas().drawBitmap(scaled, ReportPageRenderer.MARGIN_X, 50 + (i % 3) * 250, null);
+                scaled.recycle();
+                original.recycle();
+            }
+            if (page != null) document.finishPage(page);
+            try (OutputStream out = new FileOutputStream(file)) {
+                document.writeTo(out);
+            }
+        } finally {
+            document.close();
+        }
+        return peak;
+    }
+
+    private ReportPageRenderer.ReportData report() {
+        List<ReportPageRenderer.StepRow> steps = new ArrayList<>();
+        for (int i = 0; i < STEPS; i++) {
+            steps.add(new ReportPageRenderer.StepRow(i + 1, "Paso " + (i + 1), photoUris.get(i % PHOTOS)));
+        }
+        return new ReportPageRenderer.ReportData(1, "Bomba centrífuga", "INV-1", "DESARME",
+                "Técnico", "Taller", "2024-01-01 10:00:00", Collections.unmodifiableList(steps));
+    }
+
+    private static long usedBytes(Runtime runtime) {
+        return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+    }
+}
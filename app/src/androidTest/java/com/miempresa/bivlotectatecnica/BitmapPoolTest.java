@@ -0,0 +1,153 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comportamiento de BitmapPool y su efecto en la decodificación de fotos del PDF: decodifica
+ * 200 pasos como lo hace StreamingPdfWriter al recodificar (decodeScaled + put, el único uso
+ * del pool en la exportación) sin pool y con pool, y registra los bytes de bitmaps
+ * reservados y los bytes del heap Java por paso.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BitmapPoolTest {
+
+    private static final String TAG = "BitmapPoolTest";
+    private static final int PHOTOS = 10;
+    private static final int STEPS = 200;
+
+    private Context context;
+    private File dir;
+    private final List<String> photoUris = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dir = new File(context.getCacheDir(), "bitmap_pool_test");
+        dir.mkdirs();
+        for (int i = 0; i < PHOTOS; i++) {
+            // Dos tamaños: la mitad necesita reconfigurar un bitmap del pool
+            Bitmap bitmap = i % 2 == 0
+                    ? Bitmap.createBitmap(1600, 1200, Bitmap.Config.ARGB_8888)
+                    : Bitmap.createBitmap(1200, 1600, Bitmap.Config.ARGB_8888);
+            bitmap.eraseColor(0xFF000000 | (i * 0x151515));
+            File file = new File(dir, "foto_" + i + ".jpg");
+            try (OutputStream out = new FileOutputStream(file)) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 85, out);
+            }
+            bitmap.recycle();
+            photoUris.add(Uri.fromFile(file).toString());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void get_returnsExactOrReconfiguredBitmap() {
+        BitmapPool pool = new BitmapPool(1024 * 1024);
+        Bitmap bitmap = Bitmap.createBitmap(100, 50, Bitmap.Config.RGB_565);
+        pool.put(bitmap);
+
+        assertSame(bitmap, pool.get(100, 50, Bitmap.Config.RGB_565));
+        assertNull(pool.get(100, 50, Bitmap.Config.RGB_565));
+
+        pool.put(bitmap);
+        Bitmap smaller = pool.get(40, 40, Bitmap.Config.RGB_565);
+        assertSame(bitmap, smaller);
+        assertEquals(40, smaller.getWidth());
+        assertNull("No alcanza", pool.get(200, 200, Bitmap.Config.RGB_565));
+        assertEquals(2, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+        pool.clear();
+    }
+
+    @Test
+    public void put_staysWithinBudget() {
+        Bitmap first = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888); // 40 KB
+        Bitmap second = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        BitmapPool pool = new BitmapPool(50 * 1000);
+        pool.put(first);
+        pool.put(second); // Expulsa al primero
+
+        assertTrue(first.isRecycled());
+        assertFalse(second.isRecycled());
+
+        Bitmap immutable = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888).copy(Bitmap.Config.ARGB_8888, false);
+        pool.put(immutable);
+        assertTrue("Los inmutables no se pueden reutilizar", immutable.isRecycled());
+        pool.clear();
+        assertTrue(second.isRecycled());
+    }
+
+    @Test
+    public void pdfDecode_steadyStateReservesAlmostNothing() throws IOException {
+        Result before = decodeSteps(new BitmapPool(0)); // Sin retener nada: como antes del pool
+        Result after = decodeSteps(new BitmapPool(ReportPageRenderer.IMAGE_POOL_BYTES));
+
+        Log.i(TAG, String.format("Sin pool: %d bytes de bitmaps y %d bytes Java por paso",
+                before.bitmapBytes / STEPS, before.javaBytes / STEPS));
+        Log.i(TAG, String.format("Con pool: %d bytes de bitmaps y %d bytes Java por paso (%d reservas en %d pasos)",
+                after.bitmapBytes / STEPS, after.javaBytes / STEPS, after.misses, STEPS));
+
+        // Sin pool: dos bitmaps nuevos por paso (el submuestreado y el final)
+        assertEquals(2 * STEPS, before.misses);
+        // Con pool: solo mientras se llena (una vuelta por las fotos, a lo sumo)
+        assertTrue("Reservas con pool: " + after.misses, after.misses <= 2 * PHOTOS);
+        assertTrue(after.bitmapBytes * 10 < before.bitmapBytes);
+    }
+
+    private static final class Result {
+        long bitmapBytes;
+        long javaBytes;
+        int misses;
+    }
+
+    @SuppressWarnings("deprecation") // Debug.startAllocCounting: no hay reemplazo para contar por hilo
+    private Result decodeSteps(BitmapPool pool) throws IOException {
+        Result result = new Result();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        try {
+            for (int i = 0; i < STEPS; i++) {
+                Bitmap bitmap = BitmapLoader.decodeScaled(context, Uri.parse(photoUris.get(i % PHOTOS)),
+                        ReportPageRenderer.IMAGE_MAX_WIDTH, ReportPageRenderer.IMAGE_MAX_HEIGHT, true, pool);
+                assertNotNull(bitmap);
+                pool.put(bitmap);
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        result.javaBytes = Debug.getThreadAllocSize();
+        result.bitmapBytes = pool.getMissBytes();
+        result.misses = pool.getMissCount();
+        pool.clear();
+        return result;
+    }
+}
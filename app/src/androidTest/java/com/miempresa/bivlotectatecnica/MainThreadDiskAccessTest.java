@@ -0,0 +1,236 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Build;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.os.strictmode.Violation;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.bd.AsyncUserProjectDatabase;
+import com.miempresa.bivlotectatecnica.bd.InMemoryDatabase;
+import com.miempresa.bivlotectatecnica.bd.ReportCursorAdapter;
+import com.miempresa.bivlotectatecnica.bd.ReportPageLoader;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
+import com.miempresa.bivlotectatecnica.bd.UserProjectDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ninguna operación de base de datos de las pantallas toca el disco en el hilo principal.
+ * Instala en el hilo principal una ThreadPolicy que detecta lecturas y escrituras de disco
+ * (y falla: penaltyListener desde Android 9, penaltyDeath antes) y recorre desde ahí, a
+ * través de AsyncUserProjectDatabase, lo que hacen Login, el menú de administrador (lista
+ * de informes, técnicos y rango del lote del mes), la lista de informes del técnico y el
+ * registro de pasos (borrador, finalizar y reabrir un informe).
+ */
+@RunWith(AndroidJUnit4.class)
+public class MainThreadDiskAccessTest {
+
+    private static final long TIMEOUT_MS = 5_000;
+    private static final long ADMIN_ID = 1;
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long TALLER_ID = 1;
+    private static final String PASSWORD_HASH = "e10adc3949ba59abbe56e057f20f883e"; // '123456'
+    private static final int REPORTS = 5;
+
+    private final List<Object> violations = Collections.synchronizedList(new ArrayList<>());
+    private Instrumentation instrumentation;
+    private Context context;
+    private InMemoryDatabase database;
+    private AsyncUserProjectDatabase db;
+    private StrictMode.ThreadPolicy previousPolicy;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+        database = new InMemoryDatabase(context);
+        for (int i = 1; i <= REPORTS; i++) {
+            assertTrue(database.dao.insertReportSteps(-1, "Componente " + i, "INV-" + i, TALLER_ID, TECNICO_ID, "DESARME",
+                    Collections.singletonList(new UserProjectDatabase.Step(1, "Paso", null))) > 0);
+        }
+        db = new AsyncUserProjectDatabase(database.dao);
+
+        instrumentation.runOnMainSync(() -> {
+            previousPolicy = StrictMode.getThreadPolicy();
+            StrictMode.ThreadPolicy.Builder policy = new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                policy.penaltyListener(Runnable::run, this::onViolation);
+            } else {
+                policy.penaltyDeath();
+            }
+            StrictMode.setThreadPolicy(policy.build());
+        });
+    }
+
+    @After
+    public void tearDown() {
+        instrumentation.runOnMainSync(() -> {
+            db.cancelAll();
+            StrictMode.setThreadPolicy(previousPolicy);
+        });
+        database.close();
+    }
+
+    @Test
+    public void login_readsCredentialsOffMainThread() {
+        Cursor user = await(callback -> db.checkUserCredentials("tecnico", PASSWORD_HASH, callback));
+        assertNotNull(user);
+        onMain(() -> {
+            // Como LoginActivity.onCredentialsChecked: el cursor llega lleno y en la primera fila
+            assertEquals(TECNICO_ID, user.getLong(user.getColumnIndexOrThrow("user_pk_id")));
+            assertEquals(UserProjectContract.ROLE_TECNICO,
+                    user.getString(user.getColumnIndexOrThrow(UserProjectContract.UserEntry.COLUMN_ROLE)));
+            user.close();
+        });
+        assertNull(await(callback -> db.checkUserCredentials("tecnico", "otra", callback)));
+        assertNoViolations();
+    }
+
+    @Test
+    public void adminMenu_listsReportsTechniciansAndMonthRange() {
+        assertEquals(REPORTS, loadReportList(ADMIN_ID, UserProjectContract.ROLE_ADMIN));
+
+        // TechnicianListActivity
+        Cursor users = await(db::getAllUsers);
+        onMain(() -> {
+            assertTrue(users.getCount() >= 2);
+            users.close();
+        });
+
+        // Rango del lote del mes (PdfExportService lo consulta en su hilo; aquí, como lectura)
+        List<Long> ids = await(callback -> db.read(
+                dao -> dao.getReportIdsModifiedBetween("2000-01-01 00:00:00", "2100-01-01 00:00:00"), callback));
+        assertEquals(REPORTS, ids.size());
+        assertNoViolations();
+    }
+
+    @Test
+    public void reportList_pagesOffMainThread() {
+        assertEquals(REPORTS, loadReportList(TECNICO_ID, UserProjectContract.ROLE_TECNICO));
+        assertNoViolations();
+    }
+
+    @Test
+    public void stepRegister_draftPromoteAndReopen() {
+        // Informe nuevo: recuperar borrador, autoguardar y finalizar
+        AtomicReference<StepDraftStore> store = new AtomicReference<>();
+        onMain(() -> store.set(new StepDraftStore(context, db, TECNICO_ID, -1)));
+        assertNull(this.<UserProjectDatabase.Draft>await(callback -> store.get().load(callback)));
+        onMain(() -> {
+            store.get().setHeader("Bomba", "INV-9", "ARMADO");
+            store.get().setStep(1, "Retirar la tapa", null);
+            store.get().flush();
+        });
+        Long reportId = await(callback -> store.get().promote(TALLER_ID, callback));
+        assertTrue(reportId != -1);
+
+        // Reabrir para agregar pasos: encabezado, numeración y borrador del informe
+        Cursor details = await(callback -> db.getReportDetails(reportId, callback));
+        onMain(() -> {
+            assertTrue(details.moveToFirst());
+            assertEquals("INV-9", details.getString(
+                    details.getColumnIndexOrThrow(UserProjectContract.ComponenteEntry.COLUMN_CODIGO_INVENTARIO)));
+            details.close();
+        });
+        assertEquals(Integer.valueOf(1), await(callback -> db.getMaxStepNumber(reportId, callback)));
+        onMain(() -> store.set(new StepDraftStore(context, db, TECNICO_ID, reportId)));
+        assertNull(this.<UserProjectDatabase.Draft>await(callback -> store.get().load(callback)));
+        assertNoViolations();
+    }
+
+    /**
+     * Primera página de la lista como la carga ReportListActivity.
+     * @return Filas en el adaptador.
+     */
+    private int loadReportList(long userId, String role) {
+        AtomicReference<ReportCursorAdapter> adapter = new AtomicReference<>();
+        AtomicReference<ReportPageLoader> loader = new AtomicReference<>();
+        onMain(() -> {
+            adapter.set(new ReportCursorAdapter(context, null, role, id -> {}));
+            loader.set(new ReportPageLoader(db, adapter.get(), userId, role));
+            assertTrue(loader.get().reloadIfChanged());
+        });
+        waitUntil(() -> adapter.get().getCursor() != null);
+        int[] count = new int[1];
+        onMain(() -> {
+            count[0] = adapter.get().getCount();
+            loader.get().close();
+        });
+        return count[0];
+    }
+
+    /**
+     * Inicia la operación en el hilo principal y espera el resultado (entregado ahí).
+     */
+    private <T> T await(Consumer<AsyncUserProjectDatabase.Callback<T>> operation) {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Exception> error = new AtomicReference<>();
+        onMain(() -> operation.accept(new AsyncUserProjectDatabase.Callback<T>() {
+            @Override
+            public void onResult(T value) {
+                result.set(value);
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                error.set(e);
+                done.countDown();
+            }
+        }));
+        try {
+            assertTrue("La operación no terminó", done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        if (error.get() != null) throw new AssertionError(error.get());
+        return result.get();
+    }
+
+    private void onMain(Runnable runnable) {
+        instrumentation.runOnMainSync(runnable);
+    }
+
+    private void waitUntil(BooleanSupplier condition) {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        boolean[] met = new boolean[1];
+        while (SystemClock.uptimeMillis() < deadline) {
+            onMain(() -> met[0] = condition.getAsBoolean());
+            if (met[0]) return;
+            SystemClock.sleep(20);
+        }
+        fail("La lista no cargó");
+    }
+
+    private void assertNoViolations() {
+        instrumentation.waitForIdleSync();
+        assertTrue("Acceso a disco en el hilo principal: " + violations, violations.isEmpty());
+    }
+
+    private void onViolation(Violation violation) {
+        violations.add(violation);
+    }
+}
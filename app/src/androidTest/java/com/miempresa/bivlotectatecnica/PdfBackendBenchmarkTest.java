@@ -0,0 +1,255 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.graphics.pdf.PdfRenderer;
+import android.net.Uri;
+import android.os.Debug;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exporta informes de 10, 100 y 1000 pasos (con foto) con los dos backends y registra en
+ * logcat el tiempo, el pico de memoria (heap Java + nativo) y el tamaño del archivo.
+ * Comprueba que el PDF del backend en streaming se abre con PdfRenderer y tiene las mismas
+ * páginas que el de PdfDocument, y compara el peso de las fotos según ImageOptions sobre
+ * un juego fijo de fotos (degradados y figuras generados con semilla fija).
+ */
+@RunWith(AndroidJUnit4.class)
+public class PdfBackendBenchmarkTest {
+
+    private static final String TAG = "PdfBackendBenchmark";
+    private static final int[] STEP_COUNTS = { 10, 100, 1000 };
+    private static final int PHOTOS = 10;
+
+    private Context context;
+    private File dir;
+    private final List<String> photoUris = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dir = new File(context.getCacheDir(), "pdf_backend_test");
+        dir.mkdirs();
+        for (int i = 0; i < PHOTOS; i++) {
+            Bitmap bitmap = photo(new Random(i), 1600, 1200);
+            File file = new File(dir, "foto_" + i + ".jpg");
+            try (OutputStream out = new FileOutputStream(file)) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 85, out);
+            }
+            bitmap.recycle();
+            photoUris.add(Uri.fromFile(file).toString());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void streamingBackend_samePagesAsPdfDocument() throws IOException {
+        ReportPDFGenerator generator = new ReportPDFGenerator(context, null);
+        for (int count : STEP_COUNTS) {
+            ReportPageRenderer.ReportData report = report(count);
+            Result document = export(generator, report, ReportPDFGenerator.Backend.PDF_DOCUMENT, null);
+            Result streaming = export(generator, report, ReportPDFGenerator.Backend.STREAMING,
+                    ReportPDFGenerator.ImageOptions.DEFAULT);
+
+            assertEquals("Páginas con " + count + " pasos", document.pages, streaming.pages);
+            assertEquals("Páginas leídas del PDF en streaming", streaming.pages, countPages(streaming.file));
+        }
+    }
+
+    @Test
+    public void jpegOptions_shrinkImagesOnFixedCorpus() throws IOException {
+        ReportPDFGenerator generator = new ReportPDFGenerator(context, null);
+        ReportPageRenderer.ReportData report = report(100);
+        Result document = export(generator, report, ReportPDFGenerator.Backend.PDF_DOCUMENT, null);
+        Result original = export(generator, report, ReportPDFGenerator.Backend.STREAMING,
+                ReportPDFGenerator.ImageOptions.ORIGINAL);
+        PdfImageStats originalStats = generator.getLastImageStats();
+        Result reduced = export(generator, report, ReportPDFGenerator.Backend.STREAMING,
+                ReportPDFGenerator.ImageOptions.DEFAULT);
+        PdfImageStats reducedStats = generator.getLastImageStats();
+
+        Log.i(TAG, "Fotos originales: " + originalStats.summary());
+        Log.i(TAG, "Fotos a 150 dpi: " + reducedStats.summary());
+        Log.i(TAG, String.format("PdfDocument %d KB, originales %d KB, 150 dpi %d KB",
+                document.file.length() / 1024, original.file.length() / 1024, reduced.file.length() / 1024));
+
+        assertEquals(100, originalStats.getImageCount());
+        assertEquals(100, originalStats.getPassThroughCount());
+        assertEquals(originalStats.getSourceBytes(), originalStats.getEmbeddedBytes());
+        assertEquals(100, reducedStats.getImageCount());
+        assertEquals(0, reducedStats.getPassThroughCount()); // 1600x1200 supera los 150 dpi de la caja
+        assertTrue(reducedStats.getEmbeddedBytes() < originalStats.getEmbeddedBytes());
+        assertTrue(reduced.file.length() < original.file.length());
+        assertTrue(reduced.file.length() > reducedStats.getEmbeddedBytes());
+        assertEquals(document.pages, reduced.pages);
+    }
+
+    @Test
+    public void gridTemplates_fewerPagesThanList() throws IOException {
+        ReportPDFGenerator generator = new ReportPDFGenerator(context, null);
+        ReportPageRenderer.ReportData report = report(100);
+        Result list = export(generator, report, ReportPDFGenerator.Template.LIST,
+                ReportPDFGenerator.Backend.PDF_DOCUMENT, null);
+        Result grid = export(generator, report, ReportPDFGenerator.Template.GRID_2X3,
+                ReportPDFGenerator.Backend.PDF_DOCUMENT, null);
+        Result dense = export(generator, report, ReportPDFGenerator.Template.GRID_3X4,
+                ReportPDFGenerator.Backend.PDF_DOCUMENT, null);
+        Result denseStreaming = export(generator, report, ReportPDFGenerator.Template.GRID_3X4,
+                ReportPDFGenerator.Backend.STREAMING, ReportPDFGenerator.ImageOptions.DEFAULT);
+
+        // 100 pasos: 17 páginas de 6 celdas o 9 de 12 (la primera comparte con el encabezado)
+        assertTrue("Lista " + list.pages + ", 2x3 " + grid.pages, grid.pages < list.pages);
+        assertTrue("2x3 " + grid.pages + ", 3x4 " + dense.pages, dense.pages < grid.pages);
+        assertTrue(dense.pages <= 100 / 12 + 2);
+        assertEquals(dense.pages, denseStreaming.pages);
+        assertEquals(dense.pages, countPages(denseStreaming.file));
+    }
+
+    @Test
+    public void gridCaptions_streamingWritesEllipsis() throws IOException {
+        ReportPDFGenerator generator = new ReportPDFGenerator(context, null);
+        List<ReportPageRenderer.StepRow> steps = new ArrayList<>();
+        String description = "Desmontar el conjunto del rotor, revisar el estado de los álabes, medir el juego axial "
+                + "del eje y anotar las lecturas del comparador antes de volver a montar la carcasa";
+        steps.add(new ReportPageRenderer.StepRow(1, description, photoUris.get(0)));
+        ReportPageRenderer.ReportData report = new ReportPageRenderer.ReportData(1, "Bomba centrífuga", "INV-1",
+                "DESARME", "Técnico", "Taller", "2024-01-01 10:00:00", Collections.unmodifiableList(steps));
+
+        Result grid = export(generator, report, ReportPDFGenerator.Template.GRID_3X4,
+                ReportPDFGenerator.Backend.STREAMING, ReportPDFGenerator.ImageOptions.DEFAULT);
+
+        // La leyenda no entra en la celda: la línea recortada termina en "…" (0x85 en WinAnsi)
+        byte[] pdf = new byte[(int) grid.file.length()];
+        try (InputStream in = new FileInputStream(grid.file)) {
+            int read = 0;
+            while (read < pdf.length) read += in.read(pdf, read, pdf.length - read);
+        }
+        String content = new String(pdf, "windows-1252");
+        int ellipsis = content.indexOf("\u2026) Tj");
+        assertTrue("Sin \"…\" en el PDF", ellipsis > 0);
+        String shown = content.substring(content.lastIndexOf('(', ellipsis) + 1, ellipsis).trim();
+        assertTrue(shown, shown.length() > 0 && ("PASO 1: " + description).contains(shown));
+        assertFalse("El resto de la leyenda no se escribe", content.contains("carcasa"));
+    }
+
+    @Test
+    public void readJpegHeader_readsSizeAndComponents() throws IOException {
+        try (InputStream in = new FileInputStream(Uri.parse(photoUris.get(0)).getPath())) {
+            assertArrayEquals(new int[]{ 1600, 1200, 3 }, StreamingPdfWriter.readJpegHeader(in));
+        }
+        File notJpeg = new File(dir, "texto.jpg");
+        try (OutputStream out = new FileOutputStream(notJpeg)) {
+            out.write("no es una foto".getBytes("UTF-8"));
+        }
+        try (InputStream in = new FileInputStream(notJpeg)) {
+            assertNull(StreamingPdfWriter.readJpegHeader(in));
+        }
+    }
+
+    private static final class Result {
+        File file;
+        int pages;
+    }
+
+    private Result export(ReportPDFGenerator generator, ReportPageRenderer.ReportData report,
+                          ReportPDFGenerator.Backend backend, ReportPDFGenerator.ImageOptions images)
+            throws IOException {
+        return export(generator, report, ReportPDFGenerator.Template.LIST, backend, images);
+    }
+
+    private Result export(ReportPDFGenerator generator, ReportPageRenderer.ReportData report,
+                          ReportPDFGenerator.Template template, ReportPDFGenerator.Backend backend,
+                          ReportPDFGenerator.ImageOptions images) throws IOException {
+        Result result = new Result();
+        result.file = new File(dir, template + "_" + backend + "_" + report.steps.size() + "_"
+                + (images != null ? images.dpi : 0) + ".pdf");
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long baseline = usedBytes(runtime);
+        long[] peak = { baseline };
+
+        long start = SystemClock.elapsedRealtime();
+        result.pages = generator.writePdf(report, result.file, template, backend, images,
+                (stepsDone, totalSteps, pagesDone) -> peak[0] = Math.max(peak[0], usedBytes(runtime)));
+        long elapsed = SystemClock.elapsedRealtime() - start;
+
+        Log.i(TAG, String.format("%s %s %d pasos: %d ms, pico +%d KB, %d páginas, %d KB",
+                template, backend, report.steps.size(), elapsed, (peak[0] - baseline) / 1024, result.pages,
+                result.file.length() / 1024));
+        return result;
+    }
+
+    /**
+     * Foto sintética con la textura de una real: degradado de fondo y figuras de colores.
+     */
+    private static Bitmap photo(Random random, int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setShader(new LinearGradient(0, 0, width, height, 0xFF000000 | random.nextInt(),
+                0xFF000000 | random.nextInt(), Shader.TileMode.CLAMP));
+        canvas.drawRect(0, 0, width, height, paint);
+        paint.setShader(null);
+        for (int i = 0; i < 40; i++) {
+            paint.setColor(0xFF000000 | random.nextInt());
+            canvas.drawCircle(random.nextInt(width), random.nextInt(height), 20 + random.nextInt(200), paint);
+        }
+        return bitmap;
+    }
+
+    private static long usedBytes(Runtime runtime) {
+        return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+    }
+
+    private static int countPages(File file) throws IOException {
+        try (PdfRenderer renderer = new PdfRenderer(ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY))) {
+            return renderer.getPageCount();
+        }
+    }
+
+    private ReportPageRenderer.ReportData report(int count) {
+        List<ReportPageRenderer.StepRow> steps = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            steps.add(new ReportPageRenderer.StepRow(i + 1,
+                    "Retirar la tapa (tornillos \"M4\") y revisar el rodamiento n° " + (i + 1) + ". Limpieza con paño seco.",
+                    photoUris.get(i % PHOTOS)));
+        }
+        return new ReportPageRenderer.ReportData(count, "Bomba centrífuga", "INV-" + count, "DESARME",
+                "Técnico", "Taller", "2024-01-01 10:00:00", Collections.unmodifiableList(steps));
+    }
+}
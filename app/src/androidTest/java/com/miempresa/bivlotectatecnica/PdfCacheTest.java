@@ -0,0 +1,87 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Las variantes de un informe (plantilla, backend) conviven en la caché: guardar una solo
+ * reemplaza la versión anterior de esa misma variante, e invalidate() las borra todas.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PdfCacheTest {
+
+    private static final long REPORT_ID = 987_654; // Fuera del rango de los informes reales
+    private static final String OLD = "aaaa";
+    private static final String NEW = "bbbb";
+    private static final String GRID = "_GRID_2X3";
+    private static final String STREAMING = "_s80_150";
+
+    private Context context;
+    private PdfCache cache;
+    private File dir;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        cache = PdfCache.getInstance(context);
+        cache.invalidate(REPORT_ID);
+        dir = new File(context.getCacheDir(), "pdf_cache_test");
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        cache.invalidate(REPORT_ID);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void put_replacesOnlyTheSameVariant() throws IOException {
+        cache.put(REPORT_ID, OLD, pdf("lista"));
+        cache.put(REPORT_ID, OLD + GRID, pdf("cuadrícula"));
+        cache.put(REPORT_ID, OLD + STREAMING, pdf("streaming"));
+
+        File target = new File(dir, "salida.pdf");
+        assertTrue(cache.restore(REPORT_ID, OLD, target));
+        assertTrue("Exportar en cuadrícula no borra la lista", cache.restore(REPORT_ID, OLD + GRID, target));
+        assertTrue(cache.restore(REPORT_ID, OLD + STREAMING, target));
+
+        // El informe cambió: la lista nueva reemplaza a la vieja y las otras variantes siguen
+        cache.put(REPORT_ID, NEW, pdf("lista nueva"));
+        assertFalse(cache.restore(REPORT_ID, OLD, target));
+        assertTrue(cache.restore(REPORT_ID, NEW, target));
+        assertTrue(cache.restore(REPORT_ID, OLD + GRID, target));
+
+        cache.invalidate(REPORT_ID);
+        assertFalse(cache.restore(REPORT_ID, NEW, target));
+        assertFalse(cache.restore(REPORT_ID, OLD + GRID, target));
+        assertFalse(cache.restore(REPORT_ID, OLD + STREAMING, target));
+    }
+
+    private File pdf(String content) throws IOException {
+        File file = new File(dir, "generado.pdf");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(("%PDF-1.4 " + content).getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+}
@@ -0,0 +1,132 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.pdf.PdfRenderer;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Exporta con PdfDocument un informe de varios pasos, cada uno con una foto de un color
+ * distinto y del mismo tamaño (el caso en que un bitmap reutilizado pisaría las fotos ya
+ * dibujadas), lo rasteriza con PdfRenderer y comprueba que en la caja de cada foto aparece
+ * el color de su paso.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PdfDocumentPhotosTest {
+
+    private static final int STEPS = 12;
+    private static final int TOLERANCE = 24; // Por canal: JPEG y RGB_565
+
+    private Context context;
+    private File dir;
+    private final List<String> photoUris = new ArrayList<>();
+    private final int[] colors = new int[STEPS];
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dir = new File(context.getCacheDir(), "pdf_document_photos_test");
+        dir.mkdirs();
+        Bitmap bitmap = Bitmap.createBitmap(1600, 1200, Bitmap.Config.ARGB_8888);
+        for (int i = 0; i < STEPS; i++) {
+            colors[i] = Color.HSVToColor(new float[]{ i * 360f / STEPS, 1f, 1f });
+            bitmap.eraseColor(colors[i]);
+            File file = new File(dir, "foto_" + i + ".jpg");
+            try (OutputStream out = new FileOutputStream(file)) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 95, out);
+            }
+            photoUris.add(Uri.fromFile(file).toString());
+        }
+        bitmap.recycle();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void pdfDocument_eachStepKeepsItsPhoto() throws IOException {
+        for (ReportPDFGenerator.Template template : ReportPDFGenerator.Template.values()) {
+            ReportPageRenderer.ReportData report = report();
+            File file = new File(dir, template + ".pdf");
+            int pages = new ReportPDFGenerator(context, null).writePdf(report, file, template,
+                    ReportPDFGenerator.Backend.PDF_DOCUMENT, null, null);
+
+            // El mismo layout que midió writePdf: dónde quedó cada foto
+            ReportTemplate layoutTemplate = template.layout;
+            List<ReportPageRenderer.StepImage> sizes = new ArrayList<>();
+            for (ReportPageRenderer.StepRow step : report.steps) {
+                sizes.add(ReportPageRenderer.measureImage(context, step.photoUri,
+                        layoutTemplate.getImageMaxWidth(), layoutTemplate.getImageMaxHeight()));
+            }
+            ReportLayout layout = layoutTemplate.measure(report, sizes, new ReportLayout.Styles());
+            assertEquals(layout.getPageCount(), pages);
+
+            int checked = 0;
+            try (PdfRenderer renderer = new PdfRenderer(ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY))) {
+                assertEquals(pages, renderer.getPageCount());
+                Bitmap page = Bitmap.createBitmap(ReportPageRenderer.PAGE_WIDTH, ReportPageRenderer.PAGE_HEIGHT,
+                        Bitmap.Config.ARGB_8888);
+                for (int p = 0; p < pages; p++) {
+                    page.eraseColor(Color.WHITE);
+                    try (PdfRenderer.Page pdfPage = renderer.openPage(p)) {
+                        pdfPage.render(page, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+                    }
+                    for (ReportLayout.Fragment fragment : layout.getPage(p)) {
+                        if (!fragment.isImage()) continue;
+                        // Centro de la foto (se dibuja arriba a la izquierda de la caja, con su proporción)
+                        int shownWidth = Math.min(fragment.width, fragment.height * 4 / 3);
+                        int pixel = page.getPixel(fragment.left + shownWidth / 2, fragment.top + fragment.height / 2);
+                        int expected = colors[fragment.stepIndex];
+                        assertTrue(String.format(Locale.ROOT, "%s, paso %d: #%06X en vez de #%06X", template,
+                                fragment.stepIndex + 1, pixel & 0xFFFFFF, expected & 0xFFFFFF), close(pixel, expected));
+                        checked++;
+                    }
+                }
+                page.recycle();
+            }
+            assertEquals(template + ": fotos revisadas", STEPS, checked);
+        }
+    }
+
+    private static boolean close(int a, int b) {
+        return Math.abs(Color.red(a) - Color.red(b)) <= TOLERANCE
+                && Math.abs(Color.green(a) - Color.green(b)) <= TOLERANCE
+                && Math.abs(Color.blue(a) - Color.blue(b)) <= TOLERANCE;
+    }
+
+    private ReportPageRenderer.ReportData report() {
+        List<ReportPageRenderer.StepRow> steps = new ArrayList<>();
+        for (int i = 0; i < STEPS; i++) {
+            steps.add(new ReportPageRenderer.StepRow(i + 1, "Paso con foto n° " + (i + 1), photoUris.get(i)));
+        }
+        return new ReportPageRenderer.ReportData(STEPS, "Bomba centrífuga", "INV-1", "DESARME",
+                "Técnico", "Taller", "2024-01-01 10:00:00", Collections.unmodifiableList(steps));
+    }
+}
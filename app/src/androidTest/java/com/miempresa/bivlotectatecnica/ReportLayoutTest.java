@@ -0,0 +1,217 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+import android.text.StaticLayout;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Mide informes de 1 a 500 pasos con descripciones de todo largo (incluidas palabras más
+ * largas que una línea y descripciones más altas que una página) y comprueba que nada queda
+ * recortado: cada fragmento está dentro del área útil, no se superpone con otro, ninguna
+ * línea es más ancha que la página y cada línea de cada texto se coloca exactamente una vez.
+ * Con las plantillas de grilla comprueba que cada celda queda dentro del área útil y que
+ * ninguna caja pisa a otra. Un paso guardado sin foto (PLACEHOLDER_PHOTO_URI) se mide y se
+ * maqueta igual que uno con la foto vacía.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReportLayoutTest {
+
+    private static final int[] STEP_COUNTS = { 1, 2, 3, 5, 8, 13, 50, 100, 250, 500 };
+
+    @Test
+    public void noContentClipped_1to500Steps() {
+        ReportLayout.Styles styles = new ReportLayout.Styles();
+        for (int count : STEP_COUNTS) {
+            Random random = new Random(count);
+            List<ReportPageRenderer.StepRow> steps = new ArrayList<>();
+            List<ReportPageRenderer.StepImage> images = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                steps.add(new ReportPageRenderer.StepRow(i + 1, description(random), i % 4 == 3 ? null : "file:///foto.jpg"));
+                images.add(image(random, i));
+            }
+            ReportPageRenderer.ReportData report = new ReportPageRenderer.ReportData(count,
+                    "Componente con un nombre bastante largo para ocupar más de una línea del encabezado " + count,
+                    "INV-" + count, "DESARME", "Técnico", "Taller", "2024-01-01 10:00:00",
+                    Collections.unmodifiableList(steps));
+
+            assertNotClipped(count, ReportTemplate.LIST.measure(report, images, styles));
+        }
+    }
+
+    @Test
+    public void measuringTwice_givesSamePages() {
+        ReportLayout.Styles styles = new ReportLayout.Styles();
+        Random random = new Random(7);
+        List<ReportPageRenderer.StepRow> steps = new ArrayList<>();
+        List<ReportPageRenderer.StepImage> images = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            steps.add(new ReportPageRenderer.StepRow(i + 1, description(random), "file:///foto.jpg"));
+            images.add(image(random, i));
+        }
+        ReportPageRenderer.ReportData report = new ReportPageRenderer.ReportData(1, "Bomba", "INV-1", "ARMADO",
+                "Técnico", "Taller", "2024-01-01", steps);
+
+        assertEquals(ReportTemplate.LIST.measure(report, images, styles).getPageCount(),
+                ReportTemplate.LIST.measure(report, images, new ReportLayout.Styles()).getPageCount());
+    }
+
+    @Test
+    public void gridTemplates_cellsInsidePageAndNotOverlapping() {
+        ReportLayout.Styles styles = new ReportLayout.Styles();
+        for (ReportTemplate template : new ReportTemplate[]{ ReportTemplate.GRID_2X3, ReportTemplate.GRID_3X4 }) {
+            for (int count : STEP_COUNTS) {
+                Random random = new Random(count);
+                List<ReportPageRenderer.StepRow> steps = new ArrayList<>();
+                List<ReportPageRenderer.StepImage> images = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    steps.add(new ReportPageRenderer.StepRow(i + 1, description(random), i % 4 == 3 ? null : "file:///foto.jpg"));
+                    images.add(i % 7 == 6 ? image(random, i) : new ReportPageRenderer.StepImage(null,
+                            1 + random.nextInt(template.getImageMaxHeight()), null));
+                }
+                ReportPageRenderer.ReportData report = new ReportPageRenderer.ReportData(count, "Bomba", "INV-" + count,
+                        "DESARME", "Técnico", "Taller", "2024-01-01", Collections.unmodifiableList(steps));
+
+                ReportLayout layout = template.measure(report, images, styles);
+                int lastStep = -1;
+                for (int p = 0; p < layout.getPageCount(); p++) {
+                    List<ReportLayout.Fragment> page = layout.getPage(p);
+                    for (int a = 0; a < page.size(); a++) {
+                        ReportLayout.Fragment f = page.get(a);
+                        String where = count + " pasos, página " + (p + 1) + ", paso " + f.stepIndex;
+                        assertTrue(where + ": fuera del área útil", f.top >= ReportLayout.CONTENT_TOP
+                                && f.bottom() <= ReportLayout.CONTENT_BOTTOM
+                                && f.left >= ReportLayout.CONTENT_LEFT
+                                && f.left + f.width <= ReportLayout.CONTENT_LEFT + ReportLayout.CONTENT_WIDTH);
+                        assertTrue(where + ": fuera de orden", f.stepIndex >= lastStep);
+                        lastStep = f.stepIndex;
+                        if (f.isImage()) {
+                            assertTrue(where + ": foto más grande que la celda", f.height <= template.getImageMaxHeight()
+                                    && f.width <= template.getImageMaxWidth());
+                        }
+                        for (int b = 0; b < a; b++) {
+                            ReportLayout.Fragment o = page.get(b);
+                            boolean overlaps = f.left < o.left + o.width && o.left < f.left + f.width
+                                    && f.top < o.bottom() && o.top < f.bottom();
+                            assertFalse(where + ": superpuesto con el paso " + o.stepIndex, overlaps);
+                        }
+                    }
+                }
+                assertEquals(count - 1, lastStep);
+            }
+        }
+    }
+
+    @Test
+    public void placeholderPhoto_laidOutAsNoPhoto() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        ReportLayout.Styles styles = new ReportLayout.Styles();
+        for (ReportTemplate template : new ReportTemplate[]{ ReportTemplate.LIST, ReportTemplate.GRID_2X3, ReportTemplate.GRID_3X4 }) {
+            ReportPageRenderer.StepImage image = ReportPageRenderer.measureImage(context,
+                    UserProjectContract.PLACEHOLDER_PHOTO_URI, template.getImageMaxWidth(), template.getImageMaxHeight());
+            assertSame(template + ": se intentó leer el marcador", ReportPageRenderer.StepImage.NONE, image);
+
+            List<ReportPageRenderer.StepRow> steps = Collections.singletonList(new ReportPageRenderer.StepRow(1,
+                    "Paso sin foto", UserProjectContract.PLACEHOLDER_PHOTO_URI));
+            ReportPageRenderer.ReportData report = new ReportPageRenderer.ReportData(1, "Bomba", "INV-1", "DESARME",
+                    "Técnico", "Taller", "2024-01-01", steps);
+            ReportLayout layout = template.measure(report, Collections.singletonList(image), styles);
+
+            boolean noPhotoText = false;
+            for (int p = 0; p < layout.getPageCount(); p++) {
+                for (ReportLayout.Fragment f : layout.getPage(p)) {
+                    assertFalse(template + ": caja de foto para el marcador", f.isImage());
+                    String text = f.text.getText().toString();
+                    assertFalse(template + ": " + text, text.startsWith("Error al cargar imagen")
+                            || text.startsWith("No se pudo cargar la imagen"));
+                    noPhotoText |= text.equals("Foto Adjunta: No") || text.equals("Sin foto");
+                }
+            }
+            assertTrue(template + ": falta el texto de paso sin foto", noPhotoText);
+        }
+    }
+
+    private static void assertNotClipped(int count, ReportLayout layout) {
+        Map<StaticLayout, Integer> placedLines = new IdentityHashMap<>();
+        int lastStep = -1;
+        for (int p = 0; p < layout.getPageCount(); p++) {
+            int previousBottom = ReportLayout.CONTENT_TOP;
+            for (ReportLayout.Fragment f : layout.getPage(p)) {
+                String where = count + " pasos, página " + (p + 1) + ", paso " + f.stepIndex;
+                assertTrue(where + ": arriba del área útil", f.top >= ReportLayout.CONTENT_TOP);
+                assertTrue(where + ": debajo del área útil", f.bottom() <= ReportLayout.CONTENT_BOTTOM);
+                assertTrue(where + ": superpuesto", f.top >= previousBottom);
+                assertTrue(where + ": fuera de orden", f.stepIndex >= lastStep);
+                previousBottom = f.bottom();
+                lastStep = f.stepIndex;
+
+                if (f.isImage()) {
+                    assertTrue(where + ": foto demasiado alta", f.height <= ReportPageRenderer.IMAGE_MAX_HEIGHT);
+                    continue;
+                }
+                Integer expectedFirst = placedLines.get(f.text);
+                assertEquals(where + ": líneas salteadas o repetidas", expectedFirst == null ? 0 : expectedFirst, f.firstLine);
+                placedLines.put(f.text, f.endLine);
+                assertEquals(where, f.text.getLineBottom(f.endLine - 1) - f.text.getLineTop(f.firstLine), f.height);
+                for (int line = f.firstLine; line < f.endLine; line++) {
+                    assertTrue(where + ": línea más ancha que la página",
+                            f.text.getLineWidth(line) <= ReportLayout.CONTENT_WIDTH + 0.5f);
+                }
+            }
+        }
+        for (Map.Entry<StaticLayout, Integer> entry : placedLines.entrySet()) {
+            assertEquals(count + " pasos: texto incompleto", entry.getKey().getLineCount(), (int) entry.getValue());
+        }
+        assertEquals(count - 1, lastStep);
+    }
+
+    private static String description(Random random) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return null;
+            case 1:
+                return "Corto.";
+            case 2: {
+                // Una "palabra" más larga que una línea
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < 300; i++) sb.append((char) ('a' + i % 26));
+                return sb.toString();
+            }
+            case 3:
+                // Más alta que una página
+                return repeat("Se retira la tapa y se revisa el estado de los rodamientos. ", 150);
+            case 4:
+                return "Primera línea\nSegunda línea\n\nCuarta línea tras una vacía";
+            default:
+                return repeat("Texto de largo medio para el paso. ", 1 + random.nextInt(20));
+        }
+    }
+
+    private static ReportPageRenderer.StepImage image(Random random, int index) {
+        if (index % 7 == 6) {
+            return new ReportPageRenderer.StepImage(null, 0, "No se pudo cargar la imagen. Revise permisos: prueba");
+        }
+        return new ReportPageRenderer.StepImage(null, 20 + random.nextInt(ReportPageRenderer.IMAGE_MAX_HEIGHT - 19), null);
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++) sb.append(text);
+        return sb.toString();
+    }
+}
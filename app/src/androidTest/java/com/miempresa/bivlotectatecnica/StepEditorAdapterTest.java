@@ -0,0 +1,190 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.view.View;
+import android.widget.ImageView;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.StepEditorAdapter.StepItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Llena el editor de pasos con 50 y con 500 pasos (con foto), lo recorre de punta a punta y
+ * comprueba que el número de filas creadas y la memoria de bitmaps que retienen no crecen
+ * con la cantidad de pasos. Las miniaturas se generan antes (ensureThumbnail), así cada fila
+ * recibe la suya al enlazarse, desde la caché en memoria, y se comprueba que todas la muestran.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StepEditorAdapterTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int PHOTOS = 10;
+
+    private Context context;
+    private File photoDir;
+    private final List<String> photoUris = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        photoDir = new File(context.getCacheDir(), "step_editor_test");
+        photoDir.mkdirs();
+        for (int i = 0; i < PHOTOS; i++) {
+            Bitmap bitmap = Bitmap.createBitmap(1600, 1200, Bitmap.Config.ARGB_8888);
+            bitmap.eraseColor(0xFF000000 | (i * 0x151515));
+            File file = new File(photoDir, "foto_" + i + ".jpg");
+            try (OutputStream out = new FileOutputStream(file)) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 80, out);
+            }
+            bitmap.recycle();
+            photoUris.add(Uri.fromFile(file).toString());
+        }
+        // Miniaturas en disco y en memoria antes de recorrer la lista
+        ImageLoader loader = ImageLoader.getInstance(context);
+        for (String uri : photoUris) {
+            loader.ensureThumbnail(uri);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = photoDir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        photoDir.delete();
+    }
+
+    @Test
+    public void rowCountAndBitmapMemory_doNotGrowWithStepCount() {
+        Result small = scrollThrough(50);
+        Result large = scrollThrough(500);
+
+        // Todas las filas de pasos mostraron su miniatura
+        assertEquals(small.stepRows, small.boundRows);
+        assertEquals(large.stepRows, large.boundRows);
+        assertTrue(large.stepRows > 0);
+
+        // Mismas filas en pantalla y casi las mismas creadas (caché/pool de RecyclerView)
+        assertTrue("Filas creadas con 500 pasos: " + large.createdHolders, large.createdHolders <= small.createdHolders + 2);
+        assertTrue("Filas en pantalla con 500 pasos: " + large.maxChildren, large.maxChildren <= small.maxChildren + 1);
+
+        // Cada fila retiene a lo sumo una miniatura (nunca el original)
+        long thumbnailBytes = (long) ImageLoader.THUMBNAIL_SIZE * ImageLoader.THUMBNAIL_SIZE * 4;
+        assertTrue("Bytes de bitmaps en filas: " + large.maxBitmapBytes,
+                large.maxBitmapBytes <= large.maxChildren * thumbnailBytes);
+    }
+
+    private static final class Result {
+        int createdHolders;
+        int stepRows;   // Filas de pasos en pantalla, sumadas en cada posición
+        int boundRows;  // De ellas, las que muestran una miniatura
+        int maxChildren;
+        long maxBitmapBytes;
+    }
+
+    private Result scrollThrough(int stepCount) {
+        Result result = new Result();
+        Set<View> rowViews = Collections.newSetFromMap(new IdentityHashMap<>()); // Una vista por fila creada
+        RecyclerView[] holder = new RecyclerView[1];
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            RecyclerView list = new RecyclerView(context);
+            list.setLayoutManager(new LinearLayoutManager(context));
+            StepEditorAdapter stepAdapter = new StepEditorAdapter(new View(context), new View(context),
+                    ImageLoader.getInstance(context), new StepEditorAdapter.Listener() {
+                @Override
+                public void onSelectPhoto(StepItem item) {}
+
+                @Override
+                public void onDescriptionChanged(StepItem item) {}
+            });
+            list.setAdapter(stepAdapter);
+
+            List<StepItem> items = new ArrayList<>();
+            for (int i = 0; i < stepCount; i++) {
+                items.add(new StepItem(i + 1, i + 1, "Paso de prueba " + (i + 1), photoUris.get(i % PHOTOS), false, false));
+            }
+            stepAdapter.submitList(items);
+            holder[0] = list;
+        });
+
+        RecyclerView list = holder[0];
+        for (int position = 0; position < stepCount + 2; position += 3) {
+            final int target = position;
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+                list.scrollToPosition(target);
+                layout(list);
+            });
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+                result.maxChildren = Math.max(result.maxChildren, list.getChildCount());
+                result.maxBitmapBytes = Math.max(result.maxBitmapBytes, bitmapBytes(list));
+                for (int i = 0; i < list.getChildCount(); i++) {
+                    View row = list.getChildAt(i);
+                    ImageView image = row.findViewById(R.id.image_preview);
+                    if (image == null) continue; // Encabezado o pie
+                    rowViews.add(row);
+                    result.stepRows++;
+                    if (thumbnailOf(image) != null) result.boundRows++;
+                }
+            });
+        }
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> list.setAdapter(null));
+        result.createdHolders = rowViews.size();
+        return result;
+    }
+
+    private static void layout(RecyclerView list) {
+        list.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        list.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private static long bitmapBytes(RecyclerView list) {
+        long bytes = 0;
+        for (int i = 0; i < list.getChildCount(); i++) {
+            ImageView image = list.getChildAt(i).findViewById(R.id.image_preview);
+            if (image == null) continue;
+            Bitmap bitmap = thumbnailOf(image);
+            if (bitmap != null) bytes += bitmap.getByteCount();
+        }
+        return bytes;
+    }
+
+    /**
+     * La miniatura que muestra la vista, o null si tiene el placeholder (un vector, no un bitmap).
+     */
+    private static Bitmap thumbnailOf(ImageView image) {
+        Drawable drawable = image.getDrawable();
+        if (!(drawable instanceof BitmapDrawable)) return null;
+        Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+        return bitmap != null && Math.max(bitmap.getWidth(), bitmap.getHeight()) <= ImageLoader.THUMBNAIL_SIZE
+                ? bitmap : null;
+    }
+}
@@ -0,0 +1,155 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.app.Instrumentation;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.widget.ImageView;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.bd.InMemoryDatabase;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.InformeEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Al reabrir un informe para editarlo, sus miniaturas salen de thumbs/ (generadas al
+ * adjuntar cada foto) y no de decodificar de nuevo los originales, aunque la caché en
+ * memoria se haya vaciado (trimMemory).
+ */
+@RunWith(AndroidJUnit4.class)
+public class ThumbnailReuseTest {
+
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long TALLER_ID = 1;
+    private static final int PHOTOS = 4;
+    private static final long TIMEOUT_MS = 5_000;
+
+    private Instrumentation instrumentation;
+    private Context context;
+    private ImageLoader imageLoader;
+    private InMemoryDatabase database;
+    private final List<File> created = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+        imageLoader = ImageLoader.getInstance(context);
+        database = new InMemoryDatabase(context);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        for (File f : created) f.delete();
+    }
+
+    @Test
+    public void reopenedReport_usesThumbnailFiles() throws IOException {
+        // Fotos adjuntadas como en StepRegisterActivity (PhotoIngestor deja la miniatura en disco)
+        List<UserProjectDatabase.Step> steps = new ArrayList<>();
+        for (int i = 0; i < PHOTOS; i++) {
+            String photoUri = ingest(i);
+            assertTrue(imageLoader.thumbnailFile(photoUri).isFile());
+            steps.add(new UserProjectDatabase.Step(i + 1, "Paso " + (i + 1), photoUri));
+        }
+        long reportId = database.dao.insertReportSteps(-1, "Bomba", "INV-1", TALLER_ID, TECNICO_ID, "DESARME", steps);
+        assertTrue(reportId > 0);
+
+        // La app pasó a segundo plano y el sistema pidió memoria
+        imageLoader.trimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+
+        // Reabrir: los pasos guardados, como los lee loadExistingReportDetails
+        List<String> photoUris = new ArrayList<>();
+        Cursor cursor = database.dao.getStepsForReport(reportId);
+        try {
+            int photoIndex = cursor.getColumnIndexOrThrow(InformeEntry.COLUMN_PHOTO_URI);
+            while (cursor.moveToNext()) photoUris.add(cursor.getString(photoIndex));
+        } finally {
+            cursor.close();
+        }
+        assertEquals(PHOTOS, photoUris.size());
+
+        int diskHits = imageLoader.getDiskHitCount();
+        int originalDecodes = imageLoader.getOriginalDecodeCount();
+        List<ImageView> views = new ArrayList<>();
+        instrumentation.runOnMainSync(() -> {
+            for (String photoUri : photoUris) {
+                ImageView view = new ImageView(context);
+                imageLoader.load(photoUri, view, android.R.drawable.ic_menu_gallery);
+                views.add(view);
+            }
+        });
+
+        for (ImageView view : views) {
+            Bitmap bitmap = awaitBitmap(view);
+            assertTrue(Math.max(bitmap.getWidth(), bitmap.getHeight()) <= ImageLoader.THUMBNAIL_SIZE);
+        }
+        assertEquals("Miniaturas leídas de thumbs/", PHOTOS, imageLoader.getDiskHitCount() - diskHits);
+        assertEquals("Originales decodificados", 0, imageLoader.getOriginalDecodeCount() - originalDecodes);
+    }
+
+    private Bitmap awaitBitmap(ImageView view) {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        Bitmap[] bitmap = new Bitmap[1];
+        while (SystemClock.uptimeMillis() < deadline) {
+            instrumentation.runOnMainSync(() -> {
+                Drawable drawable = view.getDrawable();
+                if (drawable instanceof BitmapDrawable) bitmap[0] = ((BitmapDrawable) drawable).getBitmap();
+            });
+            if (bitmap[0] != null) return bitmap[0];
+            SystemClock.sleep(20);
+        }
+        throw new AssertionError("La miniatura no llegó a la vista");
+    }
+
+    /**
+     * Foto sintética distinta por índice, normalizada por PhotoIngestor.
+     */
+    private String ingest(int index) throws IOException {
+        Bitmap bitmap = Bitmap.createBitmap(1600, 1200, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        Random random = new Random(100 + index);
+        canvas.drawColor(0xFF000000 | random.nextInt());
+        for (int c = 0; c < 30; c++) {
+            paint.setColor(0xFF000000 | random.nextInt());
+            canvas.drawCircle(random.nextInt(1600), random.nextInt(1200), 20 + random.nextInt(200), paint);
+        }
+        File source = new File(context.getCacheDir(), "miniatura_origen_" + index + ".jpg");
+        try (OutputStream out = new FileOutputStream(source)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        }
+        bitmap.recycle();
+        created.add(source);
+
+        String photoUri = new PhotoIngestor(context).ingest(Uri.fromFile(source));
+        created.add(new File(Uri.parse(photoUri).getPath()));
+        created.add(imageLoader.thumbnailFile(photoUri));
+        return photoUri;
+    }
+}
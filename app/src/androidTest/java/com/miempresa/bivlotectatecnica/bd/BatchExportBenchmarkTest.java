@@ -0,0 +1,131 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.BatchPdfExporter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Rendimiento de la exportación por lotes según los hilos que decodifican fotos.
+ * Exporta el mismo lote (20 informes de 30 pasos con fotos de 1600x1200) como PDF combinado
+ * con 1, 2 y 4 hilos y registra en logcat las páginas por segundo de cada uno.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BatchExportBenchmarkTest {
+
+    private static final String TAG = "BatchExportBenchmark";
+    private static final int[] WORKERS = { 1, 2, 4 };
+    private static final int REPORTS = 20;
+    private static final int STEPS_PER_REPORT = 30;
+    private static final int PHOTOS = 10;
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long TALLER_ID = 1;
+
+    private Context context;
+    private File dir;
+    private DBHelper helper;
+    private UserProjectDatabase dao;
+    private final List<Long> reportIds = new ArrayList<>();
+    private final List<File> outputs = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dir = new File(context.getCacheDir(), "batch_export_test");
+        dir.mkdirs();
+        List<String> photoUris = new ArrayList<>();
+        Bitmap bitmap = Bitmap.createBitmap(1600, 1200, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        Random random = new Random(3);
+        for (int i = 0; i < PHOTOS; i++) {
+            canvas.drawColor(0xFF000000 | random.nextInt());
+            for (int c = 0; c < 40; c++) {
+                paint.setColor(0xFF000000 | random.nextInt());
+                canvas.drawCircle(random.nextInt(1600), random.nextInt(1200), 20 + random.nextInt(200), paint);
+            }
+            File file = new File(dir, "foto_" + i + ".jpg");
+            try (OutputStream out = new FileOutputStream(file)) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 85, out);
+            }
+            photoUris.add(Uri.fromFile(file).toString());
+        }
+        bitmap.recycle();
+
+        helper = new DBHelper(context, null, null); // Base en memoria
+        dao = new UserProjectDatabase(helper);
+        for (int r = 1; r <= REPORTS; r++) {
+            List<UserProjectDatabase.Step> steps = new ArrayList<>();
+            for (int s = 1; s <= STEPS_PER_REPORT; s++) {
+                steps.add(new UserProjectDatabase.Step(s, "Retirar la tapa y revisar el rodamiento n° " + s,
+                        photoUris.get((r + s) % PHOTOS)));
+            }
+            reportIds.add(dao.insertReportSteps(-1, "Bomba " + r, "INV-" + r, TALLER_ID, TECNICO_ID, "DESARME", steps));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        for (File f : outputs) f.delete();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void combinedPdf_pagesPerSecondByWorkers() throws IOException {
+        export(2); // Calentamiento (JIT y caché de archivos de las fotos)
+
+        double[] pagesPerSecond = new double[WORKERS.length];
+        int pages = -1;
+        for (int i = 0; i < WORKERS.length; i++) {
+            BatchPdfExporter.Result result = export(WORKERS[i]);
+            Log.i(TAG, String.format(Locale.US, "%d hilos: %d informes, %d páginas en %d ms (%.1f pág/s)",
+                    result.workers, result.reports, result.pages, result.elapsedMs, result.getPagesPerSecond()));
+            assertEquals(REPORTS, result.reports);
+            if (pages != -1) assertEquals("Las páginas no dependen de los hilos", pages, result.pages);
+            pages = result.pages;
+            pagesPerSecond[i] = result.getPagesPerSecond();
+        }
+
+        // Con más de un núcleo, decodificar en paralelo no puede ser más lento que en serie
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            assertTrue(String.format(Locale.US, "1 hilo %.1f pág/s, 2 hilos %.1f pág/s", pagesPerSecond[0], pagesPerSecond[1]),
+                    pagesPerSecond[1] >= pagesPerSecond[0] * 0.9);
+        }
+    }
+
+    private BatchPdfExporter.Result export(int workers) throws IOException {
+        BatchPdfExporter exporter = new BatchPdfExporter(context, dao, workers);
+        BatchPdfExporter.Result result = exporter.export(reportIds, BatchPdfExporter.Format.COMBINED_PDF, null);
+        assertNotNull(result);
+        outputs.add(result.file);
+        return result;
+    }
+}
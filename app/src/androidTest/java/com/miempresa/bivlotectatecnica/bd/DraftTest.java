@@ -0,0 +1,119 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.BorradorPasoEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.InformeEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ciclo de vida de un borrador en una base en disco: se autoguarda, se recupera tras cerrar
+ * y reabrir la base (como después de que el sistema mate el proceso), se sigue editando y
+ * se finaliza como informe; o se descarta.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DraftTest {
+
+    private static final String TEST_DB = "draft_test.db";
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long TALLER_ID = 1;
+
+    private Context context;
+    private DBHelper helper;
+    private UserProjectDatabase dao;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        open();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void restoredDraft_promotesToReport() {
+        long draftId = dao.getOrCreateDraft(TECNICO_ID, -1);
+        assertTrue(draftId != -1);
+        assertTrue(dao.saveDraft(draftId, "Bomba", "INV-7", "DESARME", Arrays.asList(
+                new UserProjectDatabase.Step(1, "Retirar la tapa", "file:///a.jpg"),
+                new UserProjectDatabase.Step(2, null, null)), false));
+
+        // El proceso muere: la Activity nueva recupera el borrador
+        helper.close();
+        open();
+        UserProjectDatabase.Draft draft = dao.getDraft(TECNICO_ID, -1);
+        assertNotNull(draft);
+        assertEquals(draftId, draft.id);
+        assertEquals("Bomba", draft.componentName);
+        assertEquals("INV-7", draft.inventoryCode);
+        assertEquals("DESARME", draft.actionType);
+        assertEquals(2, draft.steps.size());
+        assertEquals("Retirar la tapa", draft.steps.get(0).description);
+        assertEquals(draftId, dao.getOrCreateDraft(TECNICO_ID, -1)); // No crea otro
+
+        // Se sigue editando y se finaliza
+        assertTrue(dao.saveDraft(draftId, "Bomba", "INV-7", "DESARME", Collections.singletonList(
+                new UserProjectDatabase.Step(3, "Limpiar el impulsor", "file:///c.jpg")), false));
+        long reportId = dao.promoteDraft(draftId, TALLER_ID);
+        assertTrue(reportId != -1);
+
+        // El paso 2 quedó vacío: no se guarda
+        Cursor steps = dao.getStepsForReport(reportId);
+        try {
+            assertEquals(2, steps.getCount());
+            steps.moveToFirst();
+            assertEquals(1, steps.getInt(steps.getColumnIndexOrThrow(InformeEntry.COLUMN_STEP_NUMBER)));
+            assertEquals("file:///a.jpg", steps.getString(steps.getColumnIndexOrThrow(InformeEntry.COLUMN_PHOTO_URI)));
+            steps.moveToNext();
+            assertEquals(3, steps.getInt(steps.getColumnIndexOrThrow(InformeEntry.COLUMN_STEP_NUMBER)));
+            assertEquals("Limpiar el impulsor", steps.getString(steps.getColumnIndexOrThrow(InformeEntry.COLUMN_DESCRIPTION)));
+        } finally {
+            steps.close();
+        }
+        assertNull("El borrador finalizado se borra", dao.getDraft(TECNICO_ID, -1));
+        assertEquals(0, draftStepCount());
+    }
+
+    @Test
+    public void discardedDraft_isNotRestored() {
+        long draftId = dao.getOrCreateDraft(TECNICO_ID, -1);
+        assertTrue(dao.saveDraft(draftId, "Motor", "INV-8", "ARMADO", Collections.singletonList(
+                new UserProjectDatabase.Step(1, "Cambiar escobillas", "file:///a.jpg")), false));
+
+        dao.deleteDraft(draftId);
+
+        helper.close();
+        open();
+        assertNull(dao.getDraft(TECNICO_ID, -1));
+        assertEquals("Los pasos se borran con el borrador", 0, draftStepCount());
+        assertFalse(dao.getReferencedPhotoUris().contains("file:///a.jpg"));
+    }
+
+    private void open() {
+        helper = new DBHelper(context, TEST_DB, null);
+        dao = new UserProjectDatabase(helper);
+    }
+
+    private long draftStepCount() {
+        return DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), BorradorPasoEntry.TABLE_NAME);
+    }
+}
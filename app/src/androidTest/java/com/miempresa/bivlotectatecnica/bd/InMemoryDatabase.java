@@ -0,0 +1,23 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+
+/**
+ * Base en memoria con los datos iniciales de DBHelper, para pruebas de otros paquetes que
+ * no pueden usar los constructores de prueba de DBHelper y UserProjectDatabase.
+ */
+public final class InMemoryDatabase implements AutoCloseable {
+
+    private final DBHelper helper;
+    public final UserProjectDatabase dao;
+
+    public InMemoryDatabase(Context context) {
+        helper = new DBHelper(context, null, null);
+        dao = new UserProjectDatabase(helper);
+    }
+
+    @Override
+    public void close() {
+        helper.close();
+    }
+}
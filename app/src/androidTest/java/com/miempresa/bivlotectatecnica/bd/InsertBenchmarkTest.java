@@ -0,0 +1,132 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ComponenteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.InformeEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ReporteEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compara el guardado de un informe paso por paso (un insert con autocommit por paso, como
+ * hacía StepRegisterActivity) con insertReportSteps (una transacción y una sentencia
+ * compilada) para 10, 100 y 1000 pasos, sobre una base en disco. Registra pasos/segundo.
+ */
+@RunWith(AndroidJUnit4.class)
+public class InsertBenchmarkTest {
+
+    private static final String TAG = "InsertBenchmark";
+    private static final String TEST_DB = "insert_benchmark.db";
+    private static final int[] STEP_COUNTS = { 10, 100, 1000 };
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long TALLER_ID = 1;
+
+    private Context context;
+    private DBHelper helper;
+    private UserProjectDatabase dao;
+    private int reports;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        helper = new DBHelper(context, TEST_DB, null);
+        dao = new UserProjectDatabase(helper);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void batchedInsert_fasterThanPerRow() {
+        // Calentamiento: compila las sentencias y crea las páginas iniciales
+        insertPerRow(10);
+        insertBatched(10);
+
+        for (int count : STEP_COUNTS) {
+            long perRow = insertPerRow(count);
+            long batched = insertBatched(count);
+            Log.i(TAG, String.format("%d pasos: por fila %d ms (%.0f pasos/s), en lote %d ms (%.0f pasos/s)",
+                    count, perRow, rate(count, perRow), batched, rate(count, batched)));
+            if (count >= 100) {
+                assertTrue(count + " pasos: en lote " + batched + " ms, por fila " + perRow + " ms", batched < perRow);
+            }
+        }
+
+        SQLiteDatabase db = helper.getReadableDatabase();
+        long expected = 2 * (10 + 10 + 100 + 1000);
+        assertEquals(expected, DatabaseUtils.queryNumEntries(db, InformeEntry.TABLE_NAME));
+    }
+
+    /**
+     * Un insert con autocommit por paso (cada uno es un commit propio), sobre un informe nuevo.
+     */
+    private long insertPerRow(int count) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        long reportId = newReport(db);
+        long start = SystemClock.elapsedRealtime();
+        for (int i = 1; i <= count; i++) {
+            ContentValues values = new ContentValues();
+            values.put(InformeEntry.COLUMN_REPORTE_ID, reportId);
+            values.put(InformeEntry.COLUMN_STEP_NUMBER, i);
+            values.put(InformeEntry.COLUMN_DESCRIPTION, "Descripción del paso " + i);
+            values.put(InformeEntry.COLUMN_PHOTO_URI, "file:///foto_" + i + ".jpg");
+            values.put(InformeEntry.COLUMN_USER_ID, TECNICO_ID);
+            assertNotEquals(-1, helper.getWritableDatabase().insert(InformeEntry.TABLE_NAME, null, values));
+        }
+        return SystemClock.elapsedRealtime() - start;
+    }
+
+    private long insertBatched(int count) {
+        List<UserProjectDatabase.Step> steps = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            steps.add(new UserProjectDatabase.Step(i, "Descripción del paso " + i, "file:///foto_" + i + ".jpg"));
+        }
+        reports++;
+        long start = SystemClock.elapsedRealtime();
+        long reportId = dao.insertReportSteps(-1, "Componente " + reports, "INV-" + reports, TALLER_ID,
+                TECNICO_ID, "DESARME", steps);
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        assertNotEquals(-1, reportId);
+        return elapsed;
+    }
+
+    private long newReport(SQLiteDatabase db) {
+        reports++;
+        ContentValues componente = new ContentValues();
+        componente.put(ComponenteEntry.COLUMN_NAME, "Componente " + reports);
+        componente.put(ComponenteEntry.COLUMN_CODIGO_INVENTARIO, "INV-" + reports);
+        componente.put(ComponenteEntry.COLUMN_WORKSHOP_ID, TALLER_ID);
+        long componenteId = db.insertOrThrow(ComponenteEntry.TABLE_NAME, null, componente);
+
+        ContentValues header = new ContentValues();
+        header.put(ReporteEntry.COLUMN_COMPONENTE_ID, componenteId);
+        header.put(ReporteEntry.COLUMN_USER_ID, TECNICO_ID);
+        header.put(ReporteEntry.COLUMN_ACTION_TYPE, "DESARME");
+        return db.insertOrThrow(ReporteEntry.TABLE_NAME, null, header);
+    }
+
+    private static double rate(int count, long millis) {
+        return count * 1000.0 / Math.max(1, millis);
+    }
+}
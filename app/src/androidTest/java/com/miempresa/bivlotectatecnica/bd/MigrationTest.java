@@ -0,0 +1,152 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ComponenteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.InformeEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ReporteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ResumenEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.TallerEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.UserEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Siembra una base v1 con un volumen grande de pasos, la actualiza con DBHelper
+ * y comprueba que no se pierde ninguna fila.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration_test.db";
+    private static final int COMPONENTES = 1000;
+    private static final int PASOS_POR_COMPONENTE = 100; // 100k informes
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void upgradeFromV1_preservesRowCounts() {
+        seedVersion1(context.getDatabasePath(TEST_DB));
+
+        DBHelper helper = new DBHelper(context, TEST_DB, null);
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            assertEquals(UserProjectContract.DATABASE_VERSION, db.getVersion());
+            assertEquals(3, DatabaseUtils.queryNumEntries(db, TallerEntry.TABLE_NAME));
+            assertEquals(1, DatabaseUtils.queryNumEntries(db, UserEntry.TABLE_NAME));
+            assertEquals(COMPONENTES, DatabaseUtils.queryNumEntries(db, ComponenteEntry.TABLE_NAME));
+            assertEquals((long) COMPONENTES * PASOS_POR_COMPONENTE,
+                    DatabaseUtils.queryNumEntries(db, InformeEntry.TABLE_NAME));
+            // v3: un informe por cada grupo componente + acción
+            assertEquals(COMPONENTES, DatabaseUtils.queryNumEntries(db, ReporteEntry.TABLE_NAME));
+            assertEquals(0, DatabaseUtils.queryNumEntries(db, InformeEntry.TABLE_NAME,
+                    InformeEntry.COLUMN_REPORTE_ID + " IS NULL"));
+            // v6: una fila de resumen por informe, con su número de pasos
+            assertEquals(COMPONENTES, DatabaseUtils.queryNumEntries(db, ResumenEntry.TABLE_NAME,
+                    ResumenEntry.COLUMN_NUM_PASOS + " = " + PASOS_POR_COMPONENTE));
+            assertEquals(0, new UserProjectDatabase(helper).checkSummaryConsistency());
+        } finally {
+            helper.close();
+        }
+    }
+
+    @Test
+    public void upgradeOnMainThread_isRejectedAndLeavesVersion1() {
+        seedVersion1(context.getDatabasePath(TEST_DB), 10);
+
+        DBHelper helper = new DBHelper(context, TEST_DB, null);
+        RuntimeException[] error = new RuntimeException[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            try {
+                helper.getWritableDatabase();
+            } catch (RuntimeException e) {
+                error[0] = e;
+            }
+        });
+        helper.close();
+        assertTrue("La migración no debe correr en el hilo principal", error[0] instanceof IllegalStateException);
+
+        // La transacción de la actualización se descartó: la base sigue en v1 y sin pérdidas
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(context.getDatabasePath(TEST_DB).getPath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+        try {
+            assertEquals(1, db.getVersion());
+            assertEquals(10L * PASOS_POR_COMPONENTE, DatabaseUtils.queryNumEntries(db, InformeEntry.TABLE_NAME));
+        } finally {
+            db.close();
+        }
+    }
+
+    private void seedVersion1(File path) {
+        seedVersion1(path, COMPONENTES);
+    }
+
+    private void seedVersion1(File path, int componentes) {
+        path.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(path, null);
+        try {
+            db.beginTransaction();
+            try {
+                DBHelper.createBaseSchema(db);
+                db.execSQL("INSERT INTO " + TallerEntry.TABLE_NAME + " (" + TallerEntry.COLUMN_NAME + ") VALUES ('A'), ('B'), ('C')");
+                db.execSQL("INSERT INTO " + UserEntry.TABLE_NAME + " (" + UserEntry.COLUMN_USERNAME + ", "
+                        + UserEntry.COLUMN_PASSWORD_HASH + ", " + UserEntry.COLUMN_NAME + ", "
+                        + UserEntry.COLUMN_WORKSHOP_ID + ") VALUES ('tec', 'x', 'Técnico', 1)");
+
+                SQLiteStatement componente = db.compileStatement("INSERT INTO " + ComponenteEntry.TABLE_NAME + " ("
+                        + ComponenteEntry.COLUMN_NAME + ", " + ComponenteEntry.COLUMN_CODIGO_INVENTARIO + ", "
+                        + ComponenteEntry.COLUMN_WORKSHOP_ID + ") VALUES (?, ?, 1)");
+                SQLiteStatement paso = db.compileStatement("INSERT INTO " + InformeEntry.TABLE_NAME + " ("
+                        + InformeEntry.COLUMN_ACTION_TYPE + ", " + InformeEntry.COLUMN_STEP_NUMBER + ", "
+                        + InformeEntry.COLUMN_DESCRIPTION + ", " + InformeEntry.COLUMN_PHOTO_URI + ", "
+                        + InformeEntry.COLUMN_USER_ID + ", " + InformeEntry.COLUMN_COMPONENTE_ID
+                        + ") VALUES ('DESARME', ?, ?, 'file:///foto.jpg', 1, ?)");
+
+                for (int c = 1; c <= componentes; c++) {
+                    componente.bindString(1, "Componente " + c);
+                    componente.bindString(2, "INV-" + c);
+                    long componenteId = componente.executeInsert();
+
+                    for (int p = 1; p <= PASOS_POR_COMPONENTE; p++) {
+                        paso.bindLong(1, p);
+                        paso.bindString(2, "Descripción del paso " + p);
+                        paso.bindLong(3, componenteId);
+                        paso.executeInsert();
+                    }
+                }
+                componente.close();
+                paso.close();
+                db.setVersion(1);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            db.close();
+        }
+    }
+}
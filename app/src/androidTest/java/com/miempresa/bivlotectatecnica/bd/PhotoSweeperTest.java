@@ -0,0 +1,156 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.net.Uri;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.PhotoIngestor;
+import com.miempresa.bivlotectatecnica.PhotoSweeper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * PhotoSweeper sobre una base en memoria: borra las fotos huérfanas solo pasado el período
+ * de gracia (24 h) y, si se supera la cuota, recomprime las referenciadas y actualiza sus
+ * URIs a través del hilo escritor de AsyncUserProjectDatabase.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PhotoSweeperTest {
+
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long TALLER_ID = 1;
+    private static final long GRACE_MS = PhotoSweeper.DEFAULT_GRACE_MS;
+    private static final int COMPRESSED_MAX_EDGE = 1280; // PhotoSweeper.COMPRESSED_MAX_EDGE
+
+    private Context context;
+    private DBHelper helper;
+    private UserProjectDatabase dao;
+    private AsyncUserProjectDatabase db;
+    private File photosDir;
+    private final List<File> created = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DBHelper(context, null, null); // Base en memoria
+        dao = new UserProjectDatabase(helper);
+        db = new AsyncUserProjectDatabase(dao);
+        photosDir = PhotoIngestor.getPhotosDir(context);
+        photosDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        for (File f : created) f.delete();
+    }
+
+    @Test
+    public void sweep_deletesOrphansOnlyAfterGracePeriod() throws IOException {
+        long now = System.currentTimeMillis();
+        File oldOrphan = file("sweeper_huerfana_vieja.jpg", now - GRACE_MS - TimeUnit.HOURS.toMillis(1));
+        File newOrphan = file("sweeper_huerfana_nueva.jpg", now - GRACE_MS + TimeUnit.HOURS.toMillis(1));
+        File referenced = file("sweeper_referenciada.jpg", now - 10 * GRACE_MS);
+        insertReport(Uri.fromFile(referenced).toString());
+
+        PhotoSweeper.Stats stats = new PhotoSweeper(context, db, GRACE_MS, Long.MAX_VALUE).sweep();
+
+        assertFalse("Huérfana de más de 24 h", oldOrphan.exists());
+        assertTrue("Huérfana dentro del período de gracia", newOrphan.exists());
+        assertTrue("Foto referenciada por un informe", referenced.exists());
+        assertTrue(stats.deletedFiles >= 1);
+        assertEquals(0, stats.compressedFiles);
+    }
+
+    @Test
+    public void sweep_overQuota_recompressesAndUpdatesReferences() throws IOException {
+        String oldUri = ingest(2400, 1800);
+        File original = new File(Uri.parse(oldUri).getPath());
+        long before = original.length();
+        insertReport(oldUri);
+
+        // Cuota mínima y sin borrar huérfanas: solo actúa la recompresión
+        PhotoSweeper.Stats stats = new PhotoSweeper(context, db, Long.MAX_VALUE, 1).sweep();
+
+        assertEquals(1, stats.compressedFiles);
+        assertFalse("El original recomprimido se borra", original.exists());
+        Set<String> uris = dao.getReferencedPhotoUris();
+        assertFalse(uris.contains(oldUri));
+        assertEquals(1, uris.size());
+
+        File compressed = new File(Uri.parse(uris.iterator().next()).getPath());
+        created.add(compressed);
+        assertTrue(compressed.isFile());
+        assertTrue(compressed.length() < before);
+        assertEquals(before - compressed.length(), stats.reclaimedBytes);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(compressed.getAbsolutePath(), options);
+        assertEquals(COMPRESSED_MAX_EDGE, Math.max(options.outWidth, options.outHeight));
+
+        // Ya recomprimida: un segundo barrido no la toca
+        assertEquals(0, new PhotoSweeper(context, db, Long.MAX_VALUE, 1).sweep().compressedFiles);
+    }
+
+    private File file(String name, long lastModified) throws IOException {
+        File file = new File(photosDir, name);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[4096]);
+        }
+        assertTrue(file.setLastModified(lastModified));
+        created.add(file);
+        return file;
+    }
+
+    /**
+     * Foto normalizada por PhotoIngestor (en getFilesDir()/photos), a partir de una imagen sintética.
+     */
+    private String ingest(int width, int height) throws IOException {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        Random random = new Random(5);
+        canvas.drawColor(0xFF000000 | random.nextInt());
+        for (int i = 0; i < 60; i++) {
+            paint.setColor(0xFF000000 | random.nextInt());
+            canvas.drawCircle(random.nextInt(width), random.nextInt(height), 20 + random.nextInt(300), paint);
+        }
+        File source = new File(context.getCacheDir(), "sweeper_origen.jpg");
+        try (OutputStream out = new FileOutputStream(source)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 95, out);
+        }
+        bitmap.recycle();
+        created.add(source);
+
+        String photoUri = new PhotoIngestor(context).ingest(Uri.fromFile(source));
+        created.add(new File(Uri.parse(photoUri).getPath()));
+        return photoUri;
+    }
+
+    private void insertReport(String photoUri) {
+        assertTrue(dao.insertReportSteps(-1, "Bomba", "INV-1", TALLER_ID, TECNICO_ID, "DESARME",
+                Collections.singletonList(new UserProjectDatabase.Step(1, "Paso", photoUri))) > 0);
+    }
+}
@@ -0,0 +1,141 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifica con EXPLAIN QUERY PLAN que las consultas del DAO usan índices:
+ * falla si el plan contiene un SCAN sin índice o un USE TEMP B-TREE.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+
+    private static final String QUERY_PREFIX = "SQLiteQuery: ";
+    // "SCAN informes" / "SCAN TABLE informes AS I" sin "USING ... INDEX"
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (TABLE )?\\w+( AS \\w+)?$");
+
+    private final List<String> capturedSql = new ArrayList<>();
+    private DBHelper helper;
+    private UserProjectDatabase dao;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        SQLiteDatabase.CursorFactory factory = (db, driver, editTable, query) -> {
+            String text = query.toString();
+            capturedSql.add(text.startsWith(QUERY_PREFIX) ? text.substring(QUERY_PREFIX.length()) : text);
+            return new SQLiteCursor(driver, editTable, query);
+        };
+        helper = new DBHelper(context, null, factory); // Base en memoria
+        dao = new UserProjectDatabase(helper);
+        helper.getWritableDatabase(); // Abre y configura la base (PRAGMA) antes de capturar
+        capturedSql.clear();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void reportsList_admin_usesIndex() {
+        assertPlanUsesIndexes(dao.getReportsList(1, "Admin"));
+    }
+
+    @Test
+    public void reportsList_tecnico_usesIndex() {
+        assertPlanUsesIndexes(dao.getReportsList(1, "Tecnico"));
+    }
+
+    @Test
+    public void reportsPage_keyset_usesIndex() {
+        assertPlanUsesIndexes(dao.getReportsPage(1, "Admin", "2024-01-01 00:00:00", 10, 50));
+        assertPlanUsesIndexes(dao.getReportsPage(1, "Tecnico", "2024-01-01 00:00:00", 10, 50));
+    }
+
+    @Test
+    public void reportIdsInRange_usesIndex() {
+        assertPlanUsesIndexes(dao.getReportIdsModifiedBetween("2024-01-01 00:00:00", "2024-02-01 00:00:00"));
+    }
+
+    @Test
+    public void reportDetails_usesIndex() {
+        assertPlanUsesIndexes(dao.getReportDetails(1));
+    }
+
+    @Test
+    public void stepsForReport_usesIndex() {
+        long reportId = dao.insertReportSteps(-1, "Motor", "INV-1", 1, 2, "DESARME",
+                Collections.singletonList(new UserProjectDatabase.Step(1, "Paso", "uri")));
+        capturedSql.clear();
+        assertPlanUsesIndexes(dao.getStepsForReport(reportId));
+    }
+
+    @Test
+    public void maxStepNumber_usesIndex() {
+        assertPlanUsesIndexes(dao.getMaxStepNumber(1));
+    }
+
+    @Test
+    public void allUsers_usesIndex() {
+        assertPlanUsesIndexes(dao.getAllUsers());
+    }
+
+    @Test
+    public void credentials_usesIndex() {
+        assertPlanUsesIndexes(dao.checkUserCredentials("admin", "e10adc3949ba59abbe56e057f20f883e"));
+    }
+
+    private void assertPlanUsesIndexes(Object daoResult) {
+        if (daoResult instanceof Cursor) ((Cursor) daoResult).close();
+        List<String> queries = new ArrayList<>(capturedSql);
+        capturedSql.clear();
+        assertFalse("No se capturó ninguna consulta", queries.isEmpty());
+
+        SQLiteDatabase db = helper.getReadableDatabase();
+        for (String sql : queries) {
+            String[] args = new String[countPlaceholders(sql)];
+            Arrays.fill(args, "1");
+            Cursor plan = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+            try {
+                int detailIndex = plan.getColumnIndexOrThrow("detail");
+                while (plan.moveToNext()) {
+                    String detail = plan.getString(detailIndex);
+                    assertFalse("Ordenamiento temporal en: " + sql + " -> " + detail,
+                            detail.contains("USE TEMP B-TREE"));
+                    assertFalse("Recorrido completo sin índice en: " + sql + " -> " + detail,
+                            FULL_SCAN.matcher(detail).matches());
+                }
+            } finally {
+                plan.close();
+            }
+        }
+        capturedSql.clear();
+    }
+
+    private static int countPlaceholders(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') count++;
+        }
+        return count;
+    }
+}
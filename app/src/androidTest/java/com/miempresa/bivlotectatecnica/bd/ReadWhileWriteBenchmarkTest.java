@@ -0,0 +1,181 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.InformeEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ReporteEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Latencia de lectura mientras otro hilo guarda pasos, sobre una base en disco sembrada:
+ * antes (dos conexiones independientes con el journal por defecto, como cuando cada Activity
+ * creaba su DBHelper) y después (DBHelper con WAL y los PRAGMA de onConfigure).
+ * Registra p50/p99/máximo de la lectura de los pasos de un informe, como la del PDF.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReadWhileWriteBenchmarkTest {
+
+    private static final String TAG = "ReadWhileWriteBench";
+    private static final String TEST_DB = "read_while_write.db";
+    private static final int SEED_REPORTS = 200;
+    private static final int STEPS_PER_REPORT = 20;
+    private static final int WRITE_TRANSACTIONS = 100;
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long TALLER_ID = 1;
+
+    private static final String SQL_READ_STEPS = "SELECT " + InformeEntry._ID + ", " + InformeEntry.COLUMN_STEP_NUMBER + ", "
+            + InformeEntry.COLUMN_DESCRIPTION + ", " + InformeEntry.COLUMN_PHOTO_URI + " FROM " + InformeEntry.TABLE_NAME
+            + " WHERE " + InformeEntry.COLUMN_REPORTE_ID + " = ? ORDER BY " + InformeEntry.COLUMN_STEP_NUMBER;
+
+    private Context context;
+    private File path;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        path = context.getDatabasePath(TEST_DB);
+        DBHelper helper = new DBHelper(context, TEST_DB, null);
+        try {
+            UserProjectDatabase dao = new UserProjectDatabase(helper);
+            for (int r = 1; r <= SEED_REPORTS; r++) {
+                List<UserProjectDatabase.Step> steps = new ArrayList<>();
+                for (int s = 1; s <= STEPS_PER_REPORT; s++) {
+                    steps.add(new UserProjectDatabase.Step(s, "Paso " + s + " del informe " + r, "file:///foto.jpg"));
+                }
+                assertNotEquals(-1, dao.insertReportSteps(-1, "Componente " + r, "INV-" + r, TALLER_ID,
+                        TECNICO_ID, "DESARME", steps));
+            }
+        } finally {
+            helper.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void wal_lowersReadLatencyDuringWrites() throws InterruptedException {
+        // Antes: conexiones sueltas sin WAL (Android aplica su journal por defecto al abrirlas)
+        SQLiteDatabase writer = SQLiteDatabase.openDatabase(path.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        SQLiteDatabase reader = SQLiteDatabase.openDatabase(path.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        long[] before;
+        try {
+            assertFalse(writer.isWriteAheadLoggingEnabled());
+            before = measure(writer, reader);
+        } finally {
+            writer.close();
+            reader.close();
+        }
+
+        // Después: el DBHelper de la app (una conexión de escritura y lectores del pool WAL)
+        DBHelper helper = new DBHelper(context, TEST_DB, null);
+        long[] after;
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            assertTrue(db.isWriteAheadLoggingEnabled());
+            after = measure(db, db);
+        } finally {
+            helper.close();
+        }
+
+        Log.i(TAG, "Sin WAL: " + describe(before));
+        Log.i(TAG, "Con WAL: " + describe(after));
+        assertTrue("p99 con WAL " + after[1] + " µs, sin WAL " + before[1] + " µs", after[1] <= before[1]);
+    }
+
+    /**
+     * Lee los pasos de informes al azar mientras otro hilo guarda WRITE_TRANSACTIONS informes.
+     * @return p50, p99 y máximo de la lectura en microsegundos, y número de lecturas.
+     */
+    private long[] measure(SQLiteDatabase writerDb, SQLiteDatabase readerDb) throws InterruptedException {
+        Throwable[] failure = new Throwable[1];
+        Thread writer = new Thread(() -> {
+            try {
+                writeReports(writerDb);
+            } catch (Throwable t) {
+                failure[0] = t;
+            }
+        }, "escritor");
+
+        Random random = new Random(42);
+        List<Long> latencies = new ArrayList<>();
+        writer.start();
+        while (writer.isAlive()) {
+            String reportId = String.valueOf(1 + random.nextInt(SEED_REPORTS));
+            long start = System.nanoTime();
+            Cursor cursor = readerDb.rawQuery(SQL_READ_STEPS, new String[]{ reportId });
+            try {
+                while (cursor.moveToNext()) {
+                    cursor.getString(3);
+                }
+            } finally {
+                cursor.close();
+            }
+            latencies.add((System.nanoTime() - start) / 1000);
+        }
+        writer.join();
+        assertNull("Falló el escritor: " + failure[0], failure[0]);
+        assertFalse(latencies.isEmpty());
+
+        long[] sorted = new long[latencies.size()];
+        for (int i = 0; i < sorted.length; i++) sorted[i] = latencies.get(i);
+        Arrays.sort(sorted);
+        return new long[]{ sorted[sorted.length / 2], sorted[(int) (sorted.length * 0.99)],
+                sorted[sorted.length - 1], sorted.length };
+    }
+
+    private static void writeReports(SQLiteDatabase db) {
+        SQLiteStatement header = db.compileStatement("INSERT INTO " + ReporteEntry.TABLE_NAME + " ("
+                + ReporteEntry.COLUMN_COMPONENTE_ID + ", " + ReporteEntry.COLUMN_USER_ID + ", "
+                + ReporteEntry.COLUMN_ACTION_TYPE + ") VALUES (1, " + TECNICO_ID + ", 'ARMADO')");
+        SQLiteStatement step = db.compileStatement("INSERT INTO " + InformeEntry.TABLE_NAME + " ("
+                + InformeEntry.COLUMN_REPORTE_ID + ", " + InformeEntry.COLUMN_STEP_NUMBER + ", "
+                + InformeEntry.COLUMN_DESCRIPTION + ", " + InformeEntry.COLUMN_PHOTO_URI + ", "
+                + InformeEntry.COLUMN_USER_ID + ") VALUES (?, ?, 'Paso nuevo', 'file:///foto.jpg', " + TECNICO_ID + ")");
+        try {
+            for (int t = 0; t < WRITE_TRANSACTIONS; t++) {
+                db.beginTransaction();
+                try {
+                    long reportId = header.executeInsert();
+                    for (int s = 1; s <= STEPS_PER_REPORT; s++) {
+                        step.bindLong(1, reportId);
+                        step.bindLong(2, s);
+                        step.executeInsert();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+        } finally {
+            header.close();
+            step.close();
+        }
+    }
+
+    private static String describe(long[] result) {
+        return String.format("%d lecturas, p50 %d µs, p99 %d µs, máx %d µs", result[3], result[0], result[1], result[2]);
+    }
+}
@@ -0,0 +1,193 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MergeCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.ImageButton;
+import android.widget.TextView;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.R;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ComponenteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ReporteEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Microbenchmark del enlace de filas de ReportCursorAdapter sobre el mismo cursor que usa la
+ * lista: páginas de getReportsPage (SQLiteCursor) unidas en un MergeCursor, como hace
+ * ReportPageLoader. Enlaza 2.000 filas sobre una sola vista (como al hacer scroll) con el
+ * bindView anterior (findViewById, índices por fila y concatenación) y con el actual, e
+ * informa ns/fila y asignaciones/fila de cada uno.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReportCursorAdapterBenchmarkTest {
+
+    private static final String TAG = "ReportAdapterBench";
+    private static final int ROWS = 2_000;
+    private static final int PAGE_SIZE = ReportPageLoader.DEFAULT_PAGE_SIZE;
+    private static final long ADMIN_ID = 1;
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+
+    private Context context;
+    private DBHelper helper;
+    private UserProjectDatabase dao;
+    private final List<Cursor> pages = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DBHelper(context, null, null); // Base en memoria
+        dao = new UserProjectDatabase(helper);
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL("INSERT INTO " + ComponenteEntry.TABLE_NAME + " (" + ComponenteEntry.COLUMN_NAME + ", "
+                    + ComponenteEntry.COLUMN_CODIGO_INVENTARIO + ", " + ComponenteEntry.COLUMN_WORKSHOP_ID
+                    + ") VALUES ('Bomba centrífuga', 'INV-1', 1)");
+            db.execSQL("INSERT INTO " + ReporteEntry.TABLE_NAME + " (" + ReporteEntry.COLUMN_COMPONENTE_ID + ", "
+                    + ReporteEntry.COLUMN_USER_ID + ", " + ReporteEntry.COLUMN_ACTION_TYPE + ", "
+                    + ReporteEntry.COLUMN_DATE_CREATED + ", " + ReporteEntry.COLUMN_DATE_MODIFIED + ")"
+                    + " WITH RECURSIVE n(i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i + 1 < " + ROWS + ")"
+                    + " SELECT 1, " + TECNICO_ID + ", 'MANTENCION', datetime('2024-01-01', '+' || i || ' minutes'),"
+                    + " datetime('2024-01-01', '+' || i || ' minutes') FROM n");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (Cursor page : pages) page.close();
+        helper.close();
+    }
+
+    @Test
+    @SuppressWarnings("deprecation") // Debug.*AllocCount: sigue siendo la única cuenta por hilo
+    public void bindView_mergeCursor_fewerAllocationsThanBefore() {
+        Cursor cursor = loadPages();
+        assertEquals(ROWS, cursor.getCount());
+        long[] before = new long[2];
+        long[] after = new long[2];
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            ReportCursorAdapter adapter = new ReportCursorAdapter(context, null, UserProjectContract.ROLE_ADMIN, id -> {});
+            adapter.swapCursor(cursor);
+            View row = adapter.newView(context, cursor, new FrameLayout(context));
+
+            // Calentamiento de los dos (JIT y crecimiento de los búferes del holder)
+            bindAll(cursor, () -> legacyBindView(row, cursor), new long[2]);
+            bindAll(cursor, () -> adapter.bindView(row, context, cursor), new long[2]);
+
+            bindAll(cursor, () -> legacyBindView(row, cursor), before);
+            String legacyTitle = ((TextView) row.findViewById(R.id.tv_report_title)).getText().toString();
+            String legacySubtitle = ((TextView) row.findViewById(R.id.tv_report_subtitle)).getText().toString();
+
+            bindAll(cursor, () -> adapter.bindView(row, context, cursor), after);
+
+            // La última fila queda igual con los dos
+            assertEquals(legacyTitle, ((TextView) row.findViewById(R.id.tv_report_title)).getText().toString());
+            assertEquals(legacySubtitle, ((TextView) row.findViewById(R.id.tv_report_subtitle)).getText().toString());
+            assertEquals("Bomba centrífuga (INV-1)", legacyTitle);
+        });
+
+        double beforeAllocs = (double) before[1] / ROWS;
+        double afterAllocs = (double) after[1] / ROWS;
+        Log.i(TAG, String.format("%d filas (MergeCursor de %d páginas): antes %.1f ns/fila y %.1f asignaciones/fila,"
+                        + " ahora %.1f ns/fila y %.1f asignaciones/fila",
+                ROWS, pages.size(), (double) before[0] / ROWS, beforeAllocs, (double) after[0] / ROWS, afterAllocs));
+
+        // Los 5 String del cursor se siguen creando; lo que se ahorra es lo demás
+        assertTrue(String.format("Asignaciones/fila: antes %.1f, ahora %.1f", beforeAllocs, afterAllocs),
+                afterAllocs < beforeAllocs);
+    }
+
+    /**
+     * La lista como la arma ReportPageLoader: páginas por keyset unidas en un MergeCursor.
+     */
+    private Cursor loadPages() {
+        String afterDate = null;
+        long afterId = -1;
+        while (true) {
+            Cursor page = dao.getReportsPage(ADMIN_ID, UserProjectContract.ROLE_ADMIN, afterDate, afterId, PAGE_SIZE);
+            if (page.getCount() == 0) {
+                page.close();
+                break;
+            }
+            pages.add(page);
+            page.moveToLast();
+            afterDate = page.getString(page.getColumnIndexOrThrow(ReporteEntry.COLUMN_DATE_MODIFIED));
+            afterId = page.getLong(page.getColumnIndexOrThrow(ReporteEntry._ID));
+            if (page.getCount() < PAGE_SIZE) break;
+        }
+        return new MergeCursor(pages.toArray(new Cursor[0]));
+    }
+
+    /**
+     * Enlaza todas las filas y deja en result el tiempo (ns) y las asignaciones del hilo.
+     */
+    @SuppressWarnings("deprecation")
+    private static void bindAll(Cursor cursor, Runnable bind, long[] result) {
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ROWS; i++) {
+            cursor.moveToPosition(i);
+            bind.run();
+        }
+        result[0] = SystemClock.elapsedRealtimeNanos() - start;
+        Debug.stopAllocCounting();
+        result[1] = Debug.getThreadAllocCount();
+    }
+
+    /**
+     * bindView anterior al ViewHolder: busca las vistas y los índices en cada fila y arma los
+     * textos concatenando (un listener nuevo por fila, como entonces).
+     */
+    private static void legacyBindView(View view, Cursor cursor) {
+        TextView tvTitle = view.findViewById(R.id.tv_report_title);
+        TextView tvSubtitle = view.findViewById(R.id.tv_report_subtitle);
+        TextView tvTechnician = view.findViewById(R.id.tv_report_technician);
+        ImageButton btnGeneratePdfItem = view.findViewById(R.id.btn_generate_pdf_item);
+
+        int reportIdIndex = cursor.getColumnIndexOrThrow(ReporteEntry._ID);
+        int componenteNombreIndex = cursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_COMPONENTE_NOMBRE);
+        int codigoInventarioIndex = cursor.getColumnIndexOrThrow(ComponenteEntry.COLUMN_CODIGO_INVENTARIO);
+        int tipoAccionIndex = cursor.getColumnIndexOrThrow(ReporteEntry.COLUMN_ACTION_TYPE);
+        int tecnicoNombreIndex = cursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_TECNICO_NOMBRE);
+        int dateLoggedIndex = cursor.getColumnIndexOrThrow(ReporteEntry.COLUMN_DATE_MODIFIED);
+        int numPasosIndex = cursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_NUM_PASOS);
+
+        final long reportId = cursor.getLong(reportIdIndex);
+        String componenteNombre = cursor.getString(componenteNombreIndex);
+        String codigoInventario = cursor.getString(codigoInventarioIndex);
+        String tipoAccion = cursor.getString(tipoAccionIndex);
+        String tecnicoNombre = cursor.getString(tecnicoNombreIndex);
+        String dateLogged = cursor.getString(dateLoggedIndex);
+        int numPasos = cursor.getInt(numPasosIndex);
+
+        tvTitle.setText(componenteNombre + " (" + codigoInventario + ")");
+        tvSubtitle.setText(tipoAccion + " - " + dateLogged + " - " + numPasos + " pasos");
+        tvTechnician.setText("Por: " + tecnicoNombre);
+
+        btnGeneratePdfItem.setVisibility(View.VISIBLE);
+        btnGeneratePdfItem.setOnClickListener(v -> Log.d(TAG, "PDF " + reportId));
+    }
+}
@@ -0,0 +1,147 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ComponenteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ReporteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ResumenEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Latencia de la primera página de la lista de informes (getReportsPage, tamaño de página de
+ * ReportPageLoader) con 1.000 y con 500.000 informes sembrados en una base en disco, como
+ * Admin y como Técnico. Con keyset sobre el índice de fecha debe mantenerse plana; también
+ * mide una página profunda (después de la fila 400.000) que con OFFSET crecería con la tabla.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReportPageBenchmarkTest {
+
+    private static final String TAG = "ReportPageBenchmark";
+    private static final String TEST_DB = "report_page_benchmark.db";
+    private static final int SMALL = 1_000;
+    private static final int LARGE = 500_000;
+    private static final int RUNS = 30;
+    private static final int PAGE_SIZE = ReportPageLoader.DEFAULT_PAGE_SIZE;
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long ADMIN_ID = 1;
+
+    private Context context;
+    private DBHelper helper;
+    private UserProjectDatabase dao;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        helper = new DBHelper(context, TEST_DB, null);
+        dao = new UserProjectDatabase(helper);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void firstPage_flatFrom1kTo500k() {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.execSQL("INSERT INTO " + ComponenteEntry.TABLE_NAME + " (" + ComponenteEntry.COLUMN_NAME + ", "
+                + ComponenteEntry.COLUMN_CODIGO_INVENTARIO + ", " + ComponenteEntry.COLUMN_WORKSHOP_ID
+                + ") VALUES ('Bomba', 'INV-1', 1)");
+
+        seedReports(db, 0, SMALL);
+        long smallAdmin = medianMicros(ADMIN_ID, UserProjectContract.ROLE_ADMIN, null);
+        long smallTecnico = medianMicros(TECNICO_ID, UserProjectContract.ROLE_TECNICO, null);
+
+        seedReports(db, SMALL, LARGE);
+        assertEquals(LARGE, DatabaseUtils.queryNumEntries(db, ResumenEntry.TABLE_NAME));
+        long largeAdmin = medianMicros(ADMIN_ID, UserProjectContract.ROLE_ADMIN, null);
+        long largeTecnico = medianMicros(TECNICO_ID, UserProjectContract.ROLE_TECNICO, null);
+        long deepAdmin = medianMicros(ADMIN_ID, UserProjectContract.ROLE_ADMIN, dateOf(LARGE - 400_000));
+
+        Log.i(TAG, String.format("Primera página Admin: %d µs con %d informes, %d µs con %d", smallAdmin, SMALL, largeAdmin, LARGE));
+        Log.i(TAG, String.format("Primera página Técnico: %d µs con %d informes, %d µs con %d", smallTecnico, SMALL, largeTecnico, LARGE));
+        Log.i(TAG, String.format("Página después de la fila 400000: %d µs", deepAdmin));
+
+        assertFlat("Admin", smallAdmin, largeAdmin);
+        assertFlat("Técnico", smallTecnico, largeTecnico);
+        assertFlat("Página profunda", smallAdmin, deepAdmin);
+    }
+
+    /**
+     * Informes [from, to) del técnico de prueba con fechas de modificación crecientes.
+     * Los triggers crean su fila en resumen_informes.
+     */
+    private static void seedReports(SQLiteDatabase db, int from, int to) {
+        db.beginTransaction();
+        try {
+            db.execSQL("INSERT INTO " + ReporteEntry.TABLE_NAME + " (" + ReporteEntry.COLUMN_COMPONENTE_ID + ", "
+                    + ReporteEntry.COLUMN_USER_ID + ", " + ReporteEntry.COLUMN_ACTION_TYPE + ", "
+                    + ReporteEntry.COLUMN_DATE_CREATED + ", " + ReporteEntry.COLUMN_DATE_MODIFIED + ")"
+                    + " WITH RECURSIVE n(i) AS (SELECT ? UNION ALL SELECT i + 1 FROM n WHERE i + 1 < ?)"
+                    + " SELECT 1, " + TECNICO_ID + ", 'DESARME', " + dateExpr("i") + ", " + dateExpr("i") + " FROM n",
+                    new Object[]{ from, to });
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static String dateExpr(String minutes) {
+        return "datetime('2020-01-01 00:00:00', '+' || " + minutes + " || ' minutes')";
+    }
+
+    private String dateOf(int minutes) {
+        Cursor cursor = helper.getReadableDatabase().rawQuery("SELECT " + dateExpr("?"), new String[]{ String.valueOf(minutes) });
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getString(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Mediana de RUNS lecturas completas de una página (después de afterDate, o la primera).
+     */
+    private long medianMicros(long userId, String role, String afterDate) {
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            Cursor page = dao.getReportsPage(userId, role, afterDate, Long.MAX_VALUE, PAGE_SIZE);
+            try {
+                assertEquals(PAGE_SIZE, page.getCount());
+                while (page.moveToNext()) {
+                    page.getString(1);
+                }
+            } finally {
+                page.close();
+            }
+            times[i] = (System.nanoTime() - start) / 1000;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+
+    private static void assertFlat(String label, long small, long large) {
+        // Un margen fijo para que el ruido de las mediciones en microsegundos no haga fallar la prueba
+        assertTrue(label + ": " + large + " µs con " + LARGE + " informes, " + small + " µs con " + SMALL,
+                large <= 3 * small + 2_000);
+    }
+}
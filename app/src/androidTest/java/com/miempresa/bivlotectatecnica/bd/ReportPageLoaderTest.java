@@ -0,0 +1,132 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.os.strictmode.Violation;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cancelar una página en curso (reload() o close() mientras el lector ya la consultó) no
+ * debe dejar cursores abiertos. Registra todos los cursores que crea la base y comprueba que
+ * se cerraron; desde Android 9 además escucha las infracciones de StrictMode por cursores
+ * de SQLite no cerrados.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReportPageLoaderTest {
+
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long TALLER_ID = 1;
+    private static final long TIMEOUT_MS = 5_000;
+
+    private final List<Cursor> created = Collections.synchronizedList(new ArrayList<>());
+    private final List<Object> violations = Collections.synchronizedList(new ArrayList<>());
+    private Instrumentation instrumentation;
+    private Context context;
+    private DBHelper helper;
+    private AsyncUserProjectDatabase db;
+    private StrictMode.VmPolicy previousPolicy;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+        SQLiteDatabase.CursorFactory factory = (database, driver, editTable, query) -> {
+            Cursor cursor = new SQLiteCursor(driver, editTable, query);
+            created.add(cursor);
+            return cursor;
+        };
+        helper = new DBHelper(context, null, factory); // Base en memoria
+        UserProjectDatabase dao = new UserProjectDatabase(helper);
+        for (int i = 1; i <= 20; i++) {
+            dao.insertReportSteps(-1, "Componente " + i, "INV-" + i, TALLER_ID, TECNICO_ID, "DESARME",
+                    Collections.singletonList(new UserProjectDatabase.Step(1, "Paso", "file:///a.jpg")));
+        }
+        created.clear();
+        db = new AsyncUserProjectDatabase(dao);
+
+        previousPolicy = StrictMode.getVmPolicy();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                    .detectLeakedSqlLiteObjects()
+                    .detectLeakedClosableObjects()
+                    .penaltyListener(Runnable::run, this::onViolation)
+                    .build());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        StrictMode.setVmPolicy(previousPolicy);
+        helper.close();
+    }
+
+    @Test
+    public void cancelledPages_closeTheirCursors() {
+        instrumentation.runOnMainSync(() -> {
+            ReportCursorAdapter adapter = new ReportCursorAdapter(context, null, UserProjectContract.ROLE_ADMIN, id -> {});
+            ReportPageLoader loader = new ReportPageLoader(db, adapter, TECNICO_ID, UserProjectContract.ROLE_ADMIN);
+
+            // El hilo principal queda ocupado hasta que el lector consultó la página: su
+            // resultado se entrega después de reload() y de close(), ya cancelado
+            loader.reload();
+            awaitCursors(1);
+            loader.reload();
+            awaitCursors(2);
+            loader.close();
+        });
+
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        while (!allClosed() && SystemClock.uptimeMillis() < deadline) {
+            instrumentation.waitForIdleSync();
+            SystemClock.sleep(20);
+        }
+        assertEquals(2, created.size());
+        assertTrue("Cursores de páginas canceladas sin cerrar", allClosed());
+
+        // Los cursores sin cerrar se informan al recolectarlos
+        Runtime.getRuntime().gc();
+        System.runFinalization();
+        assertTrue("Infracciones de StrictMode: " + violations, violations.isEmpty());
+    }
+
+    private void awaitCursors(int count) {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        while (created.size() < count && SystemClock.uptimeMillis() < deadline) {
+            SystemClock.sleep(10);
+        }
+        assertTrue("El lector no consultó la página", created.size() >= count);
+        SystemClock.sleep(100); // getCount() y la entrega al hilo principal
+    }
+
+    private boolean allClosed() {
+        synchronized (created) {
+            for (Cursor cursor : created) {
+                if (!cursor.isClosed()) return false;
+            }
+        }
+        return true;
+    }
+
+    private void onViolation(Violation violation) {
+        violations.add(violation);
+    }
+}
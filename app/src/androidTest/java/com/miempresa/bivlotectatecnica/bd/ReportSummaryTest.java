@@ -0,0 +1,108 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ComponenteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.InformeEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ReporteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ResumenEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.UserEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifica que los triggers mantienen resumen_informes igual al resumen recalculado
+ * desde las tablas base, y que la reconstrucción repara una tabla alterada.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReportSummaryTest {
+
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long TALLER_ID = 1;
+
+    private DBHelper helper;
+    private UserProjectDatabase dao;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DBHelper(context, null, null); // Base en memoria
+        dao = new UserProjectDatabase(helper);
+        db = helper.getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void triggers_keepSummaryInSync() {
+        long reportId = dao.insertReportSteps(-1, "Bomba", "INV-1", TALLER_ID, TECNICO_ID, "DESARME", Arrays.asList(
+                new UserProjectDatabase.Step(1, "Sin foto", "placeholder_uri"),
+                new UserProjectDatabase.Step(2, "Con foto", "file:///a.jpg")));
+        assertNotEquals(-1, reportId);
+        assertSummary(reportId, "Bomba", "Juan Técnico Pérez", 2, "file:///a.jpg");
+
+        // Agregar pasos, renombrar componente y técnico, borrar un paso
+        dao.insertReportSteps(reportId, null, null, TALLER_ID, TECNICO_ID, null,
+                Arrays.asList(new UserProjectDatabase.Step(3, "Otro", "file:///b.jpg")));
+        db.execSQL("UPDATE " + ComponenteEntry.TABLE_NAME + " SET " + ComponenteEntry.COLUMN_NAME + " = 'Bomba 2'");
+        db.execSQL("UPDATE " + UserEntry.TABLE_NAME + " SET " + UserEntry.COLUMN_NAME + " = 'Juan P.' WHERE "
+                + UserEntry._ID + " = " + TECNICO_ID);
+        db.execSQL("DELETE FROM " + InformeEntry.TABLE_NAME + " WHERE " + InformeEntry.COLUMN_STEP_NUMBER + " = 2");
+        assertSummary(reportId, "Bomba 2", "Juan P.", 2, "file:///b.jpg");
+        assertEquals(0, dao.checkSummaryConsistency());
+
+        db.execSQL("DELETE FROM " + ReporteEntry.TABLE_NAME);
+        assertEquals(0, countRows());
+        assertEquals(0, dao.checkSummaryConsistency());
+    }
+
+    @Test
+    public void rebuild_repairsSummary() {
+        long reportId = dao.insertReportSteps(-1, "Bomba", "INV-1", TALLER_ID, TECNICO_ID, "DESARME",
+                Arrays.asList(new UserProjectDatabase.Step(1, "Paso", "file:///a.jpg")));
+        db.execSQL("UPDATE " + ResumenEntry.TABLE_NAME + " SET " + ResumenEntry.COLUMN_NUM_PASOS + " = 99");
+        assertEquals(1, dao.checkSummaryConsistency());
+
+        assertEquals(1, dao.rebuildSummary());
+        assertEquals(0, dao.checkSummaryConsistency());
+        assertSummary(reportId, "Bomba", "Juan Técnico Pérez", 1, "file:///a.jpg");
+    }
+
+    private void assertSummary(long reportId, String component, String technician, int steps, String cover) {
+        Cursor cursor = dao.getReportDetails(reportId);
+        try {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(component, cursor.getString(cursor.getColumnIndexOrThrow(ComponenteEntry.COLUMN_NAME)));
+            assertEquals(technician, cursor.getString(cursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_TECNICO_NOMBRE)));
+            assertEquals(steps, cursor.getInt(cursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_NUM_PASOS)));
+            assertEquals(cover, cursor.getString(cursor.getColumnIndexOrThrow(ResumenEntry.COLUMN_FOTO_PORTADA)));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private long countRows() {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + ResumenEntry.TABLE_NAME, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
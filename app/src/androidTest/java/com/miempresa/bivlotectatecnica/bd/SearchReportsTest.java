@@ -0,0 +1,256 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ComponenteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.InformeEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ReporteEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * searchReports: coincidencia por prefijo, orden por relevancia, fragmentos y sincronización
+ * del índice FTS con los triggers. Además compara su latencia con la consulta LIKE '%…%'
+ * equivalente sobre 200.000 pasos sembrados en una base en disco (objetivo: menos de 50 ms).
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchReportsTest {
+
+    private static final String TAG = "SearchReportsTest";
+    private static final String TEST_DB = "search_benchmark.db";
+    private static final int REPORTS = 2_000;
+    private static final int STEPS_PER_REPORT = 100; // 200k pasos
+    private static final int WORDS_PER_STEP = 8;
+    private static final int VOCABULARY = 300;
+    private static final int RUNS = 15;
+    private static final int LIMIT = 20;
+    private static final long TARGET_MS = 50;
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long TALLER_ID = 1;
+
+    private static final String[] SYLLABLES = {
+            "ro", "da", "mi", "en", "to", "va", "lu", "la", "bo", "ma", "se", "llo", "ta", "pa", "co", "ne", "te", "ca", "ri", "su"
+    };
+
+    private Context context;
+    private DBHelper helper;
+    private UserProjectDatabase dao;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) helper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void search_matchesPrefixesAndRanksByColumn() {
+        openDatabase(null); // Base en memoria
+        dao.insertReportSteps(-1, "Bomba centrífuga", "INV-100", TALLER_ID, TECNICO_ID, "DESARME", Arrays.asList(
+                new UserProjectDatabase.Step(1, "Retirar la tapa y revisar el rodamiento", "file:///a.jpg"),
+                new UserProjectDatabase.Step(2, "Limpiar el impulsor", "file:///b.jpg")));
+        dao.insertReportSteps(-1, "Rodamiento de bolas", "INV-200", TALLER_ID, TECNICO_ID, "ARMADO", Arrays.asList(
+                new UserProjectDatabase.Step(1, "Montar en el eje", "file:///c.jpg")));
+
+        List<String> codes = new ArrayList<>();
+        Cursor cursor = dao.searchReports("rodam", LIMIT);
+        try {
+            assertEquals(2, cursor.getCount());
+            while (cursor.moveToNext()) {
+                codes.add(cursor.getString(cursor.getColumnIndexOrThrow(ComponenteEntry.COLUMN_CODIGO_INVENTARIO)));
+                String snippet = cursor.getString(cursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_SNIPPET));
+                assertTrue(snippet, snippet.contains("[") && snippet.contains("]"));
+            }
+        } finally {
+            cursor.close();
+        }
+        // El nombre del componente pesa más que la descripción
+        assertEquals(Arrays.asList("INV-200", "INV-100"), codes);
+
+        assertCount(1, "bomba impul");
+        assertCount(3, "INV");
+        assertCount(0, "\"* OR");
+        assertCount(0, "");
+    }
+
+    @Test
+    public void search_followsTriggers() {
+        openDatabase(null);
+        long reportId = dao.insertReportSteps(-1, "Motor", "INV-1", TALLER_ID, TECNICO_ID, "DESARME", Arrays.asList(
+                new UserProjectDatabase.Step(1, "Cambiar escobillas", "file:///a.jpg")));
+        assertCount(1, "escob");
+
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.execSQL("UPDATE " + ComponenteEntry.TABLE_NAME + " SET " + ComponenteEntry.COLUMN_NAME + " = 'Generador'");
+        assertCount(0, "motor");
+        assertCount(1, "gener");
+
+        db.execSQL("UPDATE " + InformeEntry.TABLE_NAME + " SET " + InformeEntry.COLUMN_DESCRIPTION + " = 'Medir aislación'");
+        assertCount(0, "escob");
+        assertCount(1, "aisl");
+
+        db.execSQL("DELETE FROM " + ReporteEntry.TABLE_NAME + " WHERE " + ReporteEntry._ID + " = " + reportId);
+        assertCount(0, "gener");
+    }
+
+    @Test
+    public void search_200kSteps_under50ms_fasterThanLike() {
+        openDatabase(TEST_DB);
+        String[] vocabulary = vocabulary();
+        seed(vocabulary);
+
+        String[] queries = {
+                vocabulary[7],                                    // Una palabra completa
+                vocabulary[42].substring(0, 4),                   // Prefijo (varias palabras)
+                vocabulary[100] + " " + vocabulary[200],          // Dos palabras
+                "INV-1234",                                       // Código de inventario
+        };
+        for (String query : queries) {
+            long fts = medianMillis(() -> {
+                Cursor cursor = dao.searchReports(query, LIMIT);
+                int count = cursor.getCount();
+                cursor.close();
+                return count;
+            });
+            long like = medianMillis(() -> likeSearch(query));
+            Log.i(TAG, String.format("\"%s\": FTS %d ms, LIKE %d ms", query, fts, like));
+
+            assertTrue("\"" + query + "\" tardó " + fts + " ms", fts < TARGET_MS);
+            assertTrue("\"" + query + "\": FTS " + fts + " ms, LIKE " + like + " ms", fts <= like);
+        }
+    }
+
+    private void openDatabase(String name) {
+        helper = new DBHelper(context, name, null);
+        dao = new UserProjectDatabase(helper);
+    }
+
+    private void assertCount(int expected, String query) {
+        Cursor cursor = dao.searchReports(query, LIMIT);
+        try {
+            assertEquals("Resultados de \"" + query + "\"", expected, cursor.getCount());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Palabras sintéticas de tres sílabas (fijas: Random con semilla).
+     */
+    private static String[] vocabulary() {
+        Random random = new Random(7);
+        List<String> words = new ArrayList<>();
+        while (words.size() < VOCABULARY) {
+            String word = SYLLABLES[random.nextInt(SYLLABLES.length)] + SYLLABLES[random.nextInt(SYLLABLES.length)]
+                    + SYLLABLES[random.nextInt(SYLLABLES.length)];
+            if (!words.contains(word)) words.add(word);
+        }
+        return words.toArray(new String[0]);
+    }
+
+    private void seed(String[] vocabulary) {
+        Random random = new Random(11);
+        SQLiteDatabase db = helper.getWritableDatabase();
+        SQLiteStatement componente = db.compileStatement("INSERT INTO " + ComponenteEntry.TABLE_NAME + " ("
+                + ComponenteEntry.COLUMN_NAME + ", " + ComponenteEntry.COLUMN_CODIGO_INVENTARIO + ", "
+                + ComponenteEntry.COLUMN_WORKSHOP_ID + ") VALUES (?, ?, " + TALLER_ID + ")");
+        SQLiteStatement reporte = db.compileStatement("INSERT INTO " + ReporteEntry.TABLE_NAME + " ("
+                + ReporteEntry.COLUMN_COMPONENTE_ID + ", " + ReporteEntry.COLUMN_USER_ID + ", "
+                + ReporteEntry.COLUMN_ACTION_TYPE + ") VALUES (?, " + TECNICO_ID + ", 'DESARME')");
+        SQLiteStatement paso = db.compileStatement("INSERT INTO " + InformeEntry.TABLE_NAME + " ("
+                + InformeEntry.COLUMN_REPORTE_ID + ", " + InformeEntry.COLUMN_STEP_NUMBER + ", "
+                + InformeEntry.COLUMN_DESCRIPTION + ", " + InformeEntry.COLUMN_PHOTO_URI + ", "
+                + InformeEntry.COLUMN_USER_ID + ") VALUES (?, ?, ?, 'file:///foto.jpg', " + TECNICO_ID + ")");
+        StringBuilder description = new StringBuilder();
+
+        db.beginTransaction();
+        try {
+            for (int r = 1; r <= REPORTS; r++) {
+                componente.bindString(1, "Equipo " + vocabulary[random.nextInt(VOCABULARY)]);
+                componente.bindString(2, "INV-" + r);
+                reporte.bindLong(1, componente.executeInsert());
+                long reportId = reporte.executeInsert();
+                for (int s = 1; s <= STEPS_PER_REPORT; s++) {
+                    description.setLength(0);
+                    for (int w = 0; w < WORDS_PER_STEP; w++) {
+                        if (w > 0) description.append(' ');
+                        description.append(vocabulary[random.nextInt(VOCABULARY)]);
+                    }
+                    paso.bindLong(1, reportId);
+                    paso.bindLong(2, s);
+                    paso.bindString(3, description.toString());
+                    paso.executeInsert();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            componente.close();
+            reporte.close();
+            paso.close();
+        }
+    }
+
+    /**
+     * La búsqueda sin índice: cada palabra debe aparecer (como subcadena) en alguna de las tres columnas.
+     */
+    private int likeSearch(String query) {
+        List<String> conditions = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        for (String token : query.split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) continue;
+            conditions.add("(I." + InformeEntry.COLUMN_DESCRIPTION + " LIKE ? OR C." + ComponenteEntry.COLUMN_NAME
+                    + " LIKE ? OR C." + ComponenteEntry.COLUMN_CODIGO_INVENTARIO + " LIKE ?)");
+            String pattern = "%" + token + "%";
+            args.addAll(Arrays.asList(pattern, pattern, pattern));
+        }
+        Cursor cursor = helper.getReadableDatabase().rawQuery("SELECT I." + InformeEntry._ID + ", I." + InformeEntry.COLUMN_DESCRIPTION
+                + ", C." + ComponenteEntry.COLUMN_NAME + " FROM " + InformeEntry.TABLE_NAME + " I"
+                + " INNER JOIN " + ReporteEntry.TABLE_NAME + " R ON R." + ReporteEntry._ID + " = I." + InformeEntry.COLUMN_REPORTE_ID
+                + " INNER JOIN " + ComponenteEntry.TABLE_NAME + " C ON C." + ComponenteEntry._ID + " = R." + ReporteEntry.COLUMN_COMPONENTE_ID
+                + " WHERE " + String.join(" AND ", conditions) + " LIMIT " + LIMIT, args.toArray(new String[0]));
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private interface Query {
+        int run();
+    }
+
+    private static long medianMillis(Query query) {
+        query.run(); // Calentamiento (caché de páginas)
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            assertTrue(query.run() > 0);
+            times[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+}
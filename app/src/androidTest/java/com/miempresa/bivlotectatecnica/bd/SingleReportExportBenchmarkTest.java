@@ -0,0 +1,144 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.pdf.PdfRenderer;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.PdfCache;
+import com.miempresa.bivlotectatecnica.ReportPDFGenerator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tamaño y tiempo de la exportación de un informe suelto por el mismo camino que
+ * PdfExportService (generateFile con la configuración por defecto, es decir STREAMING con
+ * ImageOptions.DEFAULT) frente al backend anterior con PdfDocument. 100 pasos con fotos de
+ * 1600x1200; los resultados quedan en logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SingleReportExportBenchmarkTest {
+
+    private static final String TAG = "SingleReportBenchmark";
+    private static final int STEPS = 100;
+    private static final int PHOTOS = 10;
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long TALLER_ID = 1;
+
+    private Context context;
+    private File dir;
+    private DBHelper helper;
+    private UserProjectDatabase dao;
+    private long reportId;
+    private final List<File> outputs = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        dir = new File(context.getCacheDir(), "single_export_test");
+        dir.mkdirs();
+        List<String> photoUris = new ArrayList<>();
+        Bitmap bitmap = Bitmap.createBitmap(1600, 1200, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        Random random = new Random(7);
+        for (int i = 0; i < PHOTOS; i++) {
+            canvas.drawColor(0xFF000000 | random.nextInt());
+            for (int c = 0; c < 40; c++) {
+                paint.setColor(0xFF000000 | random.nextInt());
+                canvas.drawCircle(random.nextInt(1600), random.nextInt(1200), 20 + random.nextInt(200), paint);
+            }
+            File file = new File(dir, "foto_" + i + ".jpg");
+            try (OutputStream out = new FileOutputStream(file)) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 85, out);
+            }
+            photoUris.add(Uri.fromFile(file).toString());
+        }
+        bitmap.recycle();
+
+        helper = new DBHelper(context, null, null); // Base en memoria
+        dao = new UserProjectDatabase(helper);
+        List<UserProjectDatabase.Step> steps = new ArrayList<>();
+        for (int s = 1; s <= STEPS; s++) {
+            steps.add(new UserProjectDatabase.Step(s, "Retirar la tapa y revisar el rodamiento n° " + s,
+                    photoUris.get(s % PHOTOS)));
+        }
+        reportId = dao.insertReportSteps(-1, "Bomba centrífuga", "INV-BENCH", TALLER_ID, TECNICO_ID, "DESARME", steps);
+        assertTrue(reportId != -1);
+    }
+
+    @After
+    public void tearDown() {
+        PdfCache.getInstance(context).invalidate(reportId);
+        helper.close();
+        for (File f : outputs) f.delete();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void defaultExport_smallerThanPdfDocument() throws IOException {
+        Result streaming = export(null); // Lo que hace PdfExportService
+        Result document = export(ReportPDFGenerator.Backend.PDF_DOCUMENT);
+
+        Log.i(TAG, String.format(Locale.US, "%d pasos: por defecto %d KB en %d ms, PdfDocument %d KB en %d ms",
+                STEPS, streaming.bytes / 1024, streaming.elapsedMs, document.bytes / 1024, document.elapsedMs));
+
+        assertEquals(document.pages, streaming.pages);
+        assertTrue(String.format(Locale.US, "Por defecto %d KB, PdfDocument %d KB", streaming.bytes / 1024,
+                document.bytes / 1024), streaming.bytes < document.bytes);
+    }
+
+    private static final class Result {
+        long bytes;
+        long elapsedMs;
+        int pages;
+    }
+
+    /**
+     * Exporta con generateFile sin pasar por la caché.
+     * @param backend null para dejar la configuración por defecto del generador.
+     */
+    private Result export(ReportPDFGenerator.Backend backend) throws IOException {
+        PdfCache.getInstance(context).invalidate(reportId);
+        ReportPDFGenerator generator = new ReportPDFGenerator(context, dao);
+        if (backend != null) generator.setBackend(backend);
+
+        long start = SystemClock.elapsedRealtime();
+        File file = generator.generateFile(reportId);
+        Result result = new Result();
+        result.elapsedMs = SystemClock.elapsedRealtime() - start;
+        assertNotNull(file);
+        outputs.add(file);
+        result.bytes = file.length();
+        try (PdfRenderer renderer = new PdfRenderer(ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY))) {
+            result.pages = renderer.getPageCount();
+        }
+        return result;
+    }
+}
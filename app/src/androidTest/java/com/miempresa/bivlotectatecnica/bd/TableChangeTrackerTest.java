@@ -0,0 +1,104 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.BorradorEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ComponenteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.InformeEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ReporteEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifica que las escrituras del DAO incrementan la versión de sus tablas solo al confirmarse,
+ * incluidas las transacciones anidadas de promoteDraft. Encontrar un componente que ya existe
+ * no cuenta como escritura.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TableChangeTrackerTest {
+
+    private static final long TECNICO_ID = 2; // Usuario de prueba de DBHelper.insertInitialData
+    private static final long TALLER_ID = 1;
+
+    private DBHelper helper;
+    private UserProjectDatabase dao;
+    private TableChangeTracker tracker;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        helper = new DBHelper(context, null, null); // Base en memoria
+        dao = new UserProjectDatabase(helper);
+        tracker = dao.getChangeTracker();
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+    }
+
+    @Test
+    public void insertReportSteps_bumpsReportTables() {
+        long before = tracker.getVersion(ReporteEntry.TABLE_NAME, InformeEntry.TABLE_NAME);
+        long reportId = dao.insertReportSteps(-1, "Bomba", "INV-1", TALLER_ID, TECNICO_ID, "MANTENCION",
+                Collections.singletonList(new UserProjectDatabase.Step(1, "Paso", "placeholder_uri")));
+
+        assertNotEquals(-1, reportId);
+        assertTrue(tracker.getVersion(ReporteEntry.TABLE_NAME, InformeEntry.TABLE_NAME) > before);
+    }
+
+    @Test
+    public void existingComponent_keepsComponentVersion() {
+        long before = tracker.getVersion(ComponenteEntry.TABLE_NAME);
+        long componenteId = dao.getOrInsertComponenteId("Bomba", "INV-1", TALLER_ID);
+        assertNotEquals(-1, componenteId);
+        assertEquals(before + 1, tracker.getVersion(ComponenteEntry.TABLE_NAME));
+
+        // Solo búsqueda: mismo ID y ninguna versión nueva
+        assertEquals(componenteId, dao.getOrInsertComponenteId("Bomba", "INV-1", TALLER_ID));
+        assertEquals(before + 1, tracker.getVersion(ComponenteEntry.TABLE_NAME));
+
+        // Un informe de un componente existente cambia reportes e informes, no componentes
+        long reportsBefore = tracker.getVersion(ReporteEntry.TABLE_NAME);
+        assertNotEquals(-1, dao.insertReportSteps(-1, "Bomba", "INV-1", TALLER_ID, TECNICO_ID, "MANTENCION",
+                Collections.singletonList(new UserProjectDatabase.Step(1, "Paso", "placeholder_uri"))));
+        assertEquals(reportsBefore + 1, tracker.getVersion(ReporteEntry.TABLE_NAME));
+        assertEquals(before + 1, tracker.getVersion(ComponenteEntry.TABLE_NAME));
+    }
+
+    @Test
+    public void failedWrite_keepsVersion() {
+        long before = tracker.getVersion(ReporteEntry.TABLE_NAME, InformeEntry.TABLE_NAME);
+        // Paso duplicado: viola la restricción y se revierte todo
+        long reportId = dao.insertReportSteps(-1, "Bomba", "INV-1", TALLER_ID, TECNICO_ID, "MANTENCION",
+                Arrays.asList(new UserProjectDatabase.Step(1, "A", "placeholder_uri"),
+                        new UserProjectDatabase.Step(1, "B", "placeholder_uri")));
+
+        assertEquals(-1, reportId);
+        assertEquals(before, tracker.getVersion(ReporteEntry.TABLE_NAME, InformeEntry.TABLE_NAME));
+    }
+
+    @Test
+    public void promoteDraft_publishesNestedTablesAfterCommit() {
+        long draftId = dao.getOrCreateDraft(TECNICO_ID, -1);
+        assertTrue(dao.saveDraft(draftId, "Bomba", "INV-1", "MANTENCION",
+                Collections.singletonList(new UserProjectDatabase.Step(1, "Paso", null)), true));
+        long reportsBefore = tracker.getVersion(ReporteEntry.TABLE_NAME);
+        long draftsBefore = tracker.getVersion(BorradorEntry.TABLE_NAME);
+
+        assertNotEquals(-1, dao.promoteDraft(draftId, TALLER_ID));
+        assertEquals(reportsBefore + 1, tracker.getVersion(ReporteEntry.TABLE_NAME));
+        assertEquals(draftsBefore + 1, tracker.getVersion(BorradorEntry.TABLE_NAME));
+    }
+}
@@ -1,23 +1,35 @@
 package com.miempresa.bivlotectatecnica;
 
+import android.Manifest;
 import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.widget.Button;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
 
 import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
 import com.miempresa.bivlotectatecnica.SessionManager;
 
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
 /**
  * Menú principal exclusivo para el Administrador (Layout 1 ADMIN).
  */
-public class AdminMenuActivity extends AppCompatActivity {
+public class AdminMenuActivity extends AppCompatActivity implements PdfExportService.Listener {
 
     private SessionManager session;
     private Button btnReports;
     private Button btnTechnicians;
+    private Button btnExportMonth;
     private Button btnLogout; // 🚨 Botón de Logout
 
     @Override
@@ -42,6 +54,7 @@ public class AdminMenuActivity extends AppCompatActivity {
         // Botones de Navegación
         btnReports = findViewById(R.id.card_reports);
         btnTechnicians = findViewById(R.id.card_technicians);
+        btnExportMonth = findViewById(R.id.btn_export_month);
 
         // 🚨 Inicialización del botón de cerrar sesión (ID: btn_logout)
         btnLogout = findViewById(R.id.btn_logout);
@@ -58,6 +71,9 @@ public class AdminMenuActivity extends AppCompatActivity {
             startActivity(intent);
         });
 
+        // 3. Exportación por lotes del mes en curso (un PDF con índice)
+        btnExportMonth.setOnClickListener(v -> exportCurrentMonth());
+
         // 🚨 Lógica de Cierre de Sesión
         btnLogout.setOnClickListener(v -> {
             session.logoutUser(); // Limpia SharedPreferences
@@ -67,4 +83,61 @@ public class AdminMenuActivity extends AppCompatActivity {
             finish(); // Cierra el menú y vuelve al login
         });
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        PdfExportService.addListener(this);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        PdfExportService.removeListener(this);
+    }
+
+    /**
+     * Encola la exportación de todos los informes modificados este mes.
+     * Las fechas se guardan con CURRENT_TIMESTAMP (UTC), así que el rango se calcula en UTC.
+     */
+    private void exportCurrentMonth() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.POST_NOTIFICATIONS}, 0);
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Calendar month = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        month.set(Calendar.DAY_OF_MONTH, 1);
+        month.set(Calendar.HOUR_OF_DAY, 0);
+        month.set(Calendar.MINUTE, 0);
+        month.set(Calendar.SECOND, 0);
+        String fromDate = format.format(month.getTime());
+        month.add(Calendar.MONTH, 1);
+        String toDate = format.format(month.getTime());
+
+        PdfExportService.startBatchExport(this, fromDate, toDate, BatchPdfExporter.Format.COMBINED_PDF);
+        Toast.makeText(this, "Exportando los informes del mes...", Toast.LENGTH_SHORT).show();
+    }
+
+    // -------------------------------------------------------------------
+    // 🚨 RESULTADO DE LA EXPORTACIÓN POR LOTES
+    // -------------------------------------------------------------------
+
+    @Override
+    public void onExportFinished(long reportId, File file) {
+        if (reportId != PdfExportService.BATCH_JOB_ID) return;
+        if (file == null) {
+            Toast.makeText(this, "No hay informes este mes.", Toast.LENGTH_LONG).show();
+        } else {
+            Toast.makeText(this, "Lote guardado en: " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        }
+    }
+
+    @Override
+    public void onExportFailed(long reportId, Exception e) {
+        if (reportId != PdfExportService.BATCH_JOB_ID) return;
+        Toast.makeText(this, "Error al exportar el lote.", Toast.LENGTH_LONG).show();
+    }
+}
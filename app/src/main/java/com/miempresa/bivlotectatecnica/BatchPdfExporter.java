@@ -0,0 +1,343 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+import android.graphics.pdf.PdfDocument;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectDatabase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exporta varios informes de una vez (p. ej. todo un mes para una auditoría), como un único
+ * PDF con índice o como un ZIP con un PDF por informe.
+ *
+ * Las fotos se decodifican en un pool de hilos mientras el hilo que llama dibuja las páginas
+ * en orden. Se adelantan como máximo {@code 2 * workers} fotos, así que la cantidad de bitmaps
+ * vivos no depende del tamaño del lote.
+ * Llamar SIEMPRE desde un hilo en segundo plano; interrumpir el hilo cancela la exportación.
+ */
+public class BatchPdfExporter {
+
+    private static final String TAG = "BatchPdfExporter";
+
+    // Los lotes siempre salen en la plantilla de lista (la del índice y los informes sueltos)
+    private static final ReportTemplate TEMPLATE = ReportTemplate.LIST;
+
+    public enum Format { COMBINED_PDF, ZIP }
+
+    /**
+     * Avance del lote. Se invoca en el hilo que exporta.
+     */
+    public interface ProgressListener {
+        void onProgress(int reportsDone, int totalReports, int pagesDone);
+    }
+
+    /**
+     * Resultado de una exportación, con el rendimiento medido.
+     */
+    public static final class Result {
+        public final File file;
+        public final int reports;
+        public final int pages;
+        public final long elapsedMs;
+        public final int workers;
+
+        Result(File file, int reports, int pages, long elapsedMs, int workers) {
+            this.file = file;
+            this.reports = reports;
+            this.pages = pages;
+            this.elapsedMs = elapsedMs;
+            this.workers = workers;
+        }
+
+        public double getPagesPerSecond() {
+            return elapsedMs > 0 ? pages * 1000.0 / elapsedMs : pages;
+        }
+    }
+
+    public static final int DEFAULT_WORKERS = 2;
+
+    private final Context context;
+    private final UserProjectDatabase db;
+    private final int workers;
+
+    public BatchPdfExporter(Context context, UserProjectDatabase db) {
+        this(context, db, DEFAULT_WORKERS);
+    }
+
+    /**
+     * @param workers Hilos que decodifican fotos (1 = sin paralelismo).
+     */
+    public BatchPdfExporter(Context context, UserProjectDatabase db, int workers) {
+        this.context = context.getApplicationContext();
+        this.db = db;
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Exporta los informes modificados en [fromDate, toDate).
+     * @return El resultado, o null si no hay informes en el rango.
+     */
+    public Result exportRange(String fromDate, String toDate, Format format, ProgressListener listener) throws IOException {
+        return export(db.getReportIdsModifiedBetween(fromDate, toDate), format, listener);
+    }
+
+    /**
+     * Exporta los informes indicados, en ese orden. Los IDs que no existen se omiten.
+     * @return El resultado, o null si ninguno de los informes existe.
+     */
+    public Result export(List<Long> reportIds, Format format, ProgressListener listener) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+
+        List<ReportPageRenderer.ReportData> reports = new ArrayList<>();
+        for (long id : reportIds) {
+            ReportPageRenderer.checkCancelled();
+            ReportPageRenderer.ReportData report = ReportPageRenderer.load(db, id);
+            if (report != null) {
+                reports.add(report);
+            } else {
+                Log.w(TAG, "Informe no encontrado, se omite: " + id);
+            }
+        }
+        if (reports.isEmpty()) {
+            return null;
+        }
+
+        String stamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        File file = new File(ReportPDFGenerator.getOutputDir(),
+                format == Format.ZIP ? "INFORMES_LOTE_" + stamp + ".zip" : "INFORMES_LOTE_" + stamp + ".pdf");
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "pdf-decode");
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        try {
+            int pages = format == Format.ZIP
+                    ? writeZip(reports, file, pool, listener)
+                    : writeCombined(reports, file, pool, listener);
+
+            Result result = new Result(file, reports.size(), pages, SystemClock.elapsedRealtime() - start, workers);
+            Log.i(TAG, String.format(Locale.US, "Lote de %d informes: %d páginas en %d ms (%.1f pág/s, %d hilos)",
+                    result.reports, result.pages, result.elapsedMs, result.getPagesPerSecond(), workers));
+            return result;
+        } catch (IOException e) {
+            Log.e(TAG, "Error en la exportación por lotes: " + e.getMessage());
+            if (file.exists() && !file.delete()) {
+                Log.w(TAG, "No se pudo borrar el archivo incompleto: " + file);
+            }
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Un solo PDF: índice + todos los informes. Una pasada de medición (solo cabeceras de
+     * las fotos, sin píxeles) fija la página inicial de cada informe para el índice.
+     */
+    private int writeCombined(List<ReportPageRenderer.ReportData> reports, File file,
+                              ExecutorService pool, ProgressListener listener) throws IOException {
+        ReportLayout.Styles styles = new ReportLayout.Styles();
+        List<List<ReportPageRenderer.StepImage>> sizes = measureImages(reports, pool);
+        int[] startPages = measureStartPages(reports, sizes, styles);
+
+        PdfDocument document = new PdfDocument();
+        try (ImagePipeline images = new ImagePipeline(reports, pool)) {
+            ReportPageRenderer renderer = new ReportPageRenderer(document, styles);
+            renderer.drawTableOfContents(reports, startPages);
+
+            for (int i = 0; i < reports.size(); i++) {
+                drawReport(renderer, reports.get(i), sizes.get(i), styles, images);
+                if (listener != null) {
+                    listener.onProgress(i + 1, reports.size(), renderer.getPageCount());
+                }
+            }
+            renderer.finish();
+            ReportPageRenderer.checkCancelled();
+
+            FileOutputStream fos = new FileOutputStream(file);
+            try {
+                document.writeTo(fos);
+            } finally {
+                fos.close();
+            }
+            return renderer.getPageCount();
+        } finally {
+            document.close();
+        }
+    }
+
+    /**
+     * Un ZIP con un PDF por informe. Cada documento se escribe y se libera antes del siguiente.
+     */
+    private int writeZip(List<ReportPageRenderer.ReportData> reports, File file,
+                         ExecutorService pool, ProgressListener listener) throws IOException {
+        ReportLayout.Styles styles = new ReportLayout.Styles();
+        List<List<ReportPageRenderer.StepImage>> sizes = measureImages(reports, pool);
+        int pages = 0;
+        try (ImagePipeline images = new ImagePipeline(reports, pool);
+             ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < reports.size(); i++) {
+                ReportPageRenderer.ReportData report = reports.get(i);
+                PdfDocument document = new PdfDocument();
+                try {
+                    ReportPageRenderer renderer = new ReportPageRenderer(document, styles);
+                    drawReport(renderer, report, sizes.get(i), styles, images);
+                    renderer.finish();
+                    ReportPageRenderer.checkCancelled();
+
+                    zip.putNextEntry(new ZipEntry(ReportPDFGenerator.fileNameFor(report)));
+                    document.writeTo(zip);
+                    zip.closeEntry();
+                    pages += renderer.getPageCount();
+                } finally {
+                    document.close();
+                }
+                if (listener != null) {
+                    listener.onProgress(i + 1, reports.size(), pages);
+                }
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * Mide el informe (con los altos de foto ya medidos) y lo dibuja. Volver a medir da las
+     * mismas páginas que measureStartPages, así que el índice siempre coincide.
+     */
+    private static void drawReport(ReportPageRenderer renderer, ReportPageRenderer.ReportData report,
+                                   List<ReportPageRenderer.StepImage> sizes, ReportLayout.Styles styles,
+                                   ImagePipeline images) throws IOException {
+        ReportLayout layout = TEMPLATE.measure(report, sizes, styles);
+        renderer.drawReport(layout, index -> images.next(), null);
+    }
+
+    /**
+     * Alto de la foto de cada paso de cada informe (solo cabeceras, sin píxeles).
+     */
+    private List<List<ReportPageRenderer.StepImage>> measureImages(List<ReportPageRenderer.ReportData> reports,
+                                                                   ExecutorService pool) throws IOException {
+        // Las mediciones no retienen bitmaps, así que se encolan todas de una vez
+        List<Future<ReportPageRenderer.StepImage>> pending = new ArrayList<>();
+        for (ReportPageRenderer.ReportData report : reports) {
+            for (ReportPageRenderer.StepRow step : report.steps) {
+                pending.add(pool.submit(() -> ReportPageRenderer.measureImage(context, step.photoUri,
+                        TEMPLATE.getImageMaxWidth(), TEMPLATE.getImageMaxHeight())));
+            }
+        }
+
+        List<List<ReportPageRenderer.StepImage>> sizes = new ArrayList<>(reports.size());
+        int next = 0;
+        for (ReportPageRenderer.ReportData report : reports) {
+            List<ReportPageRenderer.StepImage> reportSizes = new ArrayList<>(report.steps.size());
+            for (int i = 0; i < report.steps.size(); i++) {
+                reportSizes.add(await(pending.get(next++)));
+            }
+            sizes.add(reportSizes);
+        }
+        return sizes;
+    }
+
+    /**
+     * Página inicial (1-based) de cada informe dentro del PDF combinado.
+     */
+    private static int[] measureStartPages(List<ReportPageRenderer.ReportData> reports,
+                                           List<List<ReportPageRenderer.StepImage>> sizes,
+                                           ReportLayout.Styles styles) throws IOException {
+        int[] startPages = new int[reports.size()];
+        int page = ReportPageRenderer.tocPageCount(reports.size()) + 1;
+        for (int i = 0; i < reports.size(); i++) {
+            ReportPageRenderer.checkCancelled();
+            startPages[i] = page;
+            page += TEMPLATE.measure(reports.get(i), sizes.get(i), styles).getPageCount();
+        }
+        return startPages;
+    }
+
+    private static ReportPageRenderer.StepImage await(Future<ReportPageRenderer.StepImage> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Exportación cancelada");
+        } catch (ExecutionException e) {
+            throw new IOException("Error al preparar una imagen", e.getCause());
+        }
+    }
+
+    /**
+     * Entrega las fotos de todos los pasos, en orden, decodificadas por adelantado en el pool.
+     * Sus bitmaps no se reutilizan (sin BitmapPool): PdfDocument los referencia hasta writeTo.
+     * Nunca hay más de {@code 2 * workers} fotos pedidas y no consumidas.
+     */
+    private final class ImagePipeline implements AutoCloseable {
+
+        private final List<String> photoUris = new ArrayList<>();
+        private final ArrayDeque<Future<ReportPageRenderer.StepImage>> window = new ArrayDeque<>();
+        private final ExecutorService pool;
+        private final int maxInFlight = 2 * workers;
+        private int nextToSubmit;
+
+        ImagePipeline(List<ReportPageRenderer.ReportData> reports, ExecutorService pool) {
+            this.pool = pool;
+            for (ReportPageRenderer.ReportData report : reports) {
+                for (ReportPageRenderer.StepRow step : report.steps) {
+                    photoUris.add(step.photoUri);
+                }
+            }
+        }
+
+        /**
+         * Foto del siguiente paso. Quien la recibe debe llamar a release() al dibujarla.
+         */
+        ReportPageRenderer.StepImage next() throws IOException {
+            while (nextToSubmit < photoUris.size() && window.size() < maxInFlight) {
+                String uri = photoUris.get(nextToSubmit++);
+                window.add(pool.submit(() -> ReportPageRenderer.prepareImage(context, uri,
+                        TEMPLATE.getImageMaxWidth(), TEMPLATE.getImageMaxHeight(), null)));
+            }
+            Future<ReportPageRenderer.StepImage> head = window.poll();
+            if (head == null) {
+                throw new IllegalStateException("No quedan imágenes por entregar");
+            }
+            return await(head);
+        }
+
+        /**
+         * Cancela lo pendiente y libera los bitmaps ya decodificados que no se usaron.
+         */
+        @Override
+        public void close() {
+            for (Future<ReportPageRenderer.StepImage> future : window) {
+                if (!future.cancel(true) && !future.isCancelled()) {
+                    try {
+                        future.get().release();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException ignored) {
+                        // Sin bitmap que liberar
+                    }
+                }
+            }
+            window.clear();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.app.Application;
+import android.content.pm.ApplicationInfo;
+import android.os.StrictMode;
+
+import com.miempresa.bivlotectatecnica.bd.AsyncUserProjectDatabase;
+
+/**
+ * Clase Application del proyecto. En compilaciones depurables activa StrictMode para
+ * detectar accesos a disco (base de datos, imágenes, PDF) en el hilo principal. Aquí solo
+ * se registran en logcat; MainThreadDiskAccessTest instala una política que falla ante
+ * cualquier acceso de los flujos de base de datos de las pantallas.
+ * Al iniciar abre la base en segundo plano (migraciones incluidas) y programa el barrido de
+ * fotos huérfanas (PhotoSweeper).
+ */
+public class BibliotecaApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyLog()
+                    .build());
+            StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                    .detectLeakedSqlLiteObjects()
+                    .detectLeakedClosableObjects()
+                    .penaltyLog()
+                    .build());
+        }
+
+        // Creación/migración de la base en el hilo escritor, nunca en el hilo principal
+        AsyncUserProjectDatabase.openInBackground(this);
+
+        // Limpieza de fotos huérfanas y cuota (en segundo plano, como mucho cada pocas horas)
+        PhotoSweeper.scheduleIfDue(this);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        ImageLoader.getInstance(this).trimMemory(level);
+    }
+}
@@ -0,0 +1,237 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodificación de fotos con memoria acotada: lee primero solo las dimensiones,
+ * submuestrea con un inSampleSize potencia de dos y después aplica la escala exacta
+ * y la orientación EXIF en una sola transformación.
+ * Una foto de 50 MP para un hueco de 515x200 ocupa así ~1 MB en vez de ~200 MB.
+ */
+public final class BitmapLoader {
+
+    private static final String TAG = "BitmapLoader";
+
+    // Buffer de lectura del decodificador: sin esto BitmapFactory reserva uno por llamada
+    private static final ThreadLocal<byte[]> TEMP_STORAGE = ThreadLocal.withInitial(() -> new byte[16 * 1024]);
+    private static final ThreadLocal<Canvas> CANVAS = ThreadLocal.withInitial(Canvas::new);
+    private static final Paint FILTER_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private BitmapLoader() {}
+
+    /**
+     * Decodifica la imagen para que quepa en maxWidth x maxHeight (manteniendo la
+     * relación de aspecto y ya rotada según EXIF).
+     * @param allowRgb565 true para usar 2 bytes por píxel (las fotos JPEG no tienen alfa).
+     * @return El bitmap, o null si no se pudo decodificar.
+     */
+    public static Bitmap decodeScaled(Context context, Uri uri, int maxWidth, int maxHeight, boolean allowRgb565)
+            throws IOException {
+        return decodeScaled(context, uri, maxWidth, maxHeight, allowRgb565, null);
+    }
+
+    /**
+     * Igual que {@link #decodeScaled(Context, Uri, int, int, boolean)}, reutilizando bitmaps
+     * de pool: el submuestreado se decodifica en uno libre (inBitmap) y vuelve al pool tras
+     * la transformación; el resultado también sale del pool. Quien recibe el bitmap lo
+     * devuelve con pool.put() en vez de recycle().
+     * @param pool Puede ser null (sin reutilización).
+     */
+    public static Bitmap decodeScaled(Context context, Uri uri, int maxWidth, int maxHeight, boolean allowRgb565,
+                                      BitmapPool pool) throws IOException {
+        int orientation = readExifOrientation(context, uri);
+        boolean swapsAxes = orientation == ExifInterface.ORIENTATION_ROTATE_90
+                || orientation == ExifInterface.ORIENTATION_ROTATE_270
+                || orientation == ExifInterface.ORIENTATION_TRANSPOSE
+                || orientation == ExifInterface.ORIENTATION_TRANSVERSE;
+
+        // 1. Solo dimensiones (no reserva píxeles)
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decode(context, uri, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        // Dimensiones tal como se verán (después de rotar)
+        int shownWidth = swapsAxes ? options.outHeight : options.outWidth;
+        int shownHeight = swapsAxes ? options.outWidth : options.outHeight;
+        int[] target = fitInside(shownWidth, shownHeight, maxWidth, maxHeight);
+        int targetWidth = target[0];
+        int targetHeight = target[1];
+
+        // 2. Decodificación submuestreada
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(shownWidth, shownHeight, targetWidth, targetHeight);
+        options.inPreferredConfig = allowRgb565 ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        options.inMutable = pool != null; // Solo los mutables se pueden reutilizar
+        Bitmap sampled;
+        if (pool != null) {
+            // Tamaño máximo que puede dar el submuestreo (redondeando hacia arriba)
+            int sample = options.inSampleSize;
+            options.inBitmap = pool.get((options.outWidth + sample - 1) / sample,
+                    (options.outHeight + sample - 1) / sample, options.inPreferredConfig);
+            try {
+                sampled = decode(context, uri, options);
+            } catch (IllegalArgumentException e) {
+                // El decodificador no aceptó el bitmap reutilizado: se decodifica en uno nuevo
+                pool.put(options.inBitmap);
+                options.inBitmap = null;
+                sampled = decode(context, uri, options);
+            }
+        } else {
+            sampled = decode(context, uri, options);
+        }
+        if (sampled == null) {
+            if (pool != null) pool.put(options.inBitmap);
+            return null;
+        }
+
+        // 3. Escala exacta + orientación en una sola copia
+        return transform(sampled, orientation, targetWidth, targetHeight, swapsAxes, pool);
+    }
+
+    /**
+     * Tamaño final que tendría {@link #decodeScaled} sin decodificar píxeles
+     * (solo lee la cabecera y el EXIF). Sirve para paginar antes de dibujar.
+     * @return {ancho, alto}, o null si la imagen no se puede leer.
+     */
+    public static int[] measureScaled(Context context, Uri uri, int maxWidth, int maxHeight) throws IOException {
+        int orientation = readExifOrientation(context, uri);
+        boolean swapsAxes = orientation == ExifInterface.ORIENTATION_ROTATE_90
+                || orientation == ExifInterface.ORIENTATION_ROTATE_270
+                || orientation == ExifInterface.ORIENTATION_TRANSPOSE
+                || orientation == ExifInterface.ORIENTATION_TRANSVERSE;
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decode(context, uri, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        return fitInside(swapsAxes ? options.outHeight : options.outWidth,
+                swapsAxes ? options.outWidth : options.outHeight, maxWidth, maxHeight);
+    }
+
+    /**
+     * Escala que encaja la imagen en la caja sin agrandarla.
+     */
+    private static int[] fitInside(int width, int height, int maxWidth, int maxHeight) {
+        float fit = Math.min(1f, Math.min((float) maxWidth / width, (float) maxHeight / height));
+        return new int[]{ Math.max(1, Math.round(width * fit)), Math.max(1, Math.round(height * fit)) };
+    }
+
+    /**
+     * Mayor potencia de dos que deja la imagen todavía igual o más grande que el destino.
+     */
+    public static int calculateInSampleSize(int srcWidth, int srcHeight, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        while (srcWidth / (inSampleSize * 2) >= reqWidth && srcHeight / (inSampleSize * 2) >= reqHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * Orientación EXIF de la imagen (ORIENTATION_NORMAL si no tiene o no se puede leer).
+     */
+    public static int readExifOrientation(Context context, Uri uri) {
+        InputStream stream = null;
+        try {
+            stream = context.getContentResolver().openInputStream(uri);
+            if (stream == null) {
+                return ExifInterface.ORIENTATION_NORMAL;
+            }
+            return new ExifInterface(stream).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "No se pudo leer EXIF de " + uri, e);
+            return ExifInterface.ORIENTATION_NORMAL;
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+
+    private static Bitmap decode(Context context, Uri uri, BitmapFactory.Options options) throws IOException {
+        options.inTempStorage = TEMP_STORAGE.get();
+        InputStream stream = context.getContentResolver().openInputStream(uri);
+        if (stream == null) {
+            throw new IOException("No se pudo abrir " + uri);
+        }
+        try {
+            return BitmapFactory.decodeStream(stream, null, options);
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+
+    private static Bitmap transform(Bitmap source, int orientation, int targetWidth, int targetHeight, boolean swapsAxes,
+                                    BitmapPool pool) {
+        Matrix matrix = new Matrix();
+        // La escala se calcula sobre el bitmap sin rotar
+        float scaleX = (float) (swapsAxes ? targetHeight : targetWidth) / source.getWidth();
+        float scaleY = (float) (swapsAxes ? targetWidth : targetHeight) / source.getHeight();
+        matrix.postScale(scaleX, scaleY);
+
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL: matrix.postScale(-1, 1); break;
+            case ExifInterface.ORIENTATION_ROTATE_180: matrix.postRotate(180); break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL: matrix.postScale(1, -1); break;
+            case ExifInterface.ORIENTATION_TRANSPOSE: matrix.postRotate(90); matrix.postScale(-1, 1); break;
+            case ExifInterface.ORIENTATION_ROTATE_90: matrix.postRotate(90); break;
+            case ExifInterface.ORIENTATION_TRANSVERSE: matrix.postRotate(-90); matrix.postScale(-1, 1); break;
+            case ExifInterface.ORIENTATION_ROTATE_270: matrix.postRotate(-90); break;
+            default: break;
+        }
+
+        if (matrix.isIdentity()) {
+            return source;
+        }
+
+        // Lleva el resultado al origen (la rotación o el espejo lo dejan en coordenadas negativas)
+        RectF bounds = new RectF(0, 0, source.getWidth(), source.getHeight());
+        matrix.mapRect(bounds);
+        matrix.postTranslate(-bounds.left, -bounds.top);
+
+        Bitmap.Config config = source.getConfig() != null ? source.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap result = pool != null ? pool.get(targetWidth, targetHeight, config) : null;
+        if (result == null) {
+            result = Bitmap.createBitmap(targetWidth, targetHeight, config);
+        } else if (result.hasAlpha()) {
+            result.eraseColor(Color.TRANSPARENT); // Restos de la foto anterior
+        }
+        Canvas canvas = CANVAS.get();
+        canvas.setBitmap(result);
+        canvas.drawBitmap(source, matrix, FILTER_PAINT);
+        canvas.setBitmap(null);
+
+        if (pool != null) {
+            pool.put(source);
+        } else {
+            source.recycle();
+        }
+        return result;
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        if (stream == null) return;
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // Sin acción
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bitmaps libres para reutilizar en vez de reservar uno nuevo por foto (la exportación de
+ * PDF decodifica una o dos por paso). Se guardan por tamaño y configuración; si no hay uno
+ * exacto se reutiliza el más chico que alcance, con Bitmap.reconfigure (o como inBitmap
+ * de BitmapFactory). Los bitmaps del pool son siempre mutables.
+ *
+ * El total retenido se limita a maxBytes: al pasarse se expulsan (recycle) los usados hace
+ * más tiempo. Con maxBytes = 0 no retiene nada (sirve para medir sin pool).
+ * Seguro de usar desde varios hilos. Llamar a clear() al terminar la exportación.
+ *
+ * Solo para bitmaps que nadie más referencia al devolverlos con put(): no sirve con
+ * PdfDocument, cuyas páginas apuntan a los píxeles dibujados hasta writeTo.
+ */
+public final class BitmapPool {
+
+    private static final String TAG = "BitmapPool";
+
+    private static final class Key {
+        final int width;
+        final int height;
+        final Bitmap.Config config;
+
+        Key(int width, int height, Bitmap.Config config) {
+            this.width = width;
+            this.height = height;
+            this.config = config;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return width == other.width && height == other.height && config == other.config;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(width, height, config);
+        }
+    }
+
+    private final long maxBytes;
+    // Orden de acceso: el primero es el tamaño usado hace más tiempo
+    private final LinkedHashMap<Key, ArrayDeque<Bitmap>> free = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private int hits;
+    private int misses;
+    private long missBytes;
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Un bitmap libre de ese tamaño y configuración (con el contenido anterior), o null si
+     * no hay ninguno que alcance: entonces quien llama reserva uno nuevo.
+     */
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = take(new Key(width, height, config));
+        if (bitmap == null) {
+            // El más chico que alcance, de cualquier tamaño, reconfigurado
+            long needed = (long) width * height * bytesPerPixel(config);
+            Key best = null;
+            long bestSize = Long.MAX_VALUE;
+            for (Map.Entry<Key, ArrayDeque<Bitmap>> entry : free.entrySet()) {
+                long size = entry.getValue().peek().getAllocationByteCount();
+                if (size >= needed && size < bestSize) {
+                    best = entry.getKey();
+                    bestSize = size;
+                }
+            }
+            if (best != null) {
+                bitmap = take(best);
+                bitmap.reconfigure(width, height, config);
+            }
+        }
+        if (bitmap == null) {
+            misses++;
+            missBytes += (long) width * height * bytesPerPixel(config);
+        } else {
+            hits++;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Devuelve un bitmap al pool para reutilizarlo. Quien llama ya no debe usarlo.
+     * Los inmutables, o los que no entran en el presupuesto, se liberan con recycle().
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return;
+        int size = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || size > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        trimTo(maxBytes - size);
+        Key key = new Key(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        ArrayDeque<Bitmap> list = free.get(key);
+        if (list == null) {
+            list = new ArrayDeque<>();
+            free.put(key, list);
+        }
+        list.push(bitmap);
+        bytes += size;
+    }
+
+    /**
+     * Libera todo lo retenido y registra cuánto se reutilizó.
+     */
+    public synchronized void clear() {
+        trimTo(0);
+        if (hits + misses > 0) {
+            Log.d(TAG, "Reutilizados " + hits + " de " + (hits + misses) + " bitmaps, "
+                    + missBytes / 1024 + " KB reservados");
+        }
+    }
+
+    /** Pedidos que se resolvieron con un bitmap del pool. */
+    public synchronized int getHitCount() {
+        return hits;
+    }
+
+    /** Pedidos sin bitmap libre (cada uno es una reserva nueva). */
+    public synchronized int getMissCount() {
+        return misses;
+    }
+
+    /** Bytes de los bitmaps que hubo que reservar de nuevo. */
+    public synchronized long getMissBytes() {
+        return missBytes;
+    }
+
+    private Bitmap take(Key key) {
+        ArrayDeque<Bitmap> list = free.get(key);
+        if (list == null) return null;
+        Bitmap bitmap = list.pop();
+        if (list.isEmpty()) free.remove(key);
+        bytes -= bitmap.getAllocationByteCount();
+        return bitmap;
+    }
+
+    private void trimTo(long budget) {
+        Iterator<ArrayDeque<Bitmap>> lists = free.values().iterator();
+        while (bytes > budget && lists.hasNext()) {
+            ArrayDeque<Bitmap> list = lists.next();
+            while (bytes > budget && !list.isEmpty()) {
+                Bitmap bitmap = list.removeLast();
+                bytes -= bitmap.getAllocationByteCount();
+                bitmap.recycle();
+            }
+            if (list.isEmpty()) lists.remove();
+        }
+    }
+
+    static int bytesPerPixel(Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8: return 1;
+            case RGB_565:
+            case ARGB_4444: return 2;
+            default: return 4;
+        }
+    }
+}
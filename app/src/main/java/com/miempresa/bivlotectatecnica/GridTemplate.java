@@ -0,0 +1,94 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.text.StaticLayout;
+import android.text.TextUtils;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Plantilla de hoja de contactos: los pasos van en una grilla de columns x rows celdas
+ * por página, cada una con la miniatura de la foto y una leyenda corta ("PASO n: ..."),
+ * cortada con "…" si no entra en CAPTION_HEIGHT. Sirve para revisar o imprimir informes
+ * largos en pocas páginas; la descripción completa queda en la plantilla de lista.
+ *
+ * Las fotos se decodifican al tamaño de la celda (mucho menor que en la lista). La
+ * primera página lleva el mismo encabezado que la lista y las filas que entren debajo.
+ */
+final class GridTemplate implements ReportTemplate {
+
+    private static final int GUTTER = 12; // Entre columnas
+    private static final int ROW_GAP = 12; // Entre filas
+    private static final int GAP_UNDER_IMAGE = 4;
+    private static final int CAPTION_HEIGHT = 40; // Espacio reservado a la leyenda de cada celda
+
+    private final int columns;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int imageHeight;
+
+    GridTemplate(int columns, int rows) {
+        this.columns = columns;
+        this.cellWidth = (ReportLayout.CONTENT_WIDTH - (columns - 1) * GUTTER) / columns;
+        this.cellHeight = (ReportLayout.CONTENT_BOTTOM - ReportLayout.CONTENT_TOP + ROW_GAP) / rows - ROW_GAP;
+        this.imageHeight = cellHeight - GAP_UNDER_IMAGE - CAPTION_HEIGHT;
+    }
+
+    @Override
+    public int getImageMaxWidth() {
+        return cellWidth;
+    }
+
+    @Override
+    public int getImageMaxHeight() {
+        return imageHeight;
+    }
+
+    @Override
+    public ReportLayout measure(ReportPageRenderer.ReportData report, List<ReportPageRenderer.StepImage> images,
+                                ReportLayout.Styles styles) {
+        ReportLayout layout = new ReportLayout();
+        layout.placeHeader(report, styles);
+
+        int captionLines = Math.max(1, CAPTION_HEIGHT / styles.caption.getFontMetricsInt(null));
+        int rowTop = layout.getY();
+        int column = 0;
+        for (int i = 0; i < report.steps.size(); i++) {
+            if (column == 0 && rowTop + cellHeight > ReportLayout.CONTENT_BOTTOM) {
+                layout.newPage();
+                rowTop = ReportLayout.CONTENT_TOP;
+            }
+            int left = ReportLayout.CONTENT_LEFT + column * (cellWidth + GUTTER);
+            placeCell(layout, i, report.steps.get(i), images.get(i), styles, left, rowTop, captionLines);
+
+            if (++column == columns) {
+                column = 0;
+                rowTop += cellHeight + ROW_GAP;
+            }
+        }
+        return layout;
+    }
+
+    private void placeCell(ReportLayout layout, int index, ReportPageRenderer.StepRow step,
+                           ReportPageRenderer.StepImage image, ReportLayout.Styles styles,
+                           int left, int top, int captionLines) {
+        if (!UserProjectContract.hasPhoto(step.photoUri)) {
+            layout.addText(index, left, top, ReportLayout.lines("Sin foto", styles.caption, cellWidth, 1));
+        } else if (image.height > 0) {
+            layout.addImage(index, left, top, cellWidth, Math.min(image.height, imageHeight));
+        } else {
+            layout.addText(index, left, top, ReportLayout.lines(
+                    image.error != null ? image.error : "Error al cargar imagen.", styles.caption, cellWidth, 2));
+        }
+
+        String caption = String.format(Locale.getDefault(), "PASO %d: %s", step.stepNumber,
+                TextUtils.isEmpty(step.description) ? "Sin descripción registrada" : step.description);
+        StaticLayout text = ReportLayout.lines(caption, styles.caption, cellWidth, captionLines);
+        while (text.getHeight() > CAPTION_HEIGHT && captionLines > 1) {
+            text = ReportLayout.lines(caption, styles.caption, cellWidth, --captionLines);
+        }
+        layout.addText(index, left, top + imageHeight + GAP_UNDER_IMAGE, text);
+    }
+}
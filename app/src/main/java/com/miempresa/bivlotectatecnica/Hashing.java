@@ -0,0 +1,43 @@
+package com.miempresa.bivlotectatecnica;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Resúmenes criptográficos usados para nombrar archivos (fotos, miniaturas, entradas de la
+ * caché de PDF) y su representación en hexadecimal.
+ */
+final class Hashing {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Hashing() {}
+
+    static MessageDigest sha256() {
+        return newDigest("SHA-256");
+    }
+
+    static MessageDigest sha1() {
+        return newDigest("SHA-1");
+    }
+
+    /**
+     * Hexadecimal en minúsculas, dos caracteres por byte.
+     */
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-1 y SHA-256 siempre están disponibles en Android
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carga las miniaturas de las fotos de los pasos fuera del hilo principal, con dos niveles
+ * de caché:
+ * 1. Memoria: LruCache de bitmaps, dimensionado en 1/8 del heap disponible.
+ * 2. Disco: JPEG de THUMBNAIL_SIZE px bajo getCacheDir()/thumbs, generado una sola vez por foto.
+ *
+ * Cada ImageView recuerda su petición (en un tag); si la vista se reutiliza o pide otra foto,
+ * la petición anterior se cancela y su resultado se descarta.
+ */
+public final class ImageLoader {
+
+    private static final String TAG = "ImageLoader";
+
+    /** Lado máximo de las miniaturas, en píxeles (la vista previa mide 200dp de alto). */
+    public static final int THUMBNAIL_SIZE = 480;
+    private static final int THUMBNAIL_QUALITY = 85;
+    private static final String DIR_NAME = "thumbs";
+
+    private static volatile ImageLoader instance;
+
+    private final Context context;
+    private final File directory;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final ThreadPoolExecutor executor;
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    // De dónde salió cada miniatura que no estaba en memoria (para pruebas y diagnóstico)
+    private final AtomicInteger diskHits = new AtomicInteger();
+    private final AtomicInteger originalDecodes = new AtomicInteger();
+
+    /**
+     * Petición en curso de una ImageView (se guarda en su tag). Al terminar entrega el bitmap
+     * a la vista, si todavía la está esperando.
+     */
+    private final class Request extends FutureTask<Bitmap> {
+        final ImageView target;
+
+        Request(ImageView target, Callable<Bitmap> load) {
+            super(load);
+            this.target = target;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) return;
+            Bitmap bitmap;
+            try {
+                bitmap = get();
+            } catch (InterruptedException | ExecutionException e) {
+                return;
+            }
+            if (bitmap == null) return;
+            main.post(() -> {
+                if (target.getTag(R.id.image_loader_request) == this) {
+                    target.setTag(R.id.image_loader_request, null);
+                    target.setImageBitmap(bitmap);
+                }
+            });
+        }
+
+        /**
+         * La cola estaba llena: se cancela sin ejecutarse y la vista deja de esperarla
+         * (se queda con el placeholder hasta que se vuelva a enlazar).
+         */
+        void discard() {
+            cancel(false);
+            main.post(() -> {
+                if (target.getTag(R.id.image_loader_request) == this) {
+                    target.setTag(R.id.image_loader_request, null);
+                }
+            });
+        }
+    }
+
+    public static ImageLoader getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ImageLoader.class) {
+                if (instance == null) {
+                    instance = new ImageLoader(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ImageLoader(Context context) {
+        this.context = context;
+        this.directory = new File(context.getCacheDir(), DIR_NAME);
+
+        int cacheBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        this.memoryCache = new LruCache<String, Bitmap>(cacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+
+        // Las vistas recicladas quitan su petición de la cola (cancel), así que solo esperan
+        // las de filas enlazadas. Si aun así se llena, se descarta la más vieja avisando a su vista.
+        this.executor = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(64),
+                r -> {
+                    Thread t = new Thread(r, "thumb-loader");
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                },
+                (rejected, pool) -> {
+                    if (pool.isShutdown()) return;
+                    Runnable oldest = pool.getQueue().poll();
+                    if (oldest instanceof Request) ((Request) oldest).discard();
+                    pool.execute(rejected);
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    // -------------------------------------------------------------------
+    // API PARA LA UI (HILO PRINCIPAL)
+    // -------------------------------------------------------------------
+
+    /**
+     * Muestra la miniatura de la foto en la vista. Si está en memoria se asigna al instante;
+     * si no, se deja el placeholder y se carga en segundo plano.
+     */
+    public void load(String photoUri, ImageView target, int placeholderResId) {
+        cancel(target);
+        if (!UserProjectContract.hasPhoto(photoUri)) {
+            target.setImageResource(placeholderResId);
+            return;
+        }
+
+        Bitmap cached = memoryCache.get(photoUri);
+        if (cached != null) {
+            target.setImageBitmap(cached);
+            return;
+        }
+
+        target.setImageResource(placeholderResId);
+        Request request = new Request(target, () -> loadThumbnail(photoUri));
+        target.setTag(R.id.image_loader_request, request);
+        executor.execute(request);
+    }
+
+    /**
+     * Cancela la carga pendiente de una vista (al reciclarla o al cambiar su foto).
+     */
+    public void cancel(ImageView target) {
+        Object tag = target.getTag(R.id.image_loader_request);
+        if (tag instanceof Request) {
+            Request request = (Request) tag;
+            request.cancel(true);
+            executor.remove(request); // No ocupar la cola con peticiones que nadie espera
+        }
+        target.setTag(R.id.image_loader_request, null);
+    }
+
+    /**
+     * Libera memoria cuando el sistema lo pide (ver BibliotecaApp.onTrimMemory).
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            memoryCache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            memoryCache.trimToSize(memoryCache.maxSize() / 2);
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // CARGA (SEGUNDO PLANO)
+    // -------------------------------------------------------------------
+
+    /**
+     * Genera (si no existe) la miniatura en disco de una foto. Pensado para llamarse al
+     * adjuntar la foto, así las vistas posteriores nunca decodifican el original.
+     * Bloqueante: no llamar desde el hilo principal.
+     */
+    public void ensureThumbnail(String photoUri) {
+        loadThumbnail(photoUri);
+    }
+
+    /**
+     * Memoria → disco → original (y rellena los niveles que faltaban).
+     */
+    private Bitmap loadThumbnail(String photoUri) {
+        Bitmap bitmap = memoryCache.get(photoUri);
+        if (bitmap != null) return bitmap;
+
+        File thumbFile = thumbnailFile(photoUri);
+        if (thumbFile.isFile()) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+            bitmap = BitmapFactory.decodeFile(thumbFile.getAbsolutePath(), options);
+            if (bitmap != null) diskHits.incrementAndGet();
+        }
+
+        if (bitmap == null) {
+            try {
+                originalDecodes.incrementAndGet();
+                bitmap = BitmapLoader.decodeScaled(context, Uri.parse(photoUri), THUMBNAIL_SIZE, THUMBNAIL_SIZE, true);
+            } catch (IOException | SecurityException e) {
+                Log.w(TAG, "No se pudo leer la foto " + photoUri + ": " + e.getMessage());
+                return null;
+            }
+            if (bitmap == null) return null;
+            writeThumbnail(bitmap, thumbFile);
+        }
+
+        memoryCache.put(photoUri, bitmap);
+        return bitmap;
+    }
+
+    /** Miniaturas leídas de thumbs/ (no estaban en memoria). */
+    int getDiskHitCount() {
+        return diskHits.get();
+    }
+
+    /** Veces que hubo que decodificar la foto original para generar su miniatura. */
+    int getOriginalDecodeCount() {
+        return originalDecodes.get();
+    }
+
+    private void writeThumbnail(Bitmap bitmap, File thumbFile) {
+        if (!directory.isDirectory() && !directory.mkdirs()) return;
+        File tmp = new File(directory, thumbFile.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo guardar la miniatura " + thumbFile.getName(), e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(thumbFile)) {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Archivo de la miniatura: SHA-1 de la URI (evita caracteres inválidos en el nombre).
+     */
+    File thumbnailFile(String photoUri) {
+        byte[] hash = Hashing.sha1().digest(photoUri.getBytes(StandardCharsets.UTF_8));
+        return new File(directory, Hashing.toHex(hash) + ".jpg");
+    }
+}
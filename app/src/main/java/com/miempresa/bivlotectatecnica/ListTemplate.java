@@ -0,0 +1,83 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.text.StaticLayout;
+import android.text.TextUtils;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Plantilla de lista: cada paso ocupa un bloque a todo el ancho (título, descripción
+ * completa y foto de hasta IMAGE_MAX_HEIGHT puntos), unos tres pasos por página A4.
+ *
+ * Reglas de paginación: un paso que entra completo en una página no se parte; uno más
+ * alto que una página se parte entre líneas de la descripción, sin dejar el título solo
+ * al pie. Las fotos nunca se parten.
+ */
+final class ListTemplate implements ReportTemplate {
+
+    private static final int GAP_IN_STEP = 4;
+    private static final int GAP_AFTER_IMAGE = 10;
+    private static final int GAP_BETWEEN_STEPS = 16;
+
+    @Override
+    public int getImageMaxWidth() {
+        return ReportPageRenderer.IMAGE_MAX_WIDTH;
+    }
+
+    @Override
+    public int getImageMaxHeight() {
+        return ReportPageRenderer.IMAGE_MAX_HEIGHT;
+    }
+
+    @Override
+    public ReportLayout measure(ReportPageRenderer.ReportData report, List<ReportPageRenderer.StepImage> images,
+                                ReportLayout.Styles styles) {
+        ReportLayout layout = new ReportLayout();
+        layout.placeHeader(report, styles);
+        for (int i = 0; i < report.steps.size(); i++) {
+            placeStep(layout, i, report.steps.get(i), images.get(i), styles);
+        }
+        return layout;
+    }
+
+    private void placeStep(ReportLayout layout, int index, ReportPageRenderer.StepRow step,
+                           ReportPageRenderer.StepImage image, ReportLayout.Styles styles) {
+        StaticLayout title = ReportLayout.lines(String.format(Locale.getDefault(), "PASO %d:", step.stepNumber), styles.stepTitle);
+        StaticLayout description = ReportLayout.lines("Descripción: " + (TextUtils.isEmpty(step.description)
+                ? "Sin descripción registrada" : step.description), styles.body);
+
+        StaticLayout photoText = null;
+        int photoHeight;
+        if (!UserProjectContract.hasPhoto(step.photoUri)) {
+            photoText = ReportLayout.lines("Foto Adjunta: No", styles.body);
+            photoHeight = photoText.getHeight();
+        } else if (image.height > 0) {
+            photoHeight = Math.min(image.height, getImageMaxHeight());
+        } else {
+            photoText = ReportLayout.lines(image.error != null ? image.error : "Error al cargar imagen.", styles.body);
+            photoHeight = photoText.getHeight();
+        }
+
+        // Si el paso entra completo en una página, no se parte; si no, al menos el título
+        // va junto a la primera línea de la descripción
+        int whole = title.getHeight() + GAP_IN_STEP + description.getHeight() + GAP_IN_STEP + photoHeight;
+        int minimum = title.getHeight() + GAP_IN_STEP + description.getLineBottom(0);
+        int needed = whole <= ReportLayout.CONTENT_BOTTOM - ReportLayout.CONTENT_TOP ? whole : minimum;
+        int y = layout.getY();
+        if (y > ReportLayout.CONTENT_TOP && y + needed > ReportLayout.CONTENT_BOTTOM) {
+            layout.newPage();
+        }
+
+        layout.placeText(index, title, GAP_IN_STEP);
+        layout.placeText(index, description, GAP_IN_STEP);
+        if (photoText != null) {
+            layout.placeText(index, photoText, 0);
+        } else {
+            layout.placeImage(index, photoHeight, GAP_AFTER_IMAGE);
+        }
+        layout.setY(layout.getY() + GAP_BETWEEN_STEPS);
+    }
+}
@@ -11,8 +11,8 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.miempresa.bivlotectatecnica.bd.AsyncUserProjectDatabase;
 import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
-import com.miempresa.bivlotectatecnica.bd.UserProjectDatabase;
 
 /**
  * Actividad para el inicio de sesión. Maneja la autenticación y la verificación de rol.
@@ -21,7 +21,7 @@ public class LoginActivity extends AppCompatActivity {
 
     private EditText editUsername, editPassword;
     private Button btnLogin;
-    private UserProjectDatabase db;
+    private AsyncUserProjectDatabase db;
     private SessionManager session;
 
     @Override
@@ -31,7 +31,7 @@ public class LoginActivity extends AppCompatActivity {
         setContentView(R.layout.activity_login);
 
         // Inicializar
-        db = new UserProjectDatabase(this);
+        db = new AsyncUserProjectDatabase(this);
         session = new SessionManager(this);
 
         // Si ya está logueado, redirigir inmediatamente
@@ -68,8 +68,35 @@ public class LoginActivity extends AppCompatActivity {
         // Usamos el hash MD5 de "123456" que insertamos en el DBHelper.java
         String passwordHash = "e10adc3949ba59abbe56e057f20f883e"; // Simulación
 
-        Cursor userCursor = db.checkUserCredentials(username, passwordHash);
+        // La consulta corre en segundo plano; el resultado llega al hilo principal
+        btnLogin.setEnabled(false);
+        db.checkUserCredentials(username, passwordHash, new AsyncUserProjectDatabase.Callback<Cursor>() {
+            @Override
+            public void onResult(Cursor userCursor) {
+                btnLogin.setEnabled(true);
+                onCredentialsChecked(userCursor);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                btnLogin.setEnabled(true);
+                Toast.makeText(LoginActivity.this, "Error de datos: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (db != null) {
+            db.cancelAll();
+        }
+    }
 
+    /**
+     * Crea la sesión con los datos del usuario autenticado (cursor posicionado en la primera fila).
+     */
+    private void onCredentialsChecked(Cursor userCursor) {
         if (userCursor != null) {
             try {
                 // 🚨 CORRECCIÓN CLAVE: Leer los datos usando los ALIAS definidos en UserProjectDatabase.java
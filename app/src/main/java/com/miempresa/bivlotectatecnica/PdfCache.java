@@ -0,0 +1,321 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Caché en disco de los PDF ya generados, dentro de getCacheDir()/pdf_cache.
+ *
+ * La clave de cada entrada es un SHA-256 del encabezado del informe, de todas sus filas de
+ * pasos y de la identidad (tamaño y fecha de modificación) de cada foto. Si nada de eso
+ * cambió, exportar de nuevo devuelve el archivo existente sin volver a dibujarlo. Cada
+ * variante del informe (plantilla, backend, calidad de fotos) tiene su propia entrada.
+ * Cuando se guardan pasos, {@link #invalidate(long)} borra las entradas del informe.
+ * El tamaño total se limita con un presupuesto en bytes, expulsando primero las entradas
+ * usadas hace más tiempo (la fecha de modificación del archivo hace de "último uso").
+ */
+public final class PdfCache {
+
+    private static final String TAG = "PdfCache";
+
+    private static final String DIR_NAME = "pdf_cache";
+    public static final long DEFAULT_MAX_BYTES = 50L * 1024 * 1024;
+
+    /**
+     * Se incluye en la clave: subirlo cuando cambie el diseño del PDF invalida todo lo guardado.
+     */
+    static final int LAYOUT_VERSION = 3; // 3: leyendas recortadas con "…" en el backend STREAMING
+
+    private static volatile PdfCache instance;
+
+    private final Context context;
+    private File directory; // Se resuelve al primer uso (ver directory())
+    private volatile long maxBytes = DEFAULT_MAX_BYTES;
+
+    public static PdfCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (PdfCache.class) {
+                if (instance == null) {
+                    instance = new PdfCache(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private PdfCache(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Carpeta de la caché. No se resuelve en el constructor: getCacheDir() consulta el disco
+     * y getInstance() se llama desde el hilo principal (p. ej. StepRegisterActivity).
+     */
+    private synchronized File directory() {
+        if (directory == null) {
+            directory = new File(context.getCacheDir(), DIR_NAME);
+        }
+        return directory;
+    }
+
+    /**
+     * Cambia el presupuesto de disco. Se aplica en la próxima escritura.
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // -------------------------------------------------------------------
+    // CLAVE
+    // -------------------------------------------------------------------
+
+    /**
+     * Calcula la clave del contenido actual de un informe. Lee los metadatos de cada foto
+     * (no su contenido), así que es barata aun con cientos de pasos.
+     */
+    String keyFor(ReportPageRenderer.ReportData report) {
+        MessageDigest digest = Hashing.sha256();
+        update(digest, String.valueOf(LAYOUT_VERSION));
+        update(digest, report.componentName);
+        update(digest, report.inventoryCode);
+        update(digest, report.actionType);
+        update(digest, report.technicianName);
+        update(digest, report.workshopName);
+        update(digest, report.dateCreated);
+        for (ReportPageRenderer.StepRow step : report.steps) {
+            update(digest, String.valueOf(step.stepNumber));
+            update(digest, step.description);
+            update(digest, step.photoUri);
+            update(digest, photoIdentity(step.photoUri));
+        }
+        return Hashing.toHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        // Separador explícito para que ("ab", "c") y ("a", "bc") no den la misma clave
+        digest.update((value == null ? "\u0000" : value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0x1F);
+    }
+
+    /**
+     * "tamaño:fecha" de la foto. Si la foto cambia, cambia la clave.
+     */
+    private String photoIdentity(String photoUri) {
+        if (!UserProjectContract.hasPhoto(photoUri)) return "";
+        Uri uri = Uri.parse(photoUri);
+
+        File local = PhotoIngestor.resolveLocalFile(context, uri);
+        if (local != null) {
+            return local.length() + ":" + local.lastModified();
+        }
+
+        // URIs de terceros (galería): lo que el proveedor informe
+        ContentResolver resolver = context.getContentResolver();
+        try (Cursor c = resolver.query(uri, null, null, null, null)) {
+            if (c != null && c.moveToFirst()) {
+                int sizeIndex = c.getColumnIndex(OpenableColumns.SIZE);
+                int modifiedIndex = c.getColumnIndex(DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+                return (sizeIndex >= 0 ? c.getLong(sizeIndex) : -1) + ":" + (modifiedIndex >= 0 ? c.getLong(modifiedIndex) : -1);
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "No se pudo consultar " + photoUri + ": " + e.getMessage());
+        }
+        return "?";
+    }
+
+    // -------------------------------------------------------------------
+    // LECTURA / ESCRITURA
+    // -------------------------------------------------------------------
+
+    /**
+     * Si hay una entrada para esta clave, deja su contenido en target y la marca como usada.
+     * Si target ya es una copia de la entrada (mismo SHA-256 que el guardado junto a ella),
+     * no copia nada: leer el archivo es más barato que volver a escribirlo.
+     * @return true si la caché tenía el PDF.
+     */
+    synchronized boolean restore(long reportId, String key, File target) {
+        File entry = entryFile(reportId, key);
+        if (!entry.isFile()) {
+            return false;
+        }
+        try {
+            if (!isCopyOf(target, entry)) {
+                copy(entry, target);
+            }
+            entry.setLastModified(System.currentTimeMillis());
+            Log.d(TAG, "PDF del informe " + reportId + " servido desde la caché");
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo restaurar la entrada " + entry.getName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Guarda una copia del PDF recién generado, reemplazando las versiones anteriores del
+     * mismo informe en la misma variante, y aplica el presupuesto de disco.
+     * @param key {@link #keyFor} seguido, si hace falta, de la variante ("_GRID_2X3", "_s80_150"...).
+     *            Las demás variantes del informe se conservan.
+     */
+    synchronized void put(long reportId, String key, File pdf) {
+        File dir = directory();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "No se pudo crear " + dir);
+            return;
+        }
+        deleteEntries(reportId, variantOf(key));
+        File entry = entryFile(reportId, key);
+        File tmp = new File(dir, entry.getName() + ".tmp");
+        String sha256;
+        try {
+            sha256 = copy(pdf, tmp);
+            if (!tmp.renameTo(entry)) {
+                throw new IOException("No se pudo renombrar " + tmp);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo guardar en la caché el informe " + reportId, e);
+            tmp.delete();
+            return;
+        }
+        // Sin el resumen, restore() siempre copia: un fallo aquí no invalida la entrada
+        try (OutputStream out = new FileOutputStream(digestFile(entry))) {
+            out.write(sha256.getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo guardar el resumen de " + entry.getName(), e);
+        }
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Borra los PDF guardados de un informe (llamar después de modificar sus pasos).
+     */
+    public synchronized void invalidate(long reportId) {
+        int deleted = deleteEntries(reportId, null);
+        if (deleted > 0) {
+            Log.d(TAG, "Invalidadas " + deleted + " entradas del informe " + reportId);
+        }
+    }
+
+    /**
+     * Expulsa las entradas menos usadas hasta quedar dentro del presupuesto.
+     */
+    synchronized void trimToSize(long budget) {
+        File[] files = directory().listFiles();
+        if (files == null) return;
+
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total <= budget) return;
+
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : files) {
+            if (total <= budget) break;
+            long size = f.length();
+            if (f.delete()) {
+                total -= size;
+                Log.d(TAG, "Expulsado de la caché: " + f.getName());
+            }
+        }
+    }
+
+    /**
+     * Borra las entradas del informe (y sus resúmenes).
+     * @param variant Solo las de esta variante (ver {@link #variantOf}); null para todas.
+     */
+    private int deleteEntries(long reportId, String variant) {
+        String prefix = reportId + "_";
+        File[] files = directory().listFiles((dir, name) -> name.startsWith(prefix)
+                && (variant == null || variant.equals(variantOf(keyOf(name.substring(prefix.length()))))));
+        int deleted = 0;
+        if (files != null) {
+            for (File f : files) {
+                if (f.delete()) deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Variante de una clave: lo que sigue al resumen hexadecimal ("" para la lista en PdfDocument).
+     */
+    private static String variantOf(String key) {
+        int separator = key.indexOf('_');
+        return separator == -1 ? "" : key.substring(separator);
+    }
+
+    /**
+     * Clave a partir del nombre de una entrada o de su resumen, sin el ID del informe.
+     */
+    private static String keyOf(String name) {
+        int extension = name.indexOf(".pdf");
+        return extension == -1 ? name : name.substring(0, extension);
+    }
+
+    private File entryFile(long reportId, String key) {
+        return new File(directory(), reportId + "_" + key + ".pdf");
+    }
+
+    /**
+     * SHA-256 (en hexadecimal) guardado junto a la entrada, del contenido del PDF.
+     */
+    private static File digestFile(File entry) {
+        return new File(entry.getParentFile(), entry.getName() + ".sha256");
+    }
+
+    /**
+     * true si target tiene el mismo contenido que la entrada. Sin resumen guardado (entradas
+     * de versiones anteriores o expulsado por trimToSize) se considera distinto.
+     */
+    private static boolean isCopyOf(File target, File entry) throws IOException {
+        File digestFile = digestFile(entry);
+        if (!target.isFile() || target.length() != entry.length() || !digestFile.isFile()) {
+            return false;
+        }
+        byte[] stored = new byte[(int) digestFile.length()];
+        try (InputStream in = new FileInputStream(digestFile)) {
+            if (in.read(stored) != stored.length) return false;
+        }
+        MessageDigest sha256 = Hashing.sha256();
+        try (InputStream in = new FileInputStream(target)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                sha256.update(buffer, 0, read);
+            }
+        }
+        return Hashing.toHex(sha256.digest()).equals(new String(stored, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Copia el archivo y devuelve el SHA-256 (en hexadecimal) de lo copiado.
+     */
+    private static String copy(File from, File to) throws IOException {
+        MessageDigest sha256 = Hashing.sha256();
+        try (InputStream in = new FileInputStream(from); OutputStream out = new FileOutputStream(to)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                sha256.update(buffer, 0, read);
+            }
+        }
+        return Hashing.toHex(sha256.digest());
+    }
+}
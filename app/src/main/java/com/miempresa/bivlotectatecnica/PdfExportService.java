@@ -0,0 +1,410 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+import androidx.core.content.FileProvider;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectDatabase;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servicio en primer plano que genera los PDF de informes fuera de la Activity.
+ * Sigue trabajando aunque la pantalla rote o el usuario salga de la lista, muestra el avance
+ * en una notificación con botón "Cancelar" y, al terminar, publica otra que abre el archivo.
+ * Como cada exportación retiene bitmaps y el documento en memoria, solo se ejecutan
+ * {@link #MAX_CONCURRENT_EXPORTS} a la vez; el resto espera en cola.
+ */
+public class PdfExportService extends Service {
+
+    private static final String TAG = "PdfExportService";
+
+    private static final String ACTION_EXPORT = "com.miempresa.bivlotectatecnica.action.EXPORT_PDF";
+    private static final String ACTION_EXPORT_BATCH = "com.miempresa.bivlotectatecnica.action.EXPORT_PDF_BATCH";
+    private static final String ACTION_CANCEL = "com.miempresa.bivlotectatecnica.action.CANCEL_PDF";
+    private static final String EXTRA_REPORT_ID = "REPORT_ID";
+    private static final String EXTRA_FROM_DATE = "FROM_DATE";
+    private static final String EXTRA_TO_DATE = "TO_DATE";
+    private static final String EXTRA_FORMAT = "FORMAT";
+    private static final String EXTRA_TEMPLATE = "TEMPLATE";
+
+    /** ID con el que se informa la exportación por lotes a los Listener (los informes empiezan en 1). */
+    public static final long BATCH_JOB_ID = 0;
+
+    private static final String CHANNEL_ID = "exportacion_pdf";
+    private static final int NOTIFICATION_ID_PROGRESS = 1001;
+    private static final int NOTIFICATION_ID_RESULT_BASE = 2000;
+
+    public static final int MAX_CONCURRENT_EXPORTS = 2;
+    private static final long PROGRESS_THROTTLE_MS = 300;
+
+    /**
+     * Recibe el estado de las exportaciones en el hilo principal.
+     * Las Activities se registran en onStart y se quitan en onStop, así que tras una rotación
+     * la nueva instancia vuelve a recibir los eventos de las exportaciones en curso.
+     */
+    public interface Listener {
+        default void onExportProgress(long reportId, int stepsDone, int totalSteps, int pagesDone) {}
+        /** @param file El PDF generado, o null si el informe no existe (o el lote no tiene informes). */
+        void onExportFinished(long reportId, File file);
+        void onExportFailed(long reportId, Exception e);
+        default void onExportCancelled(long reportId) {}
+    }
+
+    private static final CopyOnWriteArrayList<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private final Map<Long, Future<?>> jobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private NotificationManager notificationManager;
+    private UserProjectDatabase db;
+    private volatile long lastProgressUpdate;
+
+    // -------------------------------------------------------------------
+    // API PARA LAS ACTIVITIES
+    // -------------------------------------------------------------------
+
+    /**
+     * Encola la exportación de un informe. Si ya se está exportando, no hace nada.
+     */
+    public static void startExport(Context context, long reportId) {
+        startExport(context, reportId, ReportPDFGenerator.Template.LIST);
+    }
+
+    /**
+     * Igual que {@link #startExport(Context, long)}, con otro diseño de página
+     * (p. ej. la hoja de contactos para informes largos).
+     */
+    public static void startExport(Context context, long reportId, ReportPDFGenerator.Template template) {
+        Intent intent = new Intent(context, PdfExportService.class)
+                .setAction(ACTION_EXPORT)
+                .putExtra(EXTRA_REPORT_ID, reportId)
+                .putExtra(EXTRA_TEMPLATE, template.name());
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    /**
+     * Encola la exportación por lotes de los informes modificados en [fromDate, toDate).
+     * Solo puede haber un lote a la vez; se informa con {@link #BATCH_JOB_ID}.
+     */
+    public static void startBatchExport(Context context, String fromDate, String toDate, BatchPdfExporter.Format format) {
+        Intent intent = new Intent(context, PdfExportService.class)
+                .setAction(ACTION_EXPORT_BATCH)
+                .putExtra(EXTRA_FROM_DATE, fromDate)
+                .putExtra(EXTRA_TO_DATE, toDate)
+                .putExtra(EXTRA_FORMAT, format.name());
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    /**
+     * Cancela la exportación de un informe (en curso o en cola).
+     */
+    public static void cancelExport(Context context, long reportId) {
+        context.startService(cancelIntent(context, reportId));
+    }
+
+    public static void addListener(Listener listener) {
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    // -------------------------------------------------------------------
+    // CICLO DE VIDA
+    // -------------------------------------------------------------------
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        db = new UserProjectDatabase(getApplicationContext());
+        executor = new ThreadPoolExecutor(MAX_CONCURRENT_EXPORTS, MAX_CONCURRENT_EXPORTS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "pdf-export");
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        createChannel();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // Siempre hay que pasar a primer plano tras startForegroundService
+        goForeground(buildProgressNotification("Preparando exportación...", 0, 0));
+
+        if (intent == null) {
+            stopIfIdle();
+            return START_NOT_STICKY;
+        }
+
+        long reportId = intent.getLongExtra(EXTRA_REPORT_ID, -1);
+        if (ACTION_CANCEL.equals(intent.getAction())) {
+            Future<?> job = jobs.remove(reportId);
+            if (job != null) {
+                job.cancel(true);
+                dispatchCancelled(reportId);
+            }
+            stopIfIdle();
+        } else if (ACTION_EXPORT.equals(intent.getAction()) && reportId != -1) {
+            String template = intent.getStringExtra(EXTRA_TEMPLATE);
+            ReportPDFGenerator.Template layout = template != null
+                    ? ReportPDFGenerator.Template.valueOf(template) : ReportPDFGenerator.Template.LIST;
+            enqueue(reportId, () -> runExport(reportId, layout));
+        } else if (ACTION_EXPORT_BATCH.equals(intent.getAction())) {
+            String fromDate = intent.getStringExtra(EXTRA_FROM_DATE);
+            String toDate = intent.getStringExtra(EXTRA_TO_DATE);
+            BatchPdfExporter.Format format = BatchPdfExporter.Format.valueOf(intent.getStringExtra(EXTRA_FORMAT));
+            enqueue(BATCH_JOB_ID, () -> runBatchExport(fromDate, toDate, format));
+        } else {
+            stopIfIdle();
+        }
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        executor.shutdownNow();
+        jobs.clear();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    // -------------------------------------------------------------------
+    // EXPORTACIÓN
+    // -------------------------------------------------------------------
+
+    private void enqueue(long jobId, Runnable work) {
+        if (jobs.containsKey(jobId)) {
+            Log.d(TAG, label(jobId) + " ya se está exportando.");
+            return;
+        }
+        // done() corre al terminar o al cancelar; remove(key, this) no pisa una exportación
+        // posterior del mismo informe
+        FutureTask<Void> task = new FutureTask<Void>(work, null) {
+            @Override
+            protected void done() {
+                jobs.remove(jobId, this);
+                MAIN.post(PdfExportService.this::stopIfIdle);
+            }
+        };
+        jobs.put(jobId, task);
+        executor.execute(task);
+    }
+
+    private void runExport(long reportId, ReportPDFGenerator.Template template) {
+        ReportPDFGenerator generator = new ReportPDFGenerator(getApplicationContext(), db);
+        generator.setBackend(ReportPDFGenerator.Backend.STREAMING);
+        generator.setImageOptions(ReportPDFGenerator.ImageOptions.DEFAULT);
+        generator.setTemplate(template);
+        try {
+            File file = generator.generateFile(reportId, (stepsDone, totalSteps, pagesDone) -> {
+                publishProgress(reportId, stepsDone, totalSteps, pagesDone);
+                dispatchProgress(reportId, stepsDone, totalSteps, pagesDone);
+            });
+            if (Thread.currentThread().isInterrupted()) {
+                return; // Cancelada justo al terminar: ya se avisó
+            }
+            notifyResult(reportId, file);
+            dispatchFinished(reportId, file);
+        } catch (InterruptedIOException e) {
+            Log.d(TAG, "Exportación cancelada: " + reportId);
+        } catch (Exception e) {
+            Log.e(TAG, "Error al exportar el informe " + reportId, e);
+            notifyResult(reportId, null);
+            dispatchFailed(reportId, e);
+        }
+    }
+
+    private void runBatchExport(String fromDate, String toDate, BatchPdfExporter.Format format) {
+        BatchPdfExporter exporter = new BatchPdfExporter(getApplicationContext(), db);
+        try {
+            BatchPdfExporter.Result result = exporter.exportRange(fromDate, toDate, format,
+                    (reportsDone, totalReports, pagesDone) -> {
+                        publishProgress(BATCH_JOB_ID, reportsDone, totalReports, pagesDone);
+                        dispatchProgress(BATCH_JOB_ID, reportsDone, totalReports, pagesDone);
+                    });
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if (result == null) {
+                notifyEmptyRange(fromDate, toDate); // No es un error: no hay nada que exportar
+                dispatchFinished(BATCH_JOB_ID, null);
+                return;
+            }
+            notifyResult(BATCH_JOB_ID, result.file);
+            dispatchFinished(BATCH_JOB_ID, result.file);
+        } catch (InterruptedIOException e) {
+            Log.d(TAG, "Exportación por lotes cancelada");
+        } catch (Exception e) {
+            Log.e(TAG, "Error en la exportación por lotes", e);
+            notifyResult(BATCH_JOB_ID, null);
+            dispatchFailed(BATCH_JOB_ID, e);
+        }
+    }
+
+    private void stopIfIdle() {
+        if (jobs.isEmpty()) {
+            stopForeground(STOP_FOREGROUND_REMOVE);
+            stopSelf();
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // NOTIFICACIONES
+    // -------------------------------------------------------------------
+
+    private void createChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                    "Exportación de PDF", NotificationManager.IMPORTANCE_LOW);
+            notificationManager.createNotificationChannel(channel);
+        }
+    }
+
+    private void goForeground(NotificationCompat.Builder builder) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID_PROGRESS, builder.build(), ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+        } else {
+            startForeground(NOTIFICATION_ID_PROGRESS, builder.build());
+        }
+    }
+
+    private NotificationCompat.Builder buildProgressNotification(String text, int progress, int max) {
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_download)
+                .setContentTitle("Exportando PDF")
+                .setContentText(text)
+                .setOnlyAlertOnce(true)
+                .setOngoing(true)
+                .setProgress(max, progress, max == 0);
+    }
+
+    /**
+     * Actualiza la notificación en curso (como máximo cada PROGRESS_THROTTLE_MS).
+     */
+    private void publishProgress(long jobId, int done, int total, int pagesDone) {
+        long now = SystemClock.uptimeMillis();
+        if (done < total && now - lastProgressUpdate < PROGRESS_THROTTLE_MS) {
+            return;
+        }
+        lastProgressUpdate = now;
+
+        String unit = jobId == BATCH_JOB_ID ? "informe " : "paso ";
+        String text = label(jobId) + ": " + unit + done + "/" + total + " · " + pagesDone + " pág.";
+        NotificationCompat.Builder builder = buildProgressNotification(text, done, total);
+        builder.addAction(android.R.drawable.ic_menu_close_clear_cancel, "Cancelar",
+                PendingIntent.getService(this, (int) jobId, cancelIntent(this, jobId),
+                        PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE));
+        if (jobs.size() > 1) {
+            builder.setSubText(jobs.size() + " exportaciones en curso");
+        }
+        notificationManager.notify(NOTIFICATION_ID_PROGRESS, builder.build());
+    }
+
+    /**
+     * Notificación final: tocarla abre el PDF (o el ZIP del lote). Si falló, solo informa.
+     */
+    private void notifyResult(long jobId, File file) {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setAutoCancel(true);
+
+        if (file != null) {
+            Uri pdfUri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", file);
+            Intent view = new Intent(Intent.ACTION_VIEW)
+                    .setDataAndType(pdfUri, file.getName().endsWith(".zip") ? "application/zip" : "application/pdf")
+                    .addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_ACTIVITY_NEW_TASK);
+            builder.setSmallIcon(android.R.drawable.stat_sys_download_done)
+                    .setContentTitle("PDF listo: " + label(jobId))
+                    .setContentText(file.getName())
+                    .setContentIntent(PendingIntent.getActivity(this, (int) jobId, view,
+                            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE));
+        } else {
+            builder.setSmallIcon(android.R.drawable.stat_notify_error)
+                    .setContentTitle("No se pudo exportar: " + label(jobId));
+        }
+        notificationManager.notify(NOTIFICATION_ID_RESULT_BASE + (int) jobId, builder.build());
+    }
+
+    /**
+     * Aviso de un lote sin informes en el rango (distinto del de error).
+     */
+    private void notifyEmptyRange(String fromDate, String toDate) {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setAutoCancel(true)
+                .setSmallIcon(android.R.drawable.stat_notify_more)
+                .setContentTitle(label(BATCH_JOB_ID) + ": no hay informes en el rango")
+                .setContentText(fromDate + " – " + toDate);
+        notificationManager.notify(NOTIFICATION_ID_RESULT_BASE + (int) BATCH_JOB_ID, builder.build());
+    }
+
+    private static String label(long jobId) {
+        return jobId == BATCH_JOB_ID ? "Lote de informes" : "Informe #" + jobId;
+    }
+
+    private static Intent cancelIntent(Context context, long reportId) {
+        return new Intent(context, PdfExportService.class)
+                .setAction(ACTION_CANCEL)
+                .setData(Uri.parse("reporte:" + reportId)) // Un PendingIntent distinto por informe
+                .putExtra(EXTRA_REPORT_ID, reportId);
+    }
+
+    // -------------------------------------------------------------------
+    // ENTREGA A LOS LISTENERS (HILO PRINCIPAL)
+    // -------------------------------------------------------------------
+
+    private static void dispatchProgress(long reportId, int stepsDone, int totalSteps, int pagesDone) {
+        MAIN.post(() -> {
+            for (Listener l : LISTENERS) l.onExportProgress(reportId, stepsDone, totalSteps, pagesDone);
+        });
+    }
+
+    private static void dispatchFinished(long reportId, File file) {
+        MAIN.post(() -> {
+            for (Listener l : LISTENERS) l.onExportFinished(reportId, file);
+        });
+    }
+
+    private static void dispatchFailed(long reportId, Exception e) {
+        MAIN.post(() -> {
+            for (Listener l : LISTENERS) l.onExportFailed(reportId, e);
+        });
+    }
+
+    private static void dispatchCancelled(long reportId) {
+        MAIN.post(() -> {
+            for (Listener l : LISTENERS) l.onExportCancelled(reportId);
+        });
+    }
+}
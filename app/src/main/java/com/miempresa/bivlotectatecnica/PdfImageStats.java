@@ -0,0 +1,75 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Resumen de las fotos incrustadas en una exportación de StreamingPdfWriter: cuántos bytes
+ * ocupó cada una en el PDF frente al archivo original y frente a los píxeles sin comprimir
+ * que guardaría PdfDocument (RGB, al tamaño de dibujo). Cada foto se registra en logcat al
+ * escribirse; el total, al terminar. Solo guarda acumulados: no crece con los pasos.
+ */
+final class PdfImageStats {
+
+    private static final String TAG = "PdfImageStats";
+
+    private int images;
+    private int passedThrough;
+    private long sourceBytes;
+    private long embeddedBytes;
+    private long bitmapBytes;
+
+    /**
+     * @param sourceBytes Tamaño del archivo de la foto (-1 si no se conoce).
+     * @param width Píxeles guardados en el PDF.
+     * @param shownWidth Tamaño de dibujo en puntos (1 punto = 1 píxel en PdfDocument).
+     * @param passThrough true si se copió el JPEG original sin recodificar.
+     */
+    void record(int stepIndex, long sourceBytes, long embeddedBytes, int width, int height,
+                int shownWidth, int shownHeight, boolean passThrough) {
+        long bitmap = 3L * shownWidth * shownHeight;
+        images++;
+        if (passThrough) passedThrough++;
+        if (sourceBytes > 0) this.sourceBytes += sourceBytes;
+        this.embeddedBytes += embeddedBytes;
+        this.bitmapBytes += bitmap;
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, String.format(Locale.ROOT, "Paso %d: %dx%d px, %d bytes (original %d, %s)",
+                    stepIndex + 1, width, height, embeddedBytes, sourceBytes,
+                    passThrough ? "copiado" : "recodificado"));
+        }
+    }
+
+    int getImageCount() {
+        return images;
+    }
+
+    int getPassThroughCount() {
+        return passedThrough;
+    }
+
+    long getSourceBytes() {
+        return sourceBytes;
+    }
+
+    long getEmbeddedBytes() {
+        return embeddedBytes;
+    }
+
+    /** Bytes de los mismos dibujos como píxeles RGB sin comprimir (lo que guarda PdfDocument). */
+    long getBitmapBytes() {
+        return bitmapBytes;
+    }
+
+    String summary() {
+        return String.format(Locale.ROOT,
+                "%d fotos (%d copiadas): %d KB en el PDF, %d KB originales (%.0f%% menos), %d KB como píxeles (%.0f%% menos)",
+                images, passedThrough, embeddedBytes / 1024, sourceBytes / 1024, reduction(sourceBytes),
+                bitmapBytes / 1024, reduction(bitmapBytes));
+    }
+
+    private float reduction(long reference) {
+        return reference > 0 ? 100f * (reference - embeddedBytes) / reference : 0f;
+    }
+}
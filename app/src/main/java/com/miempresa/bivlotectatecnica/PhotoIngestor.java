@@ -0,0 +1,175 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Normaliza las fotos al adjuntarlas a un paso:
+ * 1. Las copia a almacenamiento propio de la app (getFilesDir()/photos), así la URI
+ *    guardada en informes.foto_uri no depende de la galería ni de permisos de terceros.
+ * 2. Las reduce a un lado máximo configurable y las recodifica como JPEG con calidad fija.
+ * 3. Aplica la rotación EXIF a los píxeles y descarta el resto de metadatos (GPS incluido).
+ * 4. Las nombra por el SHA-256 del resultado: la misma foto adjuntada dos veces se guarda una sola vez.
+ * Al terminar deja generada la miniatura en ImageLoader.
+ */
+public final class PhotoIngestor {
+
+    private static final String TAG = "PhotoIngestor";
+
+    public static final String DIR_NAME = "photos";
+    public static final int DEFAULT_MAX_EDGE = 2048;
+    public static final int DEFAULT_JPEG_QUALITY = 85;
+
+    /**
+     * Resultado de una ingesta, entregado en el hilo principal.
+     */
+    public interface Callback {
+        void onIngested(String photoUri);
+
+        void onError(Exception e);
+    }
+
+    // Un único hilo: las ingestas son pesadas en memoria y no conviene solaparlas.
+    // PhotoSweeper también corre aquí, así nunca barre una foto a medio guardar.
+    static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "photo-ingest");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private final Context context;
+    private final int maxEdge;
+    private final int jpegQuality;
+
+    public PhotoIngestor(Context context) {
+        this(context, DEFAULT_MAX_EDGE, DEFAULT_JPEG_QUALITY);
+    }
+
+    public PhotoIngestor(Context context, int maxEdge, int jpegQuality) {
+        this.context = context.getApplicationContext();
+        this.maxEdge = maxEdge;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * Directorio donde quedan las fotos normalizadas.
+     */
+    public static File getPhotosDir(Context context) {
+        return new File(context.getFilesDir(), DIR_NAME);
+    }
+
+    /**
+     * Archivo real detrás de una URI de foto propia, o null si es de otra app.
+     * Cubre las copias normalizadas (file://) y las capturas antiguas guardadas con la URI
+     * de nuestro FileProvider (content://...fileprovider/temp_photos/...).
+     */
+    static File resolveLocalFile(Context context, Uri uri) {
+        if (ContentResolver.SCHEME_FILE.equals(uri.getScheme()) && uri.getPath() != null) {
+            return new File(uri.getPath());
+        }
+        String authority = context.getPackageName() + ".fileprovider";
+        List<String> segments = uri.getPathSegments();
+        if (ContentResolver.SCHEME_CONTENT.equals(uri.getScheme()) && authority.equals(uri.getAuthority())
+                && segments.size() >= 2 && "temp_photos".equals(segments.get(0))) {
+            // <external-files-path name="temp_photos" path="Pictures"/>
+            File pictures = context.getExternalFilesDir(Environment.DIRECTORY_PICTURES);
+            if (pictures != null) {
+                return new File(pictures, TextUtils.join(File.separator, segments.subList(1, segments.size())));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ingesta en segundo plano; el resultado vuelve al hilo principal.
+     * @param deleteSource true para borrar el archivo de origen si la ingesta termina bien (solo
+     *                     URIs file://, p. ej. la captura temporal de la cámara). Si falla se
+     *                     conserva, para poder reintentar; PhotoSweeper la borra pasado el período de gracia.
+     */
+    public void ingestAsync(Uri source, boolean deleteSource, Callback callback) {
+        EXECUTOR.execute(() -> {
+            String photoUri;
+            try {
+                photoUri = ingest(source);
+            } catch (Exception e) {
+                Log.e(TAG, "Error al procesar la foto " + source, e);
+                MAIN.post(() -> callback.onError(e));
+                return;
+            }
+            if (deleteSource && "file".equals(source.getScheme()) && source.getPath() != null) {
+                File file = new File(source.getPath());
+                if (file.exists() && !file.delete()) {
+                    Log.w(TAG, "No se pudo borrar la captura temporal " + file);
+                }
+            }
+            MAIN.post(() -> callback.onIngested(photoUri));
+        });
+    }
+
+    /**
+     * Ingesta bloqueante. No llamar desde el hilo principal.
+     * @return URI (file://) de la copia normalizada.
+     * @throws IOException si la imagen no se puede leer o guardar.
+     */
+    public String ingest(Uri source) throws IOException {
+        // La decodificación ya aplica la orientación EXIF y reduce al lado máximo
+        Bitmap bitmap = BitmapLoader.decodeScaled(context, source, maxEdge, maxEdge, false);
+        if (bitmap == null) {
+            throw new IOException("No es una imagen válida: " + source);
+        }
+
+        File dir = getPhotosDir(context);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            bitmap.recycle();
+            throw new IOException("No se pudo crear " + dir);
+        }
+
+        MessageDigest sha256 = Hashing.sha256();
+
+        // Se codifica a un temporal calculando el hash a la vez; luego se renombra
+        File tmp = File.createTempFile("ingest_", ".tmp", dir);
+        try {
+            try (OutputStream out = new DigestOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)), sha256)) {
+                if (!bitmap.compress(Bitmap.CompressFormat.JPEG, jpegQuality, out)) {
+                    throw new IOException("No se pudo codificar la foto " + source);
+                }
+            } finally {
+                bitmap.recycle();
+            }
+
+            File target = new File(dir, Hashing.toHex(sha256.digest()) + ".jpg");
+            if (target.exists()) {
+                Log.d(TAG, "Foto repetida, se reutiliza " + target.getName());
+            } else if (!tmp.renameTo(target)) {
+                throw new IOException("No se pudo guardar " + target);
+            }
+
+            String photoUri = Uri.fromFile(target).toString();
+            ImageLoader.getInstance(context).ensureThumbnail(photoUri);
+            return photoUri;
+        } finally {
+            if (tmp.exists() && !tmp.delete()) {
+                Log.w(TAG, "No se pudo borrar el temporal " + tmp);
+            }
+        }
+    }
+}
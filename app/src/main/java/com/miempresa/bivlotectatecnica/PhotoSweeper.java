@@ -0,0 +1,258 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Environment;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.miempresa.bivlotectatecnica.bd.AsyncUserProjectDatabase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Barrido de fotos huérfanas y cuota de almacenamiento.
+ *
+ * 1. Reconciliación: compara los archivos de Pictures (capturas de la cámara) y de
+ *    getFilesDir()/photos (fotos normalizadas) con las URIs de informes.foto_uri y de los
+ *    borradores. Los que no están referenciados y son más viejos que el período de gracia se
+ *    borran (capturas canceladas, pasos vacíos, borradores descartados).
+ * 2. Cuota: si las fotos superan el presupuesto, las más antiguas se recomprimen a un tamaño
+ *    menor y se actualizan sus referencias, hasta quedar por debajo.
+ *
+ * Corre en el hilo de PhotoIngestor, así nunca se cruza con una foto a medio guardar. Las
+ * escrituras en la base van al hilo escritor de AsyncUserProjectDatabase, como las de la UI.
+ * Las métricas del último barrido quedan en SharedPreferences ("photo_sweeper").
+ */
+public final class PhotoSweeper {
+
+    private static final String TAG = "PhotoSweeper";
+
+    public static final long DEFAULT_GRACE_MS = TimeUnit.HOURS.toMillis(24);
+    public static final long DEFAULT_QUOTA_BYTES = 500L * 1024 * 1024;
+    private static final long MIN_INTERVAL_MS = TimeUnit.HOURS.toMillis(6);
+
+    // Tamaño al que se recomprimen las fotos viejas cuando se excede la cuota
+    static final int COMPRESSED_MAX_EDGE = 1280;
+    static final int COMPRESSED_JPEG_QUALITY = 70;
+
+    private static final String PREFS_NAME = "photo_sweeper";
+    private static final String KEY_LAST_RUN = "last_run";
+    private static final String KEY_RECLAIMED_BYTES = "reclaimed_bytes";
+    private static final String KEY_DELETED_FILES = "deleted_files";
+    private static final String KEY_COMPRESSED_FILES = "compressed_files";
+    private static final String KEY_SCANNED_FILES = "scanned_files";
+    private static final String KEY_SCAN_DURATION_MS = "scan_duration_ms";
+
+    /**
+     * Métricas de un barrido.
+     */
+    public static final class Stats {
+        public int scannedFiles;
+        public int deletedFiles;
+        public int compressedFiles;
+        /** Bytes liberados (borrados + ahorrados al recomprimir). */
+        public long reclaimedBytes;
+        public long scanDurationMs;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d archivos revisados, %d borrados, %d recomprimidos, %d KB liberados en %d ms",
+                    scannedFiles, deletedFiles, compressedFiles, reclaimedBytes / 1024, scanDurationMs);
+        }
+    }
+
+    private final Context context;
+    private final AsyncUserProjectDatabase db;
+    private final long graceMs;
+    private final long quotaBytes;
+
+    public PhotoSweeper(Context context) {
+        this(context, DEFAULT_GRACE_MS, DEFAULT_QUOTA_BYTES);
+    }
+
+    public PhotoSweeper(Context context, long graceMs, long quotaBytes) {
+        this(context, new AsyncUserProjectDatabase(context.getApplicationContext()), graceMs, quotaBytes);
+    }
+
+    public PhotoSweeper(Context context, AsyncUserProjectDatabase db, long graceMs, long quotaBytes) {
+        this.context = context.getApplicationContext();
+        this.db = db;
+        this.graceMs = graceMs;
+        this.quotaBytes = quotaBytes;
+    }
+
+    /**
+     * Programa un barrido en segundo plano si el último fue hace más de MIN_INTERVAL_MS.
+     * Pensado para llamarse al iniciar la app.
+     */
+    public static void scheduleIfDue(Context context) {
+        Context app = context.getApplicationContext();
+        PhotoIngestor.EXECUTOR.execute(() -> {
+            SharedPreferences prefs = app.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            if (System.currentTimeMillis() - prefs.getLong(KEY_LAST_RUN, 0) < MIN_INTERVAL_MS) {
+                return;
+            }
+            try {
+                new PhotoSweeper(app).sweep();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error en el barrido de fotos", e);
+            }
+        });
+    }
+
+    /**
+     * Métricas del último barrido completado.
+     */
+    public static Stats getLastStats(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        Stats stats = new Stats();
+        stats.scannedFiles = prefs.getInt(KEY_SCANNED_FILES, 0);
+        stats.deletedFiles = prefs.getInt(KEY_DELETED_FILES, 0);
+        stats.compressedFiles = prefs.getInt(KEY_COMPRESSED_FILES, 0);
+        stats.reclaimedBytes = prefs.getLong(KEY_RECLAIMED_BYTES, 0);
+        stats.scanDurationMs = prefs.getLong(KEY_SCAN_DURATION_MS, 0);
+        return stats;
+    }
+
+    /**
+     * Barrido completo. Bloqueante: llamar en el hilo de PhotoIngestor (ver scheduleIfDue).
+     */
+    public Stats sweep() {
+        long start = SystemClock.elapsedRealtime();
+        Stats stats = new Stats();
+
+        // Rutas absolutas de todas las fotos referenciadas
+        Set<String> referencedUris = db.getDatabase().getReferencedPhotoUris();
+        Set<String> referencedPaths = new HashSet<>();
+        for (String uri : referencedUris) {
+            if (TextUtils.isEmpty(uri)) continue;
+            File file = PhotoIngestor.resolveLocalFile(context, Uri.parse(uri));
+            if (file != null) referencedPaths.add(file.getAbsolutePath());
+        }
+
+        long cutoff = System.currentTimeMillis() - graceMs;
+        File photosDir = PhotoIngestor.getPhotosDir(context);
+        deleteOrphans(context.getExternalFilesDir(Environment.DIRECTORY_PICTURES), referencedPaths, cutoff, stats);
+        deleteOrphans(photosDir, referencedPaths, cutoff, stats);
+
+        enforceQuota(photosDir, referencedPaths, stats);
+
+        stats.scanDurationMs = SystemClock.elapsedRealtime() - start;
+        Log.i(TAG, "Barrido de fotos: " + stats);
+        saveStats(stats);
+        return stats;
+    }
+
+    private void deleteOrphans(File dir, Set<String> referencedPaths, long cutoff, Stats stats) {
+        File[] files = dir != null ? dir.listFiles() : null;
+        if (files == null) return;
+        for (File file : files) {
+            if (!file.isFile()) continue;
+            stats.scannedFiles++;
+            if (referencedPaths.contains(file.getAbsolutePath()) || file.lastModified() > cutoff) {
+                continue; // En uso, o puede pertenecer a un paso que aún no se guardó
+            }
+            long size = file.length();
+            if (file.delete()) {
+                stats.deletedFiles++;
+                stats.reclaimedBytes += size;
+            }
+        }
+    }
+
+    /**
+     * Recomprime las fotos más antiguas hasta que el total quede dentro de la cuota.
+     */
+    private void enforceQuota(File photosDir, Set<String> referencedPaths, Stats stats) {
+        File[] files = photosDir.listFiles(File::isFile);
+        if (files == null) return;
+
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total <= quotaBytes) return;
+
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        PhotoIngestor compressor = new PhotoIngestor(context, COMPRESSED_MAX_EDGE, COMPRESSED_JPEG_QUALITY);
+        List<File> candidates = new ArrayList<>();
+        for (File f : files) {
+            if (referencedPaths.contains(f.getAbsolutePath()) && !isAlreadyCompressed(f)) {
+                candidates.add(f);
+            }
+        }
+
+        for (File original : candidates) {
+            if (total <= quotaBytes) break;
+            String oldUri = Uri.fromFile(original).toString();
+            long before = original.length();
+            try {
+                String newUri = compressor.ingest(Uri.fromFile(original));
+                if (newUri.equals(oldUri)) continue;
+                if (replacePhotoUri(oldUri, newUri) < 0) {
+                    continue; // Se conserva el original; la copia nueva queda huérfana y se barrerá
+                }
+                File compressed = PhotoIngestor.resolveLocalFile(context, Uri.parse(newUri));
+                long after = compressed != null ? compressed.length() : 0;
+                if (original.delete()) {
+                    total -= before - after;
+                    stats.reclaimedBytes += before - after;
+                    stats.compressedFiles++;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "No se pudo recomprimir " + original.getName() + ": " + e.getMessage());
+            }
+        }
+
+        if (total > quotaBytes) {
+            Log.w(TAG, "Las fotos siguen superando la cuota (" + total / 1024 + " KB) tras recomprimir");
+        }
+    }
+
+    /**
+     * Actualiza las referencias en el hilo escritor y espera el resultado.
+     * @return Pasos actualizados, o -1 si falló.
+     */
+    private int replacePhotoUri(String oldUri, String newUri) {
+        try {
+            return db.writeAndWait(dao -> dao.replacePhotoUri(oldUri, newUri));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (Exception e) {
+            Log.e(TAG, "Error al reemplazar la foto " + oldUri, e);
+            return -1;
+        }
+    }
+
+    /**
+     * true si la foto ya no supera el tamaño recomprimido (no se gana nada reduciéndola otra vez).
+     */
+    private static boolean isAlreadyCompressed(File file) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        return Math.max(options.outWidth, options.outHeight) <= COMPRESSED_MAX_EDGE;
+    }
+
+    private void saveStats(Stats stats) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putLong(KEY_LAST_RUN, System.currentTimeMillis())
+                .putInt(KEY_SCANNED_FILES, stats.scannedFiles)
+                .putInt(KEY_DELETED_FILES, stats.deletedFiles)
+                .putInt(KEY_COMPRESSED_FILES, stats.compressedFiles)
+                .putLong(KEY_RECLAIMED_BYTES, stats.reclaimedBytes)
+                .putLong(KEY_SCAN_DURATION_MS, stats.scanDurationMs)
+                .apply();
+    }
+}
@@ -0,0 +1,234 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.graphics.Typeface;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado del paso de medición del PDF de un informe: en qué página y en qué caja va
+ * cada fragmento (texto ya cortado en líneas con StaticLayout, o foto). Lo arma una
+ * plantilla (ReportTemplate) y después ReportPageRenderer o StreamingPdfWriter dibujan
+ * cada página una sola vez, sin volver a decidir nada. Como el resultado solo depende del
+ * informe y de los altos de las fotos, medir dos veces da siempre las mismas páginas (el
+ * índice del PDF combinado lo aprovecha para conocer los números de página antes de dibujar).
+ *
+ * Además de las cajas sueltas (add*), ofrece el flujo vertical a todo el ancho que usan
+ * las plantillas: placeText pasa de página entre líneas si el texto no entra.
+ */
+final class ReportLayout {
+
+    // Área útil de cada página (todo fragmento queda dentro)
+    static final int CONTENT_LEFT = ReportPageRenderer.MARGIN_X;
+    static final int CONTENT_WIDTH = ReportPageRenderer.PAGE_WIDTH - 2 * ReportPageRenderer.MARGIN_X;
+    static final int CONTENT_TOP = 36;
+    static final int CONTENT_BOTTOM = ReportPageRenderer.PAGE_HEIGHT - 36;
+
+    // Separaciones verticales del encabezado
+    private static final int GAP_AFTER_TITLE = 20;
+    private static final int GAP_HEADER_LINE = 4;
+    private static final int GAP_AFTER_HEADER = 24;
+    private static final int GAP_AFTER_SECTION = 12;
+
+    private static final Typeface BOLD = Typeface.create(Typeface.DEFAULT, Typeface.BOLD);
+    private static final Typeface NORMAL = Typeface.create(Typeface.DEFAULT, Typeface.NORMAL);
+    private static final Typeface BOLD_ITALIC = Typeface.create(Typeface.DEFAULT, Typeface.BOLD_ITALIC);
+
+    /**
+     * Estilos de texto del PDF. Se crean una vez por exportación y los comparten la medición
+     * y el dibujo (las métricas de fuente quedan en caché en cada Paint). No compartir entre hilos.
+     */
+    static final class Styles {
+        final TextPaint title = textPaint(24f, BOLD);
+        final TextPaint header = textPaint(16f, NORMAL);
+        final TextPaint section = textPaint(20f, BOLD);
+        final TextPaint stepTitle = textPaint(14f, BOLD_ITALIC);
+        final TextPaint body = textPaint(12f, NORMAL);
+        final TextPaint caption = textPaint(9f, NORMAL);
+
+        private static TextPaint textPaint(float size, Typeface typeface) {
+            TextPaint paint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+            paint.setTextSize(size);
+            paint.setTypeface(typeface);
+            return paint;
+        }
+    }
+
+    /**
+     * Algo a dibujar en una página: un rango de líneas de un texto o la foto de un paso.
+     * La foto se escala para caber en la caja (left, top, width, height), alineada arriba
+     * a la izquierda; el texto ya viene cortado al ancho de la caja.
+     */
+    static final class Fragment {
+        final int stepIndex; // Índice del paso en ReportData.steps, o -1 para el encabezado
+        final int left;
+        final int top;
+        final int width;
+        final int height;
+        final StaticLayout text; // null = foto del paso
+        final int firstLine; // Rango [firstLine, endLine) de text
+        final int endLine;
+
+        private Fragment(int stepIndex, int left, int top, int width, int height,
+                         StaticLayout text, int firstLine, int endLine) {
+            this.stepIndex = stepIndex;
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.text = text;
+            this.firstLine = firstLine;
+            this.endLine = endLine;
+        }
+
+        boolean isImage() {
+            return text == null;
+        }
+
+        int bottom() {
+            return top + height;
+        }
+    }
+
+    private final List<List<Fragment>> pages = new ArrayList<>();
+    private List<Fragment> current;
+    private int y;
+
+    /**
+     * Crea un resultado vacío con la primera página abierta.
+     */
+    ReportLayout() {
+        newPage();
+    }
+
+    int getPageCount() {
+        return pages.size();
+    }
+
+    List<Fragment> getPage(int index) {
+        return Collections.unmodifiableList(pages.get(index));
+    }
+
+    // -------------------------------------------------------------------
+    // ARMADO (solo para las plantillas)
+    // -------------------------------------------------------------------
+
+    /** Altura del flujo vertical en la página actual. */
+    int getY() {
+        return y;
+    }
+
+    void setY(int y) {
+        this.y = y;
+    }
+
+    /** true si la página actual todavía no tiene fragmentos. */
+    boolean isPageEmpty() {
+        return current.isEmpty();
+    }
+
+    void newPage() {
+        current = new ArrayList<>();
+        pages.add(current);
+        y = CONTENT_TOP;
+    }
+
+    /**
+     * Encabezado común a todas las plantillas: título, datos del informe y título de la
+     * sección de pasos, a todo el ancho desde la posición actual.
+     */
+    void placeHeader(ReportPageRenderer.ReportData report, Styles styles) {
+        placeText(-1, lines("INFORME DE PROCEDIMIENTO", styles.title), GAP_AFTER_TITLE);
+        placeText(-1, lines("Componente: " + report.componentName + " (" + report.inventoryCode + ")", styles.header), GAP_HEADER_LINE);
+        placeText(-1, lines("Acción: " + report.actionType, styles.header), GAP_HEADER_LINE);
+        placeText(-1, lines("Técnico Responsable: " + report.technicianName + " (" + report.workshopName + ")", styles.header), GAP_HEADER_LINE);
+        placeText(-1, lines("Fecha: " + ReportPageRenderer.shortDate(report.dateCreated), styles.header), GAP_AFTER_HEADER);
+
+        // --- SECCIÓN DE PASOS FOTOGRÁFICOS ---
+        placeText(-1, lines("SECUENCIA DE PASOS", styles.section), GAP_AFTER_SECTION);
+        if (report.steps.isEmpty()) {
+            placeText(-1, lines("No se registraron pasos para este informe.", styles.body), 0);
+        }
+    }
+
+    /**
+     * Coloca un texto a todo el ancho desde la posición actual, pasando de página entre
+     * líneas si no entra.
+     */
+    void placeText(int stepIndex, StaticLayout text, int gapAfter) {
+        int count = text.getLineCount();
+        int line = 0;
+        while (line < count) {
+            int first = line;
+            int firstTop = text.getLineTop(first);
+            while (line < count && y + text.getLineBottom(line) - firstTop <= CONTENT_BOTTOM) {
+                line++;
+            }
+            if (line == first) {
+                if (y > CONTENT_TOP) {
+                    newPage();
+                    continue;
+                }
+                line++; // Una sola línea más alta que la página (no ocurre con estos tamaños)
+            }
+            int height = text.getLineBottom(line - 1) - firstTop;
+            current.add(new Fragment(stepIndex, CONTENT_LEFT, y, CONTENT_WIDTH, height, text, first, line));
+            y += height;
+            if (line < count) {
+                newPage();
+            }
+        }
+        y += gapAfter;
+    }
+
+    /**
+     * Coloca una foto a todo el ancho desde la posición actual (pasa de página si no entra).
+     */
+    void placeImage(int stepIndex, int height, int gapAfter) {
+        if (y > CONTENT_TOP && y + height > CONTENT_BOTTOM) {
+            newPage();
+        }
+        current.add(new Fragment(stepIndex, CONTENT_LEFT, y, CONTENT_WIDTH, height, null, 0, 0));
+        y += height + gapAfter;
+    }
+
+    /**
+     * Un texto completo en una caja de la página actual (no mueve el flujo vertical).
+     */
+    void addText(int stepIndex, int left, int top, StaticLayout text) {
+        current.add(new Fragment(stepIndex, left, top, text.getWidth(), text.getHeight(), text, 0, text.getLineCount()));
+    }
+
+    /**
+     * Una foto en una caja de la página actual (no mueve el flujo vertical).
+     */
+    void addImage(int stepIndex, int left, int top, int width, int height) {
+        current.add(new Fragment(stepIndex, left, top, width, height, null, 0, 0));
+    }
+
+    /**
+     * Corta un texto en líneas al ancho útil de la página (las palabras más largas que
+     * una línea se parten).
+     */
+    static StaticLayout lines(CharSequence text, TextPaint paint) {
+        return StaticLayout.Builder.obtain(text, 0, text.length(), paint, CONTENT_WIDTH)
+                .setIncludePad(false)
+                .build();
+    }
+
+    /**
+     * Corta un texto en a lo sumo maxLines líneas de width puntos; lo que no entra se
+     * reemplaza por "…".
+     */
+    static StaticLayout lines(CharSequence text, TextPaint paint, int width, int maxLines) {
+        return StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+                .setIncludePad(false)
+                .setEllipsize(TextUtils.TruncateAt.END)
+                .setMaxLines(maxLines)
+                .build();
+    }
+}
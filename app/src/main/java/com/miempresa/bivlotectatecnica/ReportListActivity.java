@@ -1,7 +1,9 @@
 package com.miempresa.bivlotectatecnica;
 
+import android.Manifest;
 import android.content.Intent;
-import android.database.Cursor;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.AdapterView;
@@ -11,22 +13,30 @@ import android.widget.TextView;
 import android.widget.Toast;
 import android.util.Log;
 
+import java.io.File;
+
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
 
+import com.miempresa.bivlotectatecnica.bd.AsyncUserProjectDatabase;
 import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
-import com.miempresa.bivlotectatecnica.bd.UserProjectDatabase;
 import com.miempresa.bivlotectatecnica.bd.ReportCursorAdapter;
+import com.miempresa.bivlotectatecnica.bd.ReportPageLoader;
 import com.miempresa.bivlotectatecnica.SessionManager;
 
 /**
  * Muestra la lista de informes de procedimiento. La lista se filtra por rol.
  * Implementa la interfaz para manejar el clic del botón Generar PDF desde la fila.
  */
-public class ReportListActivity extends AppCompatActivity implements ReportCursorAdapter.OnReportActionListener {
+public class ReportListActivity extends AppCompatActivity
+        implements ReportCursorAdapter.OnReportActionListener, PdfExportService.Listener {
 
-    private UserProjectDatabase db;
+    private AsyncUserProjectDatabase db;
     private SessionManager session;
     private ReportCursorAdapter adapter;
+    private ReportPageLoader pageLoader;
     private ListView reportsListView;
     private Button fabNewReport;
     private Button btnLogout;
@@ -34,13 +44,14 @@ public class ReportListActivity extends AppCompatActivity implements ReportCurso
     private TextView emptyReportsView;
 
     private static final String TAG = "ReportListActivity";
+    private static final int REQUEST_NOTIFICATIONS = 201;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_report_list);
 
-        db = new UserProjectDatabase(this);
+        db = new AsyncUserProjectDatabase(this);
         session = new SessionManager(this);
 
         if (!session.isLoggedIn()) {
@@ -67,6 +78,10 @@ public class ReportListActivity extends AppCompatActivity implements ReportCurso
         adapter = new ReportCursorAdapter(this, null, session.getUserRole(), this);
         reportsListView.setAdapter(adapter);
 
+        // Carga paginada en segundo plano: se piden más páginas al acercarse al final
+        pageLoader = new ReportPageLoader(db, adapter, session.getUserId(), session.getUserRole());
+        reportsListView.setOnScrollListener(pageLoader);
+
         // 3. Listener para EDICIÓN/VISUALIZACIÓN (Clic Simple - Abre la edición)
         reportsListView.setOnItemClickListener((parent, view, position, id) -> {
             // El clic simple abre la actividad de edición/pasos directamente.
@@ -93,10 +108,37 @@ public class ReportListActivity extends AppCompatActivity implements ReportCurso
         reportsListView.setOnItemLongClickListener(null);
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Se vuelve a registrar tras cada rotación: las exportaciones siguen en el servicio
+        PdfExportService.addListener(this);
+        // Mientras esté visible, la lista se recarga sola si cambian sus tablas
+        pageLoader.startObserving();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        PdfExportService.removeListener(this);
+        pageLoader.stopObserving();
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
-        loadReportsList(); // Recargar la lista cada vez que vuelve a la actividad (después de crear/editar)
+        loadReportsList(); // Recargar la lista al volver a la actividad, solo si algo cambió (después de crear/editar)
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pageLoader != null) {
+            pageLoader.close();
+        }
+        if (db != null) {
+            db.cancelAll(); // Descarta consultas en curso (las exportaciones siguen en el servicio)
+        }
     }
 
     private void configureViewByRole() {
@@ -116,18 +158,9 @@ public class ReportListActivity extends AppCompatActivity implements ReportCurso
     }
 
     private void loadReportsList() {
-        long userId = session.getUserId();
-        String role = session.getUserRole();
-
-        // Obtener el Cursor filtrado por rol y ID
-        Cursor cursor = db.getReportsList(userId, role);
-
-        if (cursor != null) {
-            // Intercambiar el cursor en el adaptador
-            adapter.changeCursor(cursor);
-        } else {
-            Toast.makeText(this, "No se pudieron cargar los informes.", Toast.LENGTH_SHORT).show();
-        }
+        // La primera página se consulta fuera del hilo principal y reemplaza la lista al llegar.
+        // Si ninguna tabla de la lista cambió (p. ej. al volver de ver un PDF) no se consulta.
+        pageLoader.reloadIfChanged();
     }
 
     /**
@@ -144,16 +177,64 @@ public class ReportListActivity extends AppCompatActivity implements ReportCurso
     // -------------------------------------------------------------------
 
     /**
-     * Llama al generador de PDF (Método de la interfaz ReportCursorAdapter.OnReportActionListener).
+     * Pide el diseño de página y encola la exportación del PDF (Método de la interfaz
+     * ReportCursorAdapter.OnReportActionListener).
      */
     @Override
     public void onGeneratePdfClicked(long reportId) {
-        // Lógica de generación de PDF para el Administrador
-        ReportPDFGenerator generator = new ReportPDFGenerator(this, db);
-        boolean success = generator.generate(reportId);
+        String[] templates = { "Lista (un paso por fila)", "Cuadrícula 2x3", "Cuadrícula 3x4" };
+        new AlertDialog.Builder(this)
+                .setTitle("Diseño del PDF")
+                .setItems(templates, (dialog, which) -> exportPdf(reportId, ReportPDFGenerator.Template.values()[which]))
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
 
-        if (success) {
-            Toast.makeText(this, "PDF generado con éxito para el Informe #" + reportId, Toast.LENGTH_LONG).show();
+    /**
+     * La generación corre en PdfExportService, con el avance en una notificación.
+     */
+    private void exportPdf(long reportId, ReportPDFGenerator.Template template) {
+        requestNotificationPermissionIfNeeded();
+        PdfExportService.startExport(this, reportId, template);
+        Toast.makeText(this, "Generando PDF del Informe #" + reportId + "...", Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * En Android 13+ la notificación de avance necesita permiso. Si se rechaza,
+     * la exportación igual se completa y el resultado llega por el Listener.
+     */
+    private void requestNotificationPermissionIfNeeded() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.POST_NOTIFICATIONS}, REQUEST_NOTIFICATIONS);
         }
     }
-}
\ No newline at end of file
+
+    // -------------------------------------------------------------------
+    // 🚨 RESULTADOS DE PdfExportService
+    // -------------------------------------------------------------------
+
+    @Override
+    public void onExportFinished(long reportId, File file) {
+        if (reportId == PdfExportService.BATCH_JOB_ID) return; // Los lotes se siguen desde el menú admin
+        if (file == null) {
+            Toast.makeText(this, "Error: Informe no encontrado.", Toast.LENGTH_LONG).show();
+            return;
+        }
+        new ReportPDFGenerator(this, db.getDatabase()).openPdfFile(file);
+        Toast.makeText(this, "PDF guardado en: " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+    }
+
+    @Override
+    public void onExportFailed(long reportId, Exception e) {
+        if (reportId == PdfExportService.BATCH_JOB_ID) return;
+        Log.e(TAG, "Error al generar el PDF del informe " + reportId, e);
+        Toast.makeText(this, "Error al guardar el PDF.", Toast.LENGTH_LONG).show();
+    }
+
+    @Override
+    public void onExportCancelled(long reportId) {
+        if (reportId == PdfExportService.BATCH_JOB_ID) return;
+        Toast.makeText(this, "Exportación del Informe #" + reportId + " cancelada.", Toast.LENGTH_SHORT).show();
+    }
+}
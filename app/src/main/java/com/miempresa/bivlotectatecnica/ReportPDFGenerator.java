@@ -2,29 +2,22 @@ package com.miempresa.bivlotectatecnica;
 
 import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
-import android.graphics.Bitmap; // Importación necesaria
-import android.graphics.BitmapFactory; // Importación necesaria
-import android.graphics.Canvas;
-import android.graphics.Matrix; // Importación necesaria para escalar
-import android.graphics.Paint;
-import android.graphics.Typeface;
 import android.graphics.pdf.PdfDocument;
 import android.net.Uri;
 import android.os.Environment; // Aún para obtener getExternalStoragePublicDirectory aunque se use getExternalFilesDir
-import android.text.TextUtils;
 import android.util.Log;
 import android.widget.Toast;
 
 import androidx.core.content.FileProvider;
 
-import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
 import com.miempresa.bivlotectatecnica.bd.UserProjectDatabase;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream; // Importación necesaria para cargar imágenes
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -37,200 +30,254 @@ public class ReportPDFGenerator {
     private final Context context;
     private final UserProjectDatabase db;
 
-    // Dimensiones del PDF (A4)
-    private static final int PAGE_WIDTH = 595;
-    private static final int PAGE_HEIGHT = 842;
-    private static final int MARGIN_X = 40; // Margen izquierdo/derecho
-    private static final int IMAGE_MAX_WIDTH = PAGE_WIDTH - (2 * MARGIN_X); // Ancho máximo de la imagen
-    private static final int IMAGE_MAX_HEIGHT = 200; // Altura máxima para las imágenes
+    /**
+     * Recibe el avance de la generación. Se invoca en el hilo que genera el PDF.
+     */
+    public interface ProgressListener {
+        void onProgress(int stepsDone, int totalSteps, int pagesDone);
+    }
+
+    /**
+     * Cómo se escribe el PDF.
+     * PDF_DOCUMENT: PdfDocument de Android; guarda todas las páginas (con sus bitmaps) en
+     * memoria hasta el final.
+     * STREAMING: StreamingPdfWriter; vuelca cada página al terminarla y copia las fotos JPEG
+     * sin recodificarlas. La memoria no crece con el largo del informe.
+     */
+    public enum Backend { PDF_DOCUMENT, STREAMING }
+
+    /**
+     * Cómo se guardan las fotos en el backend STREAMING: siempre como JPEG, a lo sumo a dpi
+     * puntos por pulgada del tamaño en que se dibujan (0 = copiar las originales sin reducir)
+     * y con jpegQuality (0-100) cuando hay que recodificarlas.
+     */
+    public static final class ImageOptions {
+        /** 150 dpi: nítido impreso, una fracción del peso de las fotos originales. */
+        public static final ImageOptions DEFAULT = new ImageOptions(80, 150);
+        /** Las fotos tal como las guardó PhotoIngestor. */
+        public static final ImageOptions ORIGINAL = new ImageOptions(90, 0);
+
+        final int jpegQuality;
+        final int dpi;
+
+        public ImageOptions(int jpegQuality, int dpi) {
+            this.jpegQuality = Math.max(0, Math.min(100, jpegQuality));
+            this.dpi = Math.max(0, dpi);
+        }
+    }
+
+    /**
+     * Diseño de las páginas. LIST: un paso debajo del otro, con la descripción completa.
+     * GRID_2X3 / GRID_3X4: hoja de contactos con miniaturas y leyenda corta, para informes largos.
+     */
+    public enum Template {
+        LIST(ReportTemplate.LIST),
+        GRID_2X3(ReportTemplate.GRID_2X3),
+        GRID_3X4(ReportTemplate.GRID_3X4);
+
+        final ReportTemplate layout;
+
+        Template(ReportTemplate layout) {
+            this.layout = layout;
+        }
+    }
+
+    // STREAMING: memoria acotada y fotos a 150 dpi, la mejor opción para los informes sueltos
+    private volatile Backend backend = Backend.STREAMING;
+    private volatile Template template = Template.LIST;
+    private volatile ImageOptions imageOptions = ImageOptions.DEFAULT;
+    private volatile PdfImageStats lastImageStats;
 
     public ReportPDFGenerator(Context context, UserProjectDatabase db) {
         this.context = context;
         this.db = db;
     }
 
+    /**
+     * Elige cómo se escriben los próximos PDF (por defecto STREAMING).
+     */
+    public void setBackend(Backend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Elige el diseño de los próximos PDF (por defecto LIST).
+     */
+    public void setTemplate(Template template) {
+        this.template = template;
+    }
+
+    /**
+     * Calidad y resolución de las fotos en el backend STREAMING (por defecto ImageOptions.DEFAULT).
+     */
+    public void setImageOptions(ImageOptions imageOptions) {
+        this.imageOptions = imageOptions;
+    }
+
+    /**
+     * Bytes de las fotos de la última exportación con STREAMING (null si no hubo ninguna).
+     */
+    PdfImageStats getLastImageStats() {
+        return lastImageStats;
+    }
+
     /**
      * Genera el documento PDF para un informe específico.
+     * Hace consultas, decodifica imágenes y escribe en disco: llamar SIEMPRE desde un hilo
+     * en segundo plano. No muestra mensajes; de eso se encarga quien lo invoca.
      * @param reportId ID del informe a documentar.
+     * @return El archivo generado, o null si el informe no existe.
+     * @throws IOException si no se pudo escribir el PDF.
      */
-    public boolean generate(long reportId) {
+    public File generateFile(long reportId) throws IOException {
+        return generateFile(reportId, null);
+    }
 
-        Cursor reportCursor = db.getReportDetails(reportId);
-        Cursor stepsCursor = db.getStepsForReport(reportId);
+    /**
+     * Igual que {@link #generateFile(long)}, informando el avance por paso y página.
+     * Si el hilo se interrumpe, se abandona la generación sin dejar archivos a medias.
+     * Si el informe no cambió desde la última exportación, devuelve el PDF de {@link PdfCache}.
+     * @param listener Puede ser null.
+     * @throws InterruptedIOException si la exportación fue cancelada.
+     */
+    public File generateFile(long reportId, ProgressListener listener) throws IOException {
 
-        if (reportCursor == null || reportCursor.getCount() == 0) {
-            Toast.makeText(context, "Error: Informe no encontrado.", Toast.LENGTH_LONG).show();
-            if (reportCursor != null) reportCursor.close();
-            return false;
-        }
+        ReportPageRenderer.ReportData report = ReportPageRenderer.load(db, reportId);
 
-        PdfDocument document = new PdfDocument();
-        PdfDocument.PageInfo pageInfo = new PdfDocument.PageInfo.Builder(PAGE_WIDTH, PAGE_HEIGHT, 1).create();
-        PdfDocument.Page page = document.startPage(pageInfo);
-        Canvas canvas = page.getCanvas();
-        Paint paint = new Paint();
-        int y = 50; // Posición inicial vertical
-        int x = MARGIN_X; // Margen izquierdo
-
-        reportCursor.moveToFirst();
-
-        // --- 2. EXTRAER DATOS DEL ENCABEZADO ---
-
-        String title = reportCursor.getString(reportCursor.getColumnIndexOrThrow(UserProjectContract.ComponenteEntry.COLUMN_NAME));
-        String inventoryCode = reportCursor.getString(reportCursor.getColumnIndexOrThrow(UserProjectContract.ComponenteEntry.COLUMN_CODIGO_INVENTARIO));
-        String actionType = reportCursor.getString(reportCursor.getColumnIndexOrThrow(UserProjectContract.InformeEntry.COLUMN_ACTION_TYPE));
-        String technicianName = reportCursor.getString(reportCursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_TECNICO_NOMBRE));
-        String workshopName = reportCursor.getString(reportCursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_TALLER_NOMBRE));
-        String dateLogged = reportCursor.getString(reportCursor.getColumnIndexOrThrow(UserProjectContract.InformeEntry.COLUMN_DATE_LOGGED));
-
-        // --- 3. DIBUJAR ENCABEZADO ---
-
-        paint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
-        paint.setTextSize(24f);
-        canvas.drawText("INFORME DE PROCEDIMIENTO", x, y, paint);
-        y += 40;
-
-        paint.setTextSize(16f);
-        paint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.NORMAL));
-        canvas.drawText("Componente: " + title + " (" + inventoryCode + ")", x, y, paint); y += 20;
-        canvas.drawText("Acción: " + actionType, x, y, paint); y += 20;
-        canvas.drawText("Técnico Responsable: " + technicianName + " (" + workshopName + ")", x, y, paint); y += 20;
-        canvas.drawText("Fecha: " + dateLogged.substring(0, 10), x, y, paint);
-        y += 40;
-
-        // --- 4. SECCIÓN DE PASOS FOTOGRÁFICOS ---
-
-        paint.setTextSize(20f);
-        paint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
-        canvas.drawText("SECUENCIA DE PASOS", x, y, paint); y += 30;
-
-        if (stepsCursor != null && stepsCursor.moveToFirst()) {
-            int stepNumberIndex = stepsCursor.getColumnIndexOrThrow(UserProjectContract.InformeEntry.COLUMN_STEP_NUMBER);
-            int descriptionIndex = stepsCursor.getColumnIndexOrThrow(UserProjectContract.InformeEntry.COLUMN_DESCRIPTION);
-            int photoUriIndex = stepsCursor.getColumnIndexOrThrow(UserProjectContract.InformeEntry.COLUMN_PHOTO_URI);
-
-            do {
-                // Verificar si necesitamos una nueva página antes de dibujar el paso
-                // Consideramos espacio para texto y posible imagen
-                if (y > PAGE_HEIGHT - (IMAGE_MAX_HEIGHT + 100)) {
-                    document.finishPage(page);
-                    page = document.startPage(pageInfo);
-                    canvas = page.getCanvas();
-                    y = 50; // Reiniciar Y
-                }
-
-                int stepNum = stepsCursor.getInt(stepNumberIndex);
-                String desc = stepsCursor.getString(descriptionIndex);
-                String uriPath = stepsCursor.getString(photoUriIndex);
-
-                // Título del Paso
-                paint.setTextSize(14f);
-                paint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD_ITALIC));
-                canvas.drawText(String.format(Locale.getDefault(), "PASO %d:", stepNum), x, y, paint); y += 18;
-
-                // Descripción
-                paint.setTextSize(12f);
-                paint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.NORMAL));
-                canvas.drawText("Descripción: " + (TextUtils.isEmpty(desc) ? "Sin descripción registrada" : desc), x, y, paint); y += 15;
-
-                // 🚨 AÑADIR IMAGEN
-                if (!TextUtils.isEmpty(uriPath)) {
-                    try {
-                        Uri imageUri = Uri.parse(uriPath);
-                        InputStream imageStream = context.getContentResolver().openInputStream(imageUri);
-                        Bitmap originalBitmap = BitmapFactory.decodeStream(imageStream);
-                        if (imageStream != null) imageStream.close();
-
-                        if (originalBitmap != null) {
-                            // Escalar el bitmap para que quepa en el PDF
-                            Bitmap scaledBitmap = getScaledBitmap(originalBitmap, IMAGE_MAX_WIDTH, IMAGE_MAX_HEIGHT);
-
-                            // Verificar espacio nuevamente si la imagen es grande
-                            if (y + scaledBitmap.getHeight() + 30 > PAGE_HEIGHT) {
-                                document.finishPage(page);
-                                page = document.startPage(pageInfo);
-                                canvas = page.getCanvas();
-                                y = 50; // Reiniciar Y
-                            }
-
-                            canvas.drawBitmap(scaledBitmap, x, y, paint);
-                            y += scaledBitmap.getHeight() + 10; // Espacio después de la imagen
-                            scaledBitmap.recycle(); // Liberar memoria del bitmap escalado
-                            originalBitmap.recycle(); // Liberar memoria del bitmap original
-                        } else {
-                            canvas.drawText("Error al cargar imagen (Bitmap nulo).", x, y, paint); y += 15;
-                        }
-                    } catch (IOException | SecurityException e) {
-                        Log.e(TAG, "Error al cargar o dibujar la imagen para el paso " + stepNum + ": " + e.getMessage(), e);
-                        canvas.drawText("No se pudo cargar la imagen. Revise permisos: " + e.getMessage(), x, y, paint); y += 15;
-                    }
-                } else {
-                    canvas.drawText("Foto Adjunta: No", x, y, paint); y += 15; // Si no hay foto
-                }
-
-                y += 20; // Espacio entre pasos
-            } while (stepsCursor.moveToNext());
-        } else {
-            paint.setTextSize(12f);
-            canvas.drawText("No se registraron pasos para este informe.", x, y, paint);
+        if (report == null) {
+            Log.w(TAG, "Informe no encontrado: " + reportId);
+            return null;
         }
 
-        // --- 5. FINALIZAR Y GUARDAR EN DESCARGAS PÚBLICAS ---
+        final int totalSteps = report.steps.size();
+
+        // Si el informe no cambió desde la última exportación, se reutiliza ese PDF
+        PdfCache cache = PdfCache.getInstance(context);
+        Backend backend = this.backend;
+        ImageOptions images = imageOptions;
+        Template template = this.template;
+        // Cada plantilla, backend y calidad de fotos guarda su propia versión del informe
+        // (put solo reemplaza la de la misma variante)
+        String cacheKey = cache.keyFor(report) + (template != Template.LIST ? "_" + template.name() : "")
+                + (backend == Backend.STREAMING ? "_s" + images.jpegQuality + "_" + images.dpi : "");
+        File target = new File(getOutputDir(), fileNameFor(report));
+        if (cache.restore(reportId, cacheKey, target)) {
+            if (listener != null) {
+                listener.onProgress(totalSteps, totalSteps, 0);
+            }
+            return target;
+        }
 
-        document.finishPage(page);
+        try {
+            int pages = writePdf(report, target, template, backend, images, listener);
+            cache.put(reportId, cacheKey, target);
+            if (listener != null) {
+                listener.onProgress(totalSteps, totalSteps, pages);
+            }
+            return target;
+        } catch (IOException e) {
+            Log.e(TAG, "Error al guardar PDF: " + e.getMessage());
+            if (target.exists() && !target.delete()) {
+                Log.w(TAG, "No se pudo borrar el PDF incompleto: " + target);
+            }
+            throw e;
+        }
+    }
 
-        // Directorio de almacenamiento PÚBLICO: carpeta 'Download'.
-        // NOTA IMPORTANTE: Para usar esta ruta, la app debe tener el permiso WRITE_EXTERNAL_STORAGE
-        // declarado en el Manifest y solicitado en tiempo de ejecución.
-        // Además, el FileProvider debe configurarse con <external-storage-path>.
-        File downloadsDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
-        if (!downloadsDir.exists()) {
-            downloadsDir.mkdirs(); // Crear el directorio si no existe
+    /**
+     * Mide y dibuja un informe ya leído en el archivo indicado (sin pasar por la caché).
+     * @param imageOptions Solo se usa con Backend.STREAMING.
+     * @param listener Puede ser null.
+     * @return Páginas escritas.
+     * @throws InterruptedIOException si la exportación fue cancelada.
+     */
+    int writePdf(ReportPageRenderer.ReportData report, File file, Template template, Backend backend,
+                 ImageOptions imageOptions, ProgressListener listener) throws IOException {
+        ReportTemplate layoutTemplate = template.layout;
+        final int totalSteps = report.steps.size();
+
+        // Paso de medición: solo las cabeceras de las fotos (sin píxeles) y el corte de líneas
+        List<ReportPageRenderer.StepImage> sizes = new ArrayList<>(totalSteps);
+        for (ReportPageRenderer.StepRow step : report.steps) {
+            ReportPageRenderer.checkCancelled();
+            sizes.add(ReportPageRenderer.measureImage(context, step.photoUri,
+                    layoutTemplate.getImageMaxWidth(), layoutTemplate.getImageMaxHeight()));
         }
+        ReportLayout.Styles styles = new ReportLayout.Styles();
+        ReportLayout layout = layoutTemplate.measure(report, sizes, styles);
 
-        String fileName = String.format(Locale.getDefault(), "INFORME_%s_%s.pdf", inventoryCode, actionType);
-        File file = new File(downloadsDir, fileName);
+        ReportPageRenderer.StepListener progress = (index, pagesDone) -> {
+            if (listener != null) {
+                listener.onProgress(index + 1, totalSteps, pagesDone);
+            }
+        };
+
+        if (backend == Backend.STREAMING) {
+            // Cada página se escribe al archivo apenas se termina
+            try (StreamingPdfWriter writer = new StreamingPdfWriter(context, file, styles, imageOptions)) {
+                writer.drawReport(report, layout, progress);
+                ReportPageRenderer.checkCancelled();
+                writer.finish();
+                lastImageStats = writer.getImageStats();
+                Log.i(TAG, "Informe " + report.id + ": " + writer.getImageStats().summary());
+                return writer.getPageCount();
+            }
+        }
 
+        PdfDocument document = new PdfDocument();
         try {
-            FileOutputStream fos = new FileOutputStream(file);
-            document.writeTo(fos);
-            document.close();
-            fos.close();
+            // Paso de dibujo: cada foto se decodifica al llegar a su paso. Sin BitmapPool:
+            // PdfDocument guarda las páginas como SkPicture que apuntan a los píxeles del bitmap
+            // hasta writeTo, así que reutilizarlo pisaría las fotos ya dibujadas
+            ReportPageRenderer renderer = new ReportPageRenderer(document, styles);
+            renderer.drawReport(layout,
+                    index -> ReportPageRenderer.prepareImage(context, report.steps.get(index).photoUri,
+                            layoutTemplate.getImageMaxWidth(), layoutTemplate.getImageMaxHeight(), null),
+                    progress);
 
-            openPdfFile(file);
+            // --- FINALIZAR Y GUARDAR EN DESCARGAS PÚBLICAS ---
 
-            Toast.makeText(context, "PDF guardado en: " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
-            return true;
-        } catch (IOException e) {
-            Log.e(TAG, "Error al guardar PDF: " + e.getMessage());
-            Toast.makeText(context, "Error al guardar el PDF.", Toast.LENGTH_LONG).show();
-            return false;
+            renderer.finish();
+            ReportPageRenderer.checkCancelled();
+
+            FileOutputStream fos = new FileOutputStream(file);
+            try {
+                document.writeTo(fos);
+            } finally {
+                fos.close();
+            }
+            return renderer.getPageCount();
         } finally {
-            reportCursor.close();
-            if (stepsCursor != null) stepsCursor.close();
+            document.close();
         }
     }
 
     /**
-     * Escala un Bitmap para que quepa dentro de las dimensiones máximas especificadas,
-     * manteniendo la relación de aspecto.
+     * Directorio de almacenamiento PÚBLICO: carpeta 'Download'.
+     * NOTA IMPORTANTE: Para usar esta ruta, la app debe tener el permiso WRITE_EXTERNAL_STORAGE
+     * declarado en el Manifest y solicitado en tiempo de ejecución.
+     * Además, el FileProvider debe configurarse con <external-storage-path>.
      */
-    private Bitmap getScaledBitmap(Bitmap bitmap, int maxWidth, int maxHeight) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
-
-        float scale = Math.min((float) maxWidth / width, (float) maxHeight / height);
-
-        Matrix matrix = new Matrix();
-        matrix.postScale(scale, scale);
+    static File getOutputDir() {
+        File downloadsDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
+        if (!downloadsDir.exists()) {
+            downloadsDir.mkdirs(); // Crear el directorio si no existe
+        }
+        return downloadsDir;
+    }
 
-        return Bitmap.createBitmap(bitmap, 0, 0, width, height, matrix, true);
+    /**
+     * Nombre del PDF de un informe (también se usa para las entradas del ZIP por lotes).
+     */
+    static String fileNameFor(ReportPageRenderer.ReportData report) {
+        return String.format(Locale.getDefault(), "INFORME_%s_%s_%d.pdf", report.inventoryCode, report.actionType, report.id);
     }
 
     /**
      * Lanza un Intent para que el usuario pueda ver o compartir el archivo PDF recién creado.
+     * Debe llamarse desde el hilo principal.
      */
-    private void openPdfFile(File file) {
+    public void openPdfFile(File file) {
         if (!file.exists()) {
             Toast.makeText(context, "El archivo PDF no se encuentra.", Toast.LENGTH_SHORT).show();
             return;
@@ -0,0 +1,384 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.pdf.PdfDocument;
+import android.net.Uri;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
+import com.miempresa.bivlotectatecnica.bd.UserProjectDatabase;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Paso de dibujo de los informes sobre un PdfDocument, y lectura de sus datos y fotos.
+ * Lo usan tanto ReportPDFGenerator (un informe) como BatchPdfExporter (varios informes).
+ * La paginación ya viene decidida por ReportLayout (paso de medición, según la plantilla):
+ * aquí cada página se dibuja una sola vez, fragmento por fragmento, en la caja medida.
+ */
+final class ReportPageRenderer {
+
+    private static final String TAG = "ReportPageRenderer";
+
+    // Dimensiones del PDF (A4)
+    static final int PAGE_WIDTH = 595;
+    static final int PAGE_HEIGHT = 842;
+    static final int MARGIN_X = 40; // Margen izquierdo/derecho
+    static final int IMAGE_MAX_WIDTH = PAGE_WIDTH - (2 * MARGIN_X); // Ancho máximo de la imagen
+    static final int IMAGE_MAX_HEIGHT = 200; // Altura máxima para las imágenes
+    static final long IMAGE_POOL_BYTES = 8L * 1024 * 1024; // Bitmaps libres que retiene una exportación (BitmapPool)
+
+    // Índice del PDF combinado: una entrada por línea, a distancia fija
+    private static final int TOP_Y = 50; // Línea base del título del índice
+    private static final int TOC_FIRST_LINE_Y = TOP_Y + 40;
+    private static final int TOC_LINE_HEIGHT = 18;
+    private static final int TOC_LINES_PER_PAGE = (PAGE_HEIGHT - TOC_FIRST_LINE_Y - TOP_Y) / TOC_LINE_HEIGHT;
+
+    /**
+     * Encabezado y pasos de un informe, ya leídos de la base (sin cursores abiertos).
+     */
+    static final class ReportData {
+        final long id;
+        final String componentName;
+        final String inventoryCode;
+        final String actionType;
+        final String technicianName;
+        final String workshopName;
+        final String dateCreated;
+        final List<StepRow> steps;
+
+        ReportData(long id, String componentName, String inventoryCode, String actionType,
+                   String technicianName, String workshopName, String dateCreated, List<StepRow> steps) {
+            this.id = id;
+            this.componentName = componentName;
+            this.inventoryCode = inventoryCode;
+            this.actionType = actionType;
+            this.technicianName = technicianName;
+            this.workshopName = workshopName;
+            this.dateCreated = dateCreated;
+            this.steps = steps;
+        }
+    }
+
+    static final class StepRow {
+        final int stepNumber;
+        final String description;
+        final String photoUri;
+
+        StepRow(int stepNumber, String description, String photoUri) {
+            this.stepNumber = stepNumber;
+            this.description = description;
+            this.photoUri = photoUri;
+        }
+    }
+
+    /**
+     * Foto de un paso lista para dibujar: el bitmap (o solo su alto, al medir)
+     * o el mensaje a mostrar si no se pudo cargar.
+     */
+    static final class StepImage {
+        static final StepImage NONE = new StepImage(null, 0, null);
+
+        final Bitmap bitmap;
+        final int height;
+        final String error;
+        private final BitmapPool pool; // De donde salió el bitmap (null = no se reutiliza)
+
+        StepImage(Bitmap bitmap, int height, String error) {
+            this(bitmap, height, error, null);
+        }
+
+        StepImage(Bitmap bitmap, int height, String error, BitmapPool pool) {
+            this.bitmap = bitmap;
+            this.height = height;
+            this.error = error;
+            this.pool = pool;
+        }
+
+        /**
+         * Libera el bitmap: lo devuelve a su pool o, si no tiene, lo recicla.
+         */
+        void release() {
+            if (bitmap == null) return;
+            if (pool != null) {
+                pool.put(bitmap);
+            } else {
+                bitmap.recycle();
+            }
+        }
+    }
+
+    private final PdfDocument document;
+    private final ReportLayout.Styles styles;
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect imageBounds = new Rect();
+    private PdfDocument.Page page;
+    private Canvas canvas;
+    private int pageCount;
+
+    /**
+     * @param styles Los mismos estilos con los que se midieron los informes (ReportLayout).
+     */
+    ReportPageRenderer(PdfDocument document, ReportLayout.Styles styles) {
+        this.document = document;
+        this.styles = styles;
+    }
+
+    /** Páginas iniciadas hasta ahora (incluida la actual). */
+    int getPageCount() {
+        return pageCount;
+    }
+
+    // -------------------------------------------------------------------
+    // LECTURA Y PREPARACIÓN
+    // -------------------------------------------------------------------
+
+    /**
+     * Lee el encabezado y los pasos de un informe.
+     * @return Los datos, o null si el informe no existe.
+     */
+    static ReportData load(UserProjectDatabase db, long reportId) {
+        Cursor reportCursor = db.getReportDetails(reportId);
+        if (reportCursor == null) return null;
+        try {
+            if (!reportCursor.moveToFirst()) return null;
+
+            List<StepRow> steps = new ArrayList<>();
+            Cursor stepsCursor = db.getStepsForReport(reportId);
+            if (stepsCursor != null) {
+                try {
+                    int stepNumberIndex = stepsCursor.getColumnIndexOrThrow(UserProjectContract.InformeEntry.COLUMN_STEP_NUMBER);
+                    int descriptionIndex = stepsCursor.getColumnIndexOrThrow(UserProjectContract.InformeEntry.COLUMN_DESCRIPTION);
+                    int photoUriIndex = stepsCursor.getColumnIndexOrThrow(UserProjectContract.InformeEntry.COLUMN_PHOTO_URI);
+                    while (stepsCursor.moveToNext()) {
+                        steps.add(new StepRow(stepsCursor.getInt(stepNumberIndex),
+                                stepsCursor.getString(descriptionIndex), stepsCursor.getString(photoUriIndex)));
+                    }
+                } finally {
+                    stepsCursor.close();
+                }
+            }
+
+            return new ReportData(reportId,
+                    reportCursor.getString(reportCursor.getColumnIndexOrThrow(UserProjectContract.ComponenteEntry.COLUMN_NAME)),
+                    reportCursor.getString(reportCursor.getColumnIndexOrThrow(UserProjectContract.ComponenteEntry.COLUMN_CODIGO_INVENTARIO)),
+                    reportCursor.getString(reportCursor.getColumnIndexOrThrow(UserProjectContract.ReporteEntry.COLUMN_ACTION_TYPE)),
+                    reportCursor.getString(reportCursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_TECNICO_NOMBRE)),
+                    reportCursor.getString(reportCursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_TALLER_NOMBRE)),
+                    reportCursor.getString(reportCursor.getColumnIndexOrThrow(UserProjectContract.ReporteEntry.COLUMN_DATE_CREATED)),
+                    Collections.unmodifiableList(steps));
+        } finally {
+            reportCursor.close();
+        }
+    }
+
+    /**
+     * Decodifica la foto de un paso al tamaño en que se dibuja. Seguro de llamar desde
+     * varios hilos a la vez.
+     * @param maxWidth Caja de la plantilla (ReportTemplate.getImageMaxWidth/Height).
+     * @param pool De donde se toman los bitmaps y adonde vuelven con release(); puede ser null
+     *             (y debe serlo si la foto se dibuja en un PdfDocument, ver BitmapPool).
+     */
+    static StepImage prepareImage(Context context, String photoUri, int maxWidth, int maxHeight, BitmapPool pool) {
+        if (!UserProjectContract.hasPhoto(photoUri)) return StepImage.NONE;
+        try {
+            // Decodificación submuestreada, ya escalada y orientada (RGB_565: sin alfa)
+            Bitmap bitmap = BitmapLoader.decodeScaled(context, Uri.parse(photoUri), maxWidth, maxHeight, true, pool);
+            if (bitmap == null) {
+                return new StepImage(null, 0, "Error al cargar imagen (Bitmap nulo).");
+            }
+            return new StepImage(bitmap, bitmap.getHeight(), null, pool);
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "Error al cargar la imagen " + photoUri + ": " + e.getMessage(), e);
+            return new StepImage(null, 0, "No se pudo cargar la imagen. Revise permisos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Igual que {@link #prepareImage} pero sin píxeles: solo el alto con el que se dibujará.
+     */
+    static StepImage measureImage(Context context, String photoUri, int maxWidth, int maxHeight) {
+        if (!UserProjectContract.hasPhoto(photoUri)) return StepImage.NONE;
+        try {
+            int[] size = BitmapLoader.measureScaled(context, Uri.parse(photoUri), maxWidth, maxHeight);
+            if (size == null) {
+                return new StepImage(null, 0, "Error al cargar imagen (Bitmap nulo).");
+            }
+            return new StepImage(null, size[1], null);
+        } catch (IOException | SecurityException e) {
+            return new StepImage(null, 0, "No se pudo cargar la imagen. Revise permisos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Corta el trabajo si el hilo fue interrumpido (exportación cancelada).
+     */
+    static void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Exportación cancelada");
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // DIBUJO
+    // -------------------------------------------------------------------
+
+    /**
+     * Entrega la foto de cada paso al dibujarlo, en orden (una llamada por paso).
+     * El renderer la libera con release() después de dibujarla.
+     */
+    interface ImageSource {
+        StepImage imageFor(int stepIndex) throws IOException;
+    }
+
+    /**
+     * Avance del dibujo: se invoca al terminar cada paso.
+     */
+    interface StepListener {
+        void onStepDrawn(int stepIndex, int pagesDone);
+    }
+
+    /**
+     * Páginas que ocupa un índice de tantas entradas.
+     */
+    static int tocPageCount(int entries) {
+        return Math.max(1, (entries + TOC_LINES_PER_PAGE - 1) / TOC_LINES_PER_PAGE);
+    }
+
+    /**
+     * Dibuja el índice del PDF combinado (en páginas propias). Cada entrada ocupa una línea:
+     * si no entra antes del número de página se acorta con "…".
+     * @param startPages Página (1-based) donde empieza cada informe.
+     */
+    void drawTableOfContents(List<ReportData> reports, int[] startPages) {
+        TextPaint entryPaint = styles.body;
+        float pageColumn = entryPaint.measureText("pág. 00000");
+        float entryWidth = ReportLayout.CONTENT_WIDTH - pageColumn;
+        int y = 0;
+        for (int i = 0; i < reports.size(); i++) {
+            if (i % TOC_LINES_PER_PAGE == 0) {
+                newPage();
+                canvas.drawText(i == 0 ? "ÍNDICE DE INFORMES" : "ÍNDICE (cont.)", MARGIN_X, TOP_Y, styles.title);
+                y = TOC_FIRST_LINE_Y;
+            }
+            ReportData r = reports.get(i);
+            String entry = String.format(Locale.getDefault(), "#%d  %s (%s) - %s - %s",
+                    r.id, r.componentName, r.inventoryCode, r.actionType, shortDate(r.dateCreated));
+            CharSequence fitted = TextUtils.ellipsize(entry, entryPaint, entryWidth, TextUtils.TruncateAt.END);
+            canvas.drawText(fitted, 0, fitted.length(), MARGIN_X, y, entryPaint);
+            entryPaint.setTextAlign(Paint.Align.RIGHT);
+            canvas.drawText("pág. " + startPages[i], PAGE_WIDTH - MARGIN_X, y, entryPaint);
+            entryPaint.setTextAlign(Paint.Align.LEFT);
+            y += TOC_LINE_HEIGHT;
+        }
+    }
+
+    /**
+     * Dibuja un informe ya medido, página por página, a partir de una página nueva.
+     * Las fotos se piden a images en orden de paso y se liberan apenas se dibujan.
+     * @param listener Puede ser null.
+     * @return Número de página (1-based) donde empieza.
+     * @throws InterruptedIOException si la exportación fue cancelada.
+     */
+    int drawReport(ReportLayout layout, ImageSource images, StepListener listener) throws IOException {
+        int firstPage = pageCount + 1;
+        int step = -1;
+        StepImage image = StepImage.NONE;
+        try {
+            for (int p = 0; p < layout.getPageCount(); p++) {
+                newPage();
+                for (ReportLayout.Fragment fragment : layout.getPage(p)) {
+                    if (fragment.stepIndex != step) {
+                        // Empieza otro paso: se libera la foto del anterior
+                        image.release();
+                        image = StepImage.NONE;
+                        if (step >= 0 && listener != null) listener.onStepDrawn(step, pageCount);
+                        step = fragment.stepIndex;
+                        if (step >= 0) {
+                            checkCancelled();
+                            image = images.imageFor(step);
+                        }
+                    }
+                    if (fragment.isImage()) {
+                        drawImage(fragment, image);
+                    } else {
+                        drawText(fragment);
+                    }
+                }
+            }
+        } finally {
+            image.release();
+        }
+        if (step >= 0 && listener != null) listener.onStepDrawn(step, pageCount);
+        return firstPage;
+    }
+
+    /**
+     * Cierra la página en curso. Llamar una vez, antes de escribir el documento.
+     */
+    void finish() {
+        if (page != null) {
+            document.finishPage(page);
+            page = null;
+            canvas = null;
+        }
+    }
+
+    private void newPage() {
+        if (page != null) {
+            document.finishPage(page);
+        }
+        pageCount++;
+        PdfDocument.PageInfo pageInfo = new PdfDocument.PageInfo.Builder(PAGE_WIDTH, PAGE_HEIGHT, pageCount).create();
+        page = document.startPage(pageInfo);
+        canvas = page.getCanvas();
+    }
+
+    /**
+     * Dibuja las líneas [firstLine, endLine) del texto. El recorte limita StaticLayout.draw
+     * a esas líneas; el resto del texto se dibuja en otra página.
+     */
+    private void drawText(ReportLayout.Fragment fragment) {
+        canvas.save();
+        canvas.clipRect(0, fragment.top, PAGE_WIDTH, fragment.bottom());
+        canvas.translate(fragment.left, fragment.top - fragment.text.getLineTop(fragment.firstLine));
+        fragment.text.draw(canvas);
+        canvas.restore();
+    }
+
+    /**
+     * Dibuja la foto en la caja reservada al medir. Si el bitmap no coincide con esa caja
+     * se escala para que entre (nunca invade el fragmento siguiente).
+     */
+    private void drawImage(ReportLayout.Fragment fragment, StepImage image) {
+        if (image.bitmap != null) {
+            Bitmap bitmap = image.bitmap;
+            float scale = Math.min(1f, Math.min((float) fragment.height / bitmap.getHeight(),
+                    (float) fragment.width / bitmap.getWidth()));
+            imageBounds.set(fragment.left, fragment.top, fragment.left + Math.round(bitmap.getWidth() * scale),
+                    fragment.top + Math.round(bitmap.getHeight() * scale));
+            canvas.drawBitmap(bitmap, null, imageBounds, bitmapPaint);
+        } else if (image.error != null) {
+            // La foto dejó de poder leerse entre la medición y el dibujo
+            TextPaint paint = styles.body;
+            CharSequence fitted = TextUtils.ellipsize(image.error, paint, fragment.width, TextUtils.TruncateAt.END);
+            canvas.drawText(fitted, 0, fitted.length(), fragment.left, fragment.top - paint.ascent(), paint);
+        }
+    }
+
+    static String shortDate(String date) {
+        return date != null && date.length() >= 10 ? date.substring(0, 10) : String.valueOf(date);
+    }
+}
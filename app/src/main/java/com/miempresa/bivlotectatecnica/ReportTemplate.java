@@ -0,0 +1,37 @@
+package com.miempresa.bivlotectatecnica;
+
+import java.util.List;
+
+/**
+ * Plantilla de página del PDF de un informe: decide cómo se reparten los pasos en las
+ * páginas (ReportLayout) y a qué tamaño se decodifican sus fotos. Los dos backends de
+ * dibujo (ReportPageRenderer y StreamingPdfWriter) sirven para cualquier plantilla.
+ */
+interface ReportTemplate {
+
+    /** Un paso debajo del otro, con la descripción completa y la foto grande. */
+    ReportTemplate LIST = new ListTemplate();
+
+    /** Hoja de contactos: 2 columnas x 3 filas de miniaturas por página, con leyenda. */
+    ReportTemplate GRID_2X3 = new GridTemplate(2, 3);
+
+    /** Hoja de contactos: 3 columnas x 4 filas de miniaturas por página, con leyenda. */
+    ReportTemplate GRID_3X4 = new GridTemplate(3, 4);
+
+    /**
+     * Caja en la que se decodifica (y mide) cada foto, en puntos: el tamaño máximo con el
+     * que la dibuja esta plantilla.
+     */
+    int getImageMaxWidth();
+
+    int getImageMaxHeight();
+
+    /**
+     * Reparte un informe en páginas.
+     * @param images Una entrada por paso, medida con getImageMaxWidth/Height (de
+     *               ReportPageRenderer.measureImage o prepareImage): solo se usan su alto
+     *               y su mensaje de error.
+     */
+    ReportLayout measure(ReportPageRenderer.ReportData report, List<ReportPageRenderer.StepImage> images,
+                         ReportLayout.Styles styles);
+}
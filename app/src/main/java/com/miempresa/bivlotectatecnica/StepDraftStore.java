@@ -0,0 +1,193 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.miempresa.bivlotectatecnica.bd.AsyncUserProjectDatabase;
+import com.miempresa.bivlotectatecnica.bd.UserProjectDatabase;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Autoguardado del informe en curso de StepRegisterActivity (tablas borradores / borrador_pasos).
+ *
+ * La UI avisa de cada cambio (encabezado o paso) en el hilo principal; los cambios se
+ * acumulan y se escriben juntos, en una sola transacción, cuando pasan DEBOUNCE_MS sin
+ * cambios nuevos (o antes, con flush()). Todas las operaciones van al hilo escritor de
+ * AsyncUserProjectDatabase, así se aplican en el orden en que se pidieron: una lectura del
+ * borrador o su finalización siempre ven los cambios anteriores.
+ */
+final class StepDraftStore {
+
+    private static final String TAG = "StepDraftStore";
+
+    static final long DEBOUNCE_MS = 750;
+
+    private final AsyncUserProjectDatabase db;
+    private final PdfCache pdfCache;
+    private final long userId;
+    private final long reportId;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+
+    // Solo se lee y escribe en el hilo escritor
+    private volatile long draftId = -1;
+
+    // Estado pendiente (hilo principal)
+    private final Map<Integer, UserProjectDatabase.Step> dirtySteps = new LinkedHashMap<>();
+    private boolean headerDirty;
+    private boolean replaceSteps; // dirtySteps es la lista completa
+    private String componentName;
+    private String inventoryCode;
+    private String actionType;
+    private boolean discarded; // Tras discard() no se vuelve a guardar nada (p. ej. una foto que termina de procesarse)
+
+    /**
+     * @param reportId Informe al que se agregan pasos, o -1 para un informe nuevo.
+     */
+    StepDraftStore(Context context, AsyncUserProjectDatabase db, long userId, long reportId) {
+        this.db = db;
+        this.pdfCache = PdfCache.getInstance(context);
+        this.userId = userId;
+        this.reportId = reportId;
+    }
+
+    /**
+     * Lee el borrador guardado (null si no hay). Se ejecuta en el hilo escritor para ver
+     * los cambios que otra instancia de la Activity dejó en cola antes de recrearse.
+     */
+    void load(AsyncUserProjectDatabase.Callback<UserProjectDatabase.Draft> callback) {
+        db.write(dao -> {
+            UserProjectDatabase.Draft draft = dao.getDraft(userId, reportId);
+            if (draft != null) draftId = draft.id;
+            return draft;
+        }, new AsyncUserProjectDatabase.Callback<UserProjectDatabase.Draft>() {
+            @Override
+            public void onResult(UserProjectDatabase.Draft draft) {
+                if (draft != null) {
+                    // Los próximos guardados parten del encabezado recuperado
+                    componentName = draft.componentName;
+                    inventoryCode = draft.inventoryCode;
+                    actionType = draft.actionType;
+                }
+                callback.onResult(draft);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Registra el encabezado actual (componente, código y acción).
+     */
+    void setHeader(String componentName, String inventoryCode, String actionType) {
+        this.componentName = componentName;
+        this.inventoryCode = inventoryCode;
+        this.actionType = actionType;
+        headerDirty = true;
+        schedule();
+    }
+
+    /**
+     * Registra el contenido actual de un paso; reemplaza cualquier cambio pendiente del mismo paso.
+     */
+    void setStep(int stepNumber, String description, String photoUri) {
+        dirtySteps.put(stepNumber, new UserProjectDatabase.Step(stepNumber, description, photoUri));
+        schedule();
+    }
+
+    /**
+     * Registra la lista completa de pasos (tras borrar o reordenar): los que no estén se descartan.
+     */
+    void setAllSteps(List<UserProjectDatabase.Step> steps) {
+        dirtySteps.clear();
+        for (UserProjectDatabase.Step step : steps) {
+            dirtySteps.put(step.stepNumber, step);
+        }
+        replaceSteps = true;
+        schedule();
+    }
+
+    /**
+     * Escribe ya los cambios pendientes (p. ej. en onPause o antes de abrir la cámara).
+     */
+    void flush() {
+        main.removeCallbacks(flushRunnable);
+        if (discarded) return;
+        if (!headerDirty && !replaceSteps && dirtySteps.isEmpty()) return;
+
+        final List<UserProjectDatabase.Step> steps = new ArrayList<>(dirtySteps.values());
+        final String name = componentName;
+        final String code = inventoryCode;
+        final String action = actionType;
+        final boolean replaceAll = replaceSteps;
+        dirtySteps.clear();
+        headerDirty = false;
+        replaceSteps = false;
+
+        db.write(dao -> {
+            if (draftId == -1) {
+                draftId = dao.getOrCreateDraft(userId, reportId);
+                if (draftId == -1) return false;
+            }
+            return dao.saveDraft(draftId, name, code, action, steps, replaceAll);
+        }, new AsyncUserProjectDatabase.Callback<Boolean>() {
+            @Override
+            public void onResult(Boolean saved) {
+                if (!saved) Log.w(TAG, "No se pudo autoguardar el borrador (" + steps.size() + " pasos)");
+            }
+        });
+    }
+
+    /**
+     * Escribe los cambios pendientes y convierte el borrador en informe, en una transacción.
+     * El callback recibe el ID del informe, o -1 si no se guardó nada.
+     */
+    void promote(long workshopId, AsyncUserProjectDatabase.Callback<Long> callback) {
+        flush();
+        db.write(dao -> {
+            if (draftId == -1) return -1L;
+            long savedId = dao.promoteDraft(draftId, workshopId);
+            if (savedId != -1) {
+                draftId = -1;
+                pdfCache.invalidate(savedId); // El PDF guardado ya no refleja los pasos
+            }
+            return savedId;
+        }, callback);
+    }
+
+    /**
+     * Descarta los cambios pendientes y borra el borrador guardado (el usuario abandona el
+     * informe). Va al hilo escritor, así se aplica después de cualquier guardado ya en cola.
+     */
+    void discard(AsyncUserProjectDatabase.Callback<Void> callback) {
+        discarded = true;
+        main.removeCallbacks(flushRunnable);
+        dirtySteps.clear();
+        headerDirty = false;
+        replaceSteps = false;
+        db.write(dao -> {
+            long id = draftId;
+            if (id == -1) {
+                UserProjectDatabase.Draft draft = dao.getDraft(userId, reportId);
+                if (draft != null) id = draft.id;
+            }
+            if (id != -1) dao.deleteDraft(id);
+            draftId = -1;
+            return null;
+        }, callback);
+    }
+
+    private void schedule() {
+        main.removeCallbacks(flushRunnable);
+        main.postDelayed(flushRunnable, DEBOUNCE_MS);
+    }
+}
@@ -0,0 +1,273 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Adaptador del editor de pasos de StepRegisterActivity: un encabezado fijo (datos del informe),
+ * una fila list_item_step por paso y un pie fijo (botones). Solo existen las filas visibles
+ * (más la caché de RecyclerView), así que el costo no crece con el número de pasos.
+ *
+ * El modelo es una lista de StepItem; cada cambio (alta, borrado, reordenado, foto) se publica
+ * con submitList() y DiffUtil calcula las notificaciones mínimas.
+ */
+final class StepEditorAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    static final int TYPE_HEADER = 0;
+    static final int TYPE_STEP = 1;
+    static final int TYPE_FOOTER = 2;
+
+    /**
+     * Acciones de las filas, recibidas en el hilo principal.
+     */
+    interface Listener {
+        void onSelectPhoto(StepItem item);
+
+        void onDescriptionChanged(StepItem item);
+    }
+
+    /**
+     * Un paso del editor, sin referencias a vistas. Inmutable salvo la descripción, que la
+     * edita su fila directamente (no participa en el diff, así escribir no vuelve a enlazar la fila).
+     */
+    static final class StepItem {
+        final long id; // Identidad estable para DiffUtil (el número de paso cambia al reordenar)
+        final int stepNumber;
+        final String photoUri; // URI de la foto (copia normalizada en getFilesDir()/photos)
+        final boolean ingesting; // La foto se está procesando en segundo plano
+        final boolean saved; // Paso ya guardado en el informe: solo lectura
+        String description;
+
+        StepItem(long id, int stepNumber, String description, String photoUri, boolean ingesting, boolean saved) {
+            this.id = id;
+            this.stepNumber = stepNumber;
+            this.description = description;
+            this.photoUri = photoUri;
+            this.ingesting = ingesting;
+            this.saved = saved;
+        }
+
+        StepItem withPhoto(String photoUri, boolean ingesting) {
+            return new StepItem(id, stepNumber, description, photoUri, ingesting, saved);
+        }
+
+        StepItem withNumber(int stepNumber) {
+            return new StepItem(id, stepNumber, description, photoUri, ingesting, saved);
+        }
+
+        boolean hasPhoto() {
+            return UserProjectContract.hasPhoto(photoUri);
+        }
+    }
+
+    private final View header;
+    private final View footer;
+    private final ImageLoader imageLoader;
+    private final Listener listener;
+    private List<StepItem> items = Collections.emptyList();
+
+    StepEditorAdapter(View header, View footer, ImageLoader imageLoader, Listener listener) {
+        this.header = header;
+        this.footer = footer;
+        this.imageLoader = imageLoader;
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Publica una nueva lista de pasos. La lista se copia; los StepItem se comparten.
+     */
+    void submitList(List<StepItem> newItems) {
+        final List<StepItem> oldItems = items;
+        final List<StepItem> copy = new ArrayList<>(newItems);
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return copy.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return oldItems.get(oldPosition).id == copy.get(newPosition).id;
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                StepItem a = oldItems.get(oldPosition);
+                StepItem b = copy.get(newPosition);
+                return a.stepNumber == b.stepNumber && a.ingesting == b.ingesting && a.saved == b.saved
+                        && TextUtils.equals(a.photoUri, b.photoUri);
+            }
+        });
+        items = copy;
+
+        // Las posiciones del diff son de la lista de pasos: se desplazan por el encabezado
+        diff.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                notifyItemRangeInserted(position + 1, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                notifyItemRangeRemoved(position + 1, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                notifyItemMoved(fromPosition + 1, toPosition + 1);
+            }
+
+            @Override
+            public void onChanged(int position, int count, @Nullable Object payload) {
+                notifyItemRangeChanged(position + 1, count, payload);
+            }
+        });
+    }
+
+    /**
+     * Paso en una posición del adaptador, o null si es el encabezado o el pie.
+     */
+    StepItem getStep(int adapterPosition) {
+        int index = adapterPosition - 1;
+        return index >= 0 && index < items.size() ? items.get(index) : null;
+    }
+
+    @Override
+    public int getItemCount() {
+        return items.size() + 2;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        if (position == 0) return TYPE_HEADER;
+        if (position == getItemCount() - 1) return TYPE_FOOTER;
+        return TYPE_STEP;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        StepItem item = getStep(position);
+        if (item != null) return item.id;
+        return position == 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (viewType == TYPE_STEP) {
+            View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item_step, parent, false);
+            return new StepHolder(view);
+        }
+        // Encabezado y pie: siempre la misma vista (conserva lo escrito); nunca van al pool
+        View fixed = viewType == TYPE_HEADER ? header : footer;
+        if (fixed.getParent() instanceof ViewGroup) {
+            ((ViewGroup) fixed.getParent()).removeView(fixed);
+        }
+        RecyclerView.ViewHolder holder = new RecyclerView.ViewHolder(fixed) {};
+        holder.setIsRecyclable(false);
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        if (holder instanceof StepHolder) {
+            ((StepHolder) holder).bind(items.get(position - 1));
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        if (holder instanceof StepHolder) {
+            StepHolder stepHolder = (StepHolder) holder;
+            imageLoader.cancel(stepHolder.imagePreview);
+            stepHolder.imagePreview.setImageResource(R.drawable.ic_camera_placeholder_white); // Suelta el bitmap
+            stepHolder.item = null;
+        }
+    }
+
+    /**
+     * Fila de un paso. Sus listeners se crean una vez y leen el paso enlazado en cada momento.
+     */
+    private final class StepHolder extends RecyclerView.ViewHolder {
+        final TextView stepNumberText;
+        final ImageView imagePreview;
+        final Button btnCapture;
+        final EditText editDescription;
+        StepItem item;
+        boolean binding;
+
+        StepHolder(View view) {
+            super(view);
+            stepNumberText = view.findViewById(R.id.tv_step_number);
+            imagePreview = view.findViewById(R.id.image_preview);
+            btnCapture = view.findViewById(R.id.btn_select_photo);
+            editDescription = view.findViewById(R.id.edit_step_description);
+
+            btnCapture.setOnClickListener(v -> {
+                if (item != null) listener.onSelectPhoto(item);
+            });
+            editDescription.addTextChangedListener(new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+                @Override
+                public void afterTextChanged(Editable s) {
+                    if (binding || item == null || item.saved) return;
+                    item.description = s.toString();
+                    listener.onDescriptionChanged(item);
+                }
+            });
+        }
+
+        void bind(StepItem step) {
+            item = step;
+            binding = true;
+            stepNumberText.setText(String.format(Locale.getDefault(), step.saved ? "PASO %d (guardado)" : "PASO %d", step.stepNumber));
+            editDescription.setText(step.description);
+            editDescription.setEnabled(!step.saved);
+            binding = false;
+
+            btnCapture.setVisibility(step.saved ? View.GONE : View.VISIBLE);
+            btnCapture.setEnabled(!step.ingesting);
+
+            if (step.hasPhoto() && !step.ingesting) {
+                imagePreview.setScaleType(ImageView.ScaleType.CENTER_CROP);
+                imageLoader.load(step.photoUri, imagePreview, R.drawable.ic_camera_placeholder_white);
+            } else {
+                imageLoader.cancel(imagePreview);
+                imagePreview.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
+                imagePreview.setImageResource(R.drawable.ic_camera_placeholder_white);
+            }
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.miempresa.bivlotectatecnica;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.content.FileProvider;
+import androidx.recyclerview.widget.ItemTouchHelper;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import android.content.ContentValues;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.database.Cursor;
@@ -13,19 +16,19 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
 import android.provider.MediaStore;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
-import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
-import android.widget.ImageView;
-import android.widget.LinearLayout;
-import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.miempresa.bivlotectatecnica.StepEditorAdapter.StepItem;
+import com.miempresa.bivlotectatecnica.bd.AsyncUserProjectDatabase;
 import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
 import com.miempresa.bivlotectatecnica.bd.UserProjectDatabase;
 
@@ -39,45 +42,63 @@ import java.util.Locale;
 
 /**
  * Actividad para registrar la secuencia de pasos (fotos y descripción) para un informe.
+ * Los pasos se editan en una lista reciclada (StepEditorAdapter): se pueden reordenar
+ * arrastrándolos y borrar deslizándolos, mientras no estén guardados.
+ * Cada cambio se autoguarda como borrador (StepDraftStore) y se recupera al volver a abrirla,
+ * aunque el proceso haya muerto mientras la cámara estaba en primer plano.
  */
-public class StepRegisterActivity extends AppCompatActivity {
+public class StepRegisterActivity extends AppCompatActivity implements StepEditorAdapter.Listener {
 
     private static final String TAG = "StepRegisterActivity";
     private static final int REQUEST_IMAGE_CAPTURE = 1;
     private static final int REQUEST_IMAGE_PICK = 2;
     private static final int REQUEST_PERMISSION_CODE = PermissionHelper.REQUEST_CODE_CAMERA_GALLERY;
 
-    private UserProjectDatabase db;
+    // Estado de la foto en curso que sobrevive a la recreación de la Activity
+    private static final String STATE_PHOTO_PATH = "photo_path";
+    private static final String STATE_PHOTO_STEP = "photo_step";
+
+    private AsyncUserProjectDatabase db;
+    private ImageLoader imageLoader;
+    private PhotoIngestor photoIngestor;
     private SessionManager session;
     private String currentPhotoPath; // Ruta temporal para la foto capturada
-    private StepData currentPhotoStep; // El objeto StepData que solicitó la foto
+    private int photoStepNumber = -1; // Número del paso que solicitó la foto
+    private StepDraftStore draftStore;
+
+    // Foto recibida antes de terminar de recuperar el borrador (Activity recreada)
+    private Uri pendingPhotoUri;
+    private File pendingCapturedFile;
+    private boolean draftRestored;
 
     // UI Elements
     private TextView reportTitleHeader;
-    private LinearLayout dynamicStepsContainer;
-    private Button btnAddNextStep, btnFinalizeReport;
+    private RecyclerView stepList;
+    private StepEditorAdapter adapter;
+    private Button btnAddNextStep, btnFinalizeReport, btnDiscardDraft;
 
     // Estado del Informe
     private long currentReportId = -1;
     private long currentUserId;
     private long currentWorkshopId;
-    private int nextStepNumber = 1; // Contador para el siguiente paso a crear
+    private int firstNewStepNumber = 1; // Los pasos nuevos se numeran desde aquí (tras los guardados)
 
     // Datos del Informe Fijo (Componente, Inventario)
     private EditText editComponentName, editInventoryCode;
     private Button btnActionAssemble, btnActionDisassemble;
     private String selectedActionType = null;
-    private long selectedComponentId = -1;
-
-    // Lista para almacenar las referencias a los datos de los pasos dinámicos
-    private final ArrayList<StepData> currentStepsData = new ArrayList<>();
 
-    // Clase interna para manejar datos de cada paso dinámico
-    private static class StepData {
-        int stepNumber;
-        EditText descriptionView;
-        ImageView imageView;
-        String photoUri; // URI de la foto
+    // Modelo de la lista: pasos guardados (solo lectura) seguidos de los nuevos
+    private List<StepItem> steps = new ArrayList<>();
+    private long nextItemId = 1;
+
+    // Encabezado y pasos de un informe existente, leídos en segundo plano
+    private static class ExistingReport {
+        String componentName;
+        String inventoryCode;
+        String actionType;
+        int maxStepNumber;
+        final List<UserProjectDatabase.Step> steps = new ArrayList<>();
     }
 
 
@@ -86,7 +107,9 @@ public class StepRegisterActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_step_register);
 
-        db = new UserProjectDatabase(this);
+        db = new AsyncUserProjectDatabase(this);
+        imageLoader = ImageLoader.getInstance(this);
+        photoIngestor = new PhotoIngestor(this);
         session = new SessionManager(this);
 
         if (!session.isLoggedIn()) {
@@ -98,45 +121,381 @@ public class StepRegisterActivity extends AppCompatActivity {
         currentWorkshopId = session.getWorkshopId();
 
 
-        // 1. Inicializar Vistas Fijas
-        reportTitleHeader = findViewById(R.id.report_title_header);
-        dynamicStepsContainer = findViewById(R.id.dynamic_steps_container);
-        btnAddNextStep = findViewById(R.id.btn_add_another_step);
-        btnFinalizeReport = findViewById(R.id.btn_finalize_report);
-
-        editComponentName = findViewById(R.id.edit_component_name);
-        editInventoryCode = findViewById(R.id.edit_inventory_code);
-        btnActionAssemble = findViewById(R.id.btn_action_assemble);
-        btnActionDisassemble = findViewById(R.id.btn_action_disassemble);
+        // 1. Inicializar Vistas Fijas (el encabezado y el pie son filas fijas de la lista)
+        stepList = findViewById(R.id.step_list);
+        LayoutInflater inflater = LayoutInflater.from(this);
+        View header = inflater.inflate(R.layout.header_step_register, stepList, false);
+        View footer = inflater.inflate(R.layout.footer_step_register, stepList, false);
+
+        reportTitleHeader = header.findViewById(R.id.report_title_header);
+        editComponentName = header.findViewById(R.id.edit_component_name);
+        editInventoryCode = header.findViewById(R.id.edit_inventory_code);
+        btnActionAssemble = header.findViewById(R.id.btn_action_assemble);
+        btnActionDisassemble = header.findViewById(R.id.btn_action_disassemble);
+        btnAddNextStep = footer.findViewById(R.id.btn_add_another_step);
+        btnFinalizeReport = footer.findViewById(R.id.btn_finalize_report);
+        btnDiscardDraft = footer.findViewById(R.id.btn_discard_draft);
+
+        adapter = new StepEditorAdapter(header, footer, imageLoader, this);
+        stepList.setLayoutManager(new LinearLayoutManager(this));
+        stepList.setAdapter(adapter);
+        new ItemTouchHelper(new StepTouchCallback()).attachToRecyclerView(stepList);
+
+        if (savedInstanceState != null) {
+            currentPhotoPath = savedInstanceState.getString(STATE_PHOTO_PATH);
+            photoStepNumber = savedInstanceState.getInt(STATE_PHOTO_STEP, -1);
+        }
 
         // --- Manejo del Modo Edición/Creación ---
         long receivedReportId = getIntent().getLongExtra("REPORT_ID", -1);
+        draftStore = new StepDraftStore(this, db, currentUserId, receivedReportId);
 
         if (receivedReportId != -1) {
             currentReportId = receivedReportId;
             reportTitleHeader.setText(String.format(Locale.getDefault(), "Añadir Pasos al Informe #%d", currentReportId));
-            // 🚨 PENDIENTE: loadExistingReportDetails(currentReportId);
+            loadExistingReportDetails(currentReportId); // Recupera el borrador al terminar
         } else {
             reportTitleHeader.setText("Crear Nuevo Informe de Taller");
-            addStepView();
+            restoreDraft();
         }
 
         // --- Listeners de Acción ---
+        if (currentReportId != -1) {
+            // El encabezado de un informe existente no se modifica al añadir pasos
+            btnActionAssemble.setEnabled(false);
+            btnActionDisassemble.setEnabled(false);
+        }
         btnActionAssemble.setOnClickListener(v -> setActionType(v, "ARMADO"));
         btnActionDisassemble.setOnClickListener(v -> setActionType(v, "DESARME"));
 
         btnAddNextStep.setOnClickListener(v -> {
-            addStepView();
+            addStep();
+            stepList.scrollToPosition(adapter.getItemCount() - 1);
         });
 
         btnFinalizeReport.setOnClickListener(v -> {
             saveReportAndFinalize();
         });
 
+        btnDiscardDraft.setOnClickListener(v -> confirmDiscardDraft());
+
         // Verificar permisos al inicio
         PermissionHelper.checkAndRequestPermissions(this);
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (draftStore != null) {
+            draftStore.flush(); // Puede que el proceso no vuelva (cámara en primer plano)
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_PHOTO_PATH, currentPhotoPath);
+        outState.putInt(STATE_PHOTO_STEP, photoStepNumber);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (db != null) {
+            db.cancelAll();
+        }
+        if (stepList != null) {
+            stepList.setAdapter(null); // Recicla las filas: cancela sus cargas de miniaturas
+        }
+    }
+
+    /**
+     * Carga el encabezado de un informe existente (componente, código y acción) y
+     * continúa la numeración después de su último paso. La lectura es en segundo plano.
+     */
+    private void loadExistingReportDetails(long reportId) {
+        btnFinalizeReport.setEnabled(false);
+        db.read(dao -> {
+            ExistingReport report = new ExistingReport();
+            Cursor cursor = dao.getReportDetails(reportId);
+            if (cursor != null) {
+                try {
+                    if (cursor.moveToFirst()) {
+                        report.componentName = cursor.getString(cursor.getColumnIndexOrThrow(UserProjectContract.ComponenteEntry.COLUMN_NAME));
+                        report.inventoryCode = cursor.getString(cursor.getColumnIndexOrThrow(UserProjectContract.ComponenteEntry.COLUMN_CODIGO_INVENTARIO));
+                        report.actionType = cursor.getString(cursor.getColumnIndexOrThrow(UserProjectContract.ReporteEntry.COLUMN_ACTION_TYPE));
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+            Cursor stepsCursor = dao.getStepsForReport(reportId);
+            try {
+                int numberIndex = stepsCursor.getColumnIndexOrThrow(UserProjectContract.InformeEntry.COLUMN_STEP_NUMBER);
+                int descriptionIndex = stepsCursor.getColumnIndexOrThrow(UserProjectContract.InformeEntry.COLUMN_DESCRIPTION);
+                int photoIndex = stepsCursor.getColumnIndexOrThrow(UserProjectContract.InformeEntry.COLUMN_PHOTO_URI);
+                while (stepsCursor.moveToNext()) {
+                    UserProjectDatabase.Step step = new UserProjectDatabase.Step(stepsCursor.getInt(numberIndex),
+                            stepsCursor.getString(descriptionIndex), stepsCursor.getString(photoIndex));
+                    report.steps.add(step);
+                    report.maxStepNumber = Math.max(report.maxStepNumber, step.stepNumber);
+                }
+            } finally {
+                stepsCursor.close();
+            }
+            return report;
+        }, new AsyncUserProjectDatabase.Callback<ExistingReport>() {
+            @Override
+            public void onResult(ExistingReport report) {
+                if (report.componentName != null) {
+                    editComponentName.setText(report.componentName);
+                    editInventoryCode.setText(report.inventoryCode);
+                    selectedActionType = report.actionType;
+
+                    editComponentName.setEnabled(false);
+                    editInventoryCode.setEnabled(false);
+                    btnActionAssemble.setSelected("ARMADO".equals(selectedActionType));
+                    btnActionDisassemble.setSelected("DESARME".equals(selectedActionType));
+                }
+                // Pasos ya guardados: solo lectura, con miniaturas desde la caché
+                List<StepItem> updated = new ArrayList<>(steps);
+                for (UserProjectDatabase.Step step : report.steps) {
+                    updated.add(new StepItem(nextItemId++, step.stepNumber, step.description, step.photoUri, false, true));
+                }
+                submitSteps(updated);
+                firstNewStepNumber = report.maxStepNumber + 1;
+                restoreDraft();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error al cargar el informe " + reportId, e);
+                Toast.makeText(StepRegisterActivity.this, "No se pudo cargar el informe.", Toast.LENGTH_LONG).show();
+                finish();
+            }
+        });
+    }
+
+    /**
+     * Recupera el borrador autoguardado (encabezado y pasos sin finalizar). Si no hay,
+     * empieza con un paso vacío. Después activa el autoguardado del encabezado.
+     */
+    private void restoreDraft() {
+        btnFinalizeReport.setEnabled(false);
+        draftStore.load(new AsyncUserProjectDatabase.Callback<UserProjectDatabase.Draft>() {
+            @Override
+            public void onResult(UserProjectDatabase.Draft draft) {
+                if (draft != null && currentReportId == -1) {
+                    editComponentName.setText(draft.componentName);
+                    editInventoryCode.setText(draft.inventoryCode);
+                    selectedActionType = draft.actionType;
+                    btnActionAssemble.setSelected("ARMADO".equals(selectedActionType));
+                    btnActionDisassemble.setSelected("DESARME".equals(selectedActionType));
+                }
+                if (draft != null && !draft.steps.isEmpty()) {
+                    List<StepItem> updated = new ArrayList<>(steps);
+                    for (UserProjectDatabase.Step step : draft.steps) {
+                        updated.add(new StepItem(nextItemId++, step.stepNumber, step.description, step.photoUri, false, false));
+                    }
+                    submitSteps(updated);
+                    Toast.makeText(StepRegisterActivity.this, "Se recuperó un borrador con " + draft.steps.size() + " pasos.", Toast.LENGTH_SHORT).show();
+                } else {
+                    addStep();
+                }
+                onDraftRestored();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error al recuperar el borrador", e);
+                addStep();
+                onDraftRestored();
+            }
+        });
+    }
+
+    private void onDraftRestored() {
+        draftRestored = true;
+        btnFinalizeReport.setEnabled(true);
+
+        if (currentReportId == -1) {
+            // Se registra después de recuperar el texto, para no reescribir lo que se acaba de leer
+            TextWatcher headerWatcher = new AfterTextChangedWatcher(() -> saveHeaderDraft());
+            editComponentName.addTextChangedListener(headerWatcher);
+            editInventoryCode.addTextChangedListener(headerWatcher);
+        }
+
+        // La cámara devolvió una foto mientras el borrador se estaba leyendo
+        if (pendingPhotoUri != null) {
+            StepItem step = findStepByNumber(photoStepNumber);
+            if (step != null) {
+                ingestPhoto(step, pendingPhotoUri, pendingCapturedFile);
+            } else {
+                Toast.makeText(this, "No se encontró el paso de la foto capturada.", Toast.LENGTH_LONG).show();
+            }
+            pendingPhotoUri = null;
+            pendingCapturedFile = null;
+            photoStepNumber = -1;
+        }
+    }
+
+    // ===================================================================
+    // MODELO DE PASOS
+    // ===================================================================
+
+    /**
+     * Publica la lista de pasos en el adaptador (DiffUtil calcula los cambios).
+     */
+    private void submitSteps(List<StepItem> updated) {
+        steps = updated;
+        adapter.submitList(updated);
+    }
+
+    /**
+     * Agrega un nuevo paso vacío al final.
+     */
+    private void addStep() {
+        int number = firstNewStepNumber;
+        for (StepItem step : steps) {
+            if (!step.saved) number = Math.max(number, step.stepNumber + 1);
+        }
+        List<StepItem> updated = new ArrayList<>(steps);
+        updated.add(new StepItem(nextItemId++, number, null, null, false, false));
+        submitSteps(updated);
+    }
+
+    /**
+     * Reemplaza un paso (identificado por su id) por su nueva versión. Devuelve false si ya no está.
+     */
+    private boolean replaceStep(StepItem replacement) {
+        List<StepItem> updated = new ArrayList<>(steps);
+        for (int i = 0; i < updated.size(); i++) {
+            if (updated.get(i).id == replacement.id) {
+                updated.set(i, replacement);
+                submitSteps(updated);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Vuelve a numerar los pasos nuevos en su orden actual y reescribe el borrador completo
+     * (tras borrar o reordenar).
+     */
+    private void renumberNewSteps(List<StepItem> updated) {
+        int number = firstNewStepNumber;
+        List<UserProjectDatabase.Step> draftSteps = new ArrayList<>();
+        for (int i = 0; i < updated.size(); i++) {
+            StepItem step = updated.get(i);
+            if (step.saved) continue;
+            if (step.stepNumber != number) {
+                step = step.withNumber(number);
+                updated.set(i, step);
+            }
+            draftSteps.add(new UserProjectDatabase.Step(step.stepNumber, step.description, step.photoUri));
+            number++;
+        }
+        submitSteps(updated);
+        draftStore.setAllSteps(draftSteps);
+    }
+
+    private StepItem findStepByNumber(int stepNumber) {
+        for (StepItem step : steps) {
+            if (!step.saved && step.stepNumber == stepNumber) return step;
+        }
+        return null;
+    }
+
+    private StepItem findStepById(long id) {
+        for (StepItem step : steps) {
+            if (step.id == id) return step;
+        }
+        return null;
+    }
+
+    @Override
+    public void onSelectPhoto(StepItem item) {
+        // 🚨 Llamar a la lógica de la cámara, pasando el paso actual
+        if (PermissionHelper.checkAndRequestPermissions(this)) {
+            startImageIntent(item);
+        }
+    }
+
+    @Override
+    public void onDescriptionChanged(StepItem item) {
+        saveStepDraft(item);
+    }
+
+    private void saveHeaderDraft() {
+        draftStore.setHeader(editComponentName.getText().toString(), editInventoryCode.getText().toString(), selectedActionType);
+    }
+
+    private void saveStepDraft(StepItem step) {
+        draftStore.setStep(step.stepNumber, step.description, step.photoUri);
+    }
+
+    /**
+     * Arrastrar para reordenar y deslizar para borrar, solo en los pasos que aún no se guardaron.
+     */
+    private final class StepTouchCallback extends ItemTouchHelper.Callback {
+        @Override
+        public int getMovementFlags(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder holder) {
+            StepItem step = adapter.getStep(holder.getBindingAdapterPosition());
+            if (step == null || step.saved || step.ingesting) return 0;
+            return makeMovementFlags(ItemTouchHelper.UP | ItemTouchHelper.DOWN, ItemTouchHelper.START | ItemTouchHelper.END);
+        }
+
+        @Override
+        public boolean onMove(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder from,
+                              @NonNull RecyclerView.ViewHolder to) {
+            StepItem target = adapter.getStep(to.getBindingAdapterPosition());
+            if (target == null || target.saved) return false;
+            List<StepItem> updated = new ArrayList<>(steps);
+            updated.add(to.getBindingAdapterPosition() - 1, updated.remove(from.getBindingAdapterPosition() - 1));
+            submitSteps(updated); // Solo el movimiento; los números se ajustan al soltar
+            return true;
+        }
+
+        @Override
+        public void clearView(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder holder) {
+            super.clearView(recyclerView, holder);
+            renumberNewSteps(new ArrayList<>(steps));
+        }
+
+        @Override
+        public void onSwiped(@NonNull RecyclerView.ViewHolder holder, int direction) {
+            StepItem step = adapter.getStep(holder.getBindingAdapterPosition());
+            if (step == null) return;
+            List<StepItem> updated = new ArrayList<>(steps);
+            updated.remove(step);
+            renumberNewSteps(updated);
+            Toast.makeText(StepRegisterActivity.this, "Paso " + step.stepNumber + " eliminado.", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * TextWatcher que solo reacciona al texto final.
+     */
+    private static final class AfterTextChangedWatcher implements TextWatcher {
+        private final Runnable action;
+
+        AfterTextChangedWatcher(Runnable action) {
+            this.action = action;
+        }
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            action.run();
+        }
+    }
+
     // ===================================================================
     // LÓGICA DE PERMISOS Y CÁMARA
     // ===================================================================
@@ -144,13 +503,16 @@ public class StepRegisterActivity extends AppCompatActivity {
     /**
      * Lanza el Intent para capturar o seleccionar una foto.
      */
-    private void startImageIntent(StepData stepData) {
+    private void startImageIntent(StepItem step) {
         if (!PermissionHelper.checkAndRequestPermissions(this)) {
             Toast.makeText(this, "Permisos necesarios para cámara/almacenamiento.", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        currentPhotoStep = stepData;
+        photoStepNumber = step.stepNumber;
+        // El paso debe existir en el borrador por si el proceso muere con la cámara abierta
+        saveStepDraft(step);
+        draftStore.flush();
 
         // Intent 1: Cámara
         Intent takePictureIntent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
@@ -202,8 +564,9 @@ public class StepRegisterActivity extends AppCompatActivity {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
         if (requestCode == PermissionHelper.REQUEST_CODE_CAMERA_GALLERY && grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
             // Permiso concedido, intentamos de nuevo iniciar la captura de imagen
-            if (currentPhotoStep != null) {
-                startImageIntent(currentPhotoStep);
+            StepItem step = findStepByNumber(photoStepNumber);
+            if (step != null) {
+                startImageIntent(step);
             }
         } else {
             Toast.makeText(this, "Permisos denegados. No se puede adjuntar la foto.", Toast.LENGTH_LONG).show();
@@ -213,33 +576,75 @@ public class StepRegisterActivity extends AppCompatActivity {
     @Override
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
+        if (photoStepNumber == -1) return;
+        if (resultCode != RESULT_OK) {
+            photoStepNumber = -1;
+            return;
+        }
 
-        if (resultCode == RESULT_OK && currentPhotoStep != null) {
-            Uri selectedImageUri = null;
-
-            if (requestCode == REQUEST_IMAGE_CAPTURE) {
-                // Opción 1: Foto capturada. La URI está en currentPhotoPath.
-                selectedImageUri = Uri.fromFile(new File(currentPhotoPath));
-
-            } else if (requestCode == REQUEST_IMAGE_PICK && data != null && data.getData() != null) {
-                // Opción 2: Imagen seleccionada de la galería.
+        Uri selectedImageUri = null;
+        File capturedFile = null;
+        if (requestCode == REQUEST_IMAGE_CAPTURE || requestCode == REQUEST_IMAGE_PICK) {
+            if (data != null && data.getData() != null) {
+                // Opción 2: Imagen seleccionada de la galería (el selector vuelve con este mismo código).
                 selectedImageUri = data.getData();
+            } else if (currentPhotoPath != null) {
+                // Opción 1: Foto capturada. La URI está en currentPhotoPath.
+                capturedFile = new File(currentPhotoPath);
+                selectedImageUri = Uri.fromFile(capturedFile);
             }
+        }
 
-            if (selectedImageUri != null) {
-                // Actualizar el estado del paso con la URI permanente
-                currentPhotoStep.photoUri = selectedImageUri.toString();
+        if (!draftRestored && selectedImageUri != null) {
+            // Activity recreada: el paso aún no existe, se asigna al recuperar el borrador
+            pendingPhotoUri = selectedImageUri;
+            pendingCapturedFile = capturedFile;
+            return;
+        }
 
-                // Mostrar la imagen en el ImageView correcto
-                currentPhotoStep.imageView.setImageURI(selectedImageUri);
-                currentPhotoStep.imageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
-                Toast.makeText(this, "Foto del Paso " + currentPhotoStep.stepNumber + " adjuntada.", Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(this, "No se capturó ni seleccionó ninguna imagen.", Toast.LENGTH_SHORT).show();
-            }
-            // Limpiar la referencia al paso activo
-            currentPhotoStep = null;
+        StepItem step = findStepByNumber(photoStepNumber);
+        if (selectedImageUri != null && step != null) {
+            ingestPhoto(step, selectedImageUri, capturedFile);
+        } else {
+            Toast.makeText(this, "No se capturó ni seleccionó ninguna imagen.", Toast.LENGTH_SHORT).show();
         }
+        // Limpiar la referencia al paso activo
+        photoStepNumber = -1;
+    }
+
+    /**
+     * Copia la foto a almacenamiento propio (reducida, rotada y sin metadatos) en segundo
+     * plano y después la asigna al paso. La captura original de la cámara se borra si la
+     * ingesta termina bien.
+     */
+    private void ingestPhoto(StepItem step, Uri source, File capturedFile) {
+        final long stepId = step.id;
+        replaceStep(step.withPhoto(step.photoUri, true));
+
+        photoIngestor.ingestAsync(source, capturedFile != null, new PhotoIngestor.Callback() {
+            @Override
+            public void onIngested(String photoUri) {
+                StepItem current = findStepById(stepId);
+                if (current == null) return; // El paso se borró mientras tanto
+                StepItem updated = current.withPhoto(photoUri, false);
+                // Se guarda ya (aunque la Activity se haya destruido): la foto es lo más caro de repetir
+                saveStepDraft(updated);
+                draftStore.flush();
+                if (isDestroyed()) return;
+
+                // La fila muestra la miniatura (ya generada durante la ingesta)
+                replaceStep(updated);
+                Toast.makeText(StepRegisterActivity.this, "Foto del Paso " + updated.stepNumber + " adjuntada.", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                StepItem current = findStepById(stepId);
+                if (current == null || isDestroyed()) return;
+                replaceStep(current.withPhoto(current.photoUri, false));
+                Toast.makeText(StepRegisterActivity.this, "No se pudo procesar la foto del Paso " + current.stepNumber + ".", Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
 
@@ -254,50 +659,13 @@ public class StepRegisterActivity extends AppCompatActivity {
         btnActionDisassemble.setSelected(false);
 
         clickedView.setSelected(true); // Estilo visual para el botón seleccionado
+        saveHeaderDraft();
         Toast.makeText(this, "Acción: " + type, Toast.LENGTH_SHORT).show();
     }
 
-
-    /**
-     * Agrega dinámicamente un nuevo bloque de entrada de pasos (foto + descripción) al contenedor.
-     */
-    private void addStepView() {
-        LayoutInflater inflater = LayoutInflater.from(this);
-        View stepView = inflater.inflate(R.layout.list_item_step, dynamicStepsContainer, false);
-
-        final StepData stepData = new StepData();
-        stepData.stepNumber = nextStepNumber;
-
-        // Inicializar Vistas del Paso Dinámico:
-        TextView stepNumberText = stepView.findViewById(R.id.tv_step_number);
-        ImageView imagePreview = stepView.findViewById(R.id.image_preview);
-        Button btnCapture = stepView.findViewById(R.id.btn_select_photo);
-        EditText editDescription = stepView.findViewById(R.id.edit_step_description);
-
-        // Capturar la referencia a la vista y el EditText para el guardado posterior
-        stepData.descriptionView = editDescription;
-        stepData.imageView = imagePreview;
-        stepData.photoUri = null; // Inicializar URI
-
-        stepNumberText.setText(String.format(Locale.getDefault(), "PASO %d", nextStepNumber));
-        stepView.setTag(nextStepNumber); // Etiquetar la vista con el número de paso
-
-        // Listener para abrir la cámara/galería
-        btnCapture.setOnClickListener(v -> {
-            // 🚨 Llamar a la lógica de la cámara, pasando el objeto StepData actual
-            if (PermissionHelper.checkAndRequestPermissions(this)) {
-                startImageIntent(stepData);
-            }
-        });
-
-        // Añadir el paso a la lista de control y a la UI
-        currentStepsData.add(stepData);
-        dynamicStepsContainer.addView(stepView);
-        nextStepNumber++;
-    }
-
     /**
-     * Valida los datos iniciales, guarda el COMPONENTE (si es nuevo), y luego guarda todos los pasos.
+     * Valida los datos iniciales y convierte el borrador (componente, encabezado y pasos) en
+     * informe con una sola transacción.
      */
     private void saveReportAndFinalize() {
         String componentName = editComponentName.getText().toString().trim();
@@ -310,54 +678,100 @@ public class StepRegisterActivity extends AppCompatActivity {
         }
 
         try {
-            // --- 🚨 PASO 1: CREAR EL COMPONENTE (si no existe) y obtener su ID ---
-            long componenteId = db.getOrInsertComponenteId(componentName, inventoryCode, currentWorkshopId);
-
-            if (componenteId == -1) {
-                Toast.makeText(this, "Error al crear/obtener el ID del componente.", Toast.LENGTH_LONG).show();
-                return;
-            }
-
-            // --- 🚨 PASO 2: Guardar todos los pasos dinámicos en la tabla INFORME ---
+            // --- 🚨 PASO 1: Contar los pasos con contenido ---
             int savedSteps = 0;
 
-            for (StepData step : currentStepsData) {
-                String description = step.descriptionView.getText().toString().trim();
+            for (StepItem step : steps) {
+                if (step.saved) continue; // Ya están en el informe
+                if (step.ingesting) {
+                    Toast.makeText(this, "Espere a que terminen de procesarse las fotos.", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                String description = step.description != null ? step.description.trim() : "";
 
                 // Si el paso está completamente vacío (sin descripción Y sin foto), lo ignoramos.
                 if (TextUtils.isEmpty(description) && TextUtils.isEmpty(step.photoUri)) {
                     continue;
                 }
 
-                // Guardar el paso en la base de datos
-                long stepId = db.insertReportStep(
-                        componenteId,
-                        step.stepNumber,
-                        description,
-                        step.photoUri != null ? step.photoUri : "placeholder_uri", // Usar la URI guardada o una por defecto
-                        currentUserId,
-                        selectedActionType
-                );
-
-                if (stepId > 0) {
-                    savedSteps++;
-                } else {
-                    Log.e(TAG, "Error al guardar el paso: " + step.stepNumber);
-                }
+                savedSteps++;
             }
 
-            // --- PASO 3: Finalizar ---
-            if (savedSteps > 0) {
-                Toast.makeText(this, String.format("Informe finalizado con %d pasos guardados.", savedSteps), Toast.LENGTH_LONG).show();
-                setResult(RESULT_OK); // Indica a ReportListActivity que refresque la lista
-                finish();
-            } else {
+            if (savedSteps == 0) {
                 Toast.makeText(this, "No se guardó ningún paso válido. Informe no creado.", Toast.LENGTH_LONG).show();
+                return;
             }
 
+            // --- 🚨 PASO 2: Volcar el estado final al borrador y finalizarlo en una sola transacción ---
+            // (en el hilo escritor; el resultado vuelve al hilo principal)
+            if (currentReportId == -1) {
+                draftStore.setHeader(componentName, inventoryCode, selectedActionType);
+            }
+            for (StepItem step : steps) {
+                if (step.saved) continue;
+                draftStore.setStep(step.stepNumber, step.description != null ? step.description.trim() : null, step.photoUri);
+            }
+            final int finalSteps = savedSteps;
+            btnFinalizeReport.setEnabled(false);
+            draftStore.promote(currentWorkshopId, new AsyncUserProjectDatabase.Callback<Long>() {
+                @Override
+                public void onResult(Long reportId) {
+                    if (reportId == -1) {
+                        btnFinalizeReport.setEnabled(true);
+                        Toast.makeText(StepRegisterActivity.this, "Error al guardar el informe. No se guardó ningún paso.", Toast.LENGTH_LONG).show();
+                        return;
+                    }
+
+                    // --- PASO 3: Finalizar ---
+                    Toast.makeText(StepRegisterActivity.this, String.format("Informe finalizado con %d pasos guardados.", finalSteps), Toast.LENGTH_LONG).show();
+                    setResult(RESULT_OK); // Indica a ReportListActivity que refresque la lista
+                    finish();
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    btnFinalizeReport.setEnabled(true);
+                    Log.e(TAG, "Fallo crítico durante la inserción del informe", e);
+                    Toast.makeText(StepRegisterActivity.this, "Fallo: Error al procesar los datos.", Toast.LENGTH_LONG).show();
+                }
+            });
+
         } catch (Exception e) {
             Log.e(TAG, "Fallo crítico durante la inserción del informe", e);
             Toast.makeText(this, "Fallo: Error al procesar los datos.", Toast.LENGTH_LONG).show();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Pide confirmación y borra el borrador: los pasos sin finalizar se pierden (los ya
+     * guardados en un informe existente no se tocan).
+     */
+    private void confirmDiscardDraft() {
+        new AlertDialog.Builder(this)
+                .setTitle("Descartar borrador")
+                .setMessage("Se perderán los pasos sin finalizar. ¿Continuar?")
+                .setPositiveButton("Descartar", (dialog, which) -> discardDraft())
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    private void discardDraft() {
+        btnFinalizeReport.setEnabled(false);
+        btnDiscardDraft.setEnabled(false);
+        draftStore.discard(new AsyncUserProjectDatabase.Callback<Void>() {
+            @Override
+            public void onResult(Void result) {
+                Toast.makeText(StepRegisterActivity.this, "Borrador descartado.", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                btnFinalizeReport.setEnabled(true);
+                btnDiscardDraft.setEnabled(true);
+                Log.e(TAG, "Error al descartar el borrador", e);
+                Toast.makeText(StepRegisterActivity.this, "No se pudo descartar el borrador.", Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+}
@@ -0,0 +1,589 @@
+package com.miempresa.bivlotectatecnica;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Alternativa a PdfDocument para informes largos: escribe el PDF directamente en un
+ * FileChannel, página por página. Cada página se vuelca al archivo apenas se termina y solo
+ * se recuerdan los offsets de los objetos (para la tabla xref, que se escribe al final), así
+ * la memoria usada no depende de la cantidad de páginas.
+ *
+ * Las fotos siempre se guardan como flujos JPEG (DCTDecode), nunca como píxeles. Las que
+ * PhotoIngestor ya dejó como JPEG orientado y no superan la resolución pedida (ImageOptions)
+ * se copian tal cual (FileChannel.transferTo, sin decodificar ni recodificar); el resto se
+ * decodifica a esa resolución y se recodifica con la calidad pedida.
+ *
+ * Dibuja el mismo ReportLayout que ReportPageRenderer (mismas páginas, mismas posiciones y
+ * cortes de línea), pero con las fuentes estándar Helvetica: si una línea queda más ancha
+ * que la medida con la fuente de Android, se comprime horizontalmente para que no se salga
+ * del margen.
+ */
+final class StreamingPdfWriter implements Closeable {
+
+    private static final String TAG = "StreamingPdfWriter";
+
+    private static final Charset WIN_ANSI = Charset.forName("windows-1252");
+    // Una foto algo más grande que la resolución pedida se copia igual: recodificarla
+    // ahorraría poco y perdería calidad
+    private static final float PASS_THROUGH_SLACK = 1.25f;
+
+    // Objetos fijos. El árbol de páginas y el catálogo se escriben al cerrar (recién ahí se
+    // conoce la lista de páginas), pero sus números se reservan desde el principio.
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FIRST_FONT = 3; // Cuatro fuentes: normal, negrita, oblicua, negrita oblicua
+    private static final String[] FONT_NAMES = {
+            "Helvetica", "Helvetica-Bold", "Helvetica-Oblique", "Helvetica-BoldOblique" };
+
+    // Anchos (milésimas de em) de los caracteres 32..126 de Helvetica y Helvetica-Bold
+    // (las oblicuas usan los mismos). Solo se usan para no pasarse del margen.
+    private static final short[] WIDTHS_REGULAR = {
+            278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+            1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+            333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+            556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584 };
+    private static final short[] WIDTHS_BOLD = {
+            278, 333, 474, 556, 556, 889, 722, 238, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 333, 333, 584, 584, 584, 611,
+            975, 722, 722, 722, 722, 667, 611, 778, 722, 278, 556, 722, 611, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 333, 278, 333, 584, 556,
+            333, 556, 611, 556, 611, 556, 333, 611, 611, 278, 278, 556, 278, 889, 611, 611,
+            611, 611, 389, 556, 333, 611, 556, 778, 556, 556, 500, 389, 280, 389, 584 };
+    private static final int DEFAULT_WIDTH = 556; // Símbolos fuera de la tabla
+    private static final char ELLIPSIS = '\u2026';
+    private static final int ELLIPSIS_WIDTH = 1000; // Igual en Helvetica y Helvetica-Bold
+
+    private final Context context;
+    private final ReportLayout.Styles styles;
+    private final ReportPDFGenerator.ImageOptions imageOptions;
+    private final PdfImageStats stats = new PdfImageStats();
+    private final FileOutputStream output;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(32 * 1024);
+    private long position; // Bytes escritos (incluido lo que aún está en buffer)
+
+    // offsets[n] = posición del objeto n. Crece con los objetos, no con su contenido.
+    private long[] offsets = new long[64];
+    private int nextObject = FIRST_FONT + FONT_NAMES.length;
+    private int[] pageObjects = new int[16];
+    private int pageCount;
+
+    // Página en curso
+    private final Buffer content = new Buffer(16 * 1024);
+    private final StringBuilder ops = new StringBuilder(256);
+    private final StringBuilder pageImages = new StringBuilder();
+    private boolean pageOpen;
+
+    // Para las fotos que hay que recodificar (el buffer y los bitmaps se reutilizan entre fotos)
+    private final Buffer encoded = new Buffer(64 * 1024);
+    private final BitmapPool bitmaps = new BitmapPool(ReportPageRenderer.IMAGE_POOL_BYTES);
+
+    /**
+     * ByteArrayOutputStream que deja escribir su contenido sin copiarlo.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    /**
+     * @param styles Los mismos estilos con los que se midió el informe (ReportLayout).
+     * @param imageOptions Calidad JPEG y resolución con que se guardan las fotos.
+     */
+    StreamingPdfWriter(Context context, File file, ReportLayout.Styles styles,
+                       ReportPDFGenerator.ImageOptions imageOptions) throws IOException {
+        this.context = context.getApplicationContext();
+        this.styles = styles;
+        this.imageOptions = imageOptions;
+        this.output = new FileOutputStream(file);
+        this.channel = output.getChannel();
+
+        // El comentario binario indica a los lectores que el archivo no es texto plano
+        writeAscii("%PDF-1.4\n");
+        write(new byte[]{ '%', (byte) 0xE2, (byte) 0xE3, (byte) 0xCF, (byte) 0xD3, '\n' });
+        for (int i = 0; i < FONT_NAMES.length; i++) {
+            beginObject(FIRST_FONT + i);
+            writeAscii("<< /Type /Font /Subtype /Type1 /BaseFont /" + FONT_NAMES[i]
+                    + " /Encoding /WinAnsiEncoding >>\nendobj\n");
+        }
+    }
+
+    /** Bytes de las fotos incrustadas hasta ahora. */
+    PdfImageStats getImageStats() {
+        return stats;
+    }
+
+    /** Páginas escritas hasta ahora (incluida la actual). */
+    int getPageCount() {
+        return pageCount;
+    }
+
+    // -------------------------------------------------------------------
+    // DIBUJO DEL INFORME
+    // -------------------------------------------------------------------
+
+    /**
+     * Escribe un informe ya medido, página por página. Recorre los fragmentos en el mismo
+     * orden que ReportPageRenderer.drawReport, así el avance se informa igual.
+     * @param listener Puede ser null.
+     * @throws java.io.InterruptedIOException si la exportación fue cancelada.
+     */
+    void drawReport(ReportPageRenderer.ReportData report, ReportLayout layout,
+                    ReportPageRenderer.StepListener listener) throws IOException {
+        int step = -1;
+        for (int p = 0; p < layout.getPageCount(); p++) {
+            beginPage();
+            for (ReportLayout.Fragment fragment : layout.getPage(p)) {
+                if (fragment.stepIndex != step) {
+                    if (step >= 0 && listener != null) listener.onStepDrawn(step, pageCount);
+                    step = fragment.stepIndex;
+                    ReportPageRenderer.checkCancelled();
+                }
+                if (fragment.isImage()) {
+                    drawImage(fragment, report.steps.get(fragment.stepIndex).photoUri);
+                } else {
+                    drawText(fragment);
+                }
+            }
+            endPage();
+        }
+        if (step >= 0 && listener != null) listener.onStepDrawn(step, pageCount);
+    }
+
+    /**
+     * Termina el documento: árbol de páginas, catálogo, tabla xref y trailer.
+     * Llamar una vez, después del último informe y antes de close().
+     */
+    void finish() throws IOException {
+        if (pageOpen) endPage();
+
+        StringBuilder kids = new StringBuilder(pageCount * 8);
+        for (int i = 0; i < pageCount; i++) {
+            kids.append(pageObjects[i]).append(" 0 R ");
+        }
+        beginObject(PAGES);
+        writeAscii("<< /Type /Pages /Kids [" + kids + "] /Count " + pageCount
+                + " /MediaBox [0 0 " + ReportPageRenderer.PAGE_WIDTH + " " + ReportPageRenderer.PAGE_HEIGHT + "] >>\nendobj\n");
+        beginObject(CATALOG);
+        writeAscii("<< /Type /Catalog /Pages " + PAGES + " 0 R >>\nendobj\n");
+
+        long xref = position;
+        StringBuilder table = new StringBuilder(20 * 64);
+        table.append("xref\n0 ").append(nextObject).append("\n0000000000 65535 f \n");
+        for (int n = 1; n < nextObject; n++) {
+            table.append(String.format(Locale.ROOT, "%010d 00000 n \n", offsets[n]));
+            if (table.length() > 16 * 1024) {
+                writeAscii(table.toString());
+                table.setLength(0);
+            }
+        }
+        table.append("trailer\n<< /Size ").append(nextObject).append(" /Root ").append(CATALOG)
+                .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+        writeAscii(table.toString());
+        flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        bitmaps.clear();
+        output.close(); // Cierra también el canal
+    }
+
+    private void beginPage() throws IOException {
+        if (pageOpen) endPage();
+        content.reset();
+        pageImages.setLength(0);
+        pageOpen = true;
+        pageCount++;
+    }
+
+    /**
+     * Vuelca la página en curso: su flujo de contenido y el objeto página que lo referencia.
+     */
+    private void endPage() throws IOException {
+        int contentObject = nextObject++;
+        beginObject(contentObject);
+        writeAscii("<< /Length " + content.size() + " >>\nstream\n");
+        write(content.array(), content.size());
+        writeAscii("\nendstream\nendobj\n");
+
+        int pageObject = nextObject++;
+        beginObject(pageObject);
+        StringBuilder fonts = new StringBuilder();
+        for (int i = 0; i < FONT_NAMES.length; i++) {
+            fonts.append("/F").append(i + 1).append(' ').append(FIRST_FONT + i).append(" 0 R ");
+        }
+        writeAscii("<< /Type /Page /Parent " + PAGES + " 0 R /Contents " + contentObject + " 0 R"
+                + " /Resources << /Font << " + fonts + ">> /XObject << " + pageImages + ">> >> >>\nendobj\n");
+
+        if (pageCount > pageObjects.length) {
+            pageObjects = Arrays.copyOf(pageObjects, pageObjects.length * 2);
+        }
+        pageObjects[pageCount - 1] = pageObject;
+        pageOpen = false;
+    }
+
+    /**
+     * Escribe las líneas [firstLine, endLine) del texto en la posición medida. El corte de
+     * líneas es el de StaticLayout; cada línea se escribe como una cadena, terminada en "…"
+     * si StaticLayout la recorta.
+     */
+    private void drawText(ReportLayout.Fragment fragment) {
+        StaticLayout text = fragment.text;
+        CharSequence source = text.getText();
+        int offset = fragment.top - text.getLineTop(fragment.firstLine);
+        for (int line = fragment.firstLine; line < fragment.endLine; line++) {
+            int start = text.getLineStart(line);
+            int end = text.getLineEnd(line);
+            boolean ellipsized = text.getEllipsisCount(line) > 0;
+            if (ellipsized) {
+                // Lo que StaticLayout reemplaza al dibujar (leyendas de las plantillas en cuadrícula)
+                end = start + text.getEllipsisStart(line);
+            }
+            while (end > start && Character.isWhitespace(source.charAt(end - 1))) end--;
+            if (end == start && !ellipsized) continue;
+            CharSequence shown = source.subSequence(start, end);
+            if (ellipsized) shown = shown + ELLIPSIS; // 0x85 en WinAnsi
+            showLine(shown, text.getPaint(),
+                    fragment.left + text.getLineLeft(line), offset + text.getLineBaseline(line),
+                    fragment.width - text.getLineLeft(line));
+        }
+    }
+
+    /**
+     * Una línea de texto con la fuente estándar equivalente a la del paint.
+     * @param maxWidth Ancho disponible: si la línea en Helvetica lo supera, se comprime.
+     */
+    private void showLine(CharSequence line, TextPaint paint, float x, float baseline, float maxWidth) {
+        Typeface typeface = paint.getTypeface();
+        boolean bold = typeface != null && typeface.isBold();
+        boolean italic = typeface != null && typeface.isItalic();
+        int font = (bold ? 1 : 0) + (italic ? 2 : 0);
+        float size = paint.getTextSize();
+
+        byte[] bytes = line.toString().getBytes(WIN_ANSI); // Lo que no existe en WinAnsi queda como '?'
+        float width = textWidth(line, bold) * size / 1000f;
+
+        ops.setLength(0);
+        ops.append("BT /F").append(font + 1).append(' ');
+        number(ops, size).append(" Tf 1 0 0 1 ");
+        number(ops, x).append(' ');
+        number(ops, ReportPageRenderer.PAGE_HEIGHT - baseline).append(" Tm ");
+        boolean squeezed = width > maxWidth;
+        if (squeezed) {
+            number(ops, 100f * maxWidth / width).append(" Tz ");
+        }
+        ops.append('(');
+        appendOps();
+        for (byte b : bytes) {
+            if (b == '(' || b == ')' || b == '\\') content.write('\\');
+            content.write((b & 0xFF) < 32 ? ' ' : b);
+        }
+        ops.setLength(0);
+        ops.append(") Tj ");
+        if (squeezed) ops.append("100 Tz ");
+        ops.append("ET\n");
+        appendOps();
+    }
+
+    /**
+     * Ancho de la línea en milésimas de em. Las letras acentuadas miden como su letra base.
+     */
+    private static float textWidth(CharSequence line, boolean bold) {
+        short[] widths = bold ? WIDTHS_BOLD : WIDTHS_REGULAR;
+        float total = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ELLIPSIS) {
+                total += ELLIPSIS_WIDTH;
+                continue;
+            }
+            if (c > 126) {
+                String base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+                c = base.charAt(0);
+            }
+            total += c >= 32 && c <= 126 ? widths[c - 32] : DEFAULT_WIDTH;
+        }
+        return total;
+    }
+
+    // -------------------------------------------------------------------
+    // FOTOS
+    // -------------------------------------------------------------------
+
+    /**
+     * Coloca la foto de un paso en el espacio reservado al medir, con el mismo tamaño que
+     * ReportPageRenderer.drawImage. Si ya no se puede leer, escribe el error en su lugar.
+     */
+    private void drawImage(ReportLayout.Fragment fragment, String photoUri) throws IOException {
+        Uri uri = Uri.parse(photoUri);
+        int[] shown = null;
+        try {
+            // Tamaño de dibujo en puntos (el que midió ReportLayout, nunca más alto que el fragmento)
+            shown = BitmapLoader.measureScaled(context, uri, fragment.width, fragment.height);
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "Error al cargar la imagen " + photoUri + ": " + e.getMessage(), e);
+        }
+        int object = shown != null ? writeImage(fragment.stepIndex, uri, shown[0], shown[1]) : -1;
+        if (object == -1) {
+            // La foto dejó de poder leerse entre la medición y el dibujo
+            TextPaint paint = styles.body;
+            CharSequence fitted = TextUtils.ellipsize("Error al cargar imagen.", paint,
+                    fragment.width, TextUtils.TruncateAt.END);
+            showLine(fitted, paint, fragment.left, fragment.top - paint.ascent(), fragment.width);
+            return;
+        }
+
+        ops.setLength(0);
+        ops.append("q ");
+        number(ops, shown[0]).append(" 0 0 ");
+        number(ops, shown[1]).append(' ');
+        number(ops, fragment.left).append(' ');
+        number(ops, ReportPageRenderer.PAGE_HEIGHT - fragment.top - shown[1]).append(" cm /Im").append(object).append(" Do Q\n");
+        appendOps();
+    }
+
+    /**
+     * Escribe la foto como XObject JPEG y la registra en los recursos de la página.
+     * Se copia el archivo original si ya es un JPEG que no supera la resolución pedida;
+     * si no, se decodifica a esa resolución y se recodifica con la calidad pedida.
+     * @param shownWidth Tamaño de dibujo en puntos.
+     * @return Número del objeto, o -1 si la foto no se pudo leer.
+     * @throws IOException si falló la escritura del PDF.
+     */
+    private int writeImage(int stepIndex, Uri uri, int shownWidth, int shownHeight) throws IOException {
+        int dpi = imageOptions.dpi;
+        int targetWidth = dpi > 0 ? Math.max(1, Math.round(shownWidth * dpi / 72f)) : shownWidth;
+        int targetHeight = dpi > 0 ? Math.max(1, Math.round(shownHeight * dpi / 72f)) : shownHeight;
+
+        // Todo lo que lee la foto va antes de empezar el objeto: un error de lectura no deja
+        // un objeto a medias en el PDF
+        long sourceBytes = -1;
+        int[] header = null;
+        Bitmap bitmap = null;
+        try {
+            sourceBytes = sourceLength(uri);
+            if (BitmapLoader.readExifOrientation(context, uri) == ExifInterface.ORIENTATION_NORMAL) {
+                header = probeJpeg(uri);
+            }
+            boolean passThrough = header != null && sourceBytes > 0
+                    && (dpi <= 0 || (header[0] <= targetWidth * PASS_THROUGH_SLACK
+                            && header[1] <= targetHeight * PASS_THROUGH_SLACK));
+            if (!passThrough) {
+                header = null;
+                bitmap = BitmapLoader.decodeScaled(context, uri, targetWidth, targetHeight, true, bitmaps);
+                if (bitmap == null) return -1;
+            }
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "Error al cargar la imagen " + uri + ": " + e.getMessage(), e);
+            return -1;
+        }
+
+        int object;
+        if (header != null) {
+            object = copyJpeg(uri, header, sourceBytes);
+            stats.record(stepIndex, sourceBytes, sourceBytes, header[0], header[1], shownWidth, shownHeight, true);
+        } else {
+            int width = bitmap.getWidth();
+            int height = bitmap.getHeight();
+            encoded.reset();
+            try {
+                if (!bitmap.compress(Bitmap.CompressFormat.JPEG, imageOptions.jpegQuality, encoded)) return -1;
+            } finally {
+                bitmaps.put(bitmap);
+            }
+            object = beginImage(width, height, 3, encoded.size());
+            write(encoded.array(), encoded.size());
+            writeAscii("\nendstream\nendobj\n");
+            stats.record(stepIndex, sourceBytes, encoded.size(), width, height, shownWidth, shownHeight, false);
+        }
+        pageImages.append("/Im").append(object).append(' ').append(object).append(" 0 R ");
+        return object;
+    }
+
+    /**
+     * Copia el archivo JPEG tal cual como flujo DCTDecode.
+     * @param header {ancho, alto, componentes} de probeJpeg.
+     */
+    private int copyJpeg(Uri uri, int[] header, long length) throws IOException {
+        ParcelFileDescriptor pfd = context.getContentResolver().openFileDescriptor(uri, "r");
+        if (pfd == null) throw new IOException("No se pudo abrir " + uri);
+        try (FileInputStream in = new ParcelFileDescriptor.AutoCloseInputStream(pfd)) {
+            int object = beginImage(header[0], header[1], header[2], length);
+            flush();
+            FileChannel source = in.getChannel();
+            long copied = 0;
+            while (copied < length) {
+                long n = source.transferTo(copied, length - copied, channel);
+                if (n <= 0) throw new IOException("La foto se acortó mientras se copiaba: " + uri);
+                copied += n;
+            }
+            position += length;
+            writeAscii("\nendstream\nendobj\n");
+            return object;
+        }
+    }
+
+    private int beginImage(int width, int height, int components, long length) throws IOException {
+        int object = nextObject++;
+        beginObject(object);
+        writeAscii("<< /Type /XObject /Subtype /Image /Width " + width + " /Height " + height
+                + " /ColorSpace " + (components == 1 ? "/DeviceGray" : "/DeviceRGB")
+                + " /BitsPerComponent 8 /Filter /DCTDecode /Length " + length + " >>\nstream\n");
+        return object;
+    }
+
+    /**
+     * Cabecera del JPEG si se puede incrustar sin transformarlo (gris o RGB de 8 bits).
+     * @return {ancho, alto, componentes}, o null si no es así (p. ej. PNG o CMYK).
+     */
+    private int[] probeJpeg(Uri uri) throws IOException {
+        try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+            if (in == null) return null;
+            int[] header = readJpegHeader(new BufferedInputStream(in, 8 * 1024));
+            return header != null && (header[2] == 1 || header[2] == 3) ? header : null;
+        }
+    }
+
+    private long sourceLength(Uri uri) throws IOException {
+        ParcelFileDescriptor pfd = context.getContentResolver().openFileDescriptor(uri, "r");
+        if (pfd == null) return -1;
+        try {
+            return pfd.getStatSize();
+        } finally {
+            pfd.close();
+        }
+    }
+
+    /**
+     * Lee los marcadores del JPEG hasta el SOF (inicio de cuadro).
+     * @return {ancho, alto, componentes}, o null si no es un JPEG de 8 bits.
+     */
+    static int[] readJpegHeader(InputStream in) throws IOException {
+        if (in.read() != 0xFF || in.read() != 0xD8) return null;
+        while (true) {
+            int marker = in.read();
+            if (marker != 0xFF) return null;
+            while (marker == 0xFF) marker = in.read(); // Bytes de relleno
+            if (marker < 0 || marker == 0xD9 || marker == 0xDA) return null; // Fin o datos sin SOF
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) continue; // Sin longitud
+
+            int length = (in.read() << 8) | in.read();
+            if (length < 2) return null;
+            boolean isFrame = marker >= 0xC0 && marker <= 0xCF
+                    && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+            if (isFrame) {
+                int precision = in.read();
+                int height = (in.read() << 8) | in.read();
+                int width = (in.read() << 8) | in.read();
+                int components = in.read();
+                if (precision != 8 || width <= 0 || height <= 0 || components < 0) return null;
+                return new int[]{ width, height, components };
+            }
+            long remaining = length - 2;
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    if (in.read() < 0) return null;
+                    skipped = 1;
+                }
+                remaining -= skipped;
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------
+    // ESCRITURA
+    // -------------------------------------------------------------------
+
+    private void beginObject(int number) throws IOException {
+        if (number >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(offsets.length * 2, number + 1));
+        }
+        offsets[number] = position;
+        writeAscii(number + " 0 obj\n");
+    }
+
+    private void appendOps() {
+        for (int i = 0; i < ops.length(); i++) {
+            content.write(ops.charAt(i));
+        }
+    }
+
+    private void writeAscii(String text) throws IOException {
+        write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        write(bytes, bytes.length);
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            if (!buffer.hasRemaining()) flush();
+            int n = Math.min(buffer.remaining(), length - offset);
+            buffer.put(bytes, offset, n);
+            offset += n;
+        }
+        position += length;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Número con a lo sumo dos decimales y punto decimal (sin depender del idioma del equipo).
+     */
+    private static StringBuilder number(StringBuilder out, float value) {
+        int hundredths = Math.round(value * 100);
+        if (hundredths < 0) {
+            out.append('-');
+            hundredths = -hundredths;
+        }
+        out.append(hundredths / 100);
+        int fraction = hundredths % 100;
+        if (fraction != 0) {
+            out.append('.').append(fraction / 10);
+            if (fraction % 10 != 0) out.append(fraction % 10);
+        }
+        return out;
+    }
+}
@@ -1,31 +1,31 @@
 package com.miempresa.bivlotectatecnica;
 
+import android.database.Cursor;
 import android.os.Bundle;
 import android.widget.Button; // 💡 Importación correcta para el botón
 import android.widget.ListView;
+import android.widget.SimpleCursorAdapter;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.miempresa.bivlotectatecnica.bd.AsyncUserProjectDatabase;
 import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
-import com.miempresa.bivlotectatecnica.bd.UserProjectDatabase;
-// Importación del adaptador para el listado de técnicos (se asume que existe)
-// import com.miempresa.bivlotectatecnica.bd.TechnicianCursorAdapter;
 // Si el layout usa FloatingActionButton, se debería usar:
 // import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 /**
  * Actividad para mostrar la lista de técnicos y permitir al administrador gestionar usuarios.
- * (Layout 3 ADMIN).
+ * (Layout 3 ADMIN). La lista se consulta en segundo plano (AsyncUserProjectDatabase).
  */
 public class TechnicianListActivity extends AppCompatActivity {
 
-    private UserProjectDatabase db;
+    private AsyncUserProjectDatabase db;
     private SessionManager session;
     private ListView techniciansListView;
     private Button btnAddTechnician; // 💡 CORREGIDO: Usamos Button para evitar error de casteo
 
-    // private TechnicianCursorAdapter adapter; // Adaptador para los técnicos
+    private SimpleCursorAdapter adapter; // Nombre y taller de cada usuario
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -33,7 +33,7 @@ public class TechnicianListActivity extends AppCompatActivity {
         // Asume que el layout se llama activity_tech_list
         setContentView(R.layout.activity_tech_list);
 
-        db = new UserProjectDatabase(this);
+        db = new AsyncUserProjectDatabase(this);
         session = new SessionManager(this);
 
         // 1. Seguridad estricta: Solo Admins pueden acceder a esta vista
@@ -48,8 +48,11 @@ public class TechnicianListActivity extends AppCompatActivity {
         // 💡 CORREGIDO: findViewById ahora busca un Button (o MaterialButton)
         btnAddTechnician = findViewById(R.id.btn_add_technician);
 
-        // 3. Configurar el adaptador (se implementará en onResume)
-        // loadTechniciansList();
+        // 3. Configurar el adaptador (el cursor llega en onResume)
+        adapter = new SimpleCursorAdapter(this, android.R.layout.simple_list_item_2, null,
+                new String[]{ UserProjectContract.UserEntry.COLUMN_NAME, "taller_nombre" },
+                new int[]{ android.R.id.text1, android.R.id.text2 }, 0);
+        techniciansListView.setAdapter(adapter);
 
         // 4. Listener para Agregar Nuevo Técnico (Pendiente: Crear NewTechnicianActivity.java)
         btnAddTechnician.setOnClickListener(v -> {
@@ -67,18 +70,32 @@ public class TechnicianListActivity extends AppCompatActivity {
         loadTechniciansList();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (db != null) {
+            db.cancelAll();
+        }
+        if (adapter != null) {
+            adapter.changeCursor(null); // Cierra el cursor actual
+        }
+    }
+
     /**
      * Carga todos los usuarios (técnicos y admins) para mostrarlos en la lista.
+     * La consulta corre en segundo plano; el cursor reemplaza al anterior al llegar.
      */
     private void loadTechniciansList() {
-        // 🚨 Pendiente: Implementar db.getAllUsers() en UserProjectDatabase.java
-        // Cursor cursor = db.getAllUsers();
-
-        // if (adapter != null) {
-        //     adapter.changeCursor(cursor);
-        //     // Simulación de carga real:
-        // }
-
-        Toast.makeText(this, "Cargando lista de técnicos...", Toast.LENGTH_SHORT).show();
+        db.getAllUsers(new AsyncUserProjectDatabase.Callback<Cursor>() {
+            @Override
+            public void onResult(Cursor cursor) {
+                adapter.changeCursor(cursor);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(TechnicianListActivity.this, "Error al cargar los usuarios.", Toast.LENGTH_LONG).show();
+            }
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,268 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fachada asíncrona sobre UserProjectDatabase: ninguna consulta corre en el hilo principal.
+ * Las escrituras van a un único hilo (se aplican en orden, sin competir por el bloqueo de
+ * escritura) y las lecturas a un pequeño pool, que con WAL pueden correr en paralelo.
+ * Los resultados se entregan en el hilo principal. Cada Activity crea su propia instancia
+ * y llama a cancelAll() en onDestroy; los hilos son compartidos por todo el proceso.
+ */
+public class AsyncUserProjectDatabase {
+
+    private static final String TAG = "AsyncUserProjectDB";
+
+    private static final int READER_THREADS = 2;
+    private static final int QUEUE_CAPACITY = 64; // Tareas en espera por ejecutor
+
+    private static final ExecutorService WRITER = newExecutor("db-writer", 1);
+    private static final ExecutorService READERS = newExecutor("db-reader", READER_THREADS);
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    /**
+     * Resultado de una operación, recibido en el hilo principal.
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        default void onError(Exception e) {
+            Log.e(TAG, "Error en operación de base de datos", e);
+        }
+    }
+
+    /**
+     * Operación a ejecutar en segundo plano con acceso al DAO.
+     */
+    public interface Operation<T> {
+        T run(UserProjectDatabase db) throws Exception;
+    }
+
+    /**
+     * Operación en curso. Al cancelarla no se entrega el resultado y, si es Closeable (un
+     * Cursor o un resultado que contiene uno), se cierra.
+     */
+    public static final class DbFuture<T> {
+        private volatile boolean cancelled;
+        private boolean interruptible; // Solo las lecturas se interrumpen al cancelar
+        private Future<?> task;
+        private AsyncUserProjectDatabase owner;
+
+        public void cancel() {
+            cancelled = true;
+            if (task != null && interruptible) task.cancel(true); // Una escritura en cola se ejecuta igual
+            if (owner != null) owner.untrack(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final UserProjectDatabase db;
+    private final Set<DbFuture<?>> inFlight = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public AsyncUserProjectDatabase(Context context) {
+        this(new UserProjectDatabase(context));
+    }
+
+    public AsyncUserProjectDatabase(UserProjectDatabase db) {
+        this.db = db;
+    }
+
+    /**
+     * Abre la base en el hilo escritor, antes de que ninguna pantalla la use: la creación y
+     * las migraciones (DBHelper.onUpgrade) corren ahí y las consultas que lleguen mientras
+     * tanto esperan en sus hilos. Llamar una vez al iniciar la app (BibliotecaApp.onCreate).
+     */
+    public static void openInBackground(Context context) {
+        DBHelper helper = DBHelper.getInstance(context);
+        WRITER.execute(() -> {
+            try {
+                helper.getWritableDatabase();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error al abrir la base de datos", e);
+            }
+        });
+    }
+
+    /**
+     * DAO síncrono, para código que ya corre en segundo plano (ej: generación de PDF).
+     */
+    public UserProjectDatabase getDatabase() {
+        return db;
+    }
+
+    /**
+     * Ejecuta una consulta de solo lectura en el pool de lectores.
+     */
+    public <T> DbFuture<T> read(Operation<T> operation, Callback<T> callback) {
+        return submit(READERS, true, operation, callback);
+    }
+
+    /**
+     * Ejecuta una escritura en el hilo escritor (orden FIFO).
+     * Cancelar solo descarta el aviso: una escritura ya pedida siempre se aplica.
+     */
+    public <T> DbFuture<T> write(Operation<T> operation, Callback<T> callback) {
+        return submit(WRITER, false, operation, callback);
+    }
+
+    /**
+     * Escritura en el hilo escritor, esperando su resultado. Para código que ya corre en
+     * segundo plano y necesita saber si la escritura se aplicó (ej: PhotoSweeper).
+     * No llamar desde el hilo principal ni desde una operación del propio hilo escritor.
+     * @throws Exception El error de la operación, o InterruptedException si se interrumpe la espera
+     *                   (la escritura ya pedida se aplica igual).
+     */
+    public <T> T writeAndWait(Operation<T> operation) throws Exception {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("writeAndWait no puede llamarse desde el hilo principal");
+        }
+        Future<T> task = WRITER.submit(() -> operation.run(db));
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * Cancela todas las operaciones pendientes de esta instancia. Llamar en onDestroy.
+     */
+    public void cancelAll() {
+        DbFuture<?>[] pending;
+        synchronized (inFlight) {
+            pending = inFlight.toArray(new DbFuture<?>[0]);
+            inFlight.clear();
+        }
+        for (DbFuture<?> future : pending) {
+            future.cancel();
+        }
+    }
+
+    // --- Atajos para las operaciones usadas por las Activities ---
+
+    public DbFuture<Cursor> checkUserCredentials(String username, String passwordHash, Callback<Cursor> callback) {
+        return read(dao -> dao.checkUserCredentials(username, passwordHash), callback);
+    }
+
+    public DbFuture<Cursor> getAllUsers(Callback<Cursor> callback) {
+        return read(dao -> fill(dao.getAllUsers()), callback);
+    }
+
+    public DbFuture<Cursor> getReportDetails(long reportId, Callback<Cursor> callback) {
+        return read(dao -> fill(dao.getReportDetails(reportId)), callback);
+    }
+
+    public DbFuture<Integer> getMaxStepNumber(long reportId, Callback<Integer> callback) {
+        return read(dao -> dao.getMaxStepNumber(reportId), callback);
+    }
+
+    public DbFuture<Long> insertReportSteps(long reportId, String componentName, String inventoryCode, long workshopId,
+                                            long userId, String actionType, List<UserProjectDatabase.Step> steps,
+                                            Callback<Long> callback) {
+        return write(dao -> dao.insertReportSteps(reportId, componentName, inventoryCode, workshopId,
+                userId, actionType, steps), callback);
+    }
+
+    /**
+     * Fuerza la ejecución de la consulta (los Cursor de SQLite son perezosos) en el hilo actual.
+     */
+    static Cursor fill(Cursor cursor) {
+        if (cursor != null) cursor.getCount();
+        return cursor;
+    }
+
+    private <T> DbFuture<T> submit(ExecutorService executor, boolean skipIfCancelled,
+                                   Operation<T> operation, Callback<T> callback) {
+        final DbFuture<T> future = new DbFuture<>();
+        future.owner = this;
+        future.interruptible = skipIfCancelled;
+        track(future);
+
+        try {
+            future.task = executor.submit((Callable<Void>) () -> {
+                T result = null;
+                Exception error = null;
+                try {
+                    result = (skipIfCancelled && future.cancelled) ? null : operation.run(db);
+                } catch (Exception e) {
+                    error = e;
+                }
+                deliver(future, result, error, callback);
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            deliver(future, null, e, callback);
+        }
+        return future;
+    }
+
+    private <T> void deliver(DbFuture<T> future, T result, Exception error, Callback<T> callback) {
+        MAIN.post(() -> {
+            untrack(future);
+            if (future.cancelled) {
+                if (result instanceof Closeable) closeQuietly((Closeable) result);
+                return;
+            }
+            if (error != null) {
+                callback.onError(error);
+            } else {
+                callback.onResult(result);
+            }
+        });
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Error al cerrar un resultado descartado", e);
+        }
+    }
+
+    private void track(DbFuture<?> future) {
+        synchronized (inFlight) {
+            inFlight.add(future);
+        }
+    }
+
+    private void untrack(DbFuture<?> future) {
+        synchronized (inFlight) {
+            inFlight.remove(future);
+        }
+    }
+
+    private static ExecutorService newExecutor(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+    }
+}
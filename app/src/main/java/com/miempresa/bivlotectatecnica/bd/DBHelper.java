@@ -2,8 +2,11 @@ package com.miempresa.bivlotectatecnica.bd;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.miempresa.bivlotectatecnica.bd.UserProjectContract.TallerEntry;
@@ -15,6 +18,11 @@ import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
 /**
  * Clase que extiende SQLiteOpenHelper. Gestiona la creación de tablas,
  * la actualización de la base de datos y la inserción de datos iniciales.
+ *
+ * La base se abre por primera vez en el hilo escritor de AsyncUserProjectDatabase
+ * (BibliotecaApp.onCreate llama a AsyncUserProjectDatabase.openInBackground), así la
+ * creación y las migraciones, que con tablas grandes tardan segundos, nunca bloquean la UI.
+ * onUpgrade falla si se la llama desde el hilo principal.
  */
 public class DBHelper extends SQLiteOpenHelper {
 
@@ -22,12 +30,66 @@ public class DBHelper extends SQLiteOpenHelper {
     private static final int DATABASE_VERSION = UserProjectContract.DATABASE_VERSION;
     private static final String TAG = "DBHelper";
 
-    public DBHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    // Ajustes de conexión para la carga de la app (muchas lecturas para el PDF + ráfagas de escritura)
+    private static final int CACHE_SIZE_KIB = 8 * 1024;          // 8 MiB de caché de páginas
+    private static final long MMAP_SIZE_BYTES = 64L * 1024 * 1024; // 64 MiB de lectura mapeada
+
+    // Instancia única para todo el proceso (una sola conexión/pool compartido)
+    private static volatile DBHelper instance;
+
+    // Versiones por tabla, compartidas por todos los DAO de esta base
+    private final TableChangeTracker changeTracker = new TableChangeTracker();
+
+    /**
+     * Devuelve el DBHelper compartido por toda la aplicación.
+     * Usa el contexto de aplicación para no retener ninguna Activity.
+     */
+    public static DBHelper getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DBHelper.class) {
+                if (instance == null) {
+                    instance = new DBHelper(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private DBHelper(Context context) {
+        this(context, DATABASE_NAME, null);
+    }
+
+    /**
+     * Constructor para pruebas: permite usar otra base (o una en memoria si name es null)
+     * y una CursorFactory propia para inspeccionar las consultas.
+     */
+    DBHelper(Context context, String name, SQLiteDatabase.CursorFactory factory) {
+        super(context, name, factory, DATABASE_VERSION);
+    }
+
+    /**
+     * Registro de cambios de las tablas de esta base (ver TableChangeTracker).
+     */
+    public TableChangeTracker getChangeTracker() {
+        return changeTracker;
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
+        // Se crea el esquema base (v1) y se aplica la misma cadena de migraciones que
+        // en una actualización, así una instalación nueva y una migrada quedan idénticas.
+        createBaseSchema(db);
+
+        // Insertar datos iniciales de talleres y usuarios
+        insertInitialData(db);
+
+        runMigrations(db, 1, DATABASE_VERSION);
+    }
+
+    /**
+     * Esquema original (versión 1) de las cuatro tablas.
+     */
+    static void createBaseSchema(SQLiteDatabase db) {
         // 1. Tabla TALLER
         final String SQL_CREATE_TALLER_TABLE = "CREATE TABLE " + TallerEntry.TABLE_NAME + " ("
                 + TallerEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
@@ -73,27 +135,78 @@ public class DBHelper extends SQLiteOpenHelper {
                 + " FOREIGN KEY (" + InformeEntry.COLUMN_COMPONENTE_ID + ") REFERENCES " +
                 ComponenteEntry.TABLE_NAME + "(" + ComponenteEntry._ID + ") ON DELETE CASCADE);";
         db.execSQL(SQL_CREATE_INFORME_TABLE);
-
-        // Insertar datos iniciales de talleres y usuarios
-        insertInitialData(db);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            // La cadena completa es una sola transacción: en el hilo principal sería un ANR
+            throw new IllegalStateException("La base debe abrirse fuera del hilo principal (ver AsyncUserProjectDatabase.openInBackground)");
+        }
         Log.w(TAG, "Actualizando la base de datos de la versión " + oldVersion + " a " + newVersion);
-        // Eliminar tablas en orden inverso a la creación para respetar FK
-        db.execSQL("DROP TABLE IF EXISTS " + InformeEntry.TABLE_NAME);
-        db.execSQL("DROP TABLE IF EXISTS " + ComponenteEntry.TABLE_NAME);
-        db.execSQL("DROP TABLE IF EXISTS " + UserEntry.TABLE_NAME);
-        db.execSQL("DROP TABLE IF EXISTS " + TallerEntry.TABLE_NAME);
-        onCreate(db);
+        // Las migraciones son incrementales y NO eliminan datos existentes.
+        runMigrations(db, oldVersion, newVersion);
     }
 
+    /**
+     * Ejecuta en orden los pasos de DBMigrations entre las dos versiones.
+     * Cada paso abre su transacción y se registra su duración, pero queda anidada en la que
+     * abre SQLiteOpenHelper: la cadena completa se confirma (o se descarta) de una vez, con
+     * la base bloqueada hasta el final. Por eso solo corre en segundo plano (ver onUpgrade).
+     */
+    private void runMigrations(SQLiteDatabase db, int fromVersion, int toVersion) {
+        long totalStart = SystemClock.elapsedRealtime();
+        int version = fromVersion;
+
+        while (version < toVersion) {
+            DBMigration migration = DBMigrations.forVersion(version);
+            if (migration == null) {
+                throw new IllegalStateException("No existe migración desde la versión " + version);
+            }
+
+            long start = SystemClock.elapsedRealtime();
+            db.beginTransaction();
+            try {
+                migration.migrate(db);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            Log.i(TAG, "Migración v" + migration.fromVersion + " -> v" + migration.toVersion
+                    + " completada en " + (SystemClock.elapsedRealtime() - start) + " ms");
+            version = migration.toVersion;
+        }
+
+        Log.i(TAG, "Esquema en versión " + toVersion + " (" + (SystemClock.elapsedRealtime() - totalStart) + " ms)");
+    }
+
+    /**
+     * Configura la conexión antes de onCreate/onUpgrade/onOpen.
+     * WAL permite que la exportación a PDF lea mientras un técnico guarda pasos.
+     */
     @Override
-    public void onOpen(SQLiteDatabase db) {
-        super.onOpen(db);
-        if (!db.isReadOnly()) {
-            db.execSQL("PRAGMA foreign_keys=ON;");
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.setForeignKeyConstraintsEnabled(true);
+        db.enableWriteAheadLogging(); // Devuelve false (sin efecto) en bases en memoria
+
+        // Con WAL, NORMAL solo sincroniza en los checkpoints: seguro ante caídas de la app.
+        // Estos PRAGMA aplican a la conexión principal (la que escribe).
+        execPragma(db, "synchronous = NORMAL");
+        execPragma(db, "cache_size = -" + CACHE_SIZE_KIB);
+        execPragma(db, "mmap_size = " + MMAP_SIZE_BYTES);
+        execPragma(db, "temp_store = MEMORY");
+    }
+
+    /**
+     * Ejecuta un PRAGMA con rawQuery: algunos devuelven una fila y execSQL los rechazaría.
+     */
+    private static void execPragma(SQLiteDatabase db, String pragma) {
+        Cursor cursor = db.rawQuery("PRAGMA " + pragma, null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
         }
     }
 
@@ -0,0 +1,78 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+/**
+ * Paso incremental del esquema (de una versión a la siguiente).
+ * DBHelper los ejecuta en orden. SQLiteOpenHelper ya envuelve onCreate/onUpgrade en una
+ * única transacción: la de cada paso queda anidada y nada se confirma hasta que termina
+ * toda la cadena (si un paso falla, la base queda en la versión anterior).
+ */
+abstract class DBMigration {
+
+    private static final String TAG = "DBMigration";
+
+    // Filas por lote al copiar tablas grandes (ej: informes con 100k registros).
+    // Acota el trabajo (y la memoria) de cada sentencia, no el tiempo total con la base
+    // bloqueada: lo que evita el ANR es que la actualización nunca corre en el hilo
+    // principal (ver DBHelper.onUpgrade).
+    static final int DEFAULT_BATCH_SIZE = 5000;
+
+    final int fromVersion;
+    final int toVersion;
+
+    DBMigration(int fromVersion) {
+        this.fromVersion = fromVersion;
+        this.toVersion = fromVersion + 1;
+    }
+
+    /**
+     * Aplica los cambios de esta versión. No debe abrir ni cerrar transacciones propias.
+     */
+    abstract void migrate(SQLiteDatabase db);
+
+    /**
+     * Copia filas de una tabla a otra por rangos de rowid, para no construir un único
+     * INSERT ... SELECT sobre toda la tabla. Los lotes NO se confirman por separado: todo
+     * corre dentro de la transacción de la actualización y el bloqueo dura hasta el final.
+     * @param insertSelectSql Sentencia "INSERT INTO destino (...) SELECT ... FROM origen"
+     *                        SIN cláusula WHERE; se le agrega el filtro por rango.
+     * @return Número total de filas copiadas.
+     */
+    static long copyInBatches(SQLiteDatabase db, String sourceTable, String sourceAlias,
+                              String insertSelectSql, int batchSize) {
+        long minRowId;
+        long maxRowId;
+        Cursor bounds = db.rawQuery("SELECT MIN(rowid), MAX(rowid) FROM " + sourceTable, null);
+        try {
+            if (!bounds.moveToFirst() || bounds.isNull(0)) {
+                return 0; // Tabla vacía
+            }
+            minRowId = bounds.getLong(0);
+            maxRowId = bounds.getLong(1);
+        } finally {
+            bounds.close();
+        }
+
+        String rowIdColumn = (sourceAlias != null ? sourceAlias + "." : "") + "rowid";
+        SQLiteStatement batch = db.compileStatement(insertSelectSql
+                + " WHERE " + rowIdColumn + " >= ? AND " + rowIdColumn + " < ?");
+        long copied = 0;
+        try {
+            for (long lower = minRowId; lower <= maxRowId; lower += batchSize) {
+                batch.bindLong(1, lower);
+                batch.bindLong(2, lower + batchSize);
+                copied += batch.executeUpdateDelete();
+                batch.clearBindings();
+            }
+        } finally {
+            batch.close();
+        }
+
+        Log.d(TAG, "Copiadas " + copied + " filas de " + sourceTable + " en lotes de " + batchSize);
+        return copied;
+    }
+}
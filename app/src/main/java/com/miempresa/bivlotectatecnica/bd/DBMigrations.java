@@ -0,0 +1,425 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.util.Log;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.BorradorEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.BorradorPasoEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.BusquedaEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ComponenteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.InformeEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ReporteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ResumenEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.TallerEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.UserEntry;
+
+/**
+ * Cadena ordenada de migraciones del esquema (v1 -> v2 -> ...).
+ * Para una nueva versión: añadir el paso aquí y subir DATABASE_VERSION en el contrato.
+ */
+final class DBMigrations {
+
+    private DBMigrations() {}
+
+    private static final String TAG = "DBMigrations";
+
+    // Índices secundarios (versión 2)
+    static final String INDEX_INFORMES_GRUPO = "idx_informes_componente_accion_paso";
+    static final String INDEX_INFORMES_FECHA = "idx_informes_fecha";
+    static final String INDEX_INFORMES_USUARIO_FECHA = "idx_informes_usuario_fecha";
+    static final String INDEX_USERS_NOMBRE = "idx_users_nombre";
+
+    /**
+     * v1 -> v2: índices para getStepsForReport (componente + acción ordenado por paso)
+     * y para getReportsList (orden por fecha, con o sin filtro por técnico).
+     * Los índices del listado incluyen las columnas de unión para no tocar la tabla base.
+     */
+    static final DBMigration MIGRATION_1_2 = new DBMigration(1) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_INFORMES_GRUPO + " ON " + InformeEntry.TABLE_NAME + " ("
+                    + InformeEntry.COLUMN_COMPONENTE_ID + ", "
+                    + InformeEntry.COLUMN_ACTION_TYPE + ", "
+                    + InformeEntry.COLUMN_STEP_NUMBER + ");");
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_INFORMES_FECHA + " ON " + InformeEntry.TABLE_NAME + " ("
+                    + InformeEntry.COLUMN_DATE_LOGGED + ", "
+                    + InformeEntry.COLUMN_COMPONENTE_ID + ", "
+                    + InformeEntry.COLUMN_USER_ID + ", "
+                    + InformeEntry.COLUMN_ACTION_TYPE + ");");
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_INFORMES_USUARIO_FECHA + " ON " + InformeEntry.TABLE_NAME + " ("
+                    + InformeEntry.COLUMN_USER_ID + ", "
+                    + InformeEntry.COLUMN_DATE_LOGGED + ", "
+                    + InformeEntry.COLUMN_COMPONENTE_ID + ", "
+                    + InformeEntry.COLUMN_ACTION_TYPE + ");");
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_USERS_NOMBRE + " ON " + UserEntry.TABLE_NAME + " ("
+                    + UserEntry.COLUMN_NAME + ");");
+        }
+    };
+
+    // Índices de la tabla de reportes (versión 3)
+    static final String INDEX_REPORTES_COMPONENTE = "idx_reportes_componente_accion";
+    static final String INDEX_REPORTES_FECHA = "idx_reportes_fecha";
+    static final String INDEX_REPORTES_USUARIO_FECHA = "idx_reportes_usuario_fecha";
+
+    /**
+     * v2 -> v3: el informe pasa a ser una entidad propia (tabla reportes) y cada paso
+     * la referencia con reporte_id. Se rellena a partir de los grupos componente + acción
+     * existentes y se reconstruye informes con UNIQUE(reporte_id, numero_paso), para que
+     * repetir el desarme de un mismo componente genere un informe nuevo.
+     */
+    static final DBMigration MIGRATION_2_3 = new DBMigration(2) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            // 1. Tabla de encabezados
+            db.execSQL("CREATE TABLE " + ReporteEntry.TABLE_NAME + " ("
+                    + ReporteEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + ReporteEntry.COLUMN_COMPONENTE_ID + " INTEGER NOT NULL,"
+                    + ReporteEntry.COLUMN_USER_ID + " INTEGER NOT NULL,"
+                    + ReporteEntry.COLUMN_ACTION_TYPE + " TEXT NOT NULL,"
+                    + ReporteEntry.COLUMN_DATE_CREATED + " DATETIME DEFAULT CURRENT_TIMESTAMP,"
+                    + ReporteEntry.COLUMN_DATE_MODIFIED + " DATETIME DEFAULT CURRENT_TIMESTAMP,"
+                    + " FOREIGN KEY (" + ReporteEntry.COLUMN_COMPONENTE_ID + ") REFERENCES " +
+                    ComponenteEntry.TABLE_NAME + "(" + ComponenteEntry._ID + ") ON DELETE CASCADE,"
+                    + " FOREIGN KEY (" + ReporteEntry.COLUMN_USER_ID + ") REFERENCES " +
+                    UserEntry.TABLE_NAME + "(" + UserEntry._ID + ") ON DELETE CASCADE);");
+
+            // 2. Un reporte por cada grupo (componente, acción) que existía implícitamente
+            db.execSQL("INSERT INTO " + ReporteEntry.TABLE_NAME + " ("
+                    + ReporteEntry.COLUMN_COMPONENTE_ID + ", " + ReporteEntry.COLUMN_ACTION_TYPE + ", "
+                    + ReporteEntry.COLUMN_USER_ID + ", " + ReporteEntry.COLUMN_DATE_CREATED + ", "
+                    + ReporteEntry.COLUMN_DATE_MODIFIED + ")"
+                    + " SELECT " + InformeEntry.COLUMN_COMPONENTE_ID + ", " + InformeEntry.COLUMN_ACTION_TYPE + ", "
+                    + "MIN(" + InformeEntry.COLUMN_USER_ID + "), MIN(" + InformeEntry.COLUMN_DATE_LOGGED + "), "
+                    + "MAX(" + InformeEntry.COLUMN_DATE_LOGGED + ")"
+                    + " FROM " + InformeEntry.TABLE_NAME
+                    + " GROUP BY " + InformeEntry.COLUMN_COMPONENTE_ID + ", " + InformeEntry.COLUMN_ACTION_TYPE);
+
+            db.execSQL("CREATE INDEX " + INDEX_REPORTES_COMPONENTE + " ON " + ReporteEntry.TABLE_NAME + " ("
+                    + ReporteEntry.COLUMN_COMPONENTE_ID + ", " + ReporteEntry.COLUMN_ACTION_TYPE + ");");
+            db.execSQL("CREATE INDEX " + INDEX_REPORTES_FECHA + " ON " + ReporteEntry.TABLE_NAME + " ("
+                    + ReporteEntry.COLUMN_DATE_MODIFIED + ");");
+            db.execSQL("CREATE INDEX " + INDEX_REPORTES_USUARIO_FECHA + " ON " + ReporteEntry.TABLE_NAME + " ("
+                    + ReporteEntry.COLUMN_USER_ID + ", " + ReporteEntry.COLUMN_DATE_MODIFIED + ");");
+
+            // 3. Nueva tabla de pasos referenciando al reporte
+            final String newTable = InformeEntry.TABLE_NAME + "_v3";
+            db.execSQL("CREATE TABLE " + newTable + " ("
+                    + InformeEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + InformeEntry.COLUMN_REPORTE_ID + " INTEGER NOT NULL,"
+                    + InformeEntry.COLUMN_STEP_NUMBER + " INTEGER NOT NULL,"
+                    + InformeEntry.COLUMN_DESCRIPTION + " TEXT,"
+                    + InformeEntry.COLUMN_PHOTO_URI + " TEXT NOT NULL,"
+                    + InformeEntry.COLUMN_DATE_LOGGED + " DATETIME DEFAULT CURRENT_TIMESTAMP,"
+                    + InformeEntry.COLUMN_USER_ID + " INTEGER NOT NULL,"
+                    + " UNIQUE (" + InformeEntry.COLUMN_REPORTE_ID + ", " + InformeEntry.COLUMN_STEP_NUMBER + "),"
+                    + " FOREIGN KEY (" + InformeEntry.COLUMN_USER_ID + ") REFERENCES " +
+                    UserEntry.TABLE_NAME + "(" + UserEntry._ID + ") ON DELETE CASCADE,"
+                    + " FOREIGN KEY (" + InformeEntry.COLUMN_REPORTE_ID + ") REFERENCES " +
+                    ReporteEntry.TABLE_NAME + "(" + ReporteEntry._ID + ") ON DELETE CASCADE);");
+
+            // 4. Copiar los pasos por lotes conservando su _id
+            DBMigration.copyInBatches(db, InformeEntry.TABLE_NAME, "I",
+                    "INSERT INTO " + newTable + " ("
+                            + InformeEntry._ID + ", " + InformeEntry.COLUMN_REPORTE_ID + ", "
+                            + InformeEntry.COLUMN_STEP_NUMBER + ", " + InformeEntry.COLUMN_DESCRIPTION + ", "
+                            + InformeEntry.COLUMN_PHOTO_URI + ", " + InformeEntry.COLUMN_DATE_LOGGED + ", "
+                            + InformeEntry.COLUMN_USER_ID + ")"
+                            + " SELECT I." + InformeEntry._ID + ", R." + ReporteEntry._ID + ", "
+                            + "I." + InformeEntry.COLUMN_STEP_NUMBER + ", I." + InformeEntry.COLUMN_DESCRIPTION + ", "
+                            + "I." + InformeEntry.COLUMN_PHOTO_URI + ", I." + InformeEntry.COLUMN_DATE_LOGGED + ", "
+                            + "I." + InformeEntry.COLUMN_USER_ID
+                            + " FROM " + InformeEntry.TABLE_NAME + " I"
+                            + " INNER JOIN " + ReporteEntry.TABLE_NAME + " R"
+                            + " ON R." + ReporteEntry.COLUMN_COMPONENTE_ID + " = I." + InformeEntry.COLUMN_COMPONENTE_ID
+                            + " AND R." + ReporteEntry.COLUMN_ACTION_TYPE + " = I." + InformeEntry.COLUMN_ACTION_TYPE,
+                    DBMigration.DEFAULT_BATCH_SIZE);
+
+            // 5. Reemplazar la tabla antigua (sus índices v2 se eliminan con ella)
+            db.execSQL("DROP TABLE " + InformeEntry.TABLE_NAME);
+            db.execSQL("ALTER TABLE " + newTable + " RENAME TO " + InformeEntry.TABLE_NAME);
+        }
+    };
+
+    // Triggers que mantienen sincronizado el índice de búsqueda (versión 4)
+    static final String TRIGGER_FTS_INFORME_INSERT = "trg_fts_informe_insert";
+    static final String TRIGGER_FTS_INFORME_UPDATE = "trg_fts_informe_update";
+    static final String TRIGGER_FTS_INFORME_DELETE = "trg_fts_informe_delete";
+    static final String TRIGGER_FTS_COMPONENTE_UPDATE = "trg_fts_componente_update";
+    static final String TRIGGER_FTS_REPORTE_UPDATE = "trg_fts_reporte_update";
+
+    /**
+     * v3 -> v4: índice de texto completo sobre la descripción de los pasos y el nombre y
+     * código del componente. Se usa FTS4 porque el SQLite de Android no incluye FTS5;
+     * el tokenizador unicode61 (sin acentos) se usa si está disponible, si no "simple".
+     * Triggers sobre informes, componentes y reportes lo mantienen sincronizado.
+     */
+    static final DBMigration MIGRATION_3_4 = new DBMigration(3) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            String columns = BusquedaEntry.COLUMN_DESCRIPTION + ", "
+                    + BusquedaEntry.COLUMN_COMPONENTE_NOMBRE + ", "
+                    + BusquedaEntry.COLUMN_CODIGO_INVENTARIO;
+            try {
+                db.execSQL("CREATE VIRTUAL TABLE " + BusquedaEntry.TABLE_NAME + " USING fts4("
+                        + columns + ", tokenize=unicode61 \"remove_diacritics=1\")");
+            } catch (SQLiteException e) {
+                Log.w(TAG, "unicode61 no disponible, se usa el tokenizador simple", e);
+                db.execSQL("CREATE VIRTUAL TABLE " + BusquedaEntry.TABLE_NAME + " USING fts4(" + columns + ")");
+            }
+
+            // Fila del índice para un paso: su descripción + datos del componente de su informe
+            String selectRowForStep = " SELECT NEW." + InformeEntry._ID + ", NEW." + InformeEntry.COLUMN_DESCRIPTION + ", "
+                    + "C." + ComponenteEntry.COLUMN_NAME + ", C." + ComponenteEntry.COLUMN_CODIGO_INVENTARIO
+                    + " FROM " + ReporteEntry.TABLE_NAME + " R INNER JOIN " + ComponenteEntry.TABLE_NAME + " C"
+                    + " ON C." + ComponenteEntry._ID + " = R." + ReporteEntry.COLUMN_COMPONENTE_ID
+                    + " WHERE R." + ReporteEntry._ID + " = NEW." + InformeEntry.COLUMN_REPORTE_ID + ";";
+            String insertInto = "INSERT INTO " + BusquedaEntry.TABLE_NAME + " (docid, " + columns + ")";
+
+            db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_INFORME_INSERT + " AFTER INSERT ON " + InformeEntry.TABLE_NAME
+                    + " BEGIN " + insertInto + selectRowForStep + " END;");
+            db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_INFORME_UPDATE + " AFTER UPDATE OF "
+                    + InformeEntry.COLUMN_DESCRIPTION + ", " + InformeEntry.COLUMN_REPORTE_ID + " ON " + InformeEntry.TABLE_NAME
+                    + " BEGIN DELETE FROM " + BusquedaEntry.TABLE_NAME + " WHERE docid = OLD." + InformeEntry._ID + "; "
+                    + insertInto + selectRowForStep + " END;");
+            db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_INFORME_DELETE + " AFTER DELETE ON " + InformeEntry.TABLE_NAME
+                    + " BEGIN DELETE FROM " + BusquedaEntry.TABLE_NAME + " WHERE docid = OLD." + InformeEntry._ID + "; END;");
+
+            db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_COMPONENTE_UPDATE + " AFTER UPDATE OF "
+                    + ComponenteEntry.COLUMN_NAME + ", " + ComponenteEntry.COLUMN_CODIGO_INVENTARIO + " ON " + ComponenteEntry.TABLE_NAME
+                    + " BEGIN UPDATE " + BusquedaEntry.TABLE_NAME + " SET "
+                    + BusquedaEntry.COLUMN_COMPONENTE_NOMBRE + " = NEW." + ComponenteEntry.COLUMN_NAME + ", "
+                    + BusquedaEntry.COLUMN_CODIGO_INVENTARIO + " = NEW." + ComponenteEntry.COLUMN_CODIGO_INVENTARIO
+                    + " WHERE docid IN (SELECT I." + InformeEntry._ID + " FROM " + InformeEntry.TABLE_NAME + " I"
+                    + " INNER JOIN " + ReporteEntry.TABLE_NAME + " R ON R." + ReporteEntry._ID + " = I." + InformeEntry.COLUMN_REPORTE_ID
+                    + " WHERE R." + ReporteEntry.COLUMN_COMPONENTE_ID + " = NEW." + ComponenteEntry._ID + "); END;");
+            db.execSQL("CREATE TRIGGER " + TRIGGER_FTS_REPORTE_UPDATE + " AFTER UPDATE OF "
+                    + ReporteEntry.COLUMN_COMPONENTE_ID + " ON " + ReporteEntry.TABLE_NAME
+                    + " BEGIN UPDATE " + BusquedaEntry.TABLE_NAME + " SET "
+                    + BusquedaEntry.COLUMN_COMPONENTE_NOMBRE + " = (SELECT " + ComponenteEntry.COLUMN_NAME + " FROM "
+                    + ComponenteEntry.TABLE_NAME + " WHERE " + ComponenteEntry._ID + " = NEW." + ReporteEntry.COLUMN_COMPONENTE_ID + "), "
+                    + BusquedaEntry.COLUMN_CODIGO_INVENTARIO + " = (SELECT " + ComponenteEntry.COLUMN_CODIGO_INVENTARIO + " FROM "
+                    + ComponenteEntry.TABLE_NAME + " WHERE " + ComponenteEntry._ID + " = NEW." + ReporteEntry.COLUMN_COMPONENTE_ID + ")"
+                    + " WHERE docid IN (SELECT " + InformeEntry._ID + " FROM " + InformeEntry.TABLE_NAME
+                    + " WHERE " + InformeEntry.COLUMN_REPORTE_ID + " = NEW." + ReporteEntry._ID + "); END;");
+
+            // Indexar los pasos existentes por lotes
+            DBMigration.copyInBatches(db, InformeEntry.TABLE_NAME, "I",
+                    insertInto + " SELECT I." + InformeEntry._ID + ", I." + InformeEntry.COLUMN_DESCRIPTION + ", "
+                            + "C." + ComponenteEntry.COLUMN_NAME + ", C." + ComponenteEntry.COLUMN_CODIGO_INVENTARIO
+                            + " FROM " + InformeEntry.TABLE_NAME + " I"
+                            + " INNER JOIN " + ReporteEntry.TABLE_NAME + " R ON R." + ReporteEntry._ID + " = I." + InformeEntry.COLUMN_REPORTE_ID
+                            + " INNER JOIN " + ComponenteEntry.TABLE_NAME + " C ON C." + ComponenteEntry._ID + " = R." + ReporteEntry.COLUMN_COMPONENTE_ID,
+                    DBMigration.DEFAULT_BATCH_SIZE);
+        }
+    };
+
+    /**
+     * v4 -> v5: borradores autoguardados de StepRegisterActivity. Un borrador por técnico e
+     * informe (reporte_id = -1 para uno nuevo); sus pasos se reescriben por número de paso.
+     * Al finalizar, el borrador se copia a reportes/informes y se borra en la misma transacción.
+     */
+    static final DBMigration MIGRATION_4_5 = new DBMigration(4) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + BorradorEntry.TABLE_NAME + " ("
+                    + BorradorEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + BorradorEntry.COLUMN_USER_ID + " INTEGER NOT NULL,"
+                    + BorradorEntry.COLUMN_REPORTE_ID + " INTEGER NOT NULL,"
+                    + BorradorEntry.COLUMN_COMPONENTE_NOMBRE + " TEXT,"
+                    + BorradorEntry.COLUMN_CODIGO_INVENTARIO + " TEXT,"
+                    + BorradorEntry.COLUMN_ACTION_TYPE + " TEXT,"
+                    + BorradorEntry.COLUMN_DATE_MODIFIED + " DATETIME DEFAULT CURRENT_TIMESTAMP,"
+                    + " UNIQUE (" + BorradorEntry.COLUMN_USER_ID + ", " + BorradorEntry.COLUMN_REPORTE_ID + "),"
+                    + " FOREIGN KEY (" + BorradorEntry.COLUMN_USER_ID + ") REFERENCES " +
+                    UserEntry.TABLE_NAME + "(" + UserEntry._ID + ") ON DELETE CASCADE);");
+
+            // Sin rowid: las filas se leen y reemplazan siempre por (borrador, paso)
+            db.execSQL("CREATE TABLE " + BorradorPasoEntry.TABLE_NAME + " ("
+                    + BorradorPasoEntry.COLUMN_BORRADOR_ID + " INTEGER NOT NULL,"
+                    + BorradorPasoEntry.COLUMN_STEP_NUMBER + " INTEGER NOT NULL,"
+                    + BorradorPasoEntry.COLUMN_DESCRIPTION + " TEXT,"
+                    + BorradorPasoEntry.COLUMN_PHOTO_URI + " TEXT,"
+                    + " PRIMARY KEY (" + BorradorPasoEntry.COLUMN_BORRADOR_ID + ", " + BorradorPasoEntry.COLUMN_STEP_NUMBER + "),"
+                    + " FOREIGN KEY (" + BorradorPasoEntry.COLUMN_BORRADOR_ID + ") REFERENCES " +
+                    BorradorEntry.TABLE_NAME + "(" + BorradorEntry._ID + ") ON DELETE CASCADE) WITHOUT ROWID;");
+        }
+    };
+
+    // Tabla resumen de informes (versión 6)
+    static final String INDEX_RESUMEN_FECHA = "idx_resumen_fecha";
+    static final String INDEX_RESUMEN_USUARIO_FECHA = "idx_resumen_usuario_fecha";
+    static final String INDEX_RESUMEN_COMPONENTE = "idx_resumen_componente";
+    static final String TRIGGER_RESUMEN_REPORTE_INSERT = "trg_resumen_reporte_insert";
+    static final String TRIGGER_RESUMEN_REPORTE_UPDATE = "trg_resumen_reporte_update";
+    static final String TRIGGER_RESUMEN_REPORTE_DELETE = "trg_resumen_reporte_delete";
+    static final String TRIGGER_RESUMEN_INFORME_INSERT = "trg_resumen_informe_insert";
+    static final String TRIGGER_RESUMEN_INFORME_UPDATE = "trg_resumen_informe_update";
+    static final String TRIGGER_RESUMEN_INFORME_DELETE = "trg_resumen_informe_delete";
+    static final String TRIGGER_RESUMEN_COMPONENTE_UPDATE = "trg_resumen_componente_update";
+    static final String TRIGGER_RESUMEN_USER_UPDATE = "trg_resumen_user_update";
+    static final String TRIGGER_RESUMEN_TALLER_UPDATE = "trg_resumen_taller_update";
+
+    // Paso sin foto real (ver UserProjectDatabase.promoteDraft): no sirve como portada
+    private static final String PLACEHOLDER_PHOTO = "'" + UserProjectContract.PLACEHOLDER_PHOTO_URI + "'";
+
+    static final String INSERT_INTO_RESUMEN = "INSERT OR REPLACE INTO " + ResumenEntry.TABLE_NAME + " ("
+            + ResumenEntry.COLUMN_REPORTE_ID + ", " + ResumenEntry.COLUMN_USER_ID + ", "
+            + ResumenEntry.COLUMN_COMPONENTE_ID + ", " + ResumenEntry.COLUMN_COMPONENTE_NOMBRE + ", "
+            + ResumenEntry.COLUMN_CODIGO_INVENTARIO + ", " + ResumenEntry.COLUMN_ACTION_TYPE + ", "
+            + ResumenEntry.COLUMN_TECNICO_NOMBRE + ", " + ResumenEntry.COLUMN_TALLER_NOMBRE + ", "
+            + ResumenEntry.COLUMN_NUM_PASOS + ", " + ResumenEntry.COLUMN_DATE_CREATED + ", "
+            + ResumenEntry.COLUMN_DATE_MODIFIED + ", " + ResumenEntry.COLUMN_FOTO_PORTADA + ")";
+
+    /**
+     * Conteo de pasos de un informe (sobre el índice UNIQUE(reporte_id, numero_paso)).
+     */
+    static String countSteps(String reportIdExpr) {
+        return "(SELECT COUNT(*) FROM " + InformeEntry.TABLE_NAME + " S WHERE S." + InformeEntry.COLUMN_REPORTE_ID
+                + " = " + reportIdExpr + ")";
+    }
+
+    /**
+     * Foto de portada de un informe: la del paso de menor número que tenga una foto real.
+     */
+    static String coverPhoto(String reportIdExpr) {
+        return "(SELECT S." + InformeEntry.COLUMN_PHOTO_URI + " FROM " + InformeEntry.TABLE_NAME + " S"
+                + " WHERE S." + InformeEntry.COLUMN_REPORTE_ID + " = " + reportIdExpr
+                + " AND S." + InformeEntry.COLUMN_PHOTO_URI + " <> " + PLACEHOLDER_PHOTO
+                + " ORDER BY S." + InformeEntry.COLUMN_STEP_NUMBER + " LIMIT 1)";
+    }
+
+    /**
+     * Fila de resumen calculada desde las tablas base, SIN cláusula WHERE (alias R = reportes).
+     * La usan los triggers, el relleno de la migración y la reconstrucción del DAO.
+     */
+    static final String SELECT_RESUMEN = "SELECT R." + ReporteEntry._ID + ", R." + ReporteEntry.COLUMN_USER_ID + ", "
+            + "R." + ReporteEntry.COLUMN_COMPONENTE_ID + ", C." + ComponenteEntry.COLUMN_NAME + ", "
+            + "C." + ComponenteEntry.COLUMN_CODIGO_INVENTARIO + ", R." + ReporteEntry.COLUMN_ACTION_TYPE + ", "
+            + "U." + UserEntry.COLUMN_NAME + ", T." + TallerEntry.COLUMN_NAME + ", "
+            + countSteps("R." + ReporteEntry._ID) + ", "
+            + "R." + ReporteEntry.COLUMN_DATE_CREATED + ", R." + ReporteEntry.COLUMN_DATE_MODIFIED + ", "
+            + coverPhoto("R." + ReporteEntry._ID)
+            + " FROM " + ReporteEntry.TABLE_NAME + " R"
+            + " INNER JOIN " + ComponenteEntry.TABLE_NAME + " C ON C." + ComponenteEntry._ID + " = R." + ReporteEntry.COLUMN_COMPONENTE_ID
+            + " INNER JOIN " + UserEntry.TABLE_NAME + " U ON U." + UserEntry._ID + " = R." + ReporteEntry.COLUMN_USER_ID
+            // Taller del componente, como en el encabezado del PDF
+            + " LEFT JOIN " + TallerEntry.TABLE_NAME + " T ON T." + TallerEntry._ID + " = C." + ComponenteEntry.COLUMN_WORKSHOP_ID;
+
+    /**
+     * v5 -> v6: tabla resumen_informes, una fila por informe con lo que muestran la lista y el
+     * encabezado del PDF (componente, técnico, taller, número de pasos, fechas y foto de portada).
+     * Así esas pantallas leen una fila por clave en lugar de unir cuatro tablas y contar pasos.
+     * Los triggers la actualizan en la misma transacción que cada escritura: al agregar o
+     * borrar un paso solo se ajusta el conteo y la portada; los cambios de reportes o de
+     * nombres (componente, técnico, taller) se propagan a las filas afectadas.
+     */
+    static final DBMigration MIGRATION_5_6 = new DBMigration(5) {
+        @Override
+        void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + ResumenEntry.TABLE_NAME + " ("
+                    + ResumenEntry.COLUMN_REPORTE_ID + " INTEGER PRIMARY KEY,"
+                    + ResumenEntry.COLUMN_USER_ID + " INTEGER NOT NULL,"
+                    + ResumenEntry.COLUMN_COMPONENTE_ID + " INTEGER NOT NULL,"
+                    + ResumenEntry.COLUMN_COMPONENTE_NOMBRE + " TEXT,"
+                    + ResumenEntry.COLUMN_CODIGO_INVENTARIO + " TEXT,"
+                    + ResumenEntry.COLUMN_ACTION_TYPE + " TEXT,"
+                    + ResumenEntry.COLUMN_TECNICO_NOMBRE + " TEXT,"
+                    + ResumenEntry.COLUMN_TALLER_NOMBRE + " TEXT,"
+                    + ResumenEntry.COLUMN_NUM_PASOS + " INTEGER NOT NULL DEFAULT 0,"
+                    + ResumenEntry.COLUMN_DATE_CREATED + " DATETIME,"
+                    + ResumenEntry.COLUMN_DATE_MODIFIED + " DATETIME,"
+                    + ResumenEntry.COLUMN_FOTO_PORTADA + " TEXT);");
+
+            // Mismo orden que la lista (fecha DESC, _id DESC); el rowid ya forma parte de cada índice
+            db.execSQL("CREATE INDEX " + INDEX_RESUMEN_FECHA + " ON " + ResumenEntry.TABLE_NAME + " ("
+                    + ResumenEntry.COLUMN_DATE_MODIFIED + ");");
+            db.execSQL("CREATE INDEX " + INDEX_RESUMEN_USUARIO_FECHA + " ON " + ResumenEntry.TABLE_NAME + " ("
+                    + ResumenEntry.COLUMN_USER_ID + ", " + ResumenEntry.COLUMN_DATE_MODIFIED + ");");
+            db.execSQL("CREATE INDEX " + INDEX_RESUMEN_COMPONENTE + " ON " + ResumenEntry.TABLE_NAME + " ("
+                    + ResumenEntry.COLUMN_COMPONENTE_ID + ");");
+
+            String resumenId = ResumenEntry.TABLE_NAME + "." + ResumenEntry.COLUMN_REPORTE_ID;
+
+            // reportes: la fila completa se recalcula (una vez por lote de pasos guardado)
+            db.execSQL("CREATE TRIGGER " + TRIGGER_RESUMEN_REPORTE_INSERT + " AFTER INSERT ON " + ReporteEntry.TABLE_NAME
+                    + " BEGIN " + INSERT_INTO_RESUMEN + " " + SELECT_RESUMEN
+                    + " WHERE R." + ReporteEntry._ID + " = NEW." + ReporteEntry._ID + "; END;");
+            db.execSQL("CREATE TRIGGER " + TRIGGER_RESUMEN_REPORTE_UPDATE + " AFTER UPDATE ON " + ReporteEntry.TABLE_NAME
+                    + " BEGIN DELETE FROM " + ResumenEntry.TABLE_NAME + " WHERE " + ResumenEntry.COLUMN_REPORTE_ID + " = OLD." + ReporteEntry._ID + "; "
+                    + INSERT_INTO_RESUMEN + " " + SELECT_RESUMEN
+                    + " WHERE R." + ReporteEntry._ID + " = NEW." + ReporteEntry._ID + "; END;");
+            db.execSQL("CREATE TRIGGER " + TRIGGER_RESUMEN_REPORTE_DELETE + " AFTER DELETE ON " + ReporteEntry.TABLE_NAME
+                    + " BEGIN DELETE FROM " + ResumenEntry.TABLE_NAME
+                    + " WHERE " + ResumenEntry.COLUMN_REPORTE_ID + " = OLD." + ReporteEntry._ID + "; END;");
+
+            // informes: ajuste incremental del conteo; la portada es una búsqueda por índice
+            db.execSQL("CREATE TRIGGER " + TRIGGER_RESUMEN_INFORME_INSERT + " AFTER INSERT ON " + InformeEntry.TABLE_NAME
+                    + " BEGIN UPDATE " + ResumenEntry.TABLE_NAME + " SET "
+                    + ResumenEntry.COLUMN_NUM_PASOS + " = " + ResumenEntry.COLUMN_NUM_PASOS + " + 1, "
+                    + ResumenEntry.COLUMN_FOTO_PORTADA + " = " + coverPhoto("NEW." + InformeEntry.COLUMN_REPORTE_ID)
+                    + " WHERE " + ResumenEntry.COLUMN_REPORTE_ID + " = NEW." + InformeEntry.COLUMN_REPORTE_ID + "; END;");
+            db.execSQL("CREATE TRIGGER " + TRIGGER_RESUMEN_INFORME_UPDATE + " AFTER UPDATE OF "
+                    + InformeEntry.COLUMN_REPORTE_ID + ", " + InformeEntry.COLUMN_STEP_NUMBER + ", " + InformeEntry.COLUMN_PHOTO_URI
+                    + " ON " + InformeEntry.TABLE_NAME
+                    + " BEGIN UPDATE " + ResumenEntry.TABLE_NAME + " SET "
+                    + ResumenEntry.COLUMN_NUM_PASOS + " = " + countSteps(resumenId) + ", "
+                    + ResumenEntry.COLUMN_FOTO_PORTADA + " = " + coverPhoto(resumenId)
+                    + " WHERE " + ResumenEntry.COLUMN_REPORTE_ID + " IN (OLD." + InformeEntry.COLUMN_REPORTE_ID
+                    + ", NEW." + InformeEntry.COLUMN_REPORTE_ID + "); END;");
+            db.execSQL("CREATE TRIGGER " + TRIGGER_RESUMEN_INFORME_DELETE + " AFTER DELETE ON " + InformeEntry.TABLE_NAME
+                    + " BEGIN UPDATE " + ResumenEntry.TABLE_NAME + " SET "
+                    + ResumenEntry.COLUMN_NUM_PASOS + " = " + ResumenEntry.COLUMN_NUM_PASOS + " - 1, "
+                    + ResumenEntry.COLUMN_FOTO_PORTADA + " = " + coverPhoto("OLD." + InformeEntry.COLUMN_REPORTE_ID)
+                    + " WHERE " + ResumenEntry.COLUMN_REPORTE_ID + " = OLD." + InformeEntry.COLUMN_REPORTE_ID + "; END;");
+
+            // Nombres copiados desde componentes, users y taller
+            db.execSQL("CREATE TRIGGER " + TRIGGER_RESUMEN_COMPONENTE_UPDATE + " AFTER UPDATE OF "
+                    + ComponenteEntry.COLUMN_NAME + ", " + ComponenteEntry.COLUMN_CODIGO_INVENTARIO + ", "
+                    + ComponenteEntry.COLUMN_WORKSHOP_ID + " ON " + ComponenteEntry.TABLE_NAME
+                    + " BEGIN UPDATE " + ResumenEntry.TABLE_NAME + " SET "
+                    + ResumenEntry.COLUMN_COMPONENTE_NOMBRE + " = NEW." + ComponenteEntry.COLUMN_NAME + ", "
+                    + ResumenEntry.COLUMN_CODIGO_INVENTARIO + " = NEW." + ComponenteEntry.COLUMN_CODIGO_INVENTARIO + ", "
+                    + ResumenEntry.COLUMN_TALLER_NOMBRE + " = (SELECT " + TallerEntry.COLUMN_NAME + " FROM " + TallerEntry.TABLE_NAME
+                    + " WHERE " + TallerEntry._ID + " = NEW." + ComponenteEntry.COLUMN_WORKSHOP_ID + ")"
+                    + " WHERE " + ResumenEntry.COLUMN_COMPONENTE_ID + " = NEW." + ComponenteEntry._ID + "; END;");
+            db.execSQL("CREATE TRIGGER " + TRIGGER_RESUMEN_USER_UPDATE + " AFTER UPDATE OF "
+                    + UserEntry.COLUMN_NAME + " ON " + UserEntry.TABLE_NAME
+                    + " BEGIN UPDATE " + ResumenEntry.TABLE_NAME + " SET "
+                    + ResumenEntry.COLUMN_TECNICO_NOMBRE + " = NEW." + UserEntry.COLUMN_NAME
+                    + " WHERE " + ResumenEntry.COLUMN_USER_ID + " = NEW." + UserEntry._ID + "; END;");
+            db.execSQL("CREATE TRIGGER " + TRIGGER_RESUMEN_TALLER_UPDATE + " AFTER UPDATE OF "
+                    + TallerEntry.COLUMN_NAME + " ON " + TallerEntry.TABLE_NAME
+                    + " BEGIN UPDATE " + ResumenEntry.TABLE_NAME + " SET "
+                    + ResumenEntry.COLUMN_TALLER_NOMBRE + " = NEW." + TallerEntry.COLUMN_NAME
+                    + " WHERE " + ResumenEntry.COLUMN_COMPONENTE_ID + " IN (SELECT " + ComponenteEntry._ID
+                    + " FROM " + ComponenteEntry.TABLE_NAME + " WHERE " + ComponenteEntry.COLUMN_WORKSHOP_ID
+                    + " = NEW." + TallerEntry._ID + "); END;");
+
+            // Rellenar con los informes existentes por lotes
+            DBMigration.copyInBatches(db, ReporteEntry.TABLE_NAME, "R",
+                    INSERT_INTO_RESUMEN + " " + SELECT_RESUMEN, DBMigration.DEFAULT_BATCH_SIZE);
+        }
+    };
+
+    // Orden de aplicación; la posición i migra de la versión (i + 1) a la (i + 2)
+    private static final DBMigration[] ALL = {
+            MIGRATION_1_2,
+            MIGRATION_2_3,
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+    };
+
+    /**
+     * Devuelve el paso que parte de la versión indicada, o null si no existe.
+     */
+    static DBMigration forVersion(int fromVersion) {
+        for (DBMigration migration : ALL) {
+            if (migration.fromVersion == fromVersion) {
+                return migration;
+            }
+        }
+        return null;
+    }
+}
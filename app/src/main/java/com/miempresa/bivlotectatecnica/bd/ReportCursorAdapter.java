@@ -8,23 +8,43 @@ import android.view.ViewGroup;
 import android.widget.CursorAdapter;
 import android.widget.TextView;
 import android.widget.ImageButton;
-import android.widget.Toast;
 import android.util.Log;
 
 import com.miempresa.bivlotectatecnica.R;
-import com.miempresa.bivlotectatecnica.bd.UserProjectContract.InformeEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ReporteEntry;
 import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
 
+import java.util.Arrays;
+
 /**
  * Adaptador personalizado para mostrar los Informes en la ListView.
  * Une los datos del Informe, Componente, y Técnico de la consulta JOIN.
+ * Cada fila guarda sus vistas en un ViewHolder y los índices de columna se resuelven una
+ * vez por cursor, así enlazar una fila (al hacer scroll) no busca vistas ni arma Strings
+ * intermedios. Los valores se leen con getString: la lista es un MergeCursor de páginas y
+ * AbstractCursor.copyStringToBuffer también crea el String, así que un CharArrayBuffer no ahorraría nada.
  */
 public class ReportCursorAdapter extends CursorAdapter {
 
     private static final String TAG = "ReportCursorAdapter";
     private final String userRole;
+    private final boolean isAdmin;
     private final OnReportActionListener listener; // 🚨 Nueva Interfaz
 
+    // Un único listener para todos los botones de PDF: lee el informe del holder en el tag
+    private final View.OnClickListener pdfClickListener;
+
+    // Índices de columna del cursor actual (se resuelven en swapCursor)
+    private boolean columnsResolved;
+    private String columnError;
+    private int reportIdIndex;
+    private int componenteNombreIndex;
+    private int codigoInventarioIndex;
+    private int tipoAccionIndex;
+    private int tecnicoNombreIndex;
+    private int dateLoggedIndex;
+    private int numPasosIndex;
+
     // 🚨 INTERFAZ DE LISTENER para comunicar el clic del botón de vuelta a la Activity
     public interface OnReportActionListener {
         void onGeneratePdfClicked(long reportId);
@@ -34,7 +54,15 @@ public class ReportCursorAdapter extends CursorAdapter {
     public ReportCursorAdapter(Context context, Cursor c, String userRole, OnReportActionListener listener) {
         super(context, c, 0 /* flags */);
         this.userRole = userRole;
+        this.isAdmin = UserProjectContract.ROLE_ADMIN.equals(userRole);
         this.listener = listener;
+        this.pdfClickListener = v -> {
+            // 🚨 Llama a la Activity a través de la interfaz
+            if (this.listener != null) {
+                this.listener.onGeneratePdfClicked(((ViewHolder) v.getTag()).reportId);
+            }
+        };
+        resolveColumns(c); // El constructor de CursorAdapter no pasa por swapCursor
     }
 
     // Constructor simplificado (para mantener compatibilidad si se usa con solo 2 argumentos)
@@ -43,73 +71,159 @@ public class ReportCursorAdapter extends CursorAdapter {
     }
 
 
+    /**
+     * Cambia el cursor y vuelve a resolver los índices de columna (una vez por cursor, no por fila).
+     */
+    @Override
+    public Cursor swapCursor(Cursor newCursor) {
+        resolveColumns(newCursor);
+        return super.swapCursor(newCursor);
+    }
+
+    private void resolveColumns(Cursor cursor) {
+        columnsResolved = false;
+        if (cursor == null) return;
+        try {
+            // Índices de columna (usando los ALIAS de UserProjectDatabase.getReportsList())
+            reportIdIndex = cursor.getColumnIndexOrThrow(ReporteEntry._ID);
+            componenteNombreIndex = cursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_COMPONENTE_NOMBRE);
+            codigoInventarioIndex = cursor.getColumnIndexOrThrow(UserProjectContract.ComponenteEntry.COLUMN_CODIGO_INVENTARIO);
+            tipoAccionIndex = cursor.getColumnIndexOrThrow(ReporteEntry.COLUMN_ACTION_TYPE);
+            tecnicoNombreIndex = cursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_TECNICO_NOMBRE);
+            dateLoggedIndex = cursor.getColumnIndexOrThrow(ReporteEntry.COLUMN_DATE_MODIFIED);
+            numPasosIndex = cursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_NUM_PASOS);
+            columnsResolved = true;
+        } catch (IllegalArgumentException e) {
+            columnError = e.getMessage();
+            Log.e(TAG, "Error al enlazar vistas: Columna no encontrada. Verifica los alias del DAO.", e);
+        }
+    }
+
+    /**
+     * Referencias a las vistas de una fila y búferes de texto reutilizables.
+     * Se guarda en el tag de la fila y en el del botón de PDF.
+     */
+    static final class ViewHolder {
+        final TextView tvTitle;
+        final TextView tvSubtitle;
+        final TextView tvTechnician;
+        final ImageButton btnGeneratePdfItem;
+        long reportId;
+
+        // Texto final de cada vista (TextView.setText(char[], ...) no copia a un String)
+        final RowText title = new RowText();
+        final RowText subtitle = new RowText();
+        final RowText technician = new RowText();
+
+        ViewHolder(View row) {
+            tvTitle = row.findViewById(R.id.tv_report_title);
+            tvSubtitle = row.findViewById(R.id.tv_report_subtitle);
+            tvTechnician = row.findViewById(R.id.tv_report_technician);
+            btnGeneratePdfItem = row.findViewById(R.id.btn_generate_pdf_item); // Botón de PDF en la fila
+        }
+    }
+
+    /**
+     * Arreglo de caracteres que crece solo cuando un texto no cabe.
+     */
+    static final class RowText {
+        char[] chars = new char[64];
+        int length;
+
+        RowText clear() {
+            length = 0;
+            return this;
+        }
+
+        /**
+         * Un NULL queda como "null", igual que en una concatenación.
+         */
+        RowText append(String text) {
+            if (text == null) text = "null";
+            ensure(text.length());
+            text.getChars(0, text.length(), chars, length);
+            length += text.length();
+            return this;
+        }
+
+        RowText append(int value) {
+            if (value < 0) {
+                ensure(1);
+                chars[length++] = '-';
+                value = -value;
+            }
+            int digits = 1;
+            for (int v = value; v >= 10; v /= 10) digits++;
+            ensure(digits);
+            for (int i = length + digits - 1; i >= length; i--) {
+                chars[i] = (char) ('0' + value % 10);
+                value /= 10;
+            }
+            length += digits;
+            return this;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + extra));
+            }
+        }
+
+        void applyTo(TextView view) {
+            view.setText(chars, 0, length);
+        }
+    }
+
     @Override
     public View newView(Context context, Cursor cursor, ViewGroup parent) {
-        // Infla el layout de la fila list_item_report.xml
-        // Usamos el layout del contexto que ya tiene el R
-        return LayoutInflater.from(context).inflate(R.layout.list_item_report, parent, false);
+        // Infla el layout de la fila list_item_report.xml y guarda sus vistas en el holder
+        View row = LayoutInflater.from(context).inflate(R.layout.list_item_report, parent, false);
+        ViewHolder holder = new ViewHolder(row);
+        row.setTag(holder);
+        holder.btnGeneratePdfItem.setTag(holder);
+        holder.btnGeneratePdfItem.setOnClickListener(pdfClickListener);
+        return row;
     }
 
     /**
-     * Vincula los datos del Cursor a las vistas de la fila.
+     * Vincula los datos del Cursor a las vistas de la fila. Solo crea los String que devuelve
+     * el cursor: las vistas y los índices ya están resueltos y los textos se arman en los
+     * búferes del holder.
      */
     @Override
     public void bindView(View view, Context context, Cursor cursor) {
-        // IDs de las vistas en list_item_report.xml
-        TextView tvTitle = view.findViewById(R.id.tv_report_title);
-        TextView tvSubtitle = view.findViewById(R.id.tv_report_subtitle);
-        TextView tvTechnician = view.findViewById(R.id.tv_report_technician);
-        ImageButton btnGeneratePdfItem = view.findViewById(R.id.btn_generate_pdf_item); // Botón de PDF en la fila
-
-        try {
-            // 1. Obtener índices de columna (usando los ALIAS de UserProjectDatabase.getReportsList())
-            int reportIdIndex = cursor.getColumnIndexOrThrow(UserProjectContract.InformeEntry._ID);
-            int componenteNombreIndex = cursor.getColumnIndexOrThrow("componente_nombre");
-            int codigoInventarioIndex = cursor.getColumnIndexOrThrow(UserProjectContract.ComponenteEntry.COLUMN_CODIGO_INVENTARIO);
-            int tipoAccionIndex = cursor.getColumnIndexOrThrow(InformeEntry.COLUMN_ACTION_TYPE);
-            int tecnicoNombreIndex = cursor.getColumnIndexOrThrow(UserProjectContract.ALIAS_TECNICO_NOMBRE);
-            int dateLoggedIndex = cursor.getColumnIndexOrThrow(InformeEntry.COLUMN_DATE_LOGGED);
-
-            // Obtener el ID de la fila para las acciones
-            final long reportId = cursor.getLong(reportIdIndex);
-
-            // 2. Extraer valores
-            String componenteNombre = cursor.getString(componenteNombreIndex);
-            String codigoInventario = cursor.getString(codigoInventarioIndex);
-            String tipoAccion = cursor.getString(tipoAccionIndex);
-            String tecnicoNombre = cursor.getString(tecnicoNombreIndex);
-            String dateLogged = cursor.getString(dateLoggedIndex);
-
-            // 3. Formatear los textos
-            String fullTitle = componenteNombre + " (" + codigoInventario + ")";
-            String subtitle = tipoAccion + " - " + dateLogged;
-
-            // 4. Asignar los valores a las vistas
-            tvTitle.setText(fullTitle);
-            tvSubtitle.setText(subtitle);
-            tvTechnician.setText("Por: " + tecnicoNombre);
-
-            // 5. LÓGICA DEL BOTÓN DE PDF (Solo visible para Admin)
-            if (UserProjectContract.ROLE_ADMIN.equals(userRole)) {
-                btnGeneratePdfItem.setVisibility(View.VISIBLE);
-
-                // 🚨 Asignar el Listener que llama a la Activity a través de la interfaz
-                btnGeneratePdfItem.setOnClickListener(v -> {
-                    if (listener != null) {
-                        listener.onGeneratePdfClicked(reportId);
-                    }
-                });
-            } else {
-                btnGeneratePdfItem.setVisibility(View.GONE);
-                // Asegurarse de que no haya listener residual
-                btnGeneratePdfItem.setOnClickListener(null);
-            }
+        ViewHolder holder = (ViewHolder) view.getTag();
 
-        } catch (IllegalArgumentException e) {
-            Log.e(TAG, "Error al enlazar vistas: Columna no encontrada. Verifica los alias del DAO.", e);
-            tvTitle.setText("ERROR AL CARGAR DATOS");
-            tvSubtitle.setText("Error: " + e.getMessage());
-            btnGeneratePdfItem.setVisibility(View.GONE);
+        if (!columnsResolved) {
+            holder.tvTitle.setText("ERROR AL CARGAR DATOS");
+            holder.tvSubtitle.setText("Error: " + columnError);
+            holder.btnGeneratePdfItem.setVisibility(View.GONE);
+            return;
         }
+
+        // 1. Obtener el ID de la fila para las acciones (lo lee el listener desde el tag)
+        holder.reportId = cursor.getLong(reportIdIndex);
+
+        // 2. Extraer valores
+        String componenteNombre = cursor.getString(componenteNombreIndex);
+        String codigoInventario = cursor.getString(codigoInventarioIndex);
+        String tipoAccion = cursor.getString(tipoAccionIndex);
+        String tecnicoNombre = cursor.getString(tecnicoNombreIndex);
+        String dateLogged = cursor.getString(dateLoggedIndex);
+        int numPasos = cursor.getInt(numPasosIndex);
+
+        // 3. Formatear los textos: "Componente (Código)", "ACCIÓN - fecha - N pasos", "Por: técnico"
+        holder.title.clear().append(componenteNombre).append(" (").append(codigoInventario).append(")");
+        holder.subtitle.clear().append(tipoAccion).append(" - ").append(dateLogged)
+                .append(" - ").append(numPasos).append(" pasos");
+        holder.technician.clear().append("Por: ").append(tecnicoNombre);
+
+        // 4. Asignar los valores a las vistas
+        holder.title.applyTo(holder.tvTitle);
+        holder.subtitle.applyTo(holder.tvSubtitle);
+        holder.technician.applyTo(holder.tvTechnician);
+
+        // 5. LÓGICA DEL BOTÓN DE PDF (Solo visible para Admin; el listener es único, ver newView)
+        holder.btnGeneratePdfItem.setVisibility(isAdmin ? View.VISIBLE : View.GONE);
     }
-}
\ No newline at end of file
+}
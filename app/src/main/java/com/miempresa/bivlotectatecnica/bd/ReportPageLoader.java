@@ -0,0 +1,254 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.database.Cursor;
+import android.database.MergeCursor;
+import android.util.Log;
+import android.widget.AbsListView;
+
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ComponenteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.InformeEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ReporteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ResumenEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.TallerEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.UserEntry;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Carga la lista de informes por páginas en segundo plano (pool de lectores de
+ * AsyncUserProjectDatabase) y las agrega al ReportCursorAdapter a medida que el
+ * ListView se desplaza. Usa getReportsPage (keyset sobre fecha_modificacion, _id), nunca OFFSET.
+ *
+ * Recuerda la versión (TableChangeTracker) de las tablas del JOIN con la que se cargó la
+ * lista: reloadIfChanged() no vuelve a consultar si ninguna cambió desde entonces.
+ */
+public class ReportPageLoader implements AbsListView.OnScrollListener {
+
+    private static final String TAG = "ReportPageLoader";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 15; // Filas restantes antes de pedir la siguiente página
+
+    // Tablas de las que sale la lista: getReportsPage lee resumen_informes, que los triggers
+    // actualizan con cada escritura en las demás (la reconstrucción solo toca el resumen)
+    private static final String[] LIST_TABLES = {
+            ResumenEntry.TABLE_NAME, ReporteEntry.TABLE_NAME, InformeEntry.TABLE_NAME,
+            ComponenteEntry.TABLE_NAME, UserEntry.TABLE_NAME, TallerEntry.TABLE_NAME
+    };
+
+    private final AsyncUserProjectDatabase db;
+    private final TableChangeTracker changeTracker;
+    private final ReportCursorAdapter adapter;
+    private final long userId;
+    private final String role;
+    private final int pageSize;
+    private final int prefetchDistance;
+
+    // Resultado de una página: el cursor ya ejecutado y la clave de su última fila.
+    // Es Closeable para que AsyncUserProjectDatabase cierre el cursor si se cancela la carga.
+    static final class Page implements Closeable {
+        Cursor cursor;
+        String lastDate;
+        long lastId = -1;
+
+        @Override
+        public void close() {
+            if (cursor != null) cursor.close();
+        }
+    }
+
+    // Estado (solo se modifica en el hilo principal)
+    private final List<Cursor> pages = new ArrayList<>();
+    private String lastDate;
+    private long lastId = -1;
+    private boolean loading;
+    private boolean endReached;
+    private int generation; // Descarta resultados de una carga anterior a reload()
+    private boolean closed;
+    private long listVersion = -1; // Versión de LIST_TABLES de la lista mostrada o en carga (-1: ninguna)
+    private AsyncUserProjectDatabase.DbFuture<Page> pendingPage;
+
+    // Recarga la lista si cambian sus tablas mientras está visible (p. ej. un informe que
+    // termina de guardarse en el hilo escritor después de volver a esta pantalla)
+    private final TableChangeTracker.Observer changeObserver = this::onTablesChanged;
+
+    public ReportPageLoader(AsyncUserProjectDatabase db, ReportCursorAdapter adapter, long userId, String role) {
+        this(db, adapter, userId, role, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE);
+    }
+
+    public ReportPageLoader(AsyncUserProjectDatabase db, ReportCursorAdapter adapter, long userId, String role,
+                            int pageSize, int prefetchDistance) {
+        this.db = db;
+        this.changeTracker = db.getDatabase().getChangeTracker();
+        this.adapter = adapter;
+        this.userId = userId;
+        this.role = role;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    /**
+     * Vuelve a cargar desde la primera página. Las páginas actuales siguen visibles
+     * hasta que llega la nueva primera página.
+     */
+    public void reload() {
+        generation++;
+        listVersion = changeTracker.getVersion(LIST_TABLES); // Se lee antes de consultar
+        if (pendingPage != null) pendingPage.cancel();
+        loading = false;
+        endReached = false;
+        lastDate = null;
+        lastId = -1;
+        loadNextPage(true);
+    }
+
+    /**
+     * Recarga solo si cambió alguna tabla de la lista desde la última carga (o si aún no
+     * se cargó nada). Si no, cuenta la consulta evitada en el TableChangeTracker.
+     * @return true si se pidió una recarga.
+     */
+    public boolean reloadIfChanged() {
+        if (listVersion != -1 && listVersion == changeTracker.getVersion(LIST_TABLES)) {
+            changeTracker.recordAvoidedQuery();
+            Log.d(TAG, "Lista sin cambios; consultas evitadas: " + changeTracker.getAvoidedQueryCount());
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    /**
+     * Empieza a recargar la lista cuando cambian sus tablas. Llamar en onStart.
+     */
+    public void startObserving() {
+        changeTracker.addObserver(changeObserver);
+    }
+
+    /**
+     * Deja de observar cambios. Llamar en onStop.
+     */
+    public void stopObserving() {
+        changeTracker.removeObserver(changeObserver);
+    }
+
+    private void onTablesChanged(Set<String> tables) {
+        for (String table : LIST_TABLES) {
+            if (tables.contains(table)) {
+                reloadIfChanged();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Libera los cursores y detiene el hilo de carga. Llamar en onDestroy.
+     */
+    public void close() {
+        generation++;
+        closed = true;
+        stopObserving();
+        if (pendingPage != null) pendingPage.cancel();
+        adapter.swapCursor(null);
+        closePages();
+    }
+
+    @Override
+    public void onScrollStateChanged(AbsListView view, int scrollState) {
+        // Sin acción: la precarga se decide en onScroll
+    }
+
+    @Override
+    public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        if (!loading && !endReached && totalItemCount > 0
+                && firstVisibleItem + visibleItemCount >= totalItemCount - prefetchDistance) {
+            loadNextPage(false);
+        }
+    }
+
+    private void loadNextPage(boolean firstPage) {
+        if (closed) {
+            return;
+        }
+        loading = true;
+        final int requestGeneration = generation;
+        final String afterDate = firstPage ? null : lastDate;
+        final long afterId = firstPage ? -1 : lastId;
+
+        pendingPage = db.read(dao -> {
+            Page page = new Page();
+            page.cursor = dao.getReportsPage(userId, role, afterDate, afterId, pageSize);
+            // getCount() ejecuta la consulta y llena la ventana aquí, no en el hilo de UI
+            if (page.cursor != null && page.cursor.getCount() > 0 && page.cursor.moveToLast()) {
+                page.lastDate = page.cursor.getString(page.cursor.getColumnIndexOrThrow(ReporteEntry.COLUMN_DATE_MODIFIED));
+                page.lastId = page.cursor.getLong(page.cursor.getColumnIndexOrThrow(ReporteEntry._ID));
+            }
+            return page;
+        }, new AsyncUserProjectDatabase.Callback<Page>() {
+            @Override
+            public void onResult(Page page) {
+                onPageLoaded(requestGeneration, firstPage, page);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error al cargar una página de informes", e);
+                onPageLoaded(requestGeneration, firstPage, new Page());
+            }
+        });
+    }
+
+    private void onPageLoaded(int requestGeneration, boolean firstPage, Page result) {
+        Cursor page = result.cursor;
+        if (requestGeneration != generation) {
+            if (page != null) page.close(); // Resultado obsoleto
+            return;
+        }
+        loading = false;
+        pendingPage = null;
+
+        if (page == null) {
+            if (firstPage) listVersion = -1; // La lista no se actualizó: la próxima vez se reintenta
+            endReached = true;
+            return;
+        }
+
+        int count = page.getCount();
+        if (firstPage) {
+            // Reemplazar el contenido completo: la lista anterior se cierra después del swap
+            List<Cursor> oldPages = new ArrayList<>(pages);
+            pages.clear();
+            pages.add(page);
+            publish();
+            for (Cursor old : oldPages) old.close();
+        } else if (count > 0) {
+            pages.add(page);
+            publish();
+        } else {
+            page.close();
+        }
+
+        endReached = count < pageSize;
+        if (result.lastDate != null) {
+            lastDate = result.lastDate;
+            lastId = result.lastId;
+        }
+    }
+
+    /**
+     * Entrega al adaptador una vista unificada de todas las páginas cargadas.
+     * Se usa swapCursor para no cerrar las páginas, que se reutilizan en el siguiente MergeCursor.
+     */
+    private void publish() {
+        adapter.swapCursor(new MergeCursor(pages.toArray(new Cursor[0])));
+    }
+
+    private void closePages() {
+        for (Cursor page : pages) {
+            page.close();
+        }
+        pages.clear();
+    }
+}
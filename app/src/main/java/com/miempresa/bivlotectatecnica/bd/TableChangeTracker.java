@@ -0,0 +1,107 @@
+package com.miempresa.bivlotectatecnica.bd;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro de cambios por tabla. Cada escritura confirmada del DAO incrementa la versión de
+ * las tablas que tocó y avisa a los observadores (en el hilo principal). Así una pantalla
+ * puede comparar la versión de las tablas que muestra y no volver a consultar si nada cambió.
+ *
+ * Hay uno por DBHelper (uno por proceso en la app). La versión se incrementa después del
+ * commit: quien lee la versión ANTES de consultar nunca se queda con datos viejos (a lo sumo
+ * repite una consulta).
+ */
+public final class TableChangeTracker {
+
+    /**
+     * Aviso de cambio, recibido en el hilo principal con las tablas modificadas.
+     */
+    public interface Observer {
+        void onTablesChanged(Set<String> tables);
+    }
+
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private final Map<String, Long> versions = new HashMap<>();
+    private final CopyOnWriteArrayList<Observer> observers = new CopyOnWriteArrayList<>();
+    private final AtomicLong avoidedQueries = new AtomicLong();
+
+    // Tablas modificadas por transacciones anidadas que aún esperan el commit de la externa
+    private final ThreadLocal<Set<String>> pending = ThreadLocal.withInitial(HashSet::new);
+
+    /**
+     * Versión combinada de varias tablas: cambia si cambia cualquiera de ellas.
+     */
+    public long getVersion(String... tables) {
+        long version = 0;
+        synchronized (versions) {
+            for (String table : tables) {
+                Long v = versions.get(table);
+                if (v != null) version += v;
+            }
+        }
+        return version;
+    }
+
+    public void addObserver(Observer observer) {
+        observers.addIfAbsent(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    /**
+     * Cuenta una consulta que no se ejecutó porque los datos no habían cambiado.
+     */
+    public void recordAvoidedQuery() {
+        avoidedQueries.incrementAndGet();
+    }
+
+    public long getAvoidedQueryCount() {
+        return avoidedQueries.get();
+    }
+
+    /**
+     * Llamar después de endTransaction() (o de una escritura suelta) con las tablas modificadas.
+     * Si la escritura quedó dentro de otra transacción, el aviso espera a que termine la externa:
+     * se publica si se confirma y se descarta si se revierte.
+     * @param committed true si la escritura se confirmó (setTransactionSuccessful).
+     */
+    void onWriteFinished(SQLiteDatabase db, boolean committed, String... tables) {
+        Set<String> changed = pending.get();
+        if (committed) Collections.addAll(changed, tables);
+        if (db.inTransaction()) return; // Transacción anidada: decide la externa
+
+        if (!committed || changed.isEmpty()) {
+            changed.clear();
+            return;
+        }
+        final Set<String> published = new HashSet<>(changed);
+        changed.clear();
+        synchronized (versions) {
+            for (String table : published) {
+                Long v = versions.get(table);
+                versions.put(table, v == null ? 1 : v + 1);
+            }
+        }
+        if (!observers.isEmpty()) {
+            MAIN.post(() -> {
+                Set<String> readOnly = Collections.unmodifiableSet(published);
+                for (Observer observer : observers) {
+                    observer.onTablesChanged(readOnly);
+                }
+            });
+        }
+    }
+}
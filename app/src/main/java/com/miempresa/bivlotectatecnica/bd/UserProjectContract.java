@@ -1,17 +1,19 @@
 package com.miempresa.bivlotectatecnica.bd;
 
 import android.provider.BaseColumns;
+import android.text.TextUtils;
 
 /**
  * Contrato de la base de datos para el proyecto de registro fotográfico.
- * Define las tablas: TALLER, USUARIO, COMPONENTE, INFORME.
+ * Define las tablas: TALLER, USUARIO, COMPONENTE, REPORTE, INFORME, los BORRADORES y el
+ * RESUMEN de informes.
  */
 public final class UserProjectContract {
 
     private UserProjectContract() {}
 
     public static final String DATABASE_NAME = "mecanico_log.db";
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 6;
 
     // Constantes para Roles
     public static final String ROLE_ADMIN = "Admin";
@@ -20,6 +22,20 @@ public final class UserProjectContract {
     // Alias para uso en consultas JOIN
     public static final String ALIAS_TECNICO_NOMBRE = "tecnico_nombre";
     public static final String ALIAS_TALLER_NOMBRE = "taller_nombre";
+    public static final String ALIAS_COMPONENTE_NOMBRE = "componente_nombre";
+    public static final String ALIAS_NUM_PASOS = "num_pasos";
+    public static final String ALIAS_SNIPPET = "fragmento";
+    public static final String ALIAS_RANK = "relevancia";
+
+    // foto_uri no admite NULL: los pasos sin foto se guardan con este valor (ver promoteDraft)
+    public static final String PLACEHOLDER_PHOTO_URI = "placeholder_uri";
+
+    /**
+     * true si el paso tiene una foto real: ni vacía ni el marcador de "sin foto".
+     */
+    public static boolean hasPhoto(String photoUri) {
+        return !TextUtils.isEmpty(photoUri) && !PLACEHOLDER_PHOTO_URI.equals(photoUri);
+    }
 
 
     // -------------------------------------------------------------
@@ -53,17 +69,81 @@ public final class UserProjectContract {
         public static final String COLUMN_WORKSHOP_ID = "taller_id"; // FK a TallerEntry
     }
 
+    // -------------------------------------------------------------
+    // TABLA REPORTE (Encabezado del Informe: agrupa sus pasos)
+    public static abstract class ReporteEntry implements BaseColumns {
+        public static final String TABLE_NAME = "reportes";
+        public static final String _ID = BaseColumns._ID;
+        public static final String COLUMN_COMPONENTE_ID = "componente_id"; // FK a ComponenteEntry
+        public static final String COLUMN_USER_ID = "user_id"; // FK (técnico que lo creó)
+        public static final String COLUMN_ACTION_TYPE = "tipo_accion"; // 'ARMADO' o 'DESARME'
+        public static final String COLUMN_DATE_CREATED = "fecha_creacion"; // TIMESTAMP
+        public static final String COLUMN_DATE_MODIFIED = "fecha_modificacion"; // TIMESTAMP del último paso
+    }
+
     // -------------------------------------------------------------
     // TABLA INFORME (Registro Fotográfico/Paso)
     public static abstract class InformeEntry implements BaseColumns {
         public static final String TABLE_NAME = "informes";
         public static final String _ID = BaseColumns._ID;
+        public static final String COLUMN_REPORTE_ID = "reporte_id"; // FK a ReporteEntry (desde v3)
         public static final String COLUMN_USER_ID = "user_id"; // FK
-        public static final String COLUMN_COMPONENTE_ID = "componente_id"; // FK
-        public static final String COLUMN_ACTION_TYPE = "tipo_accion"; // 'Armado' o 'Desarme'
+        public static final String COLUMN_COMPONENTE_ID = "componente_id"; // Solo esquema v1/v2 (ahora en ReporteEntry)
+        public static final String COLUMN_ACTION_TYPE = "tipo_accion"; // Solo esquema v1/v2 (ahora en ReporteEntry)
         public static final String COLUMN_STEP_NUMBER = "numero_paso";
         public static final String COLUMN_DESCRIPTION = "descripcion";
         public static final String COLUMN_PHOTO_URI = "foto_uri";
         public static final String COLUMN_DATE_LOGGED = "date_logged"; // TIMESTAMP
     }
-}
\ No newline at end of file
+
+    // -------------------------------------------------------------
+    // TABLA VIRTUAL BUSQUEDA (Índice de texto completo FTS4; docid = InformeEntry._ID)
+    public static abstract class BusquedaEntry {
+        public static final String TABLE_NAME = "busqueda_fts";
+        public static final String COLUMN_DESCRIPTION = "descripcion"; // De InformeEntry
+        public static final String COLUMN_COMPONENTE_NOMBRE = "componente_nombre"; // De ComponenteEntry
+        public static final String COLUMN_CODIGO_INVENTARIO = "codigo_inventario"; // De ComponenteEntry
+    }
+
+    // -------------------------------------------------------------
+    // TABLA BORRADOR (Informe en curso, autoguardado; uno por técnico e informe)
+    public static abstract class BorradorEntry implements BaseColumns {
+        public static final String TABLE_NAME = "borradores";
+        public static final String _ID = BaseColumns._ID;
+        public static final String COLUMN_USER_ID = "user_id"; // FK a UserEntry
+        public static final String COLUMN_REPORTE_ID = "reporte_id"; // Informe al que se agregan pasos, o -1 si es nuevo
+        public static final String COLUMN_COMPONENTE_NOMBRE = "componente_nombre";
+        public static final String COLUMN_CODIGO_INVENTARIO = "codigo_inventario";
+        public static final String COLUMN_ACTION_TYPE = "tipo_accion";
+        public static final String COLUMN_DATE_MODIFIED = "fecha_modificacion"; // TIMESTAMP del último guardado
+    }
+
+    // -------------------------------------------------------------
+    // TABLA BORRADOR_PASO (Pasos del borrador; PK borrador + número de paso)
+    public static abstract class BorradorPasoEntry {
+        public static final String TABLE_NAME = "borrador_pasos";
+        public static final String COLUMN_BORRADOR_ID = "borrador_id"; // FK a BorradorEntry
+        public static final String COLUMN_STEP_NUMBER = "numero_paso";
+        public static final String COLUMN_DESCRIPTION = "descripcion";
+        public static final String COLUMN_PHOTO_URI = "foto_uri";
+    }
+
+    // -------------------------------------------------------------
+    // TABLA RESUMEN (Una fila por informe con los datos de la lista y del encabezado del PDF).
+    // Desnormalizada: la mantienen triggers sobre reportes, informes, componentes, users y taller.
+    public static abstract class ResumenEntry {
+        public static final String TABLE_NAME = "resumen_informes";
+        public static final String COLUMN_REPORTE_ID = "reporte_id"; // PK = ReporteEntry._ID
+        public static final String COLUMN_USER_ID = "user_id"; // Técnico que lo creó
+        public static final String COLUMN_COMPONENTE_ID = "componente_id";
+        public static final String COLUMN_COMPONENTE_NOMBRE = ALIAS_COMPONENTE_NOMBRE;
+        public static final String COLUMN_CODIGO_INVENTARIO = "codigo_inventario";
+        public static final String COLUMN_ACTION_TYPE = "tipo_accion";
+        public static final String COLUMN_TECNICO_NOMBRE = ALIAS_TECNICO_NOMBRE;
+        public static final String COLUMN_TALLER_NOMBRE = ALIAS_TALLER_NOMBRE; // Taller del componente
+        public static final String COLUMN_NUM_PASOS = ALIAS_NUM_PASOS;
+        public static final String COLUMN_DATE_CREATED = "fecha_creacion";
+        public static final String COLUMN_DATE_MODIFIED = "fecha_modificacion";
+        public static final String COLUMN_FOTO_PORTADA = "foto_portada"; // Foto del primer paso que tenga una, o NULL
+    }
+}
@@ -3,19 +3,34 @@ package com.miempresa.bivlotectatecnica.bd;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
 import android.util.Log;
 
 // Importaciones de clases internas del contrato
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.BorradorEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.BorradorPasoEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.BusquedaEntry;
 import com.miempresa.bivlotectatecnica.bd.UserProjectContract.TallerEntry;
 import com.miempresa.bivlotectatecnica.bd.UserProjectContract.UserEntry;
 import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ComponenteEntry;
 import com.miempresa.bivlotectatecnica.bd.UserProjectContract.InformeEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ReporteEntry;
+import com.miempresa.bivlotectatecnica.bd.UserProjectContract.ResumenEntry;
 import com.miempresa.bivlotectatecnica.bd.UserProjectContract;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 /**
  * Data Access Object (DAO) para la gestión de las operaciones CRUD de la base de datos.
@@ -24,11 +39,73 @@ import java.util.List;
 public class UserProjectDatabase {
 
     private final DBHelper dbHelper;
+    private final TableChangeTracker changeTracker;
     private static final String TAG = "UserProjectDatabase";
 
+    // Sentencia de inserción de pasos (se compila una vez por lote)
+    private static final String SQL_INSERT_STEP = "INSERT INTO " + InformeEntry.TABLE_NAME + " ("
+            + InformeEntry.COLUMN_REPORTE_ID + ", "
+            + InformeEntry.COLUMN_STEP_NUMBER + ", "
+            + InformeEntry.COLUMN_DESCRIPTION + ", "
+            + InformeEntry.COLUMN_PHOTO_URI + ", "
+            + InformeEntry.COLUMN_USER_ID + ") VALUES (?, ?, ?, ?, ?)";
+
+    // Alta o reemplazo de un paso del borrador (se compila una vez por lote)
+    private static final String SQL_UPSERT_DRAFT_STEP = "INSERT OR REPLACE INTO " + BorradorPasoEntry.TABLE_NAME + " ("
+            + BorradorPasoEntry.COLUMN_BORRADOR_ID + ", "
+            + BorradorPasoEntry.COLUMN_STEP_NUMBER + ", "
+            + BorradorPasoEntry.COLUMN_DESCRIPTION + ", "
+            + BorradorPasoEntry.COLUMN_PHOTO_URI + ") VALUES (?, ?, ?, ?)";
+
+    // Peso de cada columna del índice FTS en la relevancia: descripción, nombre, código
+    private static final double[] SEARCH_COLUMN_WEIGHTS = { 1.0, 2.0, 3.0 };
+
+    /**
+     * Datos de un paso listo para guardar (sin referencias a vistas).
+     */
+    public static class Step {
+        public final int stepNumber;
+        public final String description;
+        public final String photoUri;
+
+        public Step(int stepNumber, String description, String photoUri) {
+            this.stepNumber = stepNumber;
+            this.description = description;
+            this.photoUri = photoUri;
+        }
+    }
+
+    /**
+     * Borrador de un informe en curso: encabezado y pasos tal como los dejó el técnico.
+     * Los pasos pueden estar vacíos o sin foto; se filtran al finalizar.
+     */
+    public static class Draft {
+        public long id = -1;
+        public String componentName;
+        public String inventoryCode;
+        public String actionType;
+        public final List<Step> steps = new ArrayList<>();
+    }
+
     public UserProjectDatabase(Context context) {
-        // Usa el paquete de DBHelper (asumimos que ya lo corrigió)
-        this.dbHelper = new DBHelper(context);
+        // Todas las Activities comparten el mismo DBHelper (singleton de aplicación)
+        this.dbHelper = DBHelper.getInstance(context);
+        this.changeTracker = dbHelper.getChangeTracker();
+    }
+
+    /**
+     * Constructor para pruebas: usa un DBHelper ya configurado.
+     */
+    UserProjectDatabase(DBHelper dbHelper) {
+        this.dbHelper = dbHelper;
+        this.changeTracker = dbHelper.getChangeTracker();
+    }
+
+    /**
+     * Versiones por tabla: cada escritura de este DAO las incrementa al confirmarse.
+     */
+    public TableChangeTracker getChangeTracker() {
+        return changeTracker;
     }
 
     // ===================================================================
@@ -90,60 +167,395 @@ public class UserProjectDatabase {
      */
     public long getOrInsertComponenteId(String name, String inventoryCode, long workshopId) {
         SQLiteDatabase db = dbHelper.getWritableDatabase();
-        long componenteId = -1;
-        Cursor cursor = null;
-
+        boolean inserted = false;
         try {
-            // 1. Intentar buscar por código de inventario
-            String[] projection = { ComponenteEntry._ID };
-            String selection = ComponenteEntry.COLUMN_CODIGO_INVENTARIO + " = ?";
-            String[] selectionArgs = { inventoryCode };
-
-            cursor = db.query(
-                    ComponenteEntry.TABLE_NAME,
-                    projection,
-                    selection,
-                    selectionArgs,
-                    null, null, null
-            );
+            long componenteId = findComponenteId(db, inventoryCode);
+            if (componenteId == -1) {
+                componenteId = insertComponente(db, name, inventoryCode, workshopId);
+                inserted = true;
+            }
+            return componenteId;
+        } catch (Exception e) {
+            Log.e(TAG, "Error en getOrInsertComponenteId", e);
+            return -1;
+        } finally {
+            // Solo una inserción cambia la tabla; encontrar el componente no publica versión
+            changeTracker.onWriteFinished(db, inserted, ComponenteEntry.TABLE_NAME);
+        }
+    }
+
+    /**
+     * Busca un componente por su código de inventario.
+     * @return ID del componente, o -1 si no existe.
+     */
+    private long findComponenteId(SQLiteDatabase db, String inventoryCode) {
+        String[] projection = { ComponenteEntry._ID };
+        String selection = ComponenteEntry.COLUMN_CODIGO_INVENTARIO + " = ?";
+        String[] selectionArgs = { inventoryCode };
 
+        Cursor cursor = db.query(
+                ComponenteEntry.TABLE_NAME,
+                projection,
+                selection,
+                selectionArgs,
+                null, null, null
+        );
+
+        try {
             if (cursor != null && cursor.moveToFirst()) {
-                // Componente encontrado
-                componenteId = cursor.getLong(cursor.getColumnIndexOrThrow(ComponenteEntry._ID));
+                return cursor.getLong(cursor.getColumnIndexOrThrow(ComponenteEntry._ID));
+            }
+            return -1;
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+    }
+
+    /**
+     * Inserta un componente nuevo sin capturar errores, para usarlo dentro de una transacción.
+     */
+    private long insertComponente(SQLiteDatabase db, String name, String inventoryCode, long workshopId) {
+        ContentValues values = new ContentValues();
+        values.put(ComponenteEntry.COLUMN_NAME, name);
+        values.put(ComponenteEntry.COLUMN_CODIGO_INVENTARIO, inventoryCode);
+        values.put(ComponenteEntry.COLUMN_WORKSHOP_ID, workshopId);
+
+        // Insertar y obtener la nueva ID
+        return db.insertOrThrow(ComponenteEntry.TABLE_NAME, null, values);
+    }
+
+    /**
+     * Guarda los pasos de un informe en UNA transacción, reutilizando una sentencia compilada.
+     * Si reportId es -1 obtiene/crea el componente y crea el encabezado del informe;
+     * si no, agrega los pasos al informe existente. Si algún paso falla se deshace todo.
+     * @return ID del informe, o -1 si hubo un error y no se guardó nada.
+     */
+    public long insertReportSteps(long reportId, String componentName, String inventoryCode, long workshopId,
+                                  long userId, String actionType, List<Step> steps) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement insertStep = null;
+        boolean committed = false;
+        boolean componentInserted = false;
+
+        db.beginTransaction();
+        try {
+            if (reportId == -1) {
+                long componenteId = findComponenteId(db, inventoryCode);
+                if (componenteId == -1) {
+                    componenteId = insertComponente(db, componentName, inventoryCode, workshopId);
+                    componentInserted = true;
+                }
+
+                ContentValues header = new ContentValues();
+                header.put(ReporteEntry.COLUMN_COMPONENTE_ID, componenteId);
+                header.put(ReporteEntry.COLUMN_USER_ID, userId);
+                header.put(ReporteEntry.COLUMN_ACTION_TYPE, actionType);
+                reportId = db.insertOrThrow(ReporteEntry.TABLE_NAME, null, header);
             } else {
-                // 2. Componente no encontrado, INSERTAR
-                ContentValues values = new ContentValues();
-                values.put(ComponenteEntry.COLUMN_NAME, name);
-                values.put(ComponenteEntry.COLUMN_CODIGO_INVENTARIO, inventoryCode);
-                values.put(ComponenteEntry.COLUMN_WORKSHOP_ID, workshopId);
-
-                // Insertar y obtener la nueva ID
-                componenteId = db.insert(ComponenteEntry.TABLE_NAME, null, values);
+                db.execSQL("UPDATE " + ReporteEntry.TABLE_NAME + " SET " + ReporteEntry.COLUMN_DATE_MODIFIED
+                        + " = CURRENT_TIMESTAMP WHERE " + ReporteEntry._ID + " = ?", new Object[]{ reportId });
+            }
+
+            insertStep = db.compileStatement(SQL_INSERT_STEP);
+            for (Step step : steps) {
+                insertStep.clearBindings();
+                insertStep.bindLong(1, reportId);
+                insertStep.bindLong(2, step.stepNumber);
+                if (TextUtils.isEmpty(step.description)) {
+                    insertStep.bindNull(3);
+                } else {
+                    insertStep.bindString(3, step.description);
+                }
+                insertStep.bindString(4, step.photoUri);
+                insertStep.bindLong(5, userId);
+                insertStep.executeInsert(); // Lanza SQLException si viola una restricción
             }
+
+            db.setTransactionSuccessful();
+            committed = true;
+            return reportId;
         } catch (Exception e) {
-            Log.e(TAG, "Error en getOrInsertComponenteId", e);
+            Log.e(TAG, "Error al guardar el informe; se revierte la transacción completa", e);
+            return -1;
         } finally {
-            if (cursor != null) cursor.close();
+            if (insertStep != null) insertStep.close();
+            db.endTransaction();
+            changeTracker.onWriteFinished(db, committed, componentInserted
+                    ? new String[]{ ReporteEntry.TABLE_NAME, InformeEntry.TABLE_NAME, ComponenteEntry.TABLE_NAME }
+                    : new String[]{ ReporteEntry.TABLE_NAME, InformeEntry.TABLE_NAME });
+        }
+    }
+
+    /**
+     * Devuelve el mayor número de paso registrado en un informe (0 si no tiene pasos).
+     */
+    public int getMaxStepNumber(long reportId) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT MAX(" + InformeEntry.COLUMN_STEP_NUMBER + ") FROM " + InformeEntry.TABLE_NAME
+                + " WHERE " + InformeEntry.COLUMN_REPORTE_ID + " = ?", new String[]{ String.valueOf(reportId) });
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // ===================================================================
+    // REFERENCIAS A FOTOS (MANTENIMIENTO DE ALMACENAMIENTO)
+    // ===================================================================
+
+    /**
+     * Todas las URIs de foto referenciadas por algún paso o borrador. Recorre las tablas completas:
+     * solo para el barrido de fotos huérfanas, nunca desde la UI.
+     */
+    public Set<String> getReferencedPhotoUris() {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        // Las fotos de los borradores también están en uso, aunque aún no estén en informes
+        Cursor cursor = db.rawQuery("SELECT " + InformeEntry.COLUMN_PHOTO_URI + " FROM " + InformeEntry.TABLE_NAME
+                + " UNION SELECT " + BorradorPasoEntry.COLUMN_PHOTO_URI + " FROM " + BorradorPasoEntry.TABLE_NAME
+                + " WHERE " + BorradorPasoEntry.COLUMN_PHOTO_URI + " IS NOT NULL", null);
+        Set<String> uris = new HashSet<>();
+        try {
+            while (cursor.moveToNext()) {
+                uris.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
         }
-        return componenteId;
+        return uris;
     }
 
     /**
-     * Inserta un nuevo paso en el informe (un registro fotográfico).
+     * Reemplaza una foto por otra en todos los pasos que la usan (p. ej. tras recomprimirla).
+     * @return Número de pasos actualizados, o -1 si falló.
      */
-    public long insertReportStep(long componenteId, int stepNumber, String description, String photoUri, long userId, String actionType) {
+    public int replacePhotoUri(String oldUri, String newUri) {
         SQLiteDatabase db = dbHelper.getWritableDatabase();
-        ContentValues values = new ContentValues();
+        String[] args = { oldUri };
+        boolean committed = false;
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(InformeEntry.COLUMN_PHOTO_URI, newUri);
+            int updated = db.update(InformeEntry.TABLE_NAME, values, InformeEntry.COLUMN_PHOTO_URI + " = ?", args);
 
-        values.put(InformeEntry.COLUMN_COMPONENTE_ID, componenteId);
-        values.put(InformeEntry.COLUMN_STEP_NUMBER, stepNumber);
-        values.put(InformeEntry.COLUMN_DESCRIPTION, description);
-        values.put(InformeEntry.COLUMN_PHOTO_URI, photoUri);
-        values.put(InformeEntry.COLUMN_USER_ID, userId);
-        values.put(InformeEntry.COLUMN_ACTION_TYPE, actionType);
+            values.clear();
+            values.put(BorradorPasoEntry.COLUMN_PHOTO_URI, newUri);
+            updated += db.update(BorradorPasoEntry.TABLE_NAME, values, BorradorPasoEntry.COLUMN_PHOTO_URI + " = ?", args);
 
-        long id = db.insert(InformeEntry.TABLE_NAME, null, values);
-        return id;
+            db.setTransactionSuccessful();
+            committed = true;
+            return updated;
+        } catch (Exception e) {
+            Log.e(TAG, "Error al reemplazar la foto " + oldUri, e);
+            return -1;
+        } finally {
+            db.endTransaction();
+            changeTracker.onWriteFinished(db, committed, InformeEntry.TABLE_NAME, BorradorPasoEntry.TABLE_NAME);
+        }
+    }
+
+    // ===================================================================
+    // BORRADORES (AUTOGUARDADO DE INFORMES EN CURSO)
+    // ===================================================================
+
+    /**
+     * Devuelve el borrador de un técnico para un informe (reportId = -1: informe nuevo),
+     * creándolo vacío si no existe.
+     * @return ID del borrador, o -1 si hubo un error.
+     */
+    public long getOrCreateDraft(long userId, long reportId) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        boolean inserted = false;
+        try {
+            ContentValues values = new ContentValues();
+            values.put(BorradorEntry.COLUMN_USER_ID, userId);
+            values.put(BorradorEntry.COLUMN_REPORTE_ID, reportId);
+            inserted = db.insertWithOnConflict(BorradorEntry.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_IGNORE) != -1;
+            return findDraftId(db, userId, reportId);
+        } catch (Exception e) {
+            Log.e(TAG, "Error al crear el borrador", e);
+            return -1;
+        } finally {
+            changeTracker.onWriteFinished(db, inserted, BorradorEntry.TABLE_NAME);
+        }
+    }
+
+    /**
+     * Guarda en UNA transacción el encabezado del borrador y los pasos indicados
+     * (cada paso reemplaza al guardado con el mismo número).
+     * @param replaceAll true si steps es la lista completa (tras borrar o reordenar pasos):
+     *                   se descartan los demás pasos del borrador. Si es false no se tocan.
+     * @return true si se guardó todo.
+     */
+    public boolean saveDraft(long draftId, String componentName, String inventoryCode, String actionType,
+                             List<Step> steps, boolean replaceAll) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement upsertStep = null;
+        boolean committed = false;
+
+        db.beginTransaction();
+        try {
+            db.execSQL("UPDATE " + BorradorEntry.TABLE_NAME + " SET "
+                    + BorradorEntry.COLUMN_COMPONENTE_NOMBRE + " = ?, "
+                    + BorradorEntry.COLUMN_CODIGO_INVENTARIO + " = ?, "
+                    + BorradorEntry.COLUMN_ACTION_TYPE + " = ?, "
+                    + BorradorEntry.COLUMN_DATE_MODIFIED + " = CURRENT_TIMESTAMP"
+                    + " WHERE " + BorradorEntry._ID + " = ?",
+                    new Object[]{ componentName, inventoryCode, actionType, draftId });
+            if (replaceAll) {
+                db.delete(BorradorPasoEntry.TABLE_NAME, BorradorPasoEntry.COLUMN_BORRADOR_ID + " = ?",
+                        new String[]{ String.valueOf(draftId) });
+            }
+
+            upsertStep = db.compileStatement(SQL_UPSERT_DRAFT_STEP);
+            for (Step step : steps) {
+                upsertStep.clearBindings();
+                upsertStep.bindLong(1, draftId);
+                upsertStep.bindLong(2, step.stepNumber);
+                if (step.description != null) upsertStep.bindString(3, step.description);
+                if (step.photoUri != null) upsertStep.bindString(4, step.photoUri);
+                upsertStep.executeInsert();
+            }
+
+            db.setTransactionSuccessful();
+            committed = true;
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error al guardar el borrador " + draftId, e);
+            return false;
+        } finally {
+            if (upsertStep != null) upsertStep.close();
+            db.endTransaction();
+            changeTracker.onWriteFinished(db, committed, BorradorEntry.TABLE_NAME, BorradorPasoEntry.TABLE_NAME);
+        }
+    }
+
+    /**
+     * Lee el borrador de un técnico para un informe, con sus pasos ordenados.
+     * @return El borrador, o null si no existe.
+     */
+    public Draft getDraft(long userId, long reportId) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        long draftId = findDraftId(db, userId, reportId);
+        return draftId != -1 ? readDraft(db, draftId) : null;
+    }
+
+    /**
+     * Descarta un borrador y sus pasos.
+     */
+    public void deleteDraft(long draftId) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        int deleted = 0;
+        try {
+            deleted = db.delete(BorradorEntry.TABLE_NAME, BorradorEntry._ID + " = ?", new String[]{ String.valueOf(draftId) });
+        } catch (Exception e) {
+            Log.e(TAG, "Error al borrar el borrador " + draftId, e);
+        } finally {
+            changeTracker.onWriteFinished(db, deleted > 0, BorradorEntry.TABLE_NAME, BorradorPasoEntry.TABLE_NAME);
+        }
+    }
+
+    /**
+     * Finaliza un borrador: guarda sus pasos con contenido como informe (ver insertReportSteps)
+     * y borra el borrador, todo en UNA transacción. Si algo falla, el borrador queda intacto.
+     * @return ID del informe, o -1 si hubo un error o el borrador no tenía pasos con contenido.
+     */
+    public long promoteDraft(long draftId, long workshopId) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        boolean committed = false;
+
+        db.beginTransaction();
+        try {
+            long userId;
+            long reportId;
+            Cursor header = db.query(BorradorEntry.TABLE_NAME,
+                    new String[]{ BorradorEntry.COLUMN_USER_ID, BorradorEntry.COLUMN_REPORTE_ID },
+                    BorradorEntry._ID + " = ?", new String[]{ String.valueOf(draftId) }, null, null, null);
+            try {
+                if (!header.moveToFirst()) {
+                    Log.e(TAG, "No existe el borrador " + draftId);
+                    return -1;
+                }
+                userId = header.getLong(0);
+                reportId = header.getLong(1);
+            } finally {
+                header.close();
+            }
+
+            Draft draft = readDraft(db, draftId);
+            List<Step> steps = new ArrayList<>();
+            for (Step step : draft.steps) {
+                // Pasos completamente vacíos (sin descripción ni foto): se ignoran
+                if (TextUtils.isEmpty(step.description) && TextUtils.isEmpty(step.photoUri)) continue;
+                steps.add(new Step(step.stepNumber, step.description,
+                        step.photoUri != null ? step.photoUri : UserProjectContract.PLACEHOLDER_PHOTO_URI));
+            }
+            if (steps.isEmpty()) {
+                return -1;
+            }
+
+            // Transacción anidada: si falla, marca la externa como fallida y se revierte todo
+            long savedId = insertReportSteps(reportId, draft.componentName, draft.inventoryCode, workshopId,
+                    userId, draft.actionType, steps);
+            if (savedId == -1) {
+                return -1;
+            }
+
+            db.delete(BorradorEntry.TABLE_NAME, BorradorEntry._ID + " = ?", new String[]{ String.valueOf(draftId) });
+            db.setTransactionSuccessful();
+            committed = true;
+            return savedId;
+        } catch (Exception e) {
+            Log.e(TAG, "Error al finalizar el borrador " + draftId, e);
+            return -1;
+        } finally {
+            db.endTransaction();
+            // Publica también las tablas de insertReportSteps, que esperaban este commit
+            changeTracker.onWriteFinished(db, committed, BorradorEntry.TABLE_NAME, BorradorPasoEntry.TABLE_NAME);
+        }
+    }
+
+    private long findDraftId(SQLiteDatabase db, long userId, long reportId) {
+        Cursor cursor = db.rawQuery("SELECT " + BorradorEntry._ID + " FROM " + BorradorEntry.TABLE_NAME
+                        + " WHERE " + BorradorEntry.COLUMN_USER_ID + " = ? AND " + BorradorEntry.COLUMN_REPORTE_ID + " = ?",
+                new String[]{ String.valueOf(userId), String.valueOf(reportId) });
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private Draft readDraft(SQLiteDatabase db, long draftId) {
+        String[] args = { String.valueOf(draftId) };
+        Draft draft = new Draft();
+        draft.id = draftId;
+
+        Cursor header = db.query(BorradorEntry.TABLE_NAME,
+                new String[]{ BorradorEntry.COLUMN_COMPONENTE_NOMBRE, BorradorEntry.COLUMN_CODIGO_INVENTARIO, BorradorEntry.COLUMN_ACTION_TYPE },
+                BorradorEntry._ID + " = ?", args, null, null, null);
+        try {
+            if (header.moveToFirst()) {
+                draft.componentName = header.getString(0);
+                draft.inventoryCode = header.getString(1);
+                draft.actionType = header.getString(2);
+            }
+        } finally {
+            header.close();
+        }
+
+        Cursor steps = db.query(BorradorPasoEntry.TABLE_NAME,
+                new String[]{ BorradorPasoEntry.COLUMN_STEP_NUMBER, BorradorPasoEntry.COLUMN_DESCRIPTION, BorradorPasoEntry.COLUMN_PHOTO_URI },
+                BorradorPasoEntry.COLUMN_BORRADOR_ID + " = ?", args, null, null, BorradorPasoEntry.COLUMN_STEP_NUMBER + " ASC");
+        try {
+            while (steps.moveToNext()) {
+                draft.steps.add(new Step(steps.getInt(0), steps.getString(1), steps.getString(2)));
+            }
+        } finally {
+            steps.close();
+        }
+        return draft;
     }
 
     // ===================================================================
@@ -151,146 +563,346 @@ public class UserProjectDatabase {
     // ===================================================================
 
     /**
-     * Obtiene la lista de informes con detalles del componente y técnico (filtrado por rol).
+     * Obtiene la lista de informes (una fila por informe, con su número de pasos y
+     * fecha de última modificación) con detalles del componente y técnico (filtrado por rol).
      */
     public Cursor getReportsList(long userId, String role) {
+        return getReportsPage(userId, role, null, -1, 0);
+    }
+
+    /**
+     * Obtiene una página de la lista de informes usando paginación por clave (keyset)
+     * sobre (fecha_modificacion, _id) en orden descendente, sin OFFSET: el costo de cada
+     * página no depende de cuántas filas hay antes. Lee solo resumen_informes (ya trae los
+     * nombres y el número de pasos), recorriendo idx_resumen_fecha o idx_resumen_usuario_fecha.
+     * @param afterDate Fecha de modificación de la última fila de la página anterior (null = primera página).
+     * @param afterId   _id de la última fila de la página anterior.
+     * @param limit     Tamaño de página (0 = sin límite).
+     */
+    public Cursor getReportsPage(long userId, String role, String afterDate, long afterId, int limit) {
         SQLiteDatabase db = dbHelper.getReadableDatabase();
-        SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-
-        // Tablas: Informes (I), Componentes (C), Usuarios (U), Talleres (T)
-        qb.setTables(
-                InformeEntry.TABLE_NAME + " I " +
-                        "INNER JOIN " + ComponenteEntry.TABLE_NAME + " C ON I." + InformeEntry.COLUMN_COMPONENTE_ID + " = C." + ComponenteEntry._ID +
-                        " INNER JOIN " + UserEntry.TABLE_NAME + " U ON I." + InformeEntry.COLUMN_USER_ID + " = U." + UserEntry._ID +
-                        " INNER JOIN " + TallerEntry.TABLE_NAME + " T ON U." + UserEntry.COLUMN_WORKSHOP_ID + " = T." + TallerEntry._ID
-        );
 
-        String orderBy = "I." + InformeEntry.COLUMN_DATE_LOGGED + " DESC";
+        String orderBy = ResumenEntry.COLUMN_DATE_MODIFIED + " DESC, " + ResumenEntry.COLUMN_REPORTE_ID + " DESC";
 
-        String[] projectionIn = {
-                "I." + InformeEntry._ID,
-                "C." + ComponenteEntry.COLUMN_NAME + " AS componente_nombre",
-                "C." + ComponenteEntry.COLUMN_CODIGO_INVENTARIO,
-                "I." + InformeEntry.COLUMN_ACTION_TYPE,
-                "U." + UserEntry.COLUMN_NAME + " AS " + UserProjectContract.ALIAS_TECNICO_NOMBRE,
-                "T." + TallerEntry.COLUMN_NAME + " AS " + UserProjectContract.ALIAS_TALLER_NOMBRE,
-                "I." + InformeEntry.COLUMN_DATE_LOGGED
+        // Mismos nombres de columna que antes de la tabla resumen (ReportCursorAdapter, ReportPageLoader)
+        String[] projection = {
+                ResumenEntry.COLUMN_REPORTE_ID + " AS " + ReporteEntry._ID,
+                ResumenEntry.COLUMN_COMPONENTE_NOMBRE,
+                ResumenEntry.COLUMN_CODIGO_INVENTARIO,
+                ResumenEntry.COLUMN_ACTION_TYPE,
+                ResumenEntry.COLUMN_TECNICO_NOMBRE,
+                ResumenEntry.COLUMN_TALLER_NOMBRE,
+                ResumenEntry.COLUMN_DATE_MODIFIED,
+                ResumenEntry.COLUMN_NUM_PASOS,
+                ResumenEntry.COLUMN_FOTO_PORTADA
         };
 
-        String selection = null;
-        String[] selectionArgs = null;
+        List<String> conditions = new ArrayList<>();
+        List<String> args = new ArrayList<>();
 
         // Lógica de filtrado: Si no es Admin, solo muestra los informes que él creó
         if (UserProjectContract.ROLE_TECNICO.equals(role)) {
-            selection = "I." + InformeEntry.COLUMN_USER_ID + " = ?";
-            selectionArgs = new String[]{ String.valueOf(userId) };
+            conditions.add(ResumenEntry.COLUMN_USER_ID + " = ?");
+            args.add(String.valueOf(userId));
+        }
+
+        // Clave de la página anterior. El "<=" redundante permite a SQLite posicionarse
+        // directamente en el índice en lugar de recorrerlo desde el inicio.
+        if (afterDate != null) {
+            String date = ResumenEntry.COLUMN_DATE_MODIFIED;
+            conditions.add(date + " <= ? AND (" + date + " < ? OR (" + date + " = ? AND "
+                    + ResumenEntry.COLUMN_REPORTE_ID + " < ?))");
+            args.add(afterDate);
+            args.add(afterDate);
+            args.add(afterDate);
+            args.add(String.valueOf(afterId));
         }
 
-        return qb.query(
-                db, projectionIn, selection, selectionArgs, null, null, orderBy
+        String selection = conditions.isEmpty() ? null : TextUtils.join(" AND ", conditions);
+        String[] selectionArgs = args.isEmpty() ? null : args.toArray(new String[0]);
+
+        return db.query(
+                ResumenEntry.TABLE_NAME, projection, selection, selectionArgs, null, null, orderBy,
+                limit > 0 ? String.valueOf(limit) : null
         );
     }
 
+    /**
+     * IDs de los informes modificados en el rango [fromDate, toDate), del más antiguo al
+     * más reciente. Pensado para las exportaciones por lotes (p. ej. un mes completo).
+     * Es un recorrido por rango sobre idx_reportes_fecha.
+     * @param fromDate Fecha inicial inclusiva, formato "yyyy-MM-dd HH:mm:ss".
+     * @param toDate   Fecha final exclusiva, mismo formato.
+     */
+    public List<Long> getReportIdsModifiedBetween(String fromDate, String toDate) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = db.query(ReporteEntry.TABLE_NAME,
+                new String[]{ ReporteEntry._ID },
+                ReporteEntry.COLUMN_DATE_MODIFIED + " >= ? AND " + ReporteEntry.COLUMN_DATE_MODIFIED + " < ?",
+                new String[]{ fromDate, toDate },
+                null, null,
+                ReporteEntry.COLUMN_DATE_MODIFIED + " ASC, " + ReporteEntry._ID + " ASC");
+        List<Long> ids = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
     /**
      * Obtiene los detalles de un informe específico para el encabezado del PDF.
-     * La consulta se basa en el ID (Primary Key) del primer paso/registro del informe.
+     * Es una búsqueda por clave primaria en resumen_informes (el taller es el del componente).
      */
     public Cursor getReportDetails(long reportId) {
         SQLiteDatabase db = dbHelper.getReadableDatabase();
-        SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-
-        // Tablas: Informes (I), Componentes (C), Usuarios (U), Talleres (T)
-        qb.setTables(
-                InformeEntry.TABLE_NAME + " I " +
-                        "INNER JOIN " + ComponenteEntry.TABLE_NAME + " C ON I." + InformeEntry.COLUMN_COMPONENTE_ID + " = C." + ComponenteEntry._ID +
-                        " INNER JOIN " + UserEntry.TABLE_NAME + " U ON I." + InformeEntry.COLUMN_USER_ID + " = U." + UserEntry._ID +
-                        // Unimos a Taller a través del componente, no del usuario (para ser más robustos)
-                        " LEFT JOIN " + TallerEntry.TABLE_NAME + " T ON C." + ComponenteEntry.COLUMN_WORKSHOP_ID + " = T." + TallerEntry._ID
-        );
 
-        // Columnas a devolver (incluyendo los alias necesarios para ReportPDFGenerator)
-        String[] projectionIn = {
-                "I." + InformeEntry.COLUMN_ACTION_TYPE,
-                "I." + InformeEntry.COLUMN_DATE_LOGGED,
-                "C." + ComponenteEntry.COLUMN_NAME, // Nombre del componente
-                "C." + ComponenteEntry.COLUMN_CODIGO_INVENTARIO, // Código
-                "U." + UserEntry.COLUMN_NAME + " AS " + UserProjectContract.ALIAS_TECNICO_NOMBRE, // Nombre del Técnico
-                "T." + TallerEntry.COLUMN_NAME + " AS " + UserProjectContract.ALIAS_TALLER_NOMBRE // Nombre del Taller
+        // Columnas a devolver (con los nombres que usan ReportPageRenderer y StepRegisterActivity)
+        String[] projection = {
+                ResumenEntry.COLUMN_ACTION_TYPE,
+                ResumenEntry.COLUMN_DATE_CREATED,
+                ResumenEntry.COLUMN_COMPONENTE_NOMBRE + " AS " + ComponenteEntry.COLUMN_NAME, // Nombre del componente
+                ResumenEntry.COLUMN_CODIGO_INVENTARIO, // Código
+                ResumenEntry.COLUMN_TECNICO_NOMBRE, // Nombre del Técnico
+                ResumenEntry.COLUMN_TALLER_NOMBRE, // Nombre del Taller
+                ResumenEntry.COLUMN_NUM_PASOS,
+                ResumenEntry.COLUMN_FOTO_PORTADA
         };
 
-        // Seleccionar solo el registro inicial (Primary Key) del informe
-        String selection = "I." + InformeEntry._ID + " = ?";
+        String selection = ResumenEntry.COLUMN_REPORTE_ID + " = ?";
         String[] selectionArgs = { String.valueOf(reportId) };
 
-        Cursor cursor = qb.query(db, projectionIn, selection, selectionArgs, null, null, InformeEntry.COLUMN_DATE_LOGGED + " ASC", "1"); // LIMIT 1
-
-        return cursor;
+        return db.query(ResumenEntry.TABLE_NAME, projection, selection, selectionArgs, null, null, null);
     }
 
     /**
-     * 🚨 CORRECCIÓN CRÍTICA: Obtiene todos los pasos (registros fotográficos) de un informe.
-     * Utiliza una consulta en dos pasos para garantizar que se recuperan todos los registros
-     * que pertenecen al mismo Componente y Tipo de Acción que el registro inicial (reportId).
+     * Obtiene todos los pasos (registros fotográficos) de un informe, ordenados por número.
+     * Es una única lectura por rango sobre el índice UNIQUE(reporte_id, numero_paso).
      */
     public Cursor getStepsForReport(long reportId) {
         SQLiteDatabase db = dbHelper.getReadableDatabase();
-        Cursor initialCursor = null;
-        String componenteId = null;
-        String actionType = null;
 
-        // 1. Encontrar el COMPONENTE_ID y ACTION_TYPE usando el ID del primer registro (reportId)
+        String[] projection = {
+                InformeEntry._ID,
+                InformeEntry.COLUMN_STEP_NUMBER,
+                InformeEntry.COLUMN_DESCRIPTION,
+                InformeEntry.COLUMN_PHOTO_URI,
+                InformeEntry.COLUMN_DATE_LOGGED
+        };
+
+        String selection = InformeEntry.COLUMN_REPORTE_ID + " = ?";
+        String[] selectionArgs = { String.valueOf(reportId) };
+
+        // Ordenar por número de paso
+        return db.query(
+                InformeEntry.TABLE_NAME,
+                projection,
+                selection,
+                selectionArgs,
+                null, null,
+                InformeEntry.COLUMN_STEP_NUMBER + " ASC"
+        );
+    }
+
+    // ===================================================================
+    // BÚSQUEDA DE TEXTO COMPLETO
+    // ===================================================================
+
+    /**
+     * Busca pasos por descripción, nombre de componente o código de inventario usando el
+     * índice FTS4. Cada palabra se busca por prefijo ("valv" encuentra "válvula") y todas
+     * deben aparecer. Los resultados se ordenan por relevancia.
+     * @return Cursor con _id (del paso), reporte_id, numero_paso, componente_nombre,
+     *         codigo_inventario, tipo_accion, fragmento y relevancia.
+     */
+    public Cursor searchReports(String query, int limit) {
+        String[] columns = {
+                InformeEntry._ID,
+                InformeEntry.COLUMN_REPORTE_ID,
+                InformeEntry.COLUMN_STEP_NUMBER,
+                UserProjectContract.ALIAS_COMPONENTE_NOMBRE,
+                ComponenteEntry.COLUMN_CODIGO_INVENTARIO,
+                ReporteEntry.COLUMN_ACTION_TYPE,
+                UserProjectContract.ALIAS_SNIPPET,
+                UserProjectContract.ALIAS_RANK
+        };
+        MatrixCursor results = new MatrixCursor(columns);
+
+        String matchExpression = toPrefixMatch(query);
+        if (matchExpression == null || limit <= 0) {
+            return results;
+        }
+
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+        // 1. Calcular la relevancia de cada coincidencia con matchinfo (sin generar fragmentos)
+        //    y conservar solo las 'limit' mejores.
+        PriorityQueue<double[]> best = new PriorityQueue<>(limit, (a, b) -> Double.compare(a[1], b[1]));
+        Cursor matches = db.rawQuery("SELECT docid, matchinfo(" + BusquedaEntry.TABLE_NAME + ", 'pcx') FROM "
+                + BusquedaEntry.TABLE_NAME + " WHERE " + BusquedaEntry.TABLE_NAME + " MATCH ?", new String[]{ matchExpression });
         try {
-            initialCursor = db.query(
-                    InformeEntry.TABLE_NAME,
-                    new String[]{InformeEntry.COLUMN_COMPONENTE_ID, InformeEntry.COLUMN_ACTION_TYPE},
-                    InformeEntry._ID + " = ?",
-                    new String[]{String.valueOf(reportId)},
-                    null, null, null, "1" // Limitado a 1
-            );
-
-            if (initialCursor != null && initialCursor.moveToFirst()) {
-                // Obtener los datos clave para el filtro
-                componenteId = initialCursor.getString(initialCursor.getColumnIndexOrThrow(InformeEntry.COLUMN_COMPONENTE_ID));
-                actionType = initialCursor.getString(initialCursor.getColumnIndexOrThrow(InformeEntry.COLUMN_ACTION_TYPE));
-            } else {
-                Log.w(TAG, "No se encontró el registro inicial del informe para determinar el grupo de pasos: ID " + reportId);
-                return null;
+            while (matches.moveToNext()) {
+                double rank = rankMatch(matches.getBlob(1));
+                if (best.size() < limit) {
+                    best.add(new double[]{ matches.getLong(0), rank });
+                } else if (rank > best.peek()[1]) {
+                    best.poll();
+                    best.add(new double[]{ matches.getLong(0), rank });
+                }
+            }
+        } finally {
+            matches.close();
+        }
+
+        if (best.isEmpty()) {
+            return results;
+        }
+
+        List<double[]> ranked = new ArrayList<>(best);
+        Collections.sort(ranked, (a, b) -> Double.compare(b[1], a[1]));
+
+        // 2. Datos y fragmentos solo para los resultados elegidos
+        StringBuilder placeholders = new StringBuilder();
+        String[] args = new String[ranked.size() + 1];
+        args[0] = matchExpression;
+        for (int i = 0; i < ranked.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+            args[i + 1] = String.valueOf((long) ranked.get(i)[0]);
+        }
+
+        Cursor details = db.rawQuery("SELECT F.docid, I." + InformeEntry.COLUMN_REPORTE_ID + ", I." + InformeEntry.COLUMN_STEP_NUMBER + ", "
+                + "C." + ComponenteEntry.COLUMN_NAME + ", C." + ComponenteEntry.COLUMN_CODIGO_INVENTARIO + ", "
+                + "R." + ReporteEntry.COLUMN_ACTION_TYPE + ", "
+                + "snippet(" + BusquedaEntry.TABLE_NAME + ", '[', ']', '…', -1, 12)"
+                + " FROM " + BusquedaEntry.TABLE_NAME + " F"
+                + " INNER JOIN " + InformeEntry.TABLE_NAME + " I ON I." + InformeEntry._ID + " = F.docid"
+                + " INNER JOIN " + ReporteEntry.TABLE_NAME + " R ON R." + ReporteEntry._ID + " = I." + InformeEntry.COLUMN_REPORTE_ID
+                + " INNER JOIN " + ComponenteEntry.TABLE_NAME + " C ON C." + ComponenteEntry._ID + " = R." + ReporteEntry.COLUMN_COMPONENTE_ID
+                + " WHERE " + BusquedaEntry.TABLE_NAME + " MATCH ? AND F.docid IN (" + placeholders + ")", args);
+        try {
+            // Reordenar según la relevancia calculada en el paso 1
+            Map<Long, Object[]> rows = new HashMap<>();
+            while (details.moveToNext()) {
+                rows.put(details.getLong(0), new Object[]{
+                        details.getLong(0), details.getLong(1), details.getInt(2), details.getString(3),
+                        details.getString(4), details.getString(5), details.getString(6), 0d
+                });
+            }
+            for (double[] hit : ranked) {
+                Object[] row = rows.get((long) hit[0]);
+                if (row != null) {
+                    row[7] = hit[1];
+                    results.addRow(row);
+                }
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Error al buscar el Componente ID y Action Type para el reporte: " + reportId, e);
-            return null;
         } finally {
-            if (initialCursor != null) {
-                initialCursor.close();
+            details.close();
+        }
+        return results;
+    }
+
+    /**
+     * Convierte el texto del usuario en una expresión MATCH de prefijos: "valv bomba" -> "valv* bomba*".
+     * Se descartan los operadores y signos de FTS para que la entrada nunca rompa la consulta.
+     */
+    static String toPrefixMatch(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String token : query.split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) {
+                continue;
             }
+            if (match.length() > 0) match.append(' ');
+            match.append(token).append('*');
         }
+        return match.length() > 0 ? match.toString() : null;
+    }
 
-        // 2. Si se encuentran los datos, consultar TODOS los pasos con ese COMPONENTE_ID y ACTION_TYPE
-        if (componenteId != null && actionType != null) {
-            String[] projection = {
-                    InformeEntry._ID,
-                    InformeEntry.COLUMN_STEP_NUMBER,
-                    InformeEntry.COLUMN_DESCRIPTION,
-                    InformeEntry.COLUMN_PHOTO_URI,
-                    InformeEntry.COLUMN_DATE_LOGGED
-            };
-
-            // Filtrar por Componente ID y Tipo de Acción para agrupar todos los pasos del reporte lógico
-            String selection = InformeEntry.COLUMN_COMPONENTE_ID + " = ? AND " + InformeEntry.COLUMN_ACTION_TYPE + " = ?";
-            String[] selectionArgs = { componenteId, actionType };
-
-            // Ordenar por número de paso
-            return db.query(
-                    InformeEntry.TABLE_NAME,
-                    projection,
-                    selection,
-                    selectionArgs,
-                    null, null,
-                    InformeEntry.COLUMN_STEP_NUMBER + " ASC"
-            );
+    /**
+     * Relevancia de una fila a partir de matchinfo 'pcx' (función de rango de la documentación
+     * de FTS4): suma, por frase y columna, las apariciones en la fila divididas por las
+     * apariciones en todo el índice, ponderadas por columna.
+     */
+    private static double rankMatch(byte[] matchInfo) {
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int base = 2 + 3 * (phrase * columns + column);
+                int hitsThisRow = buffer.getInt(base * 4);
+                int hitsAllRows = buffer.getInt((base + 1) * 4);
+                if (hitsThisRow > 0 && hitsAllRows > 0) {
+                    double weight = column < SEARCH_COLUMN_WEIGHTS.length ? SEARCH_COLUMN_WEIGHTS[column] : 1.0;
+                    score += weight * ((double) hitsThisRow / hitsAllRows);
+                }
+            }
         }
+        return score;
+    }
 
-        return null;
+    // ===================================================================
+    // MANTENIMIENTO DE LA TABLA RESUMEN
+    // ===================================================================
+
+    /**
+     * Compara resumen_informes con el resumen recalculado desde las tablas base. Recorre las
+     * tablas completas: para diagnóstico o mantenimiento, nunca desde la UI.
+     * @return Número de informes cuya fila falta, sobra o difiere (0 = consistente), o -1 si falló.
+     */
+    public int checkSummaryConsistency() {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        String stored = "SELECT * FROM " + ResumenEntry.TABLE_NAME;
+        String expected = DBMigrations.SELECT_RESUMEN;
+        // Diferencia simétrica: filas esperadas que no están guardadas y viceversa
+        String sql = "SELECT COUNT(DISTINCT id) FROM ("
+                + "SELECT " + ReporteEntry._ID + " AS id FROM (" + expected + " EXCEPT " + stored + ")"
+                + " UNION ALL SELECT " + ResumenEntry.COLUMN_REPORTE_ID + " FROM (" + stored + " EXCEPT " + expected + "))";
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            int mismatches = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+            if (mismatches > 0) {
+                Log.w(TAG, "resumen_informes inconsistente: " + mismatches + " informes difieren");
+            }
+            return mismatches;
+        } catch (Exception e) {
+            Log.e(TAG, "Error al verificar resumen_informes", e);
+            return -1;
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+    }
+
+    /**
+     * Vuelve a calcular resumen_informes completo desde las tablas base, en UNA transacción.
+     * @return Número de filas del resumen, o -1 si falló (el resumen anterior queda intacto).
+     */
+    public long rebuildSummary() {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        boolean committed = false;
+        db.beginTransaction();
+        try {
+            db.delete(ResumenEntry.TABLE_NAME, null, null);
+            long rows = DBMigration.copyInBatches(db, ReporteEntry.TABLE_NAME, "R",
+                    DBMigrations.INSERT_INTO_RESUMEN + " " + DBMigrations.SELECT_RESUMEN, DBMigration.DEFAULT_BATCH_SIZE);
+            db.setTransactionSuccessful();
+            committed = true;
+            Log.i(TAG, "resumen_informes reconstruido: " + rows + " informes");
+            return rows;
+        } catch (Exception e) {
+            Log.e(TAG, "Error al reconstruir resumen_informes", e);
+            return -1;
+        } finally {
+            db.endTransaction();
+            changeTracker.onWriteFinished(db, committed, ResumenEntry.TABLE_NAME);
+        }
     }
 
     /**